@@ -0,0 +1,87 @@
+package com.brillantcode.gate.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Fails when a synchronous dispatch path allocates in steady state.
+ *
+ * <p>Runs the dispatch and handler benchmarks with the {@link GCProfiler}
+ * and checks the normalized allocation rate of every one of them,
+ * which escape analysis should bring down to zero bytes per operation.
+ * Run with the {@code allocation-check} profile of the module, as the CI build does.
+ */
+public final class AllocationCheck {
+
+  /**
+   * Benchmarks that must not allocate.
+   */
+  static final String BENCHMARKS =
+      DispatchBenchmark.class.getName() + ".(gate|intercepted|instrumented)|"
+          + MethodCommandHandlerBenchmark.class.getName() + ".(lambda|reflective)";
+
+  /**
+   * Highest allowed allocation, in bytes per operation. Not zero, as allocations
+   * of the benchmark infrastructure are spread over the operations.
+   */
+  static final double MAX_BYTES_PER_OPERATION = 1.0;
+
+  private static final String ALLOCATION_RATE = "gc.alloc.rate.norm";
+
+  private AllocationCheck() {
+  }
+
+  /**
+   * Runs the benchmarks and exits with a non-zero status if any of them allocates.
+   *
+   * @param args Ignored.
+   * @throws RunnerException If the benchmark run failed.
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(BENCHMARKS)
+        .addProfiler(GCProfiler.class)
+        .warmupIterations(3)
+        .warmupTime(TimeValue.seconds(1))
+        .measurementIterations(3)
+        .measurementTime(TimeValue.seconds(1))
+        .forks(1)
+        .build();
+
+    Collection<RunResult> results = new Runner(options).run();
+
+    List<String> failures = new ArrayList<>();
+    for (RunResult result : results) {
+      String benchmark = result.getParams().getBenchmark()
+          + result.getParams().getParamsKeys().stream()
+          .map(key -> " " + key + "=" + result.getParams().getParam(key))
+          .reduce("", String::concat);
+      Result<?> allocation = result.getSecondaryResults().get(ALLOCATION_RATE);
+      if (allocation == null) {
+        failures.add(benchmark + " did not report " + ALLOCATION_RATE);
+      } else if (allocation.getScore() > MAX_BYTES_PER_OPERATION) {
+        failures.add(String.format("%s allocates %.2f bytes per operation",
+            benchmark, allocation.getScore()));
+      }
+    }
+
+    if (results.isEmpty()) {
+      failures.add("No benchmark matched " + BENCHMARKS);
+    }
+    if (!failures.isEmpty()) {
+      failures.forEach(System.err::println);
+      System.exit(1);
+    }
+    System.out.println("No allocations on the dispatch paths");
+  }
+
+}
@@ -0,0 +1,21 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+
+/**
+ * Hand-written command used where a handler method with
+ * an exact parameter type is needed.
+ */
+public final class BenchmarkCommand implements Command {
+
+  private final long value;
+
+  public BenchmarkCommand(long value) {
+    this.value = value;
+  }
+
+  public long value() {
+    return value;
+  }
+
+}
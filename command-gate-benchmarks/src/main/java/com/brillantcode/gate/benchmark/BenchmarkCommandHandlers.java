@@ -0,0 +1,19 @@
+package com.brillantcode.gate.benchmark;
+
+/**
+ * Bean owning a handler method for {@link BenchmarkCommand},
+ * in the shape discovered by the method based handler discoverers.
+ */
+public class BenchmarkCommandHandlers {
+
+  private long sum;
+
+  public void handle(BenchmarkCommand command) {
+    sum += command.value();
+  }
+
+  public long sum() {
+    return sum;
+  }
+
+}
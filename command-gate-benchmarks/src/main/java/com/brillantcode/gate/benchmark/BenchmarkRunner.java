@@ -0,0 +1,43 @@
+package com.brillantcode.gate.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks uber jar.
+ *
+ * <p>Accepts the same arguments as the JMH command line
+ * and always attaches the {@link GCProfiler}, so that every
+ * run reports allocation rates next to the timings.
+ *
+ * <pre>
+ *   java -jar command-gate-benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  /**
+   * Runs the benchmarks selected by the given JMH command line.
+   *
+   * @param args JMH command line arguments.
+   * @throws CommandLineOptionException If the arguments could not be parsed.
+   * @throws RunnerException            If the benchmark run failed.
+   */
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    Options options = new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+
+    new Runner(options).run();
+  }
+
+}
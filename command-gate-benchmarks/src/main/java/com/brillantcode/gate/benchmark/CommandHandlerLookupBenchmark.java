@@ -0,0 +1,57 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of resolving the handler of a command through
+ * {@link com.brillantcode.gate.handler.AbstractMapCommandHandlerRegistry#getCommandHandler}.
+ *
+ * <p>The baseline reads the handler directly from an array,
+ * which is what a hand-written dispatch table would do. The map benchmark
+ * is a plain {@link java.util.HashMap} lookup by the command class, the immutable map
+ * benchmark a lookup in a {@link java.util.Map#copyOf(java.util.Map) copy} of it and the table
+ * benchmark a lookup in the {@link com.brillantcode.gate.handler.CommandHandlerTable}
+ * backing the registry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandHandlerLookupBenchmark {
+
+  @Benchmark
+  public CommandHandler<?> baseline(CommandTypesState state) {
+    return state.handlers[state.next()];
+  }
+
+  @Benchmark
+  public CommandHandler<?> map(CommandTypesState state) {
+    return state.handlersByType.get(state.commands[state.next()].getClass());
+  }
+
+  @Benchmark
+  public CommandHandler<?> immutableMap(CommandTypesState state) {
+    return state.immutableHandlersByType.get(state.commands[state.next()].getClass());
+  }
+
+  @Benchmark
+  public CommandHandler<?> table(CommandTypesState state) {
+    return state.handlerTable.get(state.commands[state.next()].getClass());
+  }
+
+  @Benchmark
+  public CommandHandler<Command> registry(CommandTypesState state) {
+    return state.handlerRegistry.getCommandHandler(state.commands[state.next()]);
+  }
+
+}
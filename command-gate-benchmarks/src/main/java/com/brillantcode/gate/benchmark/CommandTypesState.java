@@ -0,0 +1,79 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.CommandCollectionRegistry;
+import com.brillantcode.gate.handler.AutoInitializingMapCommandHandlerRegistry;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.CommandHandlerRegistry;
+import com.brillantcode.gate.handler.CommandHandlerTable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Registry of the given number of synthetic command types,
+ * each with its own {@link CountingCommandHandler}.
+ *
+ * <p>Benchmarks walk the commands in a round-robin fashion
+ * so that lookups are not served from a single hot entry.
+ */
+@State(Scope.Thread)
+public class CommandTypesState {
+
+  @Param({"10", "1000", "10000"})
+  public int commandTypes;
+
+  Command[] commands;
+
+  CountingCommandHandler[] handlers;
+
+  Map<Class<? extends Command>, CommandHandler<?>> handlersByType;
+
+  Map<Class<? extends Command>, CommandHandler<?>> immutableHandlersByType;
+
+  CommandHandlerTable handlerTable;
+
+  CommandHandlerRegistry handlerRegistry;
+
+  private int cursor;
+
+  /**
+   * Creates the command types, their handlers and the handler registry.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    List<Class<? extends Command>> types = SyntheticCommands.types(commandTypes);
+    commands = SyntheticCommands.instances(types);
+    handlers = new CountingCommandHandler[types.size()];
+
+    handlersByType = new HashMap<>();
+    for (int i = 0; i < handlers.length; i++) {
+      handlers[i] = new CountingCommandHandler();
+      handlersByType.put(types.get(i), handlers[i]);
+    }
+
+    immutableHandlersByType = Map.copyOf(handlersByType);
+    handlerTable = new CommandHandlerTable(handlersByType);
+    handlerRegistry = new AutoInitializingMapCommandHandlerRegistry(
+        new CommandCollectionRegistry(types),
+        new MapCommandHandlerDiscoverer(handlersByType)
+    );
+  }
+
+  /**
+   * Returns the index of the next command to use.
+   *
+   * @return Index into {@link #commands} and {@link #handlers}.
+   */
+  int next() {
+    int index = cursor;
+    cursor = index + 1 == commands.length ? 0 : index + 1;
+    return index;
+  }
+
+}
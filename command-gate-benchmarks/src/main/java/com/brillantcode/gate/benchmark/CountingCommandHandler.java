@@ -0,0 +1,25 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+
+/**
+ * Handler that only counts the commands it received.
+ *
+ * <p>The counter is written by a single thread at a time
+ * and is volatile so that benchmark threads can wait on it.
+ */
+final class CountingCommandHandler implements CommandHandler<Command> {
+
+  private volatile long handled;
+
+  @Override
+  public void handle(Command command) {
+    handled++;
+  }
+
+  long handled() {
+    return handled;
+  }
+
+}
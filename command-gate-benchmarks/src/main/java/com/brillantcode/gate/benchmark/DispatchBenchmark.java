@@ -0,0 +1,125 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.CommandCollectionRegistry;
+import com.brillantcode.gate.DefaultGate;
+import com.brillantcode.gate.Gate;
+import com.brillantcode.gate.handler.AutoInitializingMapCommandHandlerRegistry;
+import com.brillantcode.gate.interceptor.CommandInterceptor;
+import com.brillantcode.gate.interceptor.InterceptingCommandHandlerDiscoverer;
+import com.brillantcode.gate.metrics.CommandMetrics;
+import com.brillantcode.gate.metrics.InstrumentedGate;
+import com.brillantcode.gate.scheduler.JavaExecutorCommandScheduler;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a synchronous {@link DefaultGate#dispatch} compared
+ * to calling the command handler directly.
+ *
+ * <p>The {@code intercepted} benchmark dispatches through a chain
+ * of pass-through {@link CommandInterceptor interceptors}, the {@code instrumented} one
+ * through an {@link InstrumentedGate} collecting {@link CommandMetrics}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+  @Benchmark
+  public void baseline(GateState state) {
+    int index = state.next();
+    state.handlers[index].handle(state.commands[index]);
+  }
+
+  @Benchmark
+  public void gate(GateState state) {
+    state.gate.dispatch(state.commands[state.next()]);
+  }
+
+  @Benchmark
+  public void intercepted(InterceptedGateState state) {
+    state.gate.dispatch(state.commands[state.next()]);
+  }
+
+  @Benchmark
+  public void instrumented(InstrumentedGateState state) {
+    state.gate.dispatch(state.commands[state.next()]);
+  }
+
+  /**
+   * Gate on top of the synthetic command types.
+   */
+  public static class GateState extends CommandTypesState {
+
+    Gate gate;
+
+    @Override
+    @Setup(Level.Trial)
+    public void setUp() {
+      super.setUp();
+      gate = new DefaultGate(handlerRegistry, new JavaExecutorCommandScheduler(Runnable::run));
+    }
+
+  }
+
+  /**
+   * Gate with pass-through interceptors on top of the synthetic command types.
+   */
+  public static class InterceptedGateState extends CommandTypesState {
+
+    @Param({"1", "3"})
+    public int interceptors;
+
+    Gate gate;
+
+    @Override
+    @Setup(Level.Trial)
+    public void setUp() {
+      super.setUp();
+      CommandInterceptor[] chain = new CommandInterceptor[interceptors];
+      Arrays.fill(chain, (CommandInterceptor) (command, next) -> next.handle(command));
+      gate = new DefaultGate(
+          new AutoInitializingMapCommandHandlerRegistry(
+              new CommandCollectionRegistry(handlersByType.keySet()),
+              new InterceptingCommandHandlerDiscoverer(
+                  new MapCommandHandlerDiscoverer(handlersByType), Arrays.asList(chain)
+              )
+          ),
+          new JavaExecutorCommandScheduler(Runnable::run)
+      );
+    }
+
+  }
+
+  /**
+   * Gate collecting the metrics of the synthetic command types.
+   */
+  public static class InstrumentedGateState extends CommandTypesState {
+
+    Gate gate;
+
+    @Override
+    @Setup(Level.Trial)
+    public void setUp() {
+      super.setUp();
+      CommandMetrics metrics = new CommandMetrics();
+      gate = new InstrumentedGate(
+          handlerRegistry, new JavaExecutorCommandScheduler(Runnable::run), metrics
+      );
+    }
+
+  }
+
+}
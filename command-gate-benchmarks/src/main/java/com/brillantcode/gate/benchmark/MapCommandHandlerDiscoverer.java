@@ -0,0 +1,28 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
+import java.util.Map;
+
+/**
+ * Discoverer serving handlers from a prepared map,
+ * so that discovery does not contribute to benchmark setup time.
+ */
+final class MapCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
+
+  private final Map<Class<? extends Command>, CommandHandler<?>> handlers;
+
+  MapCommandHandlerDiscoverer(Map<Class<? extends Command>, CommandHandler<?>> handlers) {
+    this.handlers = handlers;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <CommandT extends Command> CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    return (CommandHandler<CommandT>) handlers.get(commandType);
+  }
+
+}
@@ -0,0 +1,79 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.MethodDescriptor;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.LambdaMethodCommandHandler;
+import com.brillantcode.gate.handler.ReflectiveMethodCommandHandler;
+import java.lang.invoke.LambdaConversionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of invoking an annotated handler method through
+ * {@link ReflectiveMethodCommandHandler} and {@link LambdaMethodCommandHandler}
+ * compared to calling the method directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MethodCommandHandlerBenchmark {
+
+  private BenchmarkCommandHandlers handlers;
+
+  private BenchmarkCommand command;
+
+  private CommandHandler<BenchmarkCommand> reflectiveHandler;
+
+  private CommandHandler<BenchmarkCommand> lambdaHandler;
+
+  /**
+   * Binds the handler method of {@link BenchmarkCommandHandlers}.
+   *
+   * @throws ReflectiveOperationException If the handler method does not exist
+   *                                      or could not be bound.
+   * @throws LambdaConversionException    If the handler method could not be bound.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws ReflectiveOperationException, LambdaConversionException {
+    handlers = new BenchmarkCommandHandlers();
+    command = new BenchmarkCommand(42);
+    MethodDescriptor method = new MethodDescriptor(
+        BenchmarkCommandHandlers.class.getMethod("handle", BenchmarkCommand.class)
+    );
+    reflectiveHandler = new ReflectiveMethodCommandHandler<>(
+        handlers, method, BenchmarkCommand.class
+    );
+    lambdaHandler = new LambdaMethodCommandHandler<>(
+        handlers, method, BenchmarkCommand.class
+    );
+  }
+
+  @Benchmark
+  public void baseline() {
+    handlers.handle(command);
+  }
+
+  @Benchmark
+  public void lambda() {
+    lambdaHandler.handle(command);
+  }
+
+  @Benchmark
+  public void reflective() {
+    reflectiveHandler.handle(command);
+  }
+
+}
@@ -0,0 +1,181 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.DefaultGate;
+import com.brillantcode.gate.Gate;
+import com.brillantcode.gate.priority.CommandPriorities;
+import com.brillantcode.gate.priority.PriorityCommandScheduler;
+import com.brillantcode.gate.scheduler.JavaExecutorCommandScheduler;
+import com.brillantcode.gate.scheduler.RingBufferCommandScheduler;
+import com.brillantcode.gate.scheduler.WaitStrategy;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link DefaultGate#schedule} through a {@link JavaExecutorCommandScheduler}
+ * compared to submitting a hand-written task to the same executor.
+ *
+ * <p>With the {@code caller} executor the command runs on the benchmark thread,
+ * which isolates the scheduling overhead. With the {@code thread} executor
+ * every operation is a full hand-off to a worker thread and back.
+ * The {@code ring} benchmark makes the same hand-off through a
+ * {@link RingBufferCommandScheduler} with a single worker, and the {@code priority}
+ * benchmark through a {@link PriorityCommandScheduler} with a single worker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleBenchmark {
+
+  @Benchmark
+  public void baseline(SchedulingGateState state) {
+    int index = state.next();
+    CountingCommandHandler handler = state.handlers[index];
+    Command command = state.commands[index];
+    long expected = handler.handled() + 1;
+    state.executorService.execute(() -> handler.handle(command));
+    awaitHandled(handler, expected);
+  }
+
+  @Benchmark
+  public void gate(SchedulingGateState state) {
+    int index = state.next();
+    CountingCommandHandler handler = state.handlers[index];
+    long expected = handler.handled() + 1;
+    state.gate.schedule(state.commands[index]);
+    awaitHandled(handler, expected);
+  }
+
+  @Benchmark
+  public void ring(RingGateState state) {
+    int index = state.next();
+    CountingCommandHandler handler = state.handlers[index];
+    long expected = handler.handled() + 1;
+    state.gate.schedule(state.commands[index]);
+    awaitHandled(handler, expected);
+  }
+
+  @Benchmark
+  public void priority(PriorityGateState state) {
+    int index = state.next();
+    CountingCommandHandler handler = state.handlers[index];
+    long expected = handler.handled() + 1;
+    state.gate.schedule(state.commands[index]);
+    awaitHandled(handler, expected);
+  }
+
+  private static void awaitHandled(CountingCommandHandler handler, long expected) {
+    while (handler.handled() < expected) {
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Gate scheduling on the selected executor, on top of the synthetic command types.
+   */
+  public static class SchedulingGateState extends CommandTypesState {
+
+    @Param({"caller", "thread"})
+    public String executor;
+
+    ExecutorService executorService;
+
+    Gate gate;
+
+    @Override
+    @Setup(Level.Trial)
+    public void setUp() {
+      super.setUp();
+      executorService = "thread".equals(executor)
+          ? Executors.newSingleThreadExecutor()
+          : new CallerRunsExecutorService();
+      gate = new DefaultGate(handlerRegistry, new JavaExecutorCommandScheduler(executorService));
+    }
+
+    /**
+     * Shuts the executor down.
+     *
+     * @throws InterruptedException If interrupted while waiting for the executor.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+      executorService.shutdown();
+      executorService.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+  }
+
+  /**
+   * Gate scheduling through a ring buffer with the selected wait strategy.
+   */
+  public static class RingGateState extends CommandTypesState {
+
+    @Param({"BUSY_SPIN", "YIELD", "PARK"})
+    public WaitStrategy waitStrategy;
+
+    RingBufferCommandScheduler scheduler;
+
+    Gate gate;
+
+    @Override
+    @Setup(Level.Trial)
+    public void setUp() {
+      super.setUp();
+      scheduler = new RingBufferCommandScheduler(1024, 1, waitStrategy);
+      gate = new DefaultGate(handlerRegistry, scheduler);
+    }
+
+    /**
+     * Stops the worker of the ring.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      scheduler.close();
+    }
+
+  }
+
+  /**
+   * Gate scheduling through the priority queues.
+   */
+  public static class PriorityGateState extends CommandTypesState {
+
+    PriorityCommandScheduler scheduler;
+
+    Gate gate;
+
+    @Override
+    @Setup(Level.Trial)
+    public void setUp() {
+      super.setUp();
+      scheduler = new PriorityCommandScheduler(
+          new CommandPriorities(), 1024, 1, Duration.ofMillis(100));
+      gate = new DefaultGate(handlerRegistry, scheduler);
+    }
+
+    /**
+     * Stops the worker of the scheduler.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      scheduler.close();
+    }
+
+  }
+
+}
@@ -0,0 +1,144 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.BeanCommandHandlerDiscoverer;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
+import com.brillantcode.gate.handler.IndexingBeanCommandHandlerDiscoverer;
+import com.brillantcode.gate.handler.IndexingMethodCommandHandlerDiscoverer;
+import com.brillantcode.gate.handler.MethodCommandHandlerDiscoverer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
+
+/**
+ * Cost of discovering the handlers of all the commands in a Spring bean factory,
+ * as a {@link com.brillantcode.gate.handler.SpringMapCommandHandlerRegistry} does when
+ * it starts, with a new discoverer per operation.
+ *
+ * <p>The plain discoverers walk the bean factory once per command type, the indexing ones
+ * once in total.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpringHandlerDiscoveryBenchmark {
+
+  @Benchmark
+  public int methods(DiscoveryState state) {
+    return state.discoverAll(new MethodCommandHandlerDiscoverer(state.beanFactory));
+  }
+
+  @Benchmark
+  public int indexingMethods(DiscoveryState state) {
+    return state.discoverAll(new IndexingMethodCommandHandlerDiscoverer(state.beanFactory));
+  }
+
+  @Benchmark
+  public int beans(DiscoveryState state) {
+    return state.discoverAll(new BeanCommandHandlerDiscoverer(state.beanFactory));
+  }
+
+  @Benchmark
+  public int indexingBeans(DiscoveryState state) {
+    return state.discoverAll(new IndexingBeanCommandHandlerDiscoverer(state.beanFactory));
+  }
+
+  /**
+   * A bean factory with a handler bean per command type, a bean with a handler method
+   * and unrelated beans.
+   */
+  @State(Scope.Benchmark)
+  public static class DiscoveryState {
+
+    @Param({"100"})
+    public int commands;
+
+    @Param({"1000"})
+    public int beans;
+
+    DefaultListableBeanFactory beanFactory;
+
+    List<Class<? extends Command>> commandTypes;
+
+    /**
+     * Registers the beans.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+      beanFactory = new DefaultListableBeanFactory();
+      commandTypes = new ArrayList<>(SyntheticCommands.types(commands));
+      for (int i = 0; i < commandTypes.size(); i++) {
+        beanFactory.registerSingleton("handler" + i, new TypedHandler<>(commandTypes.get(i)));
+      }
+      commandTypes.add(BenchmarkCommand.class);
+      beanFactory.registerSingleton("methodHandlers", new AnnotatedHandlers());
+      for (int i = 0; i < beans; i++) {
+        beanFactory.registerSingleton("bean" + i, new Object());
+      }
+    }
+
+    int discoverAll(CommandHandlerDiscoverer discoverer) {
+      int found = 0;
+      for (Class<? extends Command> commandType : commandTypes) {
+        if (discoverer.getHandlerFor(commandType) != null) {
+          found++;
+        }
+      }
+      return found;
+    }
+
+  }
+
+  /**
+   * Handler bean of a synthetic command type, telling Spring the type it handles.
+   */
+  static final class TypedHandler<CommandT extends Command>
+      implements CommandHandler<CommandT>, ResolvableTypeProvider {
+
+    private final Class<CommandT> commandType;
+
+    TypedHandler(Class<CommandT> commandType) {
+      this.commandType = commandType;
+    }
+
+    @Override
+    public void handle(CommandT command) {
+    }
+
+    @Override
+    public ResolvableType getResolvableType() {
+      return ResolvableType.forClassWithGenerics(TypedHandler.class, commandType);
+    }
+
+  }
+
+  /**
+   * Bean with a handler method.
+   */
+  public static class AnnotatedHandlers {
+
+    @com.brillantcode.gate.annotation.CommandHandler
+    public void handle(BenchmarkCommand command) {
+    }
+
+  }
+
+}
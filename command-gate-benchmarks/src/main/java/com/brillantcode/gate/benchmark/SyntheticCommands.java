@@ -0,0 +1,138 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.Command;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Defines any number of distinct, empty {@link Command} classes at runtime.
+ *
+ * <p>Registries of realistic sizes need thousands of command types,
+ * which would be impractical to write by hand. Each generated class is
+ * the equivalent of {@code public final class GeneratedCommandN implements Command {}}.
+ *
+ * <p>Classes are defined once per JVM and reused by every benchmark in the fork.
+ */
+final class SyntheticCommands {
+
+  private static final String PACKAGE_PATH =
+      SyntheticCommands.class.getPackageName().replace('.', '/');
+
+  private static final List<Class<? extends Command>> DEFINED_TYPES = new ArrayList<>();
+
+  private SyntheticCommands() {
+  }
+
+  /**
+   * Returns the given number of distinct command types,
+   * defining the ones that do not exist yet.
+   *
+   * @param count The number of command types to return.
+   * @return A list of distinct command types.
+   */
+  static synchronized List<Class<? extends Command>> types(int count) {
+    while (DEFINED_TYPES.size() < count) {
+      DEFINED_TYPES.add(define(DEFINED_TYPES.size()));
+    }
+    return List.copyOf(DEFINED_TYPES.subList(0, count));
+  }
+
+  /**
+   * Instantiates one command of each of the given types.
+   *
+   * @param types The command types to instantiate.
+   * @return An array of commands, in the order of the given types.
+   */
+  static Command[] instances(List<Class<? extends Command>> types) {
+    Command[] commands = new Command[types.size()];
+    for (int i = 0; i < commands.length; i++) {
+      try {
+        commands[i] = (Command) MethodHandles.lookup()
+            .findConstructor(types.get(i), MethodType.methodType(void.class))
+            .invoke();
+      } catch (Throwable e) {
+        throw new IllegalStateException("Could not instantiate " + types.get(i), e);
+      }
+    }
+    return commands;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<? extends Command> define(int index) {
+    try {
+      return (Class<? extends Command>) MethodHandles.lookup()
+          .defineClass(classBytes(PACKAGE_PATH + "/GeneratedCommand" + index));
+    } catch (IllegalAccessException | IOException e) {
+      throw new IllegalStateException("Could not define synthetic command " + index, e);
+    }
+  }
+
+  private static byte[] classBytes(String internalName) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0);
+    out.writeShort(55); // Java 11
+
+    out.writeShort(12); // constant pool count
+    out.writeByte(1);
+    out.writeUTF(internalName); // #1
+    out.writeByte(7);
+    out.writeShort(1); // #2 this class
+    out.writeByte(1);
+    out.writeUTF("java/lang/Object"); // #3
+    out.writeByte(7);
+    out.writeShort(3); // #4 super class
+    out.writeByte(1);
+    out.writeUTF(Command.class.getName().replace('.', '/')); // #5
+    out.writeByte(7);
+    out.writeShort(5); // #6 interface
+    out.writeByte(1);
+    out.writeUTF("<init>"); // #7
+    out.writeByte(1);
+    out.writeUTF("()V"); // #8
+    out.writeByte(12);
+    out.writeShort(7);
+    out.writeShort(8); // #9 name and type
+    out.writeByte(10);
+    out.writeShort(4);
+    out.writeShort(9); // #10 Object.<init>
+    out.writeByte(1);
+    out.writeUTF("Code"); // #11
+
+    out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+    out.writeShort(2);
+    out.writeShort(4);
+    out.writeShort(1);
+    out.writeShort(6);
+    out.writeShort(0); // fields
+
+    out.writeShort(1); // methods
+    out.writeShort(0x0001);
+    out.writeShort(7);
+    out.writeShort(8);
+    out.writeShort(1);
+    out.writeShort(11);
+    out.writeInt(17);
+    out.writeShort(1); // max stack
+    out.writeShort(1); // max locals
+    out.writeInt(5);
+    out.writeByte(0x2a); // aload_0
+    out.writeByte(0xb7); // invokespecial #10
+    out.writeShort(10);
+    out.writeByte(0xb1); // return
+    out.writeShort(0); // exception table
+    out.writeShort(0); // code attributes
+
+    out.writeShort(0); // class attributes
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+}
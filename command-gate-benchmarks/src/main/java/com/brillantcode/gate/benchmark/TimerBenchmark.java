@@ -0,0 +1,95 @@
+package com.brillantcode.gate.benchmark;
+
+import com.brillantcode.gate.scheduler.TimingWheel;
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of scheduling and cancelling a timeout on a {@link TimingWheel}, compared to
+ * a {@link ScheduledThreadPoolExecutor} removing the cancelled tasks from its heap,
+ * while many other timeouts are pending.
+ *
+ * <p>Run with several threads, e.g. {@code -t 4}, to include the contention
+ * between the scheduling threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerBenchmark {
+
+  private static final Runnable TIMEOUT = () -> { };
+
+  @Benchmark
+  public boolean baseline(TimerState state) {
+    return state.executor.schedule(TIMEOUT, state.delayMillis(), TimeUnit.MILLISECONDS)
+        .cancel(false);
+  }
+
+  @Benchmark
+  public boolean wheel(TimerState state) {
+    return state.wheel.schedule(TIMEOUT, Duration.ofMillis(state.delayMillis())).cancel();
+  }
+
+  /**
+   * A wheel and an executor with the same number of timeouts pending for an hour.
+   */
+  @State(Scope.Benchmark)
+  public static class TimerState {
+
+    @Param({"0", "100000"})
+    public int pending;
+
+    ScheduledThreadPoolExecutor executor;
+
+    TimingWheel wheel;
+
+    /**
+     * Creates the wheel and the executor and schedules the pending timeouts.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+      executor = new ScheduledThreadPoolExecutor(1);
+      executor.setRemoveOnCancelPolicy(true);
+      wheel = new TimingWheel();
+      for (int i = 0; i < pending; i++) {
+        executor.schedule(TIMEOUT, 1, TimeUnit.HOURS);
+        wheel.schedule(TIMEOUT, Duration.ofHours(1));
+      }
+    }
+
+    long delayMillis() {
+      return ThreadLocalRandom.current().nextLong(1_000, 60_000);
+    }
+
+    /**
+     * Stops the wheel and the executor.
+     *
+     * @throws InterruptedException If interrupted while waiting for the executor.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+      executor.shutdownNow();
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+      wheel.close();
+    }
+
+  }
+
+}
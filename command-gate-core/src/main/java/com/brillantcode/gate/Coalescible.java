@@ -0,0 +1,40 @@
+package com.brillantcode.gate;
+
+/**
+ * Interface of the {@link Command commands} that supersede the pending commands
+ * of the same type and key, e.g. commands recomputing an aggregate or refreshing a cache,
+ * where running the latest one is as good as running all of them.
+ *
+ * <p>Schedulers that support coalescing keep a single command per type and key
+ * waiting to run: a command scheduled while another one with an equal key
+ * has not started yet is {@link #coalesce(Command) merged} into it instead of queueing.
+ * Commands that already started are not affected.
+ *
+ * @see com.brillantcode.gate.scheduler.CoalescingCommandScheduler
+ */
+public interface Coalescible {
+
+  /**
+   * Returns the key of the commands that supersede each other.
+   *
+   * <p>Keys are compared with {@link Object#equals(Object)} and must
+   * implement {@link Object#hashCode()} consistently.
+   *
+   * @return The coalescing key.
+   */
+  Object coalescingKey();
+
+  /**
+   * Merges this command, still waiting to run, with a newer command
+   * of the same type and coalescing key.
+   *
+   * <p>The newer command supersedes this one by default.
+   *
+   * @param newer The newer command.
+   * @return The command to run in place of both, of the same type.
+   */
+  default Command coalesce(Command newer) {
+    return newer;
+  }
+
+}
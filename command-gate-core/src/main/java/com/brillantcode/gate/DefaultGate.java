@@ -1,10 +1,29 @@
 package com.brillantcode.gate;
 
+import com.brillantcode.gate.handler.BatchCommandHandler;
 import com.brillantcode.gate.handler.CommandHandler;
 import com.brillantcode.gate.handler.CommandHandlerRegistry;
+import com.brillantcode.gate.idempotency.IdempotencyCache;
+import com.brillantcode.gate.jfr.CommandDispatchEvent;
+import com.brillantcode.gate.jfr.CommandExecutionEvent;
+import com.brillantcode.gate.jfr.CommandHandlingEvent;
+import com.brillantcode.gate.jfr.CommandScheduleEvent;
 import com.brillantcode.gate.scheduler.CommandRunner;
 import com.brillantcode.gate.scheduler.CommandScheduler;
+import com.brillantcode.gate.scheduler.ScheduledTask;
 import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Default {@link Gate} implementation.
@@ -14,6 +33,26 @@ import com.google.common.base.Preconditions;
  *
  * <p>Uses a {@link CommandScheduler} for scheduling
  * asynchronous executions.
+ *
+ * <p>Commands dispatched or scheduled together are grouped by their type,
+ * keeping the order of the types as they first appear. The handler of each group
+ * is looked up once, and if it is a {@link BatchCommandHandler} the whole group
+ * is passed to it at once. Scheduled groups are executed by one
+ * {@link CommandRunner} each, split further by the partition
+ * of {@link PartitionKeyed} commands. Commands scheduled one by one
+ * may be merged by the scheduler when they are {@link Coalescible}.
+ *
+ * <p>Delayed and periodic commands are handed over to the scheduler when they are due,
+ * by its {@link CommandScheduler#schedule(CommandRunner, Duration) delayed}
+ * and {@link CommandScheduler#scheduleAtFixedRate periodic} variants.
+ *
+ * <p>With an {@link IdempotencyCache}, {@link com.brillantcode.gate.annotation.Idempotent}
+ * commands repeating one handled recently are skipped, including the repetitions
+ * within a batch. Commands are only cached once handled without failing.
+ *
+ * <p>Dispatching, scheduling and running the commands emit JDK Flight Recorder events,
+ * see the {@link CommandDispatchEvent}, {@link CommandScheduleEvent}
+ * and {@link CommandExecutionEvent}. The events are not created unless enabled.
  */
 public class DefaultGate implements Gate {
 
@@ -21,6 +60,8 @@ public class DefaultGate implements Gate {
 
   private final CommandScheduler commandScheduler;
 
+  private final @Nullable IdempotencyCache idempotencyCache;
+
   /**
    * Creates the gate with the given handler registry and scheduler.
    *
@@ -34,37 +75,484 @@ public class DefaultGate implements Gate {
     Preconditions.checkNotNull(commandScheduler);
     this.commandHandlerRegistry = commandHandlerRegistry;
     this.commandScheduler = commandScheduler;
+    this.idempotencyCache = null;
+  }
+
+  /**
+   * Creates the gate with the given handler registry and scheduler, skipping
+   * the idempotent commands found in the cache.
+   *
+   * @param commandHandlerRegistry The {@link CommandHandlerRegistry} to use.
+   * @param commandScheduler       The {@link CommandScheduler} to use.
+   * @param idempotencyCache       The {@link IdempotencyCache} to use.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public DefaultGate(CommandHandlerRegistry commandHandlerRegistry,
+                     CommandScheduler commandScheduler, IdempotencyCache idempotencyCache) {
+    Preconditions.checkNotNull(commandHandlerRegistry);
+    Preconditions.checkNotNull(commandScheduler);
+    Preconditions.checkNotNull(idempotencyCache);
+    this.commandHandlerRegistry = commandHandlerRegistry;
+    this.commandScheduler = commandScheduler;
+    this.idempotencyCache = idempotencyCache;
   }
 
   @Override
   public void dispatch(Command cmd) {
-    execute(cmd);
+    if (!CommandDispatchEvent.enabled()) {
+      execute(cmd);
+      return;
+    }
+    CommandDispatchEvent event = new CommandDispatchEvent();
+    event.begin();
+    boolean handled = false;
+    try {
+      execute(cmd);
+      handled = true;
+    } finally {
+      commit(event, cmd, 1, handled);
+    }
   }
 
   @Override
   public void schedule(Command cmd) {
-    commandScheduler.schedule(new ExecutorCommandRunner(cmd));
+    submit(new SingleCommandRunner(cmd, null));
+  }
+
+  @Override
+  public ScheduledTask schedule(Command cmd, Duration delay) {
+    Preconditions.checkNotNull(cmd);
+    Preconditions.checkNotNull(delay);
+    long scheduledAt = CommandExecutionEvent.scheduledAt();
+    // Delayed commands wait for the scheduler from the time they are due
+    return commandScheduler.schedule(new SingleCommandRunner(cmd, null, scheduledAt == 0L
+        ? 0L : scheduledAt + TimeUnit.NANOSECONDS.convert(delay)), delay);
+  }
+
+  @Override
+  public ScheduledTask scheduleAtFixedRate(Command cmd, Duration initialDelay, Duration period) {
+    Preconditions.checkNotNull(cmd);
+    return commandScheduler.scheduleAtFixedRate(
+        () -> new SingleCommandRunner(cmd, null), initialDelay, period
+    );
+  }
+
+  /**
+   * Schedules the command with the {@link CommandScheduler}
+   * and completes the returned future in the thread that processed it.
+   *
+   * <p>If the scheduler rejects the command, the returned future is completed
+   * exceptionally with the rejection.
+   *
+   * @param cmd The {@link Command} to process.
+   * @return A future of the processing of the command.
+   */
+  @Override
+  public CompletableFuture<Void> dispatchAsync(Command cmd) {
+    CompletableFuture<Void> completion = new CompletableFuture<>();
+    try {
+      submit(new SingleCommandRunner(cmd, completion));
+    } catch (RuntimeException e) {
+      completion.completeExceptionally(e);
+    }
+    return completion;
+  }
+
+  @Override
+  public void dispatchAll(Collection<? extends Command> cmds) {
+    for (List<Command> batch : groupByType(cmds)) {
+      if (!CommandDispatchEvent.enabled()) {
+        executeBatch(batch);
+        continue;
+      }
+      CommandDispatchEvent event = new CommandDispatchEvent();
+      event.begin();
+      boolean handled = false;
+      try {
+        executeBatch(batch);
+        handled = true;
+      } finally {
+        commit(event, batch.get(0), batch.size(), handled);
+      }
+    }
+  }
+
+  @Override
+  public void scheduleAll(Collection<? extends Command> cmds) {
+    for (List<Command> batch : groupByType(cmds)) {
+      for (List<Command> partition : groupByPartition(batch)) {
+        submit(new BatchCommandRunner(partition));
+      }
+    }
   }
 
   protected void execute(Command cmd) {
+    @Nullable IdempotencyCache idempotencyCache = this.idempotencyCache;
+    if (idempotencyCache != null) {
+      @Nullable Object key = idempotencyCache.keyOf(cmd);
+      if (key != null) {
+        @Nullable CompletableFuture<Void> outcome = idempotencyCache.reserve(key);
+        if (outcome != null) {
+          await(outcome);
+          return;
+        }
+        try {
+          handle(cmd);
+        } catch (RuntimeException | Error e) {
+          idempotencyCache.release(key, e);
+          throw e;
+        }
+        idempotencyCache.handled(key, cmd);
+        return;
+      }
+    }
+    handle(cmd);
+  }
+
+  /**
+   * Executes commands of the same type with a single handler lookup.
+   *
+   * @param batch Non-empty list of commands of the same type.
+   */
+  protected void executeBatch(List<Command> batch) {
+    @Nullable IdempotencyCache idempotencyCache = this.idempotencyCache;
+    if (idempotencyCache != null && idempotencyCache.keyOf(batch.get(0)) != null) {
+      executeIdempotentBatch(batch, idempotencyCache);
+    } else {
+      handleAll(batch);
+    }
+  }
+
+  private void executeIdempotentBatch(List<Command> batch, IdempotencyCache idempotencyCache) {
+    // Batches hold commands of a single type, all idempotent when the first one is
+    Map<Object, Command> remaining = new LinkedHashMap<>();
+    List<CompletableFuture<Void>> outcomes = new ArrayList<>();
+    for (Command cmd : batch) {
+      Object key = Preconditions.checkNotNull(idempotencyCache.keyOf(cmd));
+      if (remaining.containsKey(key)) {
+        continue;
+      }
+      @Nullable CompletableFuture<Void> outcome = idempotencyCache.reserve(key);
+      if (outcome == null) {
+        remaining.put(key, cmd);
+      } else if (!outcome.isDone()) {
+        outcomes.add(outcome);
+      }
+    }
+    if (!remaining.isEmpty()) {
+      try {
+        handleAll(new ArrayList<>(remaining.values()));
+      } catch (RuntimeException | Error e) {
+        remaining.keySet().forEach(key -> idempotencyCache.release(key, e));
+        throw e;
+      }
+      for (Map.Entry<Object, Command> entry : remaining.entrySet()) {
+        idempotencyCache.handled(entry.getKey(), entry.getValue());
+      }
+    }
+    // Waits only once its own commands are handled, so that batches never wait for each other
+    for (CompletableFuture<Void> outcome : outcomes) {
+      await(outcome);
+    }
+  }
+
+  /**
+   * Waits for the outcome of the command a repetition shares, rethrowing its failure.
+   */
+  private static void await(CompletableFuture<Void> outcome) {
+    try {
+      outcome.join();
+    } catch (CompletionException e) {
+      @Nullable Throwable failure = e.getCause();
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      throw e;
+    }
+  }
+
+  private void handle(Command cmd) {
     CommandHandler<Command> commandHandler =
         this.commandHandlerRegistry.getCommandHandler(cmd);
 
     commandHandler.handle(cmd);
   }
 
-  private final class ExecutorCommandRunner implements CommandRunner {
+  private void handleAll(List<Command> batch) {
+    CommandHandler<Command> commandHandler =
+        this.commandHandlerRegistry.getCommandHandler(batch.get(0));
+
+    if (commandHandler instanceof BatchCommandHandler) {
+      ((BatchCommandHandler<Command>) commandHandler).handleAll(batch);
+    } else {
+      for (Command cmd : batch) {
+        commandHandler.handle(cmd);
+      }
+    }
+  }
+
+  private void submit(TracedCommandRunner runner) {
+    if (!CommandScheduleEvent.enabled()) {
+      commandScheduler.schedule(runner);
+      return;
+    }
+    CommandScheduleEvent event = new CommandScheduleEvent();
+    event.begin();
+    boolean scheduled = false;
+    try {
+      commandScheduler.schedule(runner);
+      scheduled = true;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.describe(runner.firstCommand().getClass(), runner.commandCount(), !scheduled);
+        event.commit();
+      }
+    }
+  }
+
+  private void commit(CommandHandlingEvent event, Command cmd, int commands, boolean handled) {
+    event.end();
+    if (event.shouldCommit()) {
+      // Only looked up again for the events that are recorded
+      event.describe(cmd.getClass(), handlerReference(cmd), commands, !handled);
+      event.commit();
+    }
+  }
+
+  private @Nullable String handlerReference(Command cmd) {
+    try {
+      return commandHandlerRegistry.getCommandHandler(cmd).handlerReference();
+    } catch (GateException ex) {
+      // The command failed for the lack of a handler
+      return null;
+    }
+  }
+
+  private static Collection<List<Command>> groupByType(Collection<? extends Command> cmds) {
+    Preconditions.checkNotNull(cmds);
+    Map<Class<?>, List<Command>> batches = new LinkedHashMap<>();
+    for (Command cmd : cmds) {
+      Preconditions.checkNotNull(cmd);
+      batches.computeIfAbsent(cmd.getClass(), type -> new ArrayList<>()).add(cmd);
+    }
+    return batches.values();
+  }
+
+  private static Collection<List<Command>> groupByPartition(List<Command> batch) {
+    if (!(batch.get(0) instanceof PartitionKeyed)) {
+      return Collections.singletonList(batch);
+    }
+    // Scheduled batches are ordered within their partition, so they must not span partitions
+    Map<@Nullable Object, List<Command>> partitions = new LinkedHashMap<>();
+    for (Command cmd : batch) {
+      partitions.computeIfAbsent(partitionKey(cmd), key -> new ArrayList<>()).add(cmd);
+    }
+    return partitions.values();
+  }
+
+  private static @Nullable CompletableFuture<Void> completeTogether(
+      @Nullable CompletableFuture<Void> first, @Nullable CompletableFuture<Void> second) {
+    if (first == null) {
+      return second;
+    }
+    if (second == null) {
+      return first;
+    }
+    second.whenComplete((result, ex) -> {
+      if (ex != null) {
+        first.completeExceptionally(ex);
+      } else {
+        first.complete(result);
+      }
+    });
+    return second;
+  }
+
+  private static @Nullable Object partitionKey(Command command) {
+    return command instanceof PartitionKeyed ? ((PartitionKeyed) command).partitionKey() : null;
+  }
+
+  private static int priority(Command command) {
+    return command instanceof Prioritized
+        ? Prioritized.priorityOf((Prioritized) command)
+        : CommandRunner.NO_PRIORITY;
+  }
+
+  /**
+   * Runner of the commands of a single type and partition,
+   * emitting a {@link CommandExecutionEvent} when it runs.
+   */
+  private abstract class TracedCommandRunner implements CommandRunner {
+
+    final long scheduledAt;
+
+    TracedCommandRunner() {
+      this(CommandExecutionEvent.scheduledAt());
+    }
+
+    TracedCommandRunner(long scheduledAt) {
+      this.scheduledAt = scheduledAt;
+    }
+
+    @Override
+    public final void run() {
+      if (!CommandExecutionEvent.enabled()) {
+        runCommands();
+        return;
+      }
+      CommandExecutionEvent event = new CommandExecutionEvent();
+      event.begin();
+      boolean handled = false;
+      try {
+        handled = runCommands();
+      } finally {
+        event.queueWait(scheduledAt);
+        commit(event, firstCommand(), commandCount(), handled);
+      }
+    }
+
+    /**
+     * Executes the commands.
+     *
+     * @return True if the commands were handled without failing.
+     */
+    abstract boolean runCommands();
+
+    abstract Command firstCommand();
+
+    abstract int commandCount();
+
+    @Override
+    public Class<? extends Command> commandType() {
+      return firstCommand().getClass();
+    }
+
+    @Override
+    public @Nullable Object partitionKey() {
+      return DefaultGate.partitionKey(firstCommand());
+    }
+
+    @Override
+    public int priority() {
+      return DefaultGate.priority(firstCommand());
+    }
+
+  }
+
+  private final class SingleCommandRunner extends TracedCommandRunner {
 
     private final Command command;
 
-    public ExecutorCommandRunner(Command command) {
+    private final @Nullable CompletableFuture<Void> completion;
+
+    public SingleCommandRunner(Command command, @Nullable CompletableFuture<Void> completion) {
       Preconditions.checkNotNull(command);
       this.command = command;
+      this.completion = completion;
+    }
+
+    private SingleCommandRunner(Command command, @Nullable CompletableFuture<Void> completion,
+                                long scheduledAt) {
+      super(scheduledAt);
+      this.command = command;
+      this.completion = completion;
+    }
+
+    @Override
+    boolean runCommands() {
+      @Nullable CompletableFuture<Void> completion = this.completion;
+      if (completion == null) {
+        execute(command);
+        return true;
+      }
+      try {
+        execute(command);
+      } catch (Throwable ex) {
+        completion.completeExceptionally(ex);
+        if (ex instanceof Error) {
+          throw (Error) ex;
+        }
+        return false;
+      }
+      completion.complete(null);
+      return true;
+    }
+
+    @Override
+    Command firstCommand() {
+      return command;
+    }
+
+    @Override
+    int commandCount() {
+      return 1;
+    }
+
+    @Override
+    public List<Command> commands() {
+      return Collections.singletonList(command);
+    }
+
+    @Override
+    public void discard() {
+      if (completion != null) {
+        completion.completeExceptionally(new RejectedExecutionException(
+            "Command " + command.getClass().getName() + " was discarded by the scheduler"));
+      }
+    }
+
+    @Override
+    public @Nullable Object coalescingKey() {
+      return command instanceof Coalescible ? ((Coalescible) command).coalescingKey() : null;
+    }
+
+    @Override
+    public CommandRunner coalesce(CommandRunner newer) {
+      if (!(newer instanceof SingleCommandRunner) || !(command instanceof Coalescible)) {
+        discard();
+        return newer;
+      }
+      SingleCommandRunner newerRunner = (SingleCommandRunner) newer;
+      Command merged = ((Coalescible) command).coalesce(newerRunner.command);
+      // Keeps the time this runner was scheduled at, the merged command waited since then
+      return new SingleCommandRunner(
+          merged, completeTogether(completion, newerRunner.completion), scheduledAt
+      );
+    }
+
+  }
+
+  private final class BatchCommandRunner extends TracedCommandRunner {
+
+    private final List<Command> commands;
+
+    public BatchCommandRunner(List<Command> commands) {
+      this.commands = commands;
+    }
+
+    @Override
+    boolean runCommands() {
+      executeBatch(commands);
+      return true;
+    }
+
+    @Override
+    Command firstCommand() {
+      // Batches hold commands of a single type and partition
+      return commands.get(0);
+    }
+
+    @Override
+    int commandCount() {
+      return commands.size();
     }
 
     @Override
-    public void run() {
-      execute(command);
+    public List<Command> commands() {
+      return Collections.unmodifiableList(commands);
     }
 
   }
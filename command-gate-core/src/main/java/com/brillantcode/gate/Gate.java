@@ -1,5 +1,12 @@
 package com.brillantcode.gate;
 
+import com.brillantcode.gate.scheduler.ScheduledTask;
+import com.brillantcode.gate.scheduler.TimingWheel;
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Provides common interface for starting execution
  * of {@link Command} instances.
@@ -27,4 +34,106 @@ public interface Gate {
    */
   void schedule(Command cmd);
 
+  /**
+   * Schedules the {@link Command} for asynchronous processing once the delay is over.
+   *
+   * <p>Returns immediately with a handle cancelling the command while it waits for the delay.
+   *
+   * <p>By default the {@link TimingWheel#shared() shared timing wheel} hands the command
+   * over to the {@link TimingWheel#sharedExecutor() shared executor} when the delay is over,
+   * which {@link #schedule(Command) schedules} it. The command is not journaled before,
+   * so it is lost if the application stops while it waits.
+   *
+   * @param cmd   The {@link Command} to schedule for processing.
+   * @param delay The delay, from now.
+   * @return The handle of the delayed command.
+   * @throws IllegalArgumentException If the delay is negative.
+   */
+  default ScheduledTask schedule(Command cmd, Duration delay) {
+    Preconditions.checkNotNull(cmd);
+    return TimingWheel.shared()
+        .schedule(() -> TimingWheel.sharedExecutor().execute(() -> schedule(cmd)), delay);
+  }
+
+  /**
+   * Schedules the {@link Command} for asynchronous processing once the initial delay is over,
+   * then every period until cancelled.
+   *
+   * <p>By default the {@link TimingWheel#shared() shared timing wheel} hands the command
+   * over to the {@link TimingWheel#sharedExecutor() shared executor} at each period,
+   * which {@link #schedule(Command) schedules} it.
+   *
+   * @param cmd          The {@link Command} to schedule for processing.
+   * @param initialDelay The delay of the first processing, from now.
+   * @param period       The time between the processings.
+   * @return The handle of the periodic command.
+   * @throws IllegalArgumentException If the delay is negative, or the period is not positive.
+   */
+  default ScheduledTask scheduleAtFixedRate(Command cmd, Duration initialDelay,
+                                            Duration period) {
+    Preconditions.checkNotNull(cmd);
+    return TimingWheel.shared().scheduleAtFixedRate(
+        () -> TimingWheel.sharedExecutor().execute(() -> schedule(cmd)), initialDelay, period);
+  }
+
+  /**
+   * Dispatches the {@link Command} asynchronously.
+   *
+   * <p>Returns immediately with a future that completes when processing
+   * of the command is finished, or completes exceptionally with the exception
+   * thrown while processing it.
+   *
+   * <p>By default the command is dispatched synchronously in the calling thread,
+   * and an already completed future is returned.
+   *
+   * @param cmd The {@link Command} to process.
+   * @return A future of the processing of the command.
+   */
+  default CompletableFuture<Void> dispatchAsync(Command cmd) {
+    try {
+      dispatch(cmd);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+  }
+
+  /**
+   * Dispatches the {@link Command} instances synchronously.
+   *
+   * <p>Returns when processing of all the commands is finished.
+   *
+   * <p>Implementations may group the commands by their type and pass each group
+   * to its handler at once, so the order of the commands is only guaranteed
+   * to be kept among commands of the same type.
+   * By default the commands are dispatched one by one.
+   *
+   * @param cmds The {@link Command} instances to process.
+   * @see com.brillantcode.gate.handler.BatchCommandHandler
+   */
+  default void dispatchAll(Collection<? extends Command> cmds) {
+    for (Command cmd : cmds) {
+      dispatch(cmd);
+    }
+  }
+
+  /**
+   * Schedules the {@link Command} instances for asynchronous processing.
+   *
+   * <p>Returns immediately after scheduling the commands.
+   *
+   * <p>Implementations may group the commands by their type and schedule each group
+   * as a whole, so the order of the commands is only guaranteed to be kept among
+   * commands of the same type.
+   * By default the commands are scheduled one by one.
+   *
+   * @param cmds The {@link Command} instances to schedule for processing.
+   * @see com.brillantcode.gate.handler.BatchCommandHandler
+   */
+  default void scheduleAll(Collection<? extends Command> cmds) {
+    for (Command cmd : cmds) {
+      schedule(cmd);
+    }
+  }
+
 }
@@ -12,4 +12,8 @@ public class GateException extends RuntimeException {
     super(message);
   }
 
+  public GateException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
 }
@@ -0,0 +1,21 @@
+package com.brillantcode.gate;
+
+/**
+ * Interface of the {@link com.brillantcode.gate.annotation.Idempotent idempotent}
+ * {@link Command commands} telling which commands they repeat with an explicit key,
+ * e.g. the identifier of the request they came with, instead of being compared as a whole.
+ */
+public interface IdempotencyKeyed {
+
+  /**
+   * Returns the key of the command, the same for all its repetitions.
+   *
+   * <p>Keys are compared with {@link Object#equals(Object)} and must
+   * implement {@link Object#hashCode()} consistently. Keys of different command types
+   * never match.
+   *
+   * @return The idempotency key.
+   */
+  Object idempotencyKey();
+
+}
@@ -0,0 +1,24 @@
+package com.brillantcode.gate;
+
+/**
+ * Interface of the {@link Command commands} that belong to a partition,
+ * e.g. commands modifying the same aggregate.
+ *
+ * <p>Schedulers that support partitioning run the scheduled commands
+ * with equal partition keys in the order they were scheduled.
+ *
+ * @see com.brillantcode.gate.scheduler.PartitionedCommandScheduler
+ */
+public interface PartitionKeyed {
+
+  /**
+   * Returns the key of the partition of the command.
+   *
+   * <p>Keys are compared with {@link Object#equals(Object)} and must
+   * implement {@link Object#hashCode()} consistently.
+   *
+   * @return The partition key.
+   */
+  Object partitionKey();
+
+}
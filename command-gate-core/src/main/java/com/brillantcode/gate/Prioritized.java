@@ -0,0 +1,48 @@
+package com.brillantcode.gate;
+
+/**
+ * Interface of the {@link Command commands} that tell how urgently they should run
+ * when scheduled, e.g. commands of user requests ahead of background maintenance.
+ *
+ * <p>Schedulers that support priorities start the waiting commands
+ * with higher priorities first.
+ *
+ * @see com.brillantcode.gate.priority.PriorityCommandScheduler
+ */
+public interface Prioritized {
+
+  /**
+   * The lowest priority of a command.
+   */
+  int MIN_PRIORITY = 1;
+
+  /**
+   * The priority of the commands that do not tell theirs.
+   */
+  int NORM_PRIORITY = 5;
+
+  /**
+   * The highest priority of a command.
+   */
+  int MAX_PRIORITY = 10;
+
+  /**
+   * Returns the priority of the command, between {@link #MIN_PRIORITY}
+   * and {@link #MAX_PRIORITY}. Priorities out of the range are brought within it.
+   *
+   * @return The priority of the command.
+   */
+  int priority();
+
+  /**
+   * Returns the priority of the command brought within the range of the priorities.
+   *
+   * @param command The command.
+   * @return The priority of the command, between {@link #MIN_PRIORITY}
+   *     and {@link #MAX_PRIORITY}.
+   */
+  static int priorityOf(Prioritized command) {
+    return Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, command.priority()));
+  }
+
+}
@@ -1,5 +1,6 @@
 package com.brillantcode.gate.annotation;
 
+import com.brillantcode.gate.limit.LimitPolicy;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
@@ -27,6 +28,12 @@ import java.lang.annotation.Target;
  *
  * <p>The method must declare a single parameter that reflects the command type
  * that the method handles.
+ *
+ * <p>Whatever its target, the annotation may also limit how many commands of the type
+ * run at the same time and how often they start, see {@link #maxConcurrency()}
+ * and {@link #permitsPerSecond()}, and set their {@link #priority()}. The settings of a handler
+ * method take precedence over those of the handler class, which take precedence over those
+ * of the command type.
  */
 @Target({
     ElementType.TYPE,
@@ -54,4 +61,47 @@ public @interface CommandHandler {
   Class<? extends com.brillantcode.gate.handler.CommandHandler> handlerType()
       default com.brillantcode.gate.handler.CommandHandler.class;
 
+  /**
+   * Limits the number of commands of the type running at the same time
+   * when they are scheduled.
+   *
+   * @return Maximum number of running commands, zero for no limit.
+   * @see com.brillantcode.gate.limit.CommandLimits
+   */
+  int maxConcurrency() default 0;
+
+  /**
+   * Limits the rate at which scheduled commands of the type start.
+   *
+   * @return Maximum number of commands starting per second, zero for no limit.
+   * @see com.brillantcode.gate.limit.CommandLimits
+   */
+  double permitsPerSecond() default 0;
+
+  /**
+   * Specifies how many commands of the type may start at once
+   * under the {@link #permitsPerSecond()} rate.
+   *
+   * @return Number of commands starting at once, zero for one.
+   */
+  int burst() default 0;
+
+  /**
+   * Specifies what happens to scheduled commands over the limits of the type.
+   *
+   * @return The policy applied to the commands over the limits.
+   */
+  LimitPolicy whenLimited() default LimitPolicy.QUEUE;
+
+  /**
+   * Specifies the priority of the scheduled commands of the type that do not tell
+   * their own, between {@link com.brillantcode.gate.Prioritized#MIN_PRIORITY}
+   * and {@link com.brillantcode.gate.Prioritized#MAX_PRIORITY}.
+   * Priorities out of the range are brought within it.
+   *
+   * @return The priority of the commands, zero for the default one.
+   * @see com.brillantcode.gate.priority.PriorityCommandScheduler
+   */
+  int priority() default 0;
+
 }
@@ -0,0 +1,41 @@
+package com.brillantcode.gate.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a {@link com.brillantcode.gate.Command} type whose commands have the same effect
+ * however many times they are handled, so that a command repeating one handled recently
+ * can be skipped.
+ *
+ * <p>Commands are the same when they are equal, or when their
+ * {@link com.brillantcode.gate.IdempotencyKeyed#idempotencyKey() keys} are.
+ *
+ * @see com.brillantcode.gate.idempotency.IdempotencyCache
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface Idempotent {
+
+  /**
+   * Specifies for how long a handled command absorbs the same commands.
+   *
+   * @return The time to live of a handled command, in the {@link #unit()}.
+   */
+  long ttl() default 60;
+
+  /**
+   * Specifies the unit of the {@link #ttl()}.
+   *
+   * @return The time unit.
+   */
+  TimeUnit unit() default TimeUnit.SECONDS;
+
+}
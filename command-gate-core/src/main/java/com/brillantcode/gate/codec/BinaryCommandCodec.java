@@ -0,0 +1,388 @@
+package com.brillantcode.gate.codec;
+
+import com.brillantcode.gate.Command;
+import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Compact binary {@link CommandCodec}, writing the instance fields of the commands
+ * in the order they are declared, from the top of the class hierarchy down.
+ *
+ * <p>The fields are read and the commands created through method handles looked up
+ * once, when the codec is created. Primitive fields are written as they are, reference
+ * fields after a byte telling whether they are null. Enums are written by the name of their
+ * constant, and the values of other types without a {@link BinaryValue binary form}
+ * with Java serialization.
+ *
+ * <p>The commands are created through the constructor taking all the fields only when its
+ * parameters are known to be the fields, by their names: compiled with {@code -parameters},
+ * or listed by {@link ConstructorProperties}. Parameters of the same types in another order
+ * would otherwise swap the values of the fields. Else the commands are created through
+ * the constructor without parameters and their fields are set.
+ *
+ * @see CommandCodecFactory#binary()
+ */
+final class BinaryCommandCodec implements CommandCodec<Command> {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private final Class<?> commandType;
+
+  private final FieldCodec[] fields;
+
+  /**
+   * Creates the command from the values of all the fields, null if the fields are set.
+   */
+  private final @Nullable MethodHandle allFieldsConstructor;
+
+  private final @Nullable MethodHandle noFieldsConstructor;
+
+  private final MethodHandle[] setters;
+
+  private final boolean serializesFields;
+
+  private BinaryCommandCodec(Class<?> commandType, FieldCodec[] fields,
+                             @Nullable MethodHandle allFieldsConstructor,
+                             @Nullable MethodHandle noFieldsConstructor,
+                             MethodHandle[] setters) {
+    this.commandType = commandType;
+    this.fields = fields;
+    this.allFieldsConstructor = allFieldsConstructor;
+    this.noFieldsConstructor = noFieldsConstructor;
+    this.setters = setters;
+    this.serializesFields = Arrays.stream(fields).anyMatch(field -> field instanceof ReferenceField
+        && ((ReferenceField) field).value == SerializedValue.INSTANCE);
+  }
+
+  static BinaryCommandCodec create(Class<? extends Command> commandType) {
+    if (commandType.isInterface() || Modifier.isAbstract(commandType.getModifiers())) {
+      throw new CodecException("Command type " + commandType.getName() + " is abstract");
+    }
+    List<Field> fields = instanceFields(commandType);
+    try {
+      FieldCodec[] codecs = new FieldCodec[fields.size()];
+      for (int i = 0; i < codecs.length; i++) {
+        codecs[i] = fieldCodec(fields.get(i));
+      }
+      @Nullable Constructor<?> allFields = allFieldsConstructor(commandType, fields);
+      if (allFields != null) {
+        MethodHandle constructor = LOOKUP.unreflectConstructor(allFields);
+        MethodHandle spreader = constructor.asType(constructor.type().generic())
+            .asSpreader(Object[].class, fields.size());
+        return new BinaryCommandCodec(commandType, codecs, spreader, null, new MethodHandle[0]);
+      }
+      @Nullable Constructor<?> noFields = constructor(commandType);
+      if (noFields == null) {
+        throw new CodecException("Command type " + commandType.getName()
+            + " has neither a constructor taking all its fields, with the names of its parameters"
+            + " compiled with -parameters or listed by @ConstructorProperties,"
+            + " nor one without parameters");
+      }
+      MethodHandle constructor = LOOKUP.unreflectConstructor(noFields);
+      MethodHandle[] setters = new MethodHandle[fields.size()];
+      for (int i = 0; i < setters.length; i++) {
+        setters[i] = LOOKUP.unreflectSetter(fields.get(i))
+            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+      }
+      return new BinaryCommandCodec(commandType, codecs,
+          null, constructor.asType(MethodType.methodType(Object.class)), setters);
+    } catch (IllegalAccessException | RuntimeException ex) {
+      if (ex instanceof CodecException) {
+        throw (CodecException) ex;
+      }
+      throw new CodecException("Cannot access the fields of command type "
+          + commandType.getName(), ex);
+    }
+  }
+
+  /**
+   * Tells whether some fields are written with Java serialization.
+   */
+  boolean serializesFields() {
+    return serializesFields;
+  }
+
+  @Override
+  public void encode(Command command, ByteBuffer buffer) {
+    for (FieldCodec field : fields) {
+      try {
+        field.encode(command, buffer);
+      } catch (RuntimeException | Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new CodecException("Cannot encode a command of type " + commandType.getName(), ex);
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("argument") // Null field values are passed on to the constructor or setters
+  public Command decode(ByteBuffer buffer) {
+    @Nullable Object[] values = new Object[fields.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = fields[i].decode(buffer);
+    }
+    try {
+      Object command;
+      @Nullable MethodHandle allFieldsConstructor = this.allFieldsConstructor;
+      @Nullable MethodHandle noFieldsConstructor = this.noFieldsConstructor;
+      if (allFieldsConstructor != null) {
+        command = (Object) allFieldsConstructor.invokeExact(values);
+      } else if (noFieldsConstructor != null) {
+        command = (Object) noFieldsConstructor.invokeExact();
+        for (int i = 0; i < setters.length; i++) {
+          setters[i].invokeExact(command, values[i]);
+        }
+      } else {
+        throw new IllegalStateException("No constructor of " + commandType.getName());
+      }
+      return (Command) command;
+    } catch (Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new CodecException("Cannot create a command of type " + commandType.getName(), ex);
+    }
+  }
+
+  private static List<Field> instanceFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    @Nullable Class<?> superclass = type.getSuperclass();
+    if (superclass != null && superclass != Object.class) {
+      fields.addAll(instanceFields(superclass));
+    }
+    for (Field field : type.getDeclaredFields()) {
+      int modifiers = field.getModifiers();
+      if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+          && !field.isSynthetic()) {
+        field.setAccessible(true);
+        fields.add(field);
+      }
+    }
+    return fields;
+  }
+
+  /**
+   * Returns the constructor taking the values of the fields in their order, provided the names
+   * of its parameters are known and are the names of the fields.
+   */
+  private static @Nullable Constructor<?> allFieldsConstructor(Class<?> type, List<Field> fields) {
+    @Nullable Constructor<?> constructor = constructor(type,
+        fields.stream().map(Field::getType).toArray(Class<?>[]::new));
+    if (constructor == null) {
+      return null;
+    }
+    List<String> parameterNames;
+    @Nullable ConstructorProperties properties =
+        constructor.getAnnotation(ConstructorProperties.class);
+    if (properties != null) {
+      parameterNames = Arrays.asList(properties.value());
+    } else {
+      Parameter[] parameters = constructor.getParameters();
+      if (parameters.length > 0 && !parameters[0].isNamePresent()) {
+        return null;
+      }
+      parameterNames = Arrays.stream(parameters).map(Parameter::getName)
+          .collect(Collectors.toList());
+    }
+    List<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toList());
+    return parameterNames.equals(fieldNames) ? constructor : null;
+  }
+
+  private static @Nullable Constructor<?> constructor(Class<?> type, Class<?>... parameterTypes) {
+    try {
+      Constructor<?> constructor = type.getDeclaredConstructor(parameterTypes);
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  private static FieldCodec fieldCodec(Field field) throws IllegalAccessException {
+    Class<?> type = field.getType();
+    MethodHandle getter = LOOKUP.unreflectGetter(field);
+    @Nullable BinaryValue value = BinaryValue.of(type);
+    if (type.isPrimitive() && value != null) {
+      return new PrimitiveField(value,
+          getter.asType(MethodType.methodType(type, Object.class)));
+    }
+    MethodHandle referenceGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
+    if (value != null) {
+      return new ReferenceField(referenceGetter, value);
+    }
+    if (type.isEnum()) {
+      return new ReferenceField(referenceGetter, new EnumValue(type));
+    }
+    return new ReferenceField(referenceGetter, SerializedValue.INSTANCE);
+  }
+
+  /**
+   * Writes and reads the non-null values of a reference type.
+   */
+  interface ValueCodec {
+
+    void write(Object value, ByteBuffer buffer);
+
+    Object read(ByteBuffer buffer);
+
+  }
+
+  private abstract static class FieldCodec {
+
+    final MethodHandle getter;
+
+    FieldCodec(MethodHandle getter) {
+      this.getter = getter;
+    }
+
+    abstract void encode(Object command, ByteBuffer buffer) throws Throwable;
+
+    abstract @Nullable Object decode(ByteBuffer buffer);
+
+  }
+
+  /**
+   * Field of a primitive type, whose getter returns the primitive unboxed.
+   */
+  private static final class PrimitiveField extends FieldCodec {
+
+    private final BinaryValue value;
+
+    PrimitiveField(BinaryValue value, MethodHandle getter) {
+      super(getter);
+      this.value = value;
+    }
+
+    @Override
+    void encode(Object command, ByteBuffer buffer) throws Throwable {
+      switch (value) {
+        case BOOLEAN:
+          buffer.put((boolean) getter.invokeExact(command) ? (byte) 1 : (byte) 0);
+          break;
+        case BYTE:
+          buffer.put((byte) getter.invokeExact(command));
+          break;
+        case SHORT:
+          buffer.putShort((short) getter.invokeExact(command));
+          break;
+        case CHARACTER:
+          buffer.putChar((char) getter.invokeExact(command));
+          break;
+        case INTEGER:
+          BinaryValue.putInt((int) getter.invokeExact(command), buffer);
+          break;
+        case LONG:
+          BinaryValue.putLong((long) getter.invokeExact(command), buffer);
+          break;
+        case FLOAT:
+          buffer.putFloat((float) getter.invokeExact(command));
+          break;
+        case DOUBLE:
+          buffer.putDouble((double) getter.invokeExact(command));
+          break;
+        default:
+          throw new IllegalStateException("Not a primitive value: " + value);
+      }
+    }
+
+    @Override
+    Object decode(ByteBuffer buffer) {
+      return value.read(buffer);
+    }
+
+  }
+
+  private static final class ReferenceField extends FieldCodec {
+
+    private final ValueCodec value;
+
+    ReferenceField(MethodHandle getter, ValueCodec value) {
+      super(getter);
+      this.value = value;
+    }
+
+    @Override
+    void encode(Object command, ByteBuffer buffer) throws Throwable {
+      @Nullable Object fieldValue = (Object) getter.invokeExact(command);
+      if (fieldValue == null) {
+        buffer.put((byte) 0);
+      } else {
+        buffer.put((byte) 1);
+        value.write(fieldValue, buffer);
+      }
+    }
+
+    @Override
+    @Nullable Object decode(ByteBuffer buffer) {
+      return buffer.get() == 0 ? null : value.read(buffer);
+    }
+
+  }
+
+  /**
+   * Enum constants, written by name so that the constants may be reordered.
+   */
+  private static final class EnumValue implements ValueCodec {
+
+    private final Class<?> type;
+
+    private final Map<String, Object> constants = new HashMap<>();
+
+    EnumValue(Class<?> type) {
+      this.type = type;
+      @Nullable Object[] values = type.getEnumConstants();
+      for (@Nullable Object constant : values == null ? new Object[0] : values) {
+        if (constant != null) {
+          constants.put(((Enum<?>) constant).name(), constant);
+        }
+      }
+    }
+
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      BinaryValue.putString(((Enum<?>) value).name(), buffer);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      String name = BinaryValue.getString(buffer);
+      @Nullable Object constant = constants.get(name);
+      if (constant == null) {
+        throw new CodecException("No constant " + name + " in enum " + type.getName());
+      }
+      return constant;
+    }
+
+  }
+
+  private enum SerializedValue implements ValueCodec {
+
+    INSTANCE;
+
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      JavaSerializationCodec.write(value, buffer);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return JavaSerializationCodec.read(buffer);
+    }
+
+  }
+
+}
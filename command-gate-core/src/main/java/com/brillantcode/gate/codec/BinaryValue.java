@@ -0,0 +1,327 @@
+package com.brillantcode.gate.codec;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The binary form of the values the {@link BinaryCommandCodec} writes without
+ * Java serialization. Primitives are written like their wrappers.
+ *
+ * <p>Integers are written as variable-length zigzag integers, so that small values
+ * of either sign take a single byte, and strings as their length in bytes followed by
+ * the bytes of their chars, one to three per char as in UTF-8.
+ *
+ * <p>Lengths are checked against the bytes left in the buffer before anything is allocated,
+ * so that a corrupt length fails with a {@link CodecException}.
+ */
+enum BinaryValue implements BinaryCommandCodec.ValueCodec {
+
+  BOOLEAN(Boolean.class, boolean.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      buffer.put((Boolean) value ? (byte) 1 : (byte) 0);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return buffer.get() != 0;
+    }
+  },
+
+  BYTE(Byte.class, byte.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      buffer.put((Byte) value);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return buffer.get();
+    }
+  },
+
+  SHORT(Short.class, short.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      buffer.putShort((Short) value);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return buffer.getShort();
+    }
+  },
+
+  CHARACTER(Character.class, char.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      buffer.putChar((Character) value);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return buffer.getChar();
+    }
+  },
+
+  INTEGER(Integer.class, int.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      putInt((Integer) value, buffer);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return getInt(buffer);
+    }
+  },
+
+  LONG(Long.class, long.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      putLong((Long) value, buffer);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return getLong(buffer);
+    }
+  },
+
+  FLOAT(Float.class, float.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      buffer.putFloat((Float) value);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return buffer.getFloat();
+    }
+  },
+
+  DOUBLE(Double.class, double.class) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      buffer.putDouble((Double) value);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return buffer.getDouble();
+    }
+  },
+
+  STRING(String.class, null) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      putString((String) value, buffer);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      return getString(buffer);
+    }
+  },
+
+  UNIQUE_ID(UUID.class, null) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      UUID id = (UUID) value;
+      buffer.putLong(id.getMostSignificantBits());
+      buffer.putLong(id.getLeastSignificantBits());
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      long mostSignificantBits = buffer.getLong();
+      return new UUID(mostSignificantBits, buffer.getLong());
+    }
+  },
+
+  INSTANT(Instant.class, null) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      Instant instant = (Instant) value;
+      putLong(instant.getEpochSecond(), buffer);
+      putUnsigned(instant.getNano(), buffer);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      long seconds = getLong(buffer);
+      return Instant.ofEpochSecond(seconds, getUnsigned(buffer));
+    }
+  },
+
+  DURATION(Duration.class, null) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      Duration duration = (Duration) value;
+      putLong(duration.getSeconds(), buffer);
+      putUnsigned(duration.getNano(), buffer);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      long seconds = getLong(buffer);
+      return Duration.ofSeconds(seconds, getUnsigned(buffer));
+    }
+  },
+
+  BYTES(byte[].class, null) {
+    @Override
+    public void write(Object value, ByteBuffer buffer) {
+      byte[] bytes = (byte[]) value;
+      putUnsigned(bytes.length, buffer);
+      buffer.put(bytes);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) {
+      byte[] bytes = new byte[getLength(buffer)];
+      buffer.get(bytes);
+      return bytes;
+    }
+  };
+
+  private final Class<?> type;
+
+  private final @Nullable Class<?> primitiveType;
+
+  BinaryValue(Class<?> type, @Nullable Class<?> primitiveType) {
+    this.type = type;
+    this.primitiveType = primitiveType;
+  }
+
+  /**
+   * Returns the binary form of the values of the type.
+   *
+   * @param type A field type.
+   * @return The binary form, or null if the values of the type are serialized.
+   */
+  static @Nullable BinaryValue of(Class<?> type) {
+    for (BinaryValue value : values()) {
+      if (value.type == type || value.primitiveType == type) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  static void putInt(int value, ByteBuffer buffer) {
+    putUnsigned((value << 1) ^ (value >> 31), buffer);
+  }
+
+  static int getInt(ByteBuffer buffer) {
+    int zigzag = getUnsigned(buffer);
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  static void putLong(long value, ByteBuffer buffer) {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7FL) != 0) {
+      buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+      zigzag >>>= 7;
+    }
+    buffer.put((byte) zigzag);
+  }
+
+  static long getLong(ByteBuffer buffer) {
+    long zigzag = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte next = buffer.get();
+      zigzag |= (long) (next & 0x7F) << shift;
+      if (next >= 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+    throw new CodecException("Malformed variable-length long");
+  }
+
+  static void putUnsigned(int value, ByteBuffer buffer) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  static int getUnsigned(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte next = buffer.get();
+      value |= (next & 0x7F) << shift;
+      if (next >= 0) {
+        return value;
+      }
+    }
+    throw new CodecException("Malformed variable-length integer");
+  }
+
+  /**
+   * Reads the length of the bytes that follow, which the buffer must hold.
+   */
+  static int getLength(ByteBuffer buffer) {
+    int length = getUnsigned(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new CodecException("Length " + Integer.toUnsignedString(length)
+          + " exceeds the " + buffer.remaining() + " bytes left");
+    }
+    return length;
+  }
+
+  static void putString(String value, ByteBuffer buffer) {
+    int length = value.length();
+    int size = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      size += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+    putUnsigned(size, buffer);
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer.put((byte) c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xC0 | (c >> 6)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      } else {
+        // Surrogates are written one by one, so that any string reads back the same
+        buffer.put((byte) (0xE0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  static String getString(ByteBuffer buffer) {
+    int size = getLength(buffer);
+    char[] chars = new char[size];
+    int length = 0;
+    int read = 0;
+    while (read < size) {
+      int first = buffer.get() & 0xFF;
+      if (first < 0x80) {
+        chars[length] = (char) first;
+        read++;
+      } else if (first < 0xE0) {
+        chars[length] = (char) (((first & 0x1F) << 6) | (buffer.get() & 0x3F));
+        read += 2;
+      } else {
+        int second = buffer.get() & 0x3F;
+        chars[length] = (char) (((first & 0x0F) << 12) | (second << 6) | (buffer.get() & 0x3F));
+        read += 3;
+      }
+      length++;
+    }
+    if (read != size) {
+      throw new CodecException("Malformed string of " + size + " bytes");
+    }
+    return new String(chars, 0, length);
+  }
+
+}
@@ -0,0 +1,21 @@
+package com.brillantcode.gate.codec;
+
+import com.brillantcode.gate.GateException;
+
+/**
+ * Indicates that a {@link CommandCodec} cannot be built for a command type,
+ * or that a command cannot be converted to or from its binary form.
+ */
+public class CodecException extends GateException {
+
+  private static final long serialVersionUID = 1L;
+
+  public CodecException(String message) {
+    super(message);
+  }
+
+  public CodecException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.brillantcode.gate.codec;
+
+import com.brillantcode.gate.Command;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the commands of a type to bytes and back, reading and writing
+ * a {@link ByteBuffer} at its position.
+ *
+ * <p>Codecs are created once per command type by a {@link CommandCodecFactory}
+ * and must be safe to call from multiple threads.
+ *
+ * @param <CommandT> The type of the commands.
+ * @see CommandCodecs
+ */
+public interface CommandCodec<CommandT extends Command> {
+
+  /**
+   * Writes the command to the buffer, advancing its position.
+   *
+   * @param command The command to write.
+   * @param buffer  The buffer to write to.
+   * @throws java.nio.BufferOverflowException If the command does not fit in the remaining bytes
+   *                                          of the buffer, whose position is then unspecified.
+   * @throws CodecException                   If the command cannot be written.
+   */
+  void encode(CommandT command, ByteBuffer buffer);
+
+  /**
+   * Reads a command written by {@link #encode(Command, ByteBuffer)}, advancing
+   * the position of the buffer.
+   *
+   * @param buffer The buffer to read from.
+   * @return The command.
+   * @throws java.nio.BufferUnderflowException If the buffer ends before the command.
+   * @throws CodecException                    If the command cannot be created.
+   */
+  CommandT decode(ByteBuffer buffer);
+
+}
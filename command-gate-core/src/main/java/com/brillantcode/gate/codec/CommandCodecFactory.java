@@ -0,0 +1,52 @@
+package com.brillantcode.gate.codec;
+
+import com.brillantcode.gate.Command;
+
+/**
+ * Creates the {@link CommandCodec} of a command type.
+ *
+ * <p>A factory may return its own codecs for some types and delegate
+ * the others to the {@link #binary()} factory.
+ */
+@FunctionalInterface
+public interface CommandCodecFactory {
+
+  /**
+   * Returns the factory of the compact binary codecs, which write the fields of the commands
+   * one after another through method handles looked up when the codec is created.
+   *
+   * <p>Primitives, their wrappers, strings, enums, {@link java.util.UUID},
+   * {@link java.time.Instant}, {@link java.time.Duration} and byte arrays are written
+   * in binary, other fields with Java serialization. Commands are created through
+   * the constructor taking all the fields in the order they are declared, such as the one
+   * of a Lombok {@code @Value} class, provided its parameters are named after the fields
+   * in the class file, compiled with {@code -parameters}, or by
+   * {@link java.beans.ConstructorProperties}. Else they are created through
+   * the constructor without parameters, the fields being set afterwards.
+   *
+   * @return The binary codec factory.
+   */
+  static CommandCodecFactory binary() {
+    return BinaryCommandCodec::create;
+  }
+
+  /**
+   * Returns the factory of codecs using Java serialization,
+   * which requires the commands to be {@link java.io.Serializable}.
+   *
+   * @return The Java serialization codec factory.
+   */
+  static CommandCodecFactory javaSerialization() {
+    return JavaSerializationCodec::create;
+  }
+
+  /**
+   * Creates the codec of the command type.
+   *
+   * @param commandType The command type.
+   * @return The codec of the commands of the type.
+   * @throws CodecException If the commands of the type cannot be converted.
+   */
+  CommandCodec<? extends Command> create(Class<? extends Command> commandType);
+
+}
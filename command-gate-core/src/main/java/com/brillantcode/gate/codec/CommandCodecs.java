@@ -0,0 +1,189 @@
+package com.brillantcode.gate.codec;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.CommandRegistry;
+import com.google.common.base.Preconditions;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The {@link CommandCodec codecs} of the types of a {@link CommandRegistry},
+ * created once for every type when the registry is read.
+ *
+ * <p>{@link #encode(Command, ByteBuffer) Encoded} commands start with a four-byte tag
+ * derived from the name of their type, so that they are {@link #decode(ByteBuffer) decoded}
+ * by the codec of the same type as long as it keeps its name.
+ *
+ * <p>A type whose codec cannot be created does not prevent the others from being
+ * encoded, its commands fail with the reason when they are encoded or decoded.
+ */
+public class CommandCodecs {
+
+  private final Map<Class<?>, Registration> byType = new HashMap<>();
+
+  private final Map<Integer, Registration> byTag = new HashMap<>();
+
+  /**
+   * Creates the {@link CommandCodecFactory#binary() binary} codecs of the types of the registry.
+   *
+   * @param commandRegistry The registry of the command types.
+   * @throws CodecException If two types have the same tag.
+   */
+  public CommandCodecs(CommandRegistry commandRegistry) {
+    this(commandRegistry, CommandCodecFactory.binary());
+  }
+
+  /**
+   * Creates the codecs of the types of the registry with the factory.
+   *
+   * @param commandRegistry The registry of the command types.
+   * @param codecFactory    The factory of the codecs.
+   * @throws CodecException If two types have the same tag.
+   */
+  public CommandCodecs(CommandRegistry commandRegistry, CommandCodecFactory codecFactory) {
+    Preconditions.checkNotNull(commandRegistry);
+    Preconditions.checkNotNull(codecFactory);
+    for (Class<? extends Command> type : commandRegistry.getCommandTypes()) {
+      Registration registration = Registration.create(type, codecFactory);
+      @Nullable Registration other = byTag.putIfAbsent(registration.tag, registration);
+      if (other != null) {
+        throw new CodecException("Command types " + other.type.getName() + " and "
+            + type.getName() + " have the same codec tag, one of them must be renamed");
+      }
+      byType.put(type, registration);
+    }
+  }
+
+  /**
+   * Returns the command types with a codec.
+   *
+   * @return The command types.
+   */
+  public Set<Class<?>> getCommandTypes() {
+    return Collections.unmodifiableSet(byType.keySet());
+  }
+
+  /**
+   * Tells whether the commands of some types are read with Java serialization, in whole or
+   * through some of their fields. Reading them from an untrusted source may then run
+   * arbitrary code, through the classes the stream names.
+   *
+   * <p>Only the codecs of this package are known to use Java serialization,
+   * the codecs created by other factories are assumed not to.
+   *
+   * @return True if some codec uses Java serialization.
+   */
+  public boolean usesJavaSerialization() {
+    for (Registration registration : byType.values()) {
+      @Nullable CommandCodec<? extends Command> codec = registration.codec;
+      if (codec instanceof JavaSerializationCodec || codec instanceof BinaryCommandCodec
+          && ((BinaryCommandCodec) codec).serializesFields()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the codec of the command type.
+   *
+   * @param commandType The command type.
+   * @param <CommandT>  The command type.
+   * @return The codec of the type.
+   * @throws CodecException If the type has no codec.
+   */
+  @SuppressWarnings("unchecked")
+  public <CommandT extends Command> CommandCodec<CommandT> codecFor(Class<CommandT> commandType) {
+    Preconditions.checkNotNull(commandType);
+    return (CommandCodec<CommandT>) registration(commandType).codec();
+  }
+
+  /**
+   * Writes the tag of the type of the command followed by the command.
+   *
+   * @param command The command to write.
+   * @param buffer  The buffer to write to.
+   * @throws java.nio.BufferOverflowException If the command does not fit in the remaining bytes
+   *                                          of the buffer, whose position is then unspecified.
+   * @throws CodecException                   If the type of the command has no codec,
+   *                                          or the command cannot be written.
+   */
+  @SuppressWarnings("unchecked")
+  public void encode(Command command, ByteBuffer buffer) {
+    Preconditions.checkNotNull(command);
+    Registration registration = registration(command.getClass());
+    CommandCodec<Command> codec = (CommandCodec<Command>) registration.codec();
+    buffer.putInt(registration.tag);
+    codec.encode(command, buffer);
+  }
+
+  /**
+   * Reads a command written by {@link #encode(Command, ByteBuffer)}.
+   *
+   * @param buffer The buffer to read from.
+   * @return The command.
+   * @throws java.nio.BufferUnderflowException If the buffer ends before the command.
+   * @throws CodecException                    If the tag is of no known type,
+   *                                           or the command cannot be created.
+   */
+  public Command decode(ByteBuffer buffer) {
+    int tag = buffer.getInt();
+    @Nullable Registration registration = byTag.get(tag);
+    if (registration == null) {
+      throw new CodecException("No command type with the codec tag " + tag);
+    }
+    return registration.codec().decode(buffer);
+  }
+
+  private Registration registration(Class<?> commandType) {
+    @Nullable Registration registration = byType.get(commandType);
+    if (registration == null) {
+      throw new CodecException("No codec for command type " + commandType.getName()
+          + ", the type is not in the command registry");
+    }
+    return registration;
+  }
+
+  private static final class Registration {
+
+    private final Class<?> type;
+
+    private final int tag;
+
+    private final @Nullable CommandCodec<? extends Command> codec;
+
+    private final @Nullable CodecException failure;
+
+    private Registration(Class<?> type, @Nullable CommandCodec<? extends Command> codec,
+                         @Nullable CodecException failure) {
+      this.type = type;
+      this.tag = type.getName().hashCode();
+      this.codec = codec;
+      this.failure = failure;
+    }
+
+    static Registration create(Class<? extends Command> type, CommandCodecFactory codecFactory) {
+      try {
+        return new Registration(type, codecFactory.create(type), null);
+      } catch (CodecException ex) {
+        return new Registration(type, null, ex);
+      }
+    }
+
+    CommandCodec<? extends Command> codec() {
+      @Nullable CommandCodec<? extends Command> codec = this.codec;
+      if (codec == null) {
+        String message = "No codec for command type " + type.getName();
+        @Nullable CodecException failure = this.failure;
+        throw failure == null ? new CodecException(message) : new CodecException(message, failure);
+      }
+      return codec;
+    }
+
+  }
+
+}
@@ -0,0 +1,129 @@
+package com.brillantcode.gate.codec;
+
+import com.brillantcode.gate.Command;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link CommandCodec} based on Java serialization, streaming the object
+ * to and from the buffer after the length of its stream.
+ */
+final class JavaSerializationCodec implements CommandCodec<Command> {
+
+  private final Class<?> commandType;
+
+  private JavaSerializationCodec(Class<?> commandType) {
+    this.commandType = commandType;
+  }
+
+  static JavaSerializationCodec create(Class<? extends Command> commandType) {
+    if (!Serializable.class.isAssignableFrom(commandType)) {
+      throw new CodecException("Command type " + commandType.getName() + " is not serializable");
+    }
+    return new JavaSerializationCodec(commandType);
+  }
+
+  @Override
+  public void encode(Command command, ByteBuffer buffer) {
+    write(command, buffer);
+  }
+
+  @Override
+  public Command decode(ByteBuffer buffer) {
+    Object command = read(buffer);
+    if (!commandType.isInstance(command)) {
+      throw new CodecException("Decoded " + command.getClass().getName()
+          + " instead of a command of type " + commandType.getName());
+    }
+    return (Command) command;
+  }
+
+  /**
+   * Writes the length of the stream of the object followed by the stream.
+   */
+  static void write(Object value, ByteBuffer buffer) {
+    int lengthPosition = buffer.position();
+    buffer.putInt(0);
+    try (ObjectOutputStream out = new ObjectOutputStream(new BufferOutputStream(buffer))) {
+      out.writeObject(value);
+    } catch (IOException ex) {
+      throw new CodecException("Cannot serialize " + value.getClass().getName(), ex);
+    }
+    buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+  }
+
+  static Object read(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new CodecException("Serialized length " + length
+          + " exceeds the " + buffer.remaining() + " bytes left");
+    }
+    ByteBuffer stream = buffer.slice();
+    stream.limit(length);
+    buffer.position(buffer.position() + length);
+    try (ObjectInputStream in = new ObjectInputStream(new BufferInputStream(stream))) {
+      return in.readObject();
+    } catch (IOException | ClassNotFoundException ex) {
+      throw new CodecException("Cannot deserialize an object", ex);
+    }
+  }
+
+  private static final class BufferOutputStream extends OutputStream {
+
+    private final ByteBuffer buffer;
+
+    BufferOutputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int value) {
+      buffer.put((byte) value);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      buffer.put(bytes, offset, length);
+    }
+
+  }
+
+  private static final class BufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    BufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+  }
+
+}
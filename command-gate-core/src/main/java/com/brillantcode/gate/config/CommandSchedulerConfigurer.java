@@ -1,29 +1,519 @@
 package com.brillantcode.gate.config;
 
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.journal.CommandJournal;
+import com.brillantcode.gate.journal.JournalingCommandScheduler;
+import com.brillantcode.gate.limit.BulkheadCommandScheduler;
+import com.brillantcode.gate.limit.CommandLimits;
+import com.brillantcode.gate.limit.CommandLimitsRegistry;
+import com.brillantcode.gate.priority.CommandPriorities;
+import com.brillantcode.gate.priority.PriorityCommandScheduler;
+import com.brillantcode.gate.scheduler.CoalescingCommandScheduler;
 import com.brillantcode.gate.scheduler.CommandScheduler;
-import org.apache.commons.lang3.NotImplementedException;
+import com.brillantcode.gate.scheduler.JavaExecutorCommandScheduler;
+import com.brillantcode.gate.scheduler.PartitionedCommandScheduler;
+import com.brillantcode.gate.scheduler.RingBufferCommandScheduler;
+import com.brillantcode.gate.scheduler.SaturationPolicy;
+import com.brillantcode.gate.scheduler.VirtualThreadCommandScheduler;
+import com.brillantcode.gate.scheduler.WaitStrategy;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Exposes configuration options and building of a {@link CommandScheduler}.
  *
+ * <p>By default the commands are executed by a {@link ThreadPoolExecutor}
+ * with as many daemon threads as there are available processors,
+ * fed by a bounded queue of {@value #DEFAULT_QUEUE_CAPACITY} commands.
+ * Commands scheduled when the queue is full are rejected.
+ *
+ * <p>The executor created by the configurer lives as long as the application,
+ * to control its lifecycle provide your own one with {@link #executor(Executor)}.
+ *
+ * <p>On Java 21 and later the commands may instead run on virtual threads,
+ * see {@link #virtualThreads()}.
+ *
+ * <p>The commands of a type may be limited in concurrency and rate,
+ * see {@link #limit(Class, CommandLimits)}, and started in order of priority,
+ * see {@link #priorities(Duration)}. Scheduled commands may be kept in a journal
+ * to survive a restart, see {@link #journal(CommandJournal)}.
+ *
  * @param <C> Type of the {@link GateConfigurer} returned by
  *            {@link ComponentConfigurer#and()} for chaining.
  */
 public class CommandSchedulerConfigurer<C extends GateConfigurer>
     extends ComponentConfigurer<C, CommandScheduler> {
 
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  private int corePoolSize = Runtime.getRuntime().availableProcessors();
+
+  private int maximumPoolSize = corePoolSize;
+
+  private Duration keepAlive = Duration.ofSeconds(60);
+
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+  private SaturationPolicy saturationPolicy = SaturationPolicy.REJECT;
+
+  private Duration blockTimeout = Duration.ofSeconds(30);
+
+  private String threadNamePrefix = "command-gate-";
+
+  private boolean daemonThreads = true;
+
+  private @Nullable Executor executor;
+
+  private boolean virtualThreads;
+
+  private int partitionLanes;
+
+  private @Nullable WaitStrategy ringWaitStrategy;
+
+  private @Nullable Duration agingInterval;
+
+  private boolean coalescing;
+
+  private @Nullable CommandJournal journal;
+
+  private final Map<Class<? extends Command>, Integer> concurrencyLimits = new HashMap<>();
+
+  private final CommandLimitsRegistry limitsRegistry = new CommandLimitsRegistry();
+
+  private Executor limitFallbackExecutor = Runnable::run;
+
+  private final CommandPriorities commandPriorities = new CommandPriorities();
+
   public CommandSchedulerConfigurer(C baseConfigurer) {
     super(baseConfigurer);
   }
 
+  /**
+   * Sets the number of threads kept in the pool, even when idle.
+   *
+   * <p>Also raises the maximum pool size if it is lower.
+   *
+   * @param corePoolSize The number of core threads.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> corePoolSize(int corePoolSize) {
+    Preconditions.checkArgument(corePoolSize > 0, "Core pool size must be positive");
+    this.corePoolSize = corePoolSize;
+    this.maximumPoolSize = Math.max(this.maximumPoolSize, corePoolSize);
+    return this;
+  }
+
+  /**
+   * Sets the maximum number of threads in the pool.
+   *
+   * <p>Threads above the core pool size are only started when the queue is full.
+   *
+   * @param maximumPoolSize The maximum number of threads.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> maximumPoolSize(int maximumPoolSize) {
+    Preconditions.checkArgument(maximumPoolSize >= this.corePoolSize,
+        "Maximum pool size must not be lower than the core pool size");
+    this.maximumPoolSize = maximumPoolSize;
+    return this;
+  }
+
+  /**
+   * Sets how long threads above the core pool size are kept when idle.
+   *
+   * @param keepAlive The keep-alive time of the threads.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> keepAlive(Duration keepAlive) {
+    Preconditions.checkNotNull(keepAlive);
+    Preconditions.checkArgument(!keepAlive.isNegative(), "Keep-alive time cannot be negative");
+    this.keepAlive = keepAlive;
+    return this;
+  }
+
+  /**
+   * Sets the number of commands that may wait in the queue for a thread.
+   *
+   * @param queueCapacity The capacity of the queue.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> queueCapacity(int queueCapacity) {
+    Preconditions.checkArgument(queueCapacity > 0, "Queue capacity must be positive");
+    this.queueCapacity = queueCapacity;
+    return this;
+  }
+
+  /**
+   * Sets what happens to commands scheduled when the queue is full.
+   *
+   * @param saturationPolicy The policy to apply.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> saturationPolicy(SaturationPolicy saturationPolicy) {
+    Preconditions.checkNotNull(saturationPolicy);
+    this.saturationPolicy = saturationPolicy;
+    return this;
+  }
+
+  /**
+   * Applies the {@link SaturationPolicy#BLOCK} policy with the given timeout.
+   *
+   * @param blockTimeout The longest time to wait for space in the queue.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> blockWhenSaturated(Duration blockTimeout) {
+    Preconditions.checkNotNull(blockTimeout);
+    Preconditions.checkArgument(!blockTimeout.isNegative(), "Block timeout cannot be negative");
+    this.saturationPolicy = SaturationPolicy.BLOCK;
+    this.blockTimeout = blockTimeout;
+    return this;
+  }
+
+  /**
+   * Sets the prefix of the names of the threads, followed by a sequence number.
+   *
+   * @param threadNamePrefix The prefix of the thread names.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> threadNamePrefix(String threadNamePrefix) {
+    Preconditions.checkNotNull(threadNamePrefix);
+    this.threadNamePrefix = threadNamePrefix;
+    return this;
+  }
+
+  /**
+   * Sets whether the threads are daemon threads, which do not prevent the JVM from exiting.
+   *
+   * @param daemonThreads True to create daemon threads.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> daemonThreads(boolean daemonThreads) {
+    this.daemonThreads = daemonThreads;
+    return this;
+  }
+
+  /**
+   * Sets an {@link Executor} to execute the commands with,
+   * instead of the thread pool created by the configurer.
+   *
+   * <p>All the other options are ignored when an executor is set.
+   * Clients are responsible for managing and shutting down the executor.
+   *
+   * @param executor The executor to use.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> executor(Executor executor) {
+    Preconditions.checkNotNull(executor);
+    this.executor = executor;
+    this.virtualThreads = false;
+    this.ringWaitStrategy = null;
+    this.agingInterval = null;
+    return this;
+  }
+
+  /**
+   * Runs every command on its own virtual thread with a {@link VirtualThreadCommandScheduler},
+   * instead of the thread pool created by the configurer.
+   *
+   * <p>Virtual threads require Java 21, on older runtimes creating the gate fails.
+   * The thread pool options are ignored when virtual threads are used.
+   *
+   * @return The current instance of the configurer.
+   * @see VirtualThreadCommandScheduler#isSupported()
+   */
+  public CommandSchedulerConfigurer<C> virtualThreads() {
+    this.virtualThreads = true;
+    this.executor = null;
+    this.ringWaitStrategy = null;
+    this.agingInterval = null;
+    return this;
+  }
+
+  /**
+   * Limits the number of commands of the given type running at the same time.
+   *
+   * <p>On {@link #virtualThreads()} each type is limited by a semaphore,
+   * other schedulers keep the commands over the limit waiting, as with
+   * {@link #limit(Class, CommandLimits)}.
+   *
+   * @param commandType The type of the commands to limit.
+   * @param limit       Maximum number of running commands of the type.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> concurrencyLimit(Class<? extends Command> commandType,
+                                                        int limit) {
+    Preconditions.checkNotNull(commandType);
+    Preconditions.checkArgument(limit > 0, "Concurrency limit must be positive");
+    this.concurrencyLimits.put(commandType, limit);
+    return this;
+  }
+
+  /**
+   * Limits the concurrency and the rate of the commands of the given type
+   * with a {@link BulkheadCommandScheduler} in front of the configured scheduler.
+   *
+   * <p>These limits replace the ones declared with the
+   * {@link com.brillantcode.gate.annotation.CommandHandler} annotations of the type.
+   * With the {@link com.brillantcode.gate.limit.LimitPolicy#QUEUE} policy, up to
+   * {@link #queueCapacity(int)} commands of the type wait for a running one to complete,
+   * the {@link #saturationPolicy(SaturationPolicy) saturation policy} applies to the others.
+   *
+   * @param commandType The type of the commands to limit.
+   * @param limits      The limits of the commands of the type.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> limit(Class<? extends Command> commandType,
+                                             CommandLimits limits) {
+    Preconditions.checkNotNull(commandType);
+    Preconditions.checkNotNull(limits);
+    this.limitsRegistry.configure(commandType, limits);
+    return this;
+  }
+
+  /**
+   * Sets the {@link Executor} running the commands over their limits
+   * with the {@link com.brillantcode.gate.limit.LimitPolicy#FALLBACK} policy.
+   *
+   * <p>By default they run in the scheduling thread.
+   *
+   * @param fallbackExecutor The executor to use.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> limitFallback(Executor fallbackExecutor) {
+    Preconditions.checkNotNull(fallbackExecutor);
+    this.limitFallbackExecutor = fallbackExecutor;
+    return this;
+  }
+
+  /**
+   * Runs the commands with the same partition key in order,
+   * with a {@link PartitionedCommandScheduler} of the given number of lanes.
+   *
+   * <p>The lanes run on the thread pool created by the configurer,
+   * or on the {@link #executor(Executor)} set. The {@link #queueCapacity(int) queue capacity}
+   * is shared between the lanes, and the {@link #saturationPolicy(SaturationPolicy) saturation
+   * policy} applies to each of them once full.
+   * Partitioning cannot be combined with virtual threads
+   * nor with the {@link SaturationPolicy#DROP_OLDEST} policy,
+   * which would stall the lane of a dropped command.
+   *
+   * @param partitionLanes The number of lanes.
+   * @return The current instance of the configurer.
+   * @see com.brillantcode.gate.PartitionKeyed
+   */
+  public CommandSchedulerConfigurer<C> partitionLanes(int partitionLanes) {
+    Preconditions.checkArgument(partitionLanes > 0, "Number of partition lanes must be positive");
+    this.partitionLanes = partitionLanes;
+    return this;
+  }
+
+  /**
+   * Hands the commands over to the worker threads through a {@link RingBufferCommandScheduler}
+   * instead of the queue of a thread pool.
+   *
+   * <p>The ring has {@link #queueCapacity(int)} slots, rounded up to a power of two,
+   * and is consumed by {@link #corePoolSize(int)} workers named and created as the threads
+   * of the pool. When the ring is full the scheduling thread waits for a free slot,
+   * or runs the command itself if it is a worker, the saturation policy does not apply.
+   *
+   * <p>As the thread pool, the workers live as long as the application. With
+   * {@link WaitStrategy#BUSY_SPIN} and {@link WaitStrategy#YIELD} each worker keeps a core
+   * busy even when no command is scheduled, only use them when the workers have dedicated cores.
+   * To stop the workers, pass a {@link RingBufferCommandScheduler} to a
+   * {@link com.brillantcode.gate.DefaultGate} instead and {@link RingBufferCommandScheduler#close()
+   * close} it.
+   *
+   * @param waitStrategy How the scheduling threads and the workers wait.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> ringBuffer(WaitStrategy waitStrategy) {
+    Preconditions.checkNotNull(waitStrategy);
+    this.ringWaitStrategy = waitStrategy;
+    this.executor = null;
+    this.virtualThreads = false;
+    this.agingInterval = null;
+    return this;
+  }
+
+  /**
+   * Starts the waiting commands with higher priorities first,
+   * with a {@link PriorityCommandScheduler} instead of the queue of a thread pool.
+   *
+   * <p>The scheduler holds up to {@link #queueCapacity(int)} commands, which are run by
+   * {@link #corePoolSize(int)} workers named and created as the threads of the pool.
+   * Commands scheduled when it is full are rejected, the saturation policy does not apply.
+   * A waiting command gains one priority per aging interval,
+   * so that urgent commands cannot hold the others back indefinitely.
+   *
+   * @param agingInterval How long a command waits to gain one priority.
+   * @return The current instance of the configurer.
+   * @see com.brillantcode.gate.Prioritized
+   */
+  public CommandSchedulerConfigurer<C> priorities(Duration agingInterval) {
+    Preconditions.checkNotNull(agingInterval);
+    Preconditions.checkArgument(!agingInterval.isNegative() && !agingInterval.isZero(),
+        "Aging interval must be positive");
+    this.agingInterval = agingInterval;
+    this.executor = null;
+    this.virtualThreads = false;
+    this.ringWaitStrategy = null;
+    return this;
+  }
+
+  /**
+   * Sets the priority of the commands of the given type that do not implement
+   * {@link com.brillantcode.gate.Prioritized}, when {@link #priorities(Duration)} are used.
+   *
+   * <p>The priority replaces the one declared with the
+   * {@link com.brillantcode.gate.annotation.CommandHandler} annotations of the type.
+   *
+   * @param commandType The type of the commands.
+   * @param priority    The priority of the commands.
+   * @return The current instance of the configurer.
+   */
+  public CommandSchedulerConfigurer<C> priority(Class<? extends Command> commandType,
+                                                int priority) {
+    this.commandPriorities.configure(commandType, priority);
+    return this;
+  }
+
+  /**
+   * Merges the commands waiting to run with the same coalescing key,
+   * with a {@link CoalescingCommandScheduler} in front of the configured scheduler.
+   *
+   * @return The current instance of the configurer.
+   * @see com.brillantcode.gate.Coalescible
+   */
+  public CommandSchedulerConfigurer<C> coalescing() {
+    this.coalescing = true;
+    return this;
+  }
+
+  /**
+   * Writes the scheduled commands to the given journal before they are scheduled,
+   * with a {@link JournalingCommandScheduler} in front of the configured scheduler.
+   * The commands left in the journal by the previous run are replayed
+   * when the gate is configured.
+   *
+   * <p>Clients are responsible for closing the journal.
+   *
+   * @param journal The journal to write the commands to.
+   * @return The current instance of the configurer.
+   * @see CommandJournal#replay(com.brillantcode.gate.Gate)
+   */
+  public CommandSchedulerConfigurer<C> journal(CommandJournal journal) {
+    Preconditions.checkNotNull(journal);
+    this.journal = journal;
+    return this;
+  }
+
   @Override
   protected CommandScheduler configure() {
-    return runner -> {
-      throw new NotImplementedException(
-          "Command scheduling configurer is not yet implemented. "
-              + "To use command scheduling manually create an instance of a Gate."
+    CommandScheduler scheduler = configureScheduler();
+    if (!virtualThreads) {
+      concurrencyLimits.forEach((commandType, limit) -> {
+        if (limitsRegistry.limitsFor(commandType) == null) {
+          limitsRegistry.configure(commandType, CommandLimits.none().withMaxConcurrency(limit));
+        }
+      });
+    }
+    if (!limitsRegistry.isEmpty() || limitsRegistry.discoversHandlers()) {
+      scheduler = new BulkheadCommandScheduler(scheduler, limitsRegistry, limitFallbackExecutor,
+          queueCapacity, saturationPolicy, blockTimeout);
+    }
+    if (coalescing) {
+      scheduler = new CoalescingCommandScheduler(scheduler);
+    }
+    // Outside of coalescing, so that the commands of the merged runners are journaled too
+    @Nullable CommandJournal journal = this.journal;
+    return journal != null ? new JournalingCommandScheduler(scheduler, journal) : scheduler;
+  }
+
+  /**
+   * Returns the registry of the limits of the command types,
+   * where the limits declared by the handlers are recorded too.
+   *
+   * @return The limits registry.
+   */
+  CommandLimitsRegistry limitsRegistry() {
+    return limitsRegistry;
+  }
+
+  /**
+   * Returns the priorities of the command types,
+   * where the priorities declared by the handlers are recorded too.
+   *
+   * @return The command priorities.
+   */
+  CommandPriorities commandPriorities() {
+    return commandPriorities;
+  }
+
+  /**
+   * Returns the journal of the scheduled commands.
+   *
+   * @return The journal, or null if the commands are not journaled.
+   */
+  @Nullable CommandJournal journal() {
+    return journal;
+  }
+
+  private CommandScheduler configureScheduler() {
+    Preconditions.checkState(partitionLanes == 0 || !virtualThreads,
+        "Partition lanes cannot be combined with virtual threads");
+    if (virtualThreads) {
+      return new VirtualThreadCommandScheduler(concurrencyLimits);
+    }
+    @Nullable Duration agingInterval = this.agingInterval;
+    if (agingInterval != null) {
+      Preconditions.checkState(partitionLanes == 0,
+          "Partition lanes cannot be combined with priorities");
+      return new PriorityCommandScheduler(
+          commandPriorities, queueCapacity, corePoolSize, agingInterval, threadFactory());
+    }
+    @Nullable WaitStrategy waitStrategy = this.ringWaitStrategy;
+    if (waitStrategy != null) {
+      Preconditions.checkState(partitionLanes == 0,
+          "Partition lanes cannot be combined with a ring buffer");
+      return new RingBufferCommandScheduler(
+          queueCapacity, corePoolSize, waitStrategy, threadFactory());
+    }
+    Executor commandExecutor = this.executor;
+    if (commandExecutor == null) {
+      Preconditions.checkState(partitionLanes == 0
+              || saturationPolicy != SaturationPolicy.DROP_OLDEST,
+          "Partition lanes cannot be combined with the DROP_OLDEST saturation policy");
+      commandExecutor = new ThreadPoolExecutor(
+          corePoolSize,
+          maximumPoolSize,
+          keepAlive.toNanos(), TimeUnit.NANOSECONDS,
+          new ArrayBlockingQueue<>(queueCapacity),
+          threadFactory(),
+          saturationPolicy.rejectedExecutionHandler(blockTimeout)
       );
-    };
+    }
+    if (partitionLanes > 0) {
+      int laneCapacity = Math.max(1, queueCapacity / partitionLanes);
+      return new PartitionedCommandScheduler(
+          commandExecutor, partitionLanes, laneCapacity, saturationPolicy, blockTimeout);
+    }
+    return new JavaExecutorCommandScheduler(commandExecutor);
+  }
+
+  private ThreadFactory threadFactory() {
+    return new ThreadFactoryBuilder()
+        .setNameFormat(threadNamePrefix + "%d")
+        .setDaemon(daemonThreads)
+        .build();
   }
 
 }
@@ -7,10 +7,22 @@ import com.brillantcode.gate.handler.AutoInitializingMapCommandHandlerRegistry;
 import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
 import com.brillantcode.gate.handler.CommandHandlerRegistry;
 import com.brillantcode.gate.handler.CompositeCommandHandlerDiscoverer;
+import com.brillantcode.gate.idempotency.IdempotencyCache;
+import com.brillantcode.gate.index.CommandIndex;
+import com.brillantcode.gate.index.HandlerInstanceProvider;
+import com.brillantcode.gate.interceptor.CommandInterceptor;
+import com.brillantcode.gate.interceptor.InterceptingCommandHandlerDiscoverer;
+import com.brillantcode.gate.journal.CommandJournal;
+import com.brillantcode.gate.limit.LimitDeclaringCommandHandlerDiscoverer;
+import com.brillantcode.gate.metrics.GateInstrumentation;
+import com.brillantcode.gate.metrics.InstrumentedCommandScheduler;
+import com.brillantcode.gate.metrics.InstrumentedGate;
+import com.brillantcode.gate.priority.PriorityDeclaringCommandHandlerDiscoverer;
 import com.brillantcode.gate.scheduler.CommandScheduler;
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -29,13 +41,20 @@ public class GateConfigurer {
 
   private final List<CommandHandlerDiscoverer> commandHandlerDiscoverers = new ArrayList<>();
 
-  private CommandHandlerRegistryFactory commandHandlerRegistryFactory =
-      AutoInitializingMapCommandHandlerRegistry::new;
+  private final List<CommandInterceptor> commandInterceptors = new ArrayList<>();
+
+  private @Nullable CommandHandlerRegistryFactory commandHandlerRegistryFactory;
+
+  private @Nullable ForkJoinPool registrationPool;
 
   private @Nullable CommandRegistryConfigurer<GateConfigurer> commandRegistryConfigurer;
 
   private @Nullable CommandSchedulerConfigurer<GateConfigurer> commandSchedulerConfigurer;
 
+  private @Nullable GateInstrumentation instrumentation;
+
+  private @Nullable IdempotencyCache idempotencyCache;
+
   private GateConfigurer() {
   }
 
@@ -79,6 +98,8 @@ public class GateConfigurer {
    * Sets the {@link CommandHandlerRegistryFactory} that should be used
    * for instantiating the {@link CommandHandlerRegistry}.
    *
+   * <p>By default an {@link AutoInitializingMapCommandHandlerRegistry} is created.
+   *
    * @param commandHandlerRegistryFactory The factory to use for instantiating the registry.
    * @return This configurer instance.
    */
@@ -89,6 +110,23 @@ public class GateConfigurer {
     return this;
   }
 
+  /**
+   * Sets the {@link ForkJoinPool} used to discover the command handlers in parallel,
+   * both across the command types and across the handler discoverers.
+   *
+   * <p>All the handler discoverers must be safe to call from multiple threads.
+   * The pool is used by the default command handler registry, a registry created by
+   * a custom {@link CommandHandlerRegistryFactory} discovers handlers on its own terms.
+   *
+   * @param registrationPool The pool to discover the handlers in.
+   * @return This configurer instance.
+   */
+  public GateConfigurer registrationPool(ForkJoinPool registrationPool) {
+    Preconditions.checkNotNull(registrationPool);
+    this.registrationPool = registrationPool;
+    return this;
+  }
+
 
   /**
    * Inserts the specified {@link CommandHandlerDiscoverer} at the end
@@ -122,6 +160,57 @@ public class GateConfigurer {
     return this;
   }
 
+  /**
+   * Adds the specified {@link CommandInterceptor} at the end of the interceptor chain.
+   *
+   * <p>Interceptors receive the commands in the order they are added.
+   *
+   * @param interceptor The interceptor to add.
+   * @return This configurer instance.
+   */
+  public GateConfigurer addInterceptor(CommandInterceptor interceptor) {
+    Preconditions.checkNotNull(interceptor);
+    this.commandInterceptors.add(interceptor);
+    return this;
+  }
+
+
+  /**
+   * Adds the command types and the handlers of the given {@link CommandIndex}.
+   *
+   * <p>The command registry of the index is added to the command registry configuration
+   * and its handler discoverer is inserted at the end of the list of discoverers.
+   *
+   * @param commandIndex     The command index to add.
+   * @param instanceProvider Provider of the objects that own the indexed handlers.
+   * @return This configurer instance.
+   */
+  public GateConfigurer addCommandIndex(CommandIndex commandIndex,
+                                        HandlerInstanceProvider instanceProvider) {
+    Preconditions.checkNotNull(commandIndex);
+    Preconditions.checkNotNull(instanceProvider);
+    commandRegistry().addRegistry(commandIndex.commandRegistry());
+    return addHandlerDiscoverer(commandIndex.handlerDiscoverer(instanceProvider));
+  }
+
+  /**
+   * Adds every {@link CommandIndex} registered as a service
+   * with the context class loader of the current thread.
+   *
+   * @param instanceProvider Provider of the objects that own the indexed handlers.
+   * @return This configurer instance.
+   * @see #addCommandIndex(CommandIndex, HandlerInstanceProvider)
+   */
+  public GateConfigurer addCommandIndexes(HandlerInstanceProvider instanceProvider) {
+    Preconditions.checkNotNull(instanceProvider);
+    @Nullable ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    for (CommandIndex commandIndex : CommandIndex.loadAll(
+        classLoader != null ? classLoader : ClassLoader.getSystemClassLoader())) {
+      addCommandIndex(commandIndex, instanceProvider);
+    }
+    return this;
+  }
+
 
   /**
    * Sets the {@link CommandSchedulerConfigurer} used to create
@@ -154,6 +243,38 @@ public class GateConfigurer {
   }
 
 
+  /**
+   * Sets the {@link GateInstrumentation} notified about the processing of the commands,
+   * e.g. a {@link com.brillantcode.gate.metrics.CommandMetrics} collecting their metrics.
+   *
+   * <p>The gate and its scheduler are only instrumented when an instrumentation is set.
+   *
+   * @param instrumentation The instrumentation to report to.
+   * @return This configurer instance.
+   */
+  public GateConfigurer instrumentation(GateInstrumentation instrumentation) {
+    Preconditions.checkNotNull(instrumentation);
+    this.instrumentation = instrumentation;
+    return this;
+  }
+
+  /**
+   * Sets the {@link IdempotencyCache} the gate skips the
+   * {@link com.brillantcode.gate.annotation.Idempotent idempotent} commands
+   * handled recently with.
+   *
+   * <p>All commands are handled when no cache is set.
+   *
+   * @param idempotencyCache The cache to use.
+   * @return This configurer instance.
+   */
+  public GateConfigurer idempotencyCache(IdempotencyCache idempotencyCache) {
+    Preconditions.checkNotNull(idempotencyCache);
+    this.idempotencyCache = idempotencyCache;
+    return this;
+  }
+
+
   /**
    * Creates new instance of a {@link Gate} according to the current configuration
    * of this instance of {@link GateConfigurer}.
@@ -170,18 +291,61 @@ public class GateConfigurer {
 
     CommandRegistry commandRegistry = commandRegistry().configure();
 
+    @Nullable ForkJoinPool registrationPool = this.registrationPool;
     CommandHandlerDiscoverer commandHandlerDiscoverer =
-        new CompositeCommandHandlerDiscoverer(commandHandlerDiscoverers);
+        new CompositeCommandHandlerDiscoverer(commandHandlerDiscoverers, registrationPool);
+    commandHandlerDiscoverer = new LimitDeclaringCommandHandlerDiscoverer(
+        commandHandlerDiscoverer, commandScheduler().limitsRegistry()
+    );
+    commandHandlerDiscoverer = new PriorityDeclaringCommandHandlerDiscoverer(
+        commandHandlerDiscoverer, commandScheduler().commandPriorities()
+    );
+    if (!commandInterceptors.isEmpty()) {
+      commandHandlerDiscoverer = new InterceptingCommandHandlerDiscoverer(
+          commandHandlerDiscoverer, commandInterceptors
+      );
+    }
 
-    CommandHandlerRegistry handlerRegistry = commandHandlerRegistryFactory.instantiate(
+    CommandHandlerRegistryFactory registryFactory = this.commandHandlerRegistryFactory != null
+        ? this.commandHandlerRegistryFactory
+        : (registry, discoverer) ->
+            new AutoInitializingMapCommandHandlerRegistry(registry, discoverer, registrationPool);
+    CommandHandlerRegistry handlerRegistry = registryFactory.instantiate(
         commandRegistry, commandHandlerDiscoverer
     );
+    if (handlerRegistry.discoversHandlersLazily()) {
+      // The handlers may be discovered after their commands are scheduled,
+      // the limits and priorities they declare are looked up once they are
+      commandScheduler().limitsRegistry().discoverHandlersWith(handlerRegistry::getCommandHandler);
+      commandScheduler().commandPriorities()
+          .discoverHandlersWith(handlerRegistry::getCommandHandler);
+    }
 
     CommandScheduler commandScheduler = commandScheduler().configure();
 
-    return new DefaultGate(
-        handlerRegistry, commandScheduler
-    );
+    @Nullable GateInstrumentation instrumentation = this.instrumentation;
+    @Nullable IdempotencyCache idempotencyCache = this.idempotencyCache;
+    Gate gate;
+    if (instrumentation != null) {
+      CommandScheduler instrumentedScheduler =
+          new InstrumentedCommandScheduler(commandScheduler, instrumentation);
+      gate = idempotencyCache != null
+          ? new InstrumentedGate(
+              handlerRegistry, instrumentedScheduler, idempotencyCache, instrumentation
+          )
+          : new InstrumentedGate(handlerRegistry, instrumentedScheduler, instrumentation);
+    } else {
+      gate = idempotencyCache != null
+          ? new DefaultGate(handlerRegistry, commandScheduler, idempotencyCache)
+          : new DefaultGate(handlerRegistry, commandScheduler);
+    }
+
+    @Nullable CommandJournal journal = commandScheduler().journal();
+    if (journal != null) {
+      journal.replay(gate);
+    }
+
+    return gate;
   }
 
 }
@@ -4,12 +4,21 @@ import com.brillantcode.gate.Command;
 import com.brillantcode.gate.CommandRegistry;
 import com.brillantcode.gate.GateException;
 import com.google.common.base.Preconditions;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Abstract implementation of {@link CommandHandlerRegistry}
- * that stores known {@link CommandHandler} objects in a {@link HashMap}.
+ * that collects known {@link CommandHandler} objects in a {@link HashMap}.
+ *
+ * <p>Once {@link #doRegister()} collected all the handlers, they are frozen
+ * into a {@link CommandHandlerTable}, which serves the lookups. The table is
+ * published through a volatile field, so lookups from any thread see
+ * the fully registered handlers.
  */
 public abstract class AbstractMapCommandHandlerRegistry implements CommandHandlerRegistry {
 
@@ -17,8 +26,9 @@ public abstract class AbstractMapCommandHandlerRegistry implements CommandHandle
 
   private final CommandHandlerDiscoverer handlerDiscoverer;
 
-  private final Map<Class<? extends Command>, CommandHandler<?>> commandHandlers =
-      new HashMap<>();
+  private final @Nullable ForkJoinPool registrationPool;
+
+  private volatile @Nullable CommandHandlerTable handlerTable;
 
   /**
    * Creates a {@link CommandHandlerRegistry} instance
@@ -31,10 +41,31 @@ public abstract class AbstractMapCommandHandlerRegistry implements CommandHandle
    */
   public AbstractMapCommandHandlerRegistry(CommandRegistry commandRegistry,
                                            CommandHandlerDiscoverer handlerDiscoverer) {
+    this(commandRegistry, handlerDiscoverer, null);
+  }
+
+  /**
+   * Creates a {@link CommandHandlerRegistry} instance
+   * that will try to find handlers for commands provided
+   * by the given {@link CommandRegistry} using
+   * given {@link CommandHandlerDiscoverer}, for all the command types
+   * in parallel on the given pool.
+   *
+   * <p>The discoverer must be safe to call from multiple threads.
+   *
+   * @param commandRegistry   The {@link CommandRegistry} to provide the known types.
+   * @param handlerDiscoverer The {@link CommandHandlerDiscoverer} to use.
+   * @param registrationPool  The pool to discover the handlers in,
+   *                          or null to discover them serially.
+   */
+  public AbstractMapCommandHandlerRegistry(CommandRegistry commandRegistry,
+                                           CommandHandlerDiscoverer handlerDiscoverer,
+                                           @Nullable ForkJoinPool registrationPool) {
     Preconditions.checkNotNull(commandRegistry);
     Preconditions.checkNotNull(handlerDiscoverer);
     this.commandRegistry = commandRegistry;
     this.handlerDiscoverer = handlerDiscoverer;
+    this.registrationPool = registrationPool;
   }
 
   @SuppressWarnings("unchecked")
@@ -44,7 +75,12 @@ public abstract class AbstractMapCommandHandlerRegistry implements CommandHandle
     Preconditions.checkNotNull(command);
     Preconditions.checkState(isInitialized(), "Registry is not initialized");
 
-    CommandHandler<?> commandHandler = this.commandHandlers.get(command.getClass());
+    CommandHandlerTable handlerTable = this.handlerTable;
+    if (handlerTable == null) {
+      throw new IllegalStateException("Registry is not initialized");
+    }
+
+    CommandHandler<?> commandHandler = handlerTable.get(command.getClass());
 
     if (commandHandler == null) {
       throw new NoHandlerFoundException(command.getClass());
@@ -60,14 +96,40 @@ public abstract class AbstractMapCommandHandlerRegistry implements CommandHandle
     }
   }
 
+  /**
+   * Discovers the handlers of all the command types and makes them available for lookups.
+   *
+   * <p>If the handlers of some command types can not be discovered, the first failure
+   * in the order of the command registry is thrown, with the others added as suppressed.
+   *
+   * @throws NoHandlerFoundException        If a command type has no handler.
+   * @throws MultipleHandlersFoundException If a command type has more than one handler.
+   */
   protected void doRegister() {
-    for (Class<? extends Command> commandType : commandRegistry.getCommandTypes()) {
-      CommandHandler<?> handlerForCommand = handlerDiscoverer.getHandlerFor(commandType);
-      if (handlerForCommand == null) {
-        throw new NoHandlerFoundException(commandType);
+    List<Class<? extends Command>> commandTypes =
+        new ArrayList<>(commandRegistry.getCommandTypes());
+    CommandHandler<?>[] handlers = new CommandHandler<?>[commandTypes.size()];
+    @Nullable RuntimeException[] failures = new RuntimeException[commandTypes.size()];
+
+    ParallelDiscovery.forEach(registrationPool, commandTypes.size(), i -> {
+      Class<? extends Command> commandType = commandTypes.get(i);
+      try {
+        CommandHandler<?> handlerForCommand = handlerDiscoverer.getHandlerFor(commandType);
+        if (handlerForCommand == null) {
+          throw new NoHandlerFoundException(commandType);
+        }
+        handlers[i] = handlerForCommand;
+      } catch (RuntimeException ex) {
+        failures[i] = ex;
       }
-      this.commandHandlers.put(commandType, handlerForCommand);
+    });
+    ParallelDiscovery.throwFailures(failures);
+
+    Map<Class<? extends Command>, CommandHandler<?>> handlersByType = new HashMap<>();
+    for (int i = 0; i < handlers.length; i++) {
+      handlersByType.put(commandTypes.get(i), handlers[i]);
     }
+    this.handlerTable = new CommandHandlerTable(handlersByType);
   }
 
   protected abstract boolean isInitialized();
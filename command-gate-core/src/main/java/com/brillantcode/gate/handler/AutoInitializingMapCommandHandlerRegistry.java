@@ -1,6 +1,8 @@
 package com.brillantcode.gate.handler;
 
 import com.brillantcode.gate.CommandRegistry;
+import java.util.concurrent.ForkJoinPool;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Basic implementation of {@link AbstractMapCommandHandlerRegistry}
@@ -20,6 +22,23 @@ public final class AutoInitializingMapCommandHandlerRegistry
     this.doRegister();
   }
 
+  /**
+   * Creates the registry, discovering the handlers of all the command types
+   * in parallel on the given pool.
+   *
+   * @param commandRegistry   The {@link CommandRegistry} to provide the known types.
+   * @param handlerDiscoverer The {@link CommandHandlerDiscoverer} to use,
+   *                          must be safe to call from multiple threads.
+   * @param registrationPool  The pool to discover the handlers in,
+   *                          or null to discover them serially.
+   */
+  public AutoInitializingMapCommandHandlerRegistry(CommandRegistry commandRegistry,
+                                                   CommandHandlerDiscoverer handlerDiscoverer,
+                                                   @Nullable ForkJoinPool registrationPool) {
+    super(commandRegistry, handlerDiscoverer, registrationPool);
+    this.doRegister();
+  }
+
   @Override
   protected boolean isInitialized() {
     return true;
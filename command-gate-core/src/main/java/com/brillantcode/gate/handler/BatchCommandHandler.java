@@ -0,0 +1,40 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link CommandHandler} that is able to handle many commands of its type at once,
+ * e.g. to amortize round trips to a database.
+ *
+ * <p>Commands dispatched or scheduled together through
+ * {@link com.brillantcode.gate.Gate#dispatchAll} or {@link com.brillantcode.gate.Gate#scheduleAll}
+ * are passed to {@link #handleAll(List)} in one call per command type, while single commands
+ * are still passed to {@link #handle(Command)}.
+ *
+ * @param <CommandT> Type of the {@link Command} that this handler handles.
+ */
+public interface BatchCommandHandler<CommandT extends Command> extends CommandHandler<CommandT> {
+
+  /**
+   * Execute the handler for a list of {@link Command} instances,
+   * in the order of the list.
+   *
+   * @param commands The commands to handle, never empty.
+   */
+  void handleAll(List<CommandT> commands);
+
+  /**
+   * Execute the handler for a single {@link Command} instance.
+   *
+   * <p>By default handles the command as a batch of one.
+   *
+   * @param command The {@link Command} to handle.
+   */
+  @Override
+  default void handle(CommandT command) {
+    handleAll(Collections.singletonList(command));
+  }
+
+}
@@ -17,4 +17,16 @@ public interface CommandHandler<CommandT extends Command> {
    */
   void handle(CommandT command);
 
+  /**
+   * Returns a reference to the code that handles the commands,
+   * used to tell handlers apart in diagnostics.
+   *
+   * <p>Returns the name of the handler class by default.
+   *
+   * @return The reference to the handler.
+   */
+  default String handlerReference() {
+    return getClass().getName();
+  }
+
 }
@@ -21,4 +21,18 @@ public interface CommandHandlerRegistry {
       CommandT command
   );
 
+  /**
+   * Returns whether the registry discovers the handler of a command type when
+   * a command of the type is first handled, rather than when the registry is initialized.
+   *
+   * <p>The limits and priorities declared by the handlers of such a registry are then
+   * looked up by discovering the handler of the first command scheduled of each type.
+   * Registries discovering all their handlers up front return false, the default.
+   *
+   * @return True if the handlers are discovered on first use.
+   */
+  default boolean discoversHandlersLazily() {
+    return false;
+  }
+
 }
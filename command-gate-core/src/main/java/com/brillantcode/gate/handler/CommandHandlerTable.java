@@ -0,0 +1,95 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Immutable dispatch table of {@link CommandHandler} objects.
+ *
+ * <p>Lookups by command type go through a single open-addressing array holding
+ * each command type next to its handler, probed by the identity hash of the class.
+ * Unlike a {@link java.util.HashMap} there are no entry nodes to traverse,
+ * so a lookup usually reads a single cache line of the table.
+ *
+ * <p>The table never changes once created and may be shared between threads,
+ * provided the reference to it is safely published.
+ */
+public final class CommandHandlerTable {
+
+  private final int size;
+
+  /**
+   * Command types at even and their handlers at odd indexes.
+   */
+  private final @Nullable Object[] slots;
+
+  /**
+   * Creates a table of the given handlers.
+   *
+   * @param handlersByType Handlers keyed by the type of the command they handle.
+   */
+  public CommandHandlerTable(Map<Class<? extends Command>, CommandHandler<?>> handlersByType) {
+    Preconditions.checkNotNull(handlersByType);
+
+    this.size = handlersByType.size();
+
+    // Keep the load factor at or below one half, so that probe sequences stay short
+    int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+    this.slots = new Object[capacity * 2];
+
+    for (Map.Entry<Class<? extends Command>, CommandHandler<?>> entry
+        : handlersByType.entrySet()) {
+      Class<?> commandType = Preconditions.checkNotNull(entry.getKey());
+      CommandHandler<?> handler = Preconditions.checkNotNull(entry.getValue());
+      int slot = firstSlot(commandType);
+      while (this.slots[slot] != null) {
+        slot = nextSlot(slot);
+      }
+      this.slots[slot] = commandType;
+      this.slots[slot + 1] = handler;
+    }
+  }
+
+  /**
+   * Returns the handler of the given command type.
+   *
+   * @param commandType The command type.
+   * @return The handler of the command type, or null if there is none in the table.
+   */
+  public @Nullable CommandHandler<?> get(Class<?> commandType) {
+    @Nullable Object[] slots = this.slots;
+    int slot = firstSlot(commandType);
+    while (true) {
+      Object key = slots[slot];
+      if (key == commandType) {
+        return (CommandHandler<?>) slots[slot + 1];
+      } else if (key == null) {
+        return null;
+      }
+      slot = nextSlot(slot);
+    }
+  }
+
+  /**
+   * Returns the number of command types in the table.
+   *
+   * @return The number of command types.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  private int firstSlot(Class<?> commandType) {
+    int hash = System.identityHashCode(commandType);
+    // Spread the higher bits, as only the lower ones select the slot
+    hash ^= hash >>> 16;
+    return (hash << 1) & (this.slots.length - 1);
+  }
+
+  private int nextSlot(int slot) {
+    return (slot + 2) & (this.slots.length - 1);
+  }
+
+}
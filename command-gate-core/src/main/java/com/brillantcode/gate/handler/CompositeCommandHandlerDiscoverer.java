@@ -4,6 +4,7 @@ import com.brillantcode.gate.Command;
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -25,9 +26,28 @@ public class CompositeCommandHandlerDiscoverer implements CommandHandlerDiscover
 
   private final List<CommandHandlerDiscoverer> discoverers;
 
+  private final @Nullable ForkJoinPool discoveryPool;
+
   public CompositeCommandHandlerDiscoverer(List<CommandHandlerDiscoverer> discoverers) {
+    this(discoverers, null);
+  }
+
+  /**
+   * Creates a composite of the given discoverers, which are called in parallel
+   * on the given pool.
+   *
+   * <p>The discoverers must be safe to call from multiple threads.
+   * If some of them fail, the first failure in the order of the discoverers is thrown,
+   * with the others added as suppressed.
+   *
+   * @param discoverers   The discoverers to combine.
+   * @param discoveryPool The pool to call the discoverers in, or null to call them serially.
+   */
+  public CompositeCommandHandlerDiscoverer(List<CommandHandlerDiscoverer> discoverers,
+                                           @Nullable ForkJoinPool discoveryPool) {
     Preconditions.checkNotNull(discoverers);
     this.discoverers = discoverers.stream().collect(Collectors.toUnmodifiableList());
+    this.discoveryPool = discoveryPool;
   }
 
   @Override
@@ -36,13 +56,43 @@ public class CompositeCommandHandlerDiscoverer implements CommandHandlerDiscover
   ) {
     Preconditions.checkNotNull(commandType);
 
+    if (discoveryPool == null) {
+      List<CommandHandler<CommandT>> commandHandlers = new ArrayList<>();
+      for (CommandHandlerDiscoverer commandHandlerDiscoverer : discoverers) {
+        CommandHandler<CommandT> handler = commandHandlerDiscoverer.getHandlerFor(commandType);
+        if (handler != null) {
+          commandHandlers.add(handler);
+        }
+      }
+      return single(commandHandlers, commandType);
+    }
+
+    List<@Nullable CommandHandler<CommandT>> results = new ArrayList<>(discoverers.size());
+    @Nullable RuntimeException[] failures = new RuntimeException[discoverers.size()];
+    for (int i = 0; i < discoverers.size(); i++) {
+      results.add(null);
+    }
+    ParallelDiscovery.forEach(discoveryPool, discoverers.size(), i -> {
+      try {
+        results.set(i, discoverers.get(i).getHandlerFor(commandType));
+      } catch (RuntimeException ex) {
+        failures[i] = ex;
+      }
+    });
+    ParallelDiscovery.throwFailures(failures);
+
     List<CommandHandler<CommandT>> commandHandlers = new ArrayList<>();
-    for (CommandHandlerDiscoverer commandHandlerDiscoverer : discoverers) {
-      CommandHandler<CommandT> handler = commandHandlerDiscoverer.getHandlerFor(commandType);
+    for (@Nullable CommandHandler<CommandT> handler : results) {
       if (handler != null) {
         commandHandlers.add(handler);
       }
     }
+    return single(commandHandlers, commandType);
+  }
+
+  private static <CommandT extends Command> @Nullable CommandHandler<CommandT> single(
+      List<CommandHandler<CommandT>> commandHandlers, Class<CommandT> commandType
+  ) {
 
     if (commandHandlers.size() == 0) {
       return null;
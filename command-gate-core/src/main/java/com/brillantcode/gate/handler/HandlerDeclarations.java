@@ -0,0 +1,47 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.lang.reflect.AnnotatedElement;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads the settings declared with {@link com.brillantcode.gate.annotation.CommandHandler}
+ * annotations for a discovered handler.
+ */
+public final class HandlerDeclarations {
+
+  private HandlerDeclarations() {
+  }
+
+  /**
+   * Reads a setting on the handler method of a {@link MethodCommandHandler},
+   * then on the handler class, then on the command type, and returns the first one found.
+   *
+   * @param handler     The discovered handler.
+   * @param commandType The type of the commands of the handler.
+   * @param reader      Reads the setting of an annotated element, null if it declares none.
+   * @param <T>         Type of the setting.
+   * @return The declared setting, or null if none is declared.
+   */
+  public static <T> @Nullable T lookup(CommandHandler<?> handler,
+                                       Class<? extends Command> commandType,
+                                       Function<AnnotatedElement, @Nullable T> reader) {
+    Preconditions.checkNotNull(handler);
+    Preconditions.checkNotNull(commandType);
+    Preconditions.checkNotNull(reader);
+    @Nullable T declared = null;
+    if (handler instanceof MethodCommandHandler) {
+      declared = reader.apply(((MethodCommandHandler<?>) handler).method().javaMethod());
+    }
+    if (declared == null) {
+      declared = reader.apply(handler.getClass());
+    }
+    if (declared == null) {
+      declared = reader.apply(commandType);
+    }
+    return declared;
+  }
+
+}
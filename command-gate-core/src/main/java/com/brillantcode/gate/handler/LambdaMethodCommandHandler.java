@@ -0,0 +1,124 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.GateException;
+import com.brillantcode.gate.MethodDescriptor;
+import com.google.common.base.Preconditions;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * {@link CommandHandler} implementation that calls a Java method
+ * through a {@link CommandHandler} generated with {@link LambdaMetafactory}.
+ *
+ * <p>The method is bound once, when the handler is created. Afterwards
+ * every call is a plain interface call to the generated class, which the JIT
+ * is able to inline, without the argument array, access checks and exception
+ * wrapping of {@link Method#invoke}.
+ *
+ * <p>Java method that is responsible for handling a {@link Command}
+ * must meet the same criteria as for {@link ReflectiveMethodCommandHandler}.
+ *
+ * @param <CommandT> The type of the {@link Command} that the handler handles.
+ */
+public class LambdaMethodCommandHandler<CommandT extends Command>
+    implements MethodCommandHandler<CommandT> {
+
+  private final Class<CommandT> commandType;
+
+  private final CommandHandler<CommandT> invoker;
+
+  private final MethodDescriptor method;
+
+  /**
+   * Instantiates new handler for the given command type that will be handled by a Java method
+   * described by a {@link MethodDescriptor} and invoked on the given object.
+   *
+   * @param methodOwningBean Object on which the method will be invoked.
+   * @param method           A {@link MethodDescriptor} of the Java method to invoke.
+   * @param commandType      The class of the {@link Command} that the handler handles.
+   * @throws NullPointerException     If any of the arguments are null.
+   * @throws IllegalArgumentException     If the method is not a valid command handler method.
+   * @throws ReflectiveOperationException If the method is not accessible for binding,
+   *                                      in which case {@link ReflectiveMethodCommandHandler}
+   *                                      may be used instead.
+   * @throws LambdaConversionException    If the method could not be bound to a generated
+   *                                      handler, in which case
+   *                                      {@link ReflectiveMethodCommandHandler} may be used instead.
+   */
+  public LambdaMethodCommandHandler(Object methodOwningBean, MethodDescriptor method,
+                                    Class<CommandT> commandType)
+      throws ReflectiveOperationException, LambdaConversionException {
+    Preconditions.checkNotNull(methodOwningBean);
+    Preconditions.checkNotNull(method);
+    Preconditions.checkNotNull(commandType);
+    ReflectiveMethodCommandHandler.assertHandlerMethodValid(method, commandType);
+    this.commandType = commandType;
+    this.method = method;
+    this.invoker = bind(methodOwningBean, method);
+  }
+
+  @Override
+  public void handle(CommandT command) {
+
+    Preconditions.checkArgument(this.commandType == command.getClass(),
+        "Wrong command type %s received by a handler for command type %s",
+        command.getClass().getName(), this.commandType.getName());
+
+    try {
+      invoker.handle(command);
+    } catch (RuntimeException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      // A checked exception declared by the handler method
+      throw new RuntimeException(ex);
+    }
+  }
+
+  @Override
+  public MethodDescriptor method() {
+    return method;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <CommandT extends Command> CommandHandler<CommandT> bind(
+      Object methodOwningBean, MethodDescriptor method
+  ) throws ReflectiveOperationException, LambdaConversionException {
+    Method javaMethod = method.javaMethod();
+    Class<?> ownerType = javaMethod.getDeclaringClass();
+    boolean isStatic = Modifier.isStatic(javaMethod.getModifiers());
+
+    MethodHandles.Lookup lookup =
+        MethodHandles.privateLookupIn(ownerType, MethodHandles.lookup());
+    MethodHandle target = lookup.unreflect(javaMethod);
+
+    MethodType factoryType = isStatic
+        ? MethodType.methodType(CommandHandler.class)
+        : MethodType.methodType(CommandHandler.class, ownerType);
+
+    CallSite callSite = LambdaMetafactory.metafactory(
+        lookup,
+        "handle",
+        factoryType,
+        MethodType.methodType(void.class, Command.class),
+        target,
+        MethodType.methodType(void.class, javaMethod.getParameterTypes()[0])
+    );
+
+    try {
+      return (CommandHandler<CommandT>) (isStatic
+          ? callSite.getTarget().invoke()
+          : callSite.getTarget().invoke(methodOwningBean));
+    } catch (Throwable ex) {
+      throw new GateException(
+          "Could not instantiate command handler for method " + method.methodReference(), ex);
+    }
+  }
+
+}
@@ -0,0 +1,171 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.CommandRegistry;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of {@link CommandHandlerRegistry} that finds the handler
+ * of a command type when a command of that type is handled for the first time,
+ * and caches it for the following commands.
+ *
+ * <p>Unlike {@link AbstractMapCommandHandlerRegistry}, no handlers are discovered
+ * when the registry is created, which shortens the startup of applications
+ * that only dispatch a small part of their command types. The price is that
+ * a missing handler is only reported when its command is dispatched, unless
+ * {@link #validateAll()} is called, e.g. by a registry created with
+ * {@link #strict(CommandRegistry, CommandHandlerDiscoverer)} in tests or CI.
+ *
+ * <p>Handlers of the remaining command types may be discovered in the background
+ * with {@link #prewarm(Executor)}.
+ *
+ * <p>Only the command types provided by the {@link CommandRegistry} have handlers,
+ * for other types {@link NoHandlerFoundException} is thrown.
+ */
+public class LazyCommandHandlerRegistry implements CommandHandlerRegistry {
+
+  private final CommandHandlerDiscoverer handlerDiscoverer;
+
+  private final Supplier<Set<Class<? extends Command>>> commandTypes;
+
+  private final Map<Class<? extends Command>, CommandHandler<?>> commandHandlers =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Creates a {@link CommandHandlerRegistry} instance
+   * that will find the handlers of the commands provided by the given
+   * {@link CommandRegistry} using given {@link CommandHandlerDiscoverer}
+   * when they are first needed.
+   *
+   * @param commandRegistry   The {@link CommandRegistry} to provide the known types.
+   * @param handlerDiscoverer The {@link CommandHandlerDiscoverer} to use.
+   */
+  public LazyCommandHandlerRegistry(CommandRegistry commandRegistry,
+                                    CommandHandlerDiscoverer handlerDiscoverer) {
+    Preconditions.checkNotNull(commandRegistry);
+    Preconditions.checkNotNull(handlerDiscoverer);
+    this.handlerDiscoverer = handlerDiscoverer;
+    this.commandTypes = Suppliers.memoize(commandRegistry::getCommandTypes);
+  }
+
+  /**
+   * Creates a registry that discovers the handlers of all the command types right away,
+   * failing if any of them has none or more than one handler.
+   *
+   * <p>Meant for tests and CI, where all the handlers should be checked,
+   * but the same registry implementation as in production should be used.
+   *
+   * @param commandRegistry   The {@link CommandRegistry} to provide the known types.
+   * @param handlerDiscoverer The {@link CommandHandlerDiscoverer} to use.
+   * @return A registry with the handlers of all the command types.
+   * @throws NoHandlerFoundException        If a command type has no handler.
+   * @throws MultipleHandlersFoundException If a command type has more than one handler.
+   * @see #validateAll()
+   */
+  public static LazyCommandHandlerRegistry strict(CommandRegistry commandRegistry,
+                                                  CommandHandlerDiscoverer handlerDiscoverer) {
+    LazyCommandHandlerRegistry registry =
+        new LazyCommandHandlerRegistry(commandRegistry, handlerDiscoverer);
+    registry.validateAll();
+    return registry;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <CommandT extends Command> CommandHandler<CommandT> getCommandHandler(
+      CommandT command) {
+    Preconditions.checkNotNull(command);
+
+    @Nullable CommandHandler<?> commandHandler = this.commandHandlers.get(command.getClass());
+    if (commandHandler == null) {
+      commandHandler = resolve(command.getClass());
+    }
+
+    return (CommandHandler<CommandT>) commandHandler;
+  }
+
+  /**
+   * Returns true, the handlers being discovered when their commands are first handled.
+   *
+   * @return True.
+   */
+  @Override
+  public boolean discoversHandlersLazily() {
+    return true;
+  }
+
+  /**
+   * Discovers the handlers of all the command types that were not used yet.
+   *
+   * <p>Command types whose handler can not be discovered are reported
+   * by the first of the exceptions, with the others added as suppressed.
+   *
+   * @throws NoHandlerFoundException        If a command type has no handler.
+   * @throws MultipleHandlersFoundException If a command type has more than one handler.
+   */
+  public void validateAll() {
+    @Nullable RuntimeException failure = null;
+    for (Class<? extends Command> commandType : this.commandTypes.get()) {
+      try {
+        resolve(commandType);
+      } catch (NoHandlerFoundException | MultipleHandlersFoundException ex) {
+        if (failure == null) {
+          failure = ex;
+        } else {
+          failure.addSuppressed(ex);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Discovers the handlers of all the command types that were not used yet
+   * on the given executor.
+   *
+   * <p>Commands dispatched in the meantime discover their handlers as usual.
+   *
+   * @param executor The executor to discover the handlers on.
+   * @return A future completed when all the handlers were discovered, or completed
+   *         exceptionally with the failure of {@link #validateAll()}.
+   */
+  public CompletableFuture<Void> prewarm(Executor executor) {
+    Preconditions.checkNotNull(executor);
+    return CompletableFuture.runAsync(this::validateAll, executor);
+  }
+
+  private CommandHandler<?> resolve(Class<? extends Command> commandType) {
+    if (!this.commandTypes.get().contains(commandType)) {
+      throw new NoHandlerFoundException(commandType);
+    }
+    @Nullable CommandHandler<?> commandHandler = this.commandHandlers.get(commandType);
+    if (commandHandler != null) {
+      return commandHandler;
+    }
+    // Discovered outside of the map, as discoverers may create handlers resolving other handlers.
+    // Threads racing on the first command of a type may discover it twice, the first one wins.
+    commandHandler = discover(commandType);
+    @Nullable CommandHandler<?> previous =
+        this.commandHandlers.putIfAbsent(commandType, commandHandler);
+    return previous != null ? previous : commandHandler;
+  }
+
+  private CommandHandler<?> discover(Class<? extends Command> commandType) {
+    @Nullable CommandHandler<?> commandHandler = this.handlerDiscoverer.getHandlerFor(commandType);
+    if (commandHandler == null) {
+      throw new NoHandlerFoundException(commandType);
+    }
+    return commandHandler;
+  }
+
+}
@@ -0,0 +1,31 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.MethodDescriptor;
+
+/**
+ * A {@link CommandHandler} calling a Java method, e.g. one annotated with
+ * {@link com.brillantcode.gate.annotation.CommandHandler}.
+ *
+ * @param <CommandT> Type of the {@link Command} that this handler handles.
+ */
+public interface MethodCommandHandler<CommandT extends Command> extends CommandHandler<CommandT> {
+
+  /**
+   * Returns the method called by the handler.
+   *
+   * @return The {@link MethodDescriptor} of the handler method.
+   */
+  MethodDescriptor method();
+
+  /**
+   * Returns the reference to the handler method, as in {@link MethodDescriptor#methodReference()}.
+   *
+   * @return The reference to the handler method.
+   */
+  @Override
+  default String handlerReference() {
+    return method().methodReference();
+  }
+
+}
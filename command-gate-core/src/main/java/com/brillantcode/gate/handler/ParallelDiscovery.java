@@ -0,0 +1,94 @@
+package com.brillantcode.gate.handler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Runs handler discovery tasks, either serially or fanned out over a {@link ForkJoinPool}.
+ */
+final class ParallelDiscovery {
+
+  private ParallelDiscovery() {
+  }
+
+  /**
+   * Runs the action for every index from zero to the given count.
+   *
+   * <p>Without a pool the action runs serially in the calling thread. With a pool
+   * the indexes are split among its workers and the call returns once all are done.
+   * Calls made from a worker of the same pool join it instead of blocking a worker.
+   *
+   * @param pool   The pool to run the action in, or null to run it serially.
+   * @param count  The number of indexes.
+   * @param action The action to run, must not throw.
+   */
+  static void forEach(@Nullable ForkJoinPool pool, int count, IntConsumer action) {
+    if (pool == null || count < 2) {
+      for (int i = 0; i < count; i++) {
+        action.accept(i);
+      }
+      return;
+    }
+
+    RangeAction task = new RangeAction(0, count, action);
+    if (ForkJoinTask.getPool() == pool) {
+      task.invoke();
+    } else {
+      pool.invoke(task);
+    }
+  }
+
+  /**
+   * Throws the first of the given failures, with the following ones added as suppressed.
+   *
+   * @param failures Failures indexed like the tasks that caused them, null for successes.
+   */
+  static void throwFailures(@Nullable RuntimeException[] failures) {
+    @Nullable RuntimeException first = null;
+    for (@Nullable RuntimeException failure : failures) {
+      if (failure == null) {
+        continue;
+      }
+      if (first == null) {
+        first = failure;
+      } else if (failure != first) {
+        first.addSuppressed(failure);
+      }
+    }
+    if (first != null) {
+      throw first;
+    }
+  }
+
+  private static final class RangeAction extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+
+    private final int to;
+
+    private final IntConsumer action;
+
+    RangeAction(int from, int to, IntConsumer action) {
+      this.from = from;
+      this.to = to;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        action.accept(from);
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new RangeAction(from, middle, action), new RangeAction(middle, to, action));
+      }
+    }
+
+  }
+
+}
@@ -3,9 +3,13 @@ package com.brillantcode.gate.handler;
 import com.brillantcode.gate.Command;
 import com.brillantcode.gate.MethodDescriptor;
 import com.google.common.base.Preconditions;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import org.checkerframework.checker.initialization.qual.UnderInitialization;
+import java.lang.reflect.Modifier;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * {@link CommandHandler} implementation that reflectively
@@ -19,10 +23,14 @@ import org.checkerframework.checker.initialization.qual.UnderInitialization;
  *   <li>Parameter type have to match the type of the handler {@link Command}</li>
  * </ul>
  *
+ * <p>When the method is accessible from the handler, it is called through a
+ * {@link MethodHandle} bound once at creation, which unlike {@link Method#invoke}
+ * does not allocate an argument array on every call.
+ *
  * @param <CommandT> The type of the {@link Command} that the handler handles.
  */
 public class ReflectiveMethodCommandHandler<CommandT extends Command>
-    implements CommandHandler<CommandT> {
+    implements MethodCommandHandler<CommandT> {
 
   private final Object methodOwningBean;
 
@@ -30,6 +38,8 @@ public class ReflectiveMethodCommandHandler<CommandT extends Command>
 
   private final Class<CommandT> commandType;
 
+  private final @Nullable MethodHandle invoker;
+
   /**
    * Instantiates new handler for the given command type that will be handled by a Java method
    * described by a {@link MethodDescriptor} and invoked on the given object.
@@ -48,14 +58,21 @@ public class ReflectiveMethodCommandHandler<CommandT extends Command>
     this.method = method;
     this.commandType = commandType;
     assertHandlerMethodValid(method, commandType);
+    this.invoker = bind(methodOwningBean, method.javaMethod());
   }
 
   @Override
   public void handle(CommandT command) {
 
-    Preconditions.checkArgument(this.commandType.equals(command.getClass()),
-        "Wrong command type " + command.getClass().getName()
-            + " received by a handler for command type " + this.commandType.getName());
+    Preconditions.checkArgument(this.commandType == command.getClass(),
+        "Wrong command type %s received by a handler for command type %s",
+        command.getClass().getName(), this.commandType.getName());
+
+    final MethodHandle invoker = this.invoker;
+    if (invoker != null) {
+      invoke(invoker, command);
+      return;
+    }
 
     final Method javaMethod = this.method.javaMethod();
     try {
@@ -77,12 +94,37 @@ public class ReflectiveMethodCommandHandler<CommandT extends Command>
     }
   }
 
-  private void assertHandlerMethodValid(
-      // @formatter:off
-      @UnderInitialization ReflectiveMethodCommandHandler<CommandT> this,
-      // @formatter:on
-      MethodDescriptor method, Class<CommandT> commandType
-  ) {
+  @Override
+  public MethodDescriptor method() {
+    return method;
+  }
+
+  private static void invoke(MethodHandle invoker, Command command) {
+    try {
+      invoker.invokeExact(command);
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      // A checked exception declared by the handler method
+      throw new RuntimeException(ex);
+    }
+  }
+
+  private static @Nullable MethodHandle bind(Object methodOwningBean, Method javaMethod) {
+    MethodHandle target;
+    try {
+      target = MethodHandles.lookup().unreflect(javaMethod);
+    } catch (IllegalAccessException ex) {
+      // Not accessible from here, Method#invoke reports it on every call as before
+      return null;
+    }
+    if (!Modifier.isStatic(javaMethod.getModifiers())) {
+      target = target.bindTo(methodOwningBean);
+    }
+    return target.asType(MethodType.methodType(void.class, Command.class));
+  }
+
+  static void assertHandlerMethodValid(MethodDescriptor method, Class<?> commandType) {
     Method javaMethod = method.javaMethod();
     Preconditions.checkArgument(
         javaMethod.getReturnType().equals(Void.TYPE),
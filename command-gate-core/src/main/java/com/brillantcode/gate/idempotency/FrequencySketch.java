@@ -0,0 +1,87 @@
+package com.brillantcode.gate.idempotency;
+
+/**
+ * Approximate count of how often keys were seen recently: a count-min sketch of four rows
+ * of 4-bit counters, packed sixteen to a {@code long}.
+ *
+ * <p>Once as many keys were counted as ten times the size of the cache, all the counters
+ * are halved, so that keys popular long ago fade away.
+ *
+ * <p>Not thread-safe, used under the lock of the {@link IdempotencyCache}.
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+
+  private static final long HALF_MASK = 0x7777777777777777L;
+
+  private final long[] table;
+
+  private final int sampleSize;
+
+  private int additions;
+
+  FrequencySketch(int maximumSize) {
+    int size = Integer.highestOneBit(Math.min(Math.max(maximumSize, 8), 1 << 20) - 1) << 1;
+    this.table = new long[size];
+    this.sampleSize = (int) Math.min(10L * Math.max(maximumSize, 1), Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the estimated number of times the key was counted, at most 15.
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int row = 0; row < 4; row++) {
+      int index = indexOf(hash, row);
+      int count = (int) ((table[index] >>> ((start + row) << 2)) & 0xF);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int row = 0; row < 4; row++) {
+      added |= incrementAt(indexOf(hash, row), start + row);
+    }
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xFL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & HALF_MASK;
+    }
+    additions /= 2;
+  }
+
+  private int indexOf(int hash, int row) {
+    long index = (hash + SEEDS[row]) * SEEDS[row];
+    index += index >>> 32;
+    return (int) index & (table.length - 1);
+  }
+
+  private static int spread(int hashCode) {
+    int hash = hashCode * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+}
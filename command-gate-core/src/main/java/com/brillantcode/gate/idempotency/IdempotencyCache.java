@@ -0,0 +1,457 @@
+package com.brillantcode.gate.idempotency;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.IdempotencyKeyed;
+import com.brillantcode.gate.annotation.Idempotent;
+import com.google.common.base.Preconditions;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Bounded cache of the {@link Idempotent idempotent} commands handled recently,
+ * which absorb their repetitions until their time to live is over.
+ *
+ * <p>The cache holds the keys of the commands only, handlers not returning results.
+ * Commands failing are not cached, so that they run again when retried. A command is
+ * {@link #reserve(Object) reserved} while it is being handled: its repetitions arriving
+ * meanwhile are not handled, they wait for its outcome and share it, failing when it fails.
+ * Repetitions arriving in the thread handling the command are absorbed without waiting.
+ *
+ * <p>Keys are evicted with the W-TinyLFU policy: new keys enter a small LRU window,
+ * and the keys leaving it are admitted to the main space, split into a probation and a protected
+ * segment, only if they were seen more often than the key they would evict there. How often keys
+ * are seen is estimated by a {@link FrequencySketch}, so that a burst of commands seen once
+ * does not flush the keys that keep repeating.
+ *
+ * <p>Lookups do not block: they read a concurrent map, and record the access
+ * to the key only if the lock of the policy is free. Keys are added under the lock.
+ */
+public class IdempotencyCache {
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  private static final TimeToLive TIME_TO_LIVE = new TimeToLive();
+
+  private static final CompletableFuture<Void> HANDLED = CompletableFuture.completedFuture(null);
+
+  private final int maximumSize;
+
+  private final int windowMaximumSize;
+
+  private final int protectedMaximumSize;
+
+  private final LongSupplier clock;
+
+  private final ConcurrentHashMap<Object, Node> nodes = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Object, Reservation> reserved = new ConcurrentHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final FrequencySketch sketch;
+
+  private final AccessQueue window = new AccessQueue();
+
+  private final AccessQueue probation = new AccessQueue();
+
+  private final AccessQueue protectedSegment = new AccessQueue();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates the cache with the {@link #DEFAULT_MAXIMUM_SIZE default maximum size}.
+   */
+  public IdempotencyCache() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Creates the cache.
+   *
+   * @param maximumSize The maximum number of commands in the cache.
+   * @throws IllegalArgumentException If the size is not positive.
+   */
+  public IdempotencyCache(int maximumSize) {
+    this(maximumSize, System::nanoTime);
+  }
+
+  IdempotencyCache(int maximumSize, LongSupplier clock) {
+    Preconditions.checkArgument(maximumSize > 0, "Maximum size must be positive");
+    this.maximumSize = maximumSize;
+    this.windowMaximumSize = Math.max(1, maximumSize / 100);
+    this.protectedMaximumSize = (maximumSize - windowMaximumSize) * 4 / 5;
+    this.clock = clock;
+    this.sketch = new FrequencySketch(maximumSize);
+  }
+
+  /**
+   * Returns the key identifying the command and its repetitions.
+   *
+   * @param command The command.
+   * @return The {@link IdempotencyKeyed#idempotencyKey() key} of the command with its type,
+   *     or the command itself, or null if the command is not {@link Idempotent idempotent}.
+   */
+  public @Nullable Object keyOf(Command command) {
+    if (TIME_TO_LIVE.get(command.getClass()) < 0) {
+      return null;
+    }
+    if (command instanceof IdempotencyKeyed) {
+      return new TypedKey(command.getClass(), ((IdempotencyKeyed) command).idempotencyKey());
+    }
+    return command;
+  }
+
+  /**
+   * Tells whether a command with the key was handled within its time to live,
+   * counting a hit or a miss.
+   *
+   * @param key The key of the command.
+   * @return True if the command may be skipped.
+   */
+  public boolean absorbs(Object key) {
+    @Nullable Node node = nodes.get(key);
+    if (node == null || node.expiresAt - clock.getAsLong() <= 0) {
+      misses.increment();
+      return false;
+    }
+    hits.increment();
+    if (lock.tryLock()) {
+      // Accesses made while the lock is held are dropped, the policy only needs most of them
+      try {
+        sketch.increment(key);
+        access(node);
+      } finally {
+        lock.unlock();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reserves the key of a command about to be handled, unless a command with the key
+   * is being handled or was handled within its time to live, counting a hit or a miss.
+   *
+   * <p>The caller holding the reservation must end it with {@link #handled(Object, Command)}
+   * once the command was handled, or with {@link #release(Object, Throwable)} if it failed.
+   *
+   * <p>Callers must not complete the returned outcome.
+   *
+   * @param key The key of the command.
+   * @return Null if the key was reserved and the command must be handled, otherwise
+   *     the outcome of the command with the key, completed if it was handled or if it is
+   *     being handled by the calling thread, to wait for if it is being handled by another.
+   */
+  public @Nullable CompletableFuture<Void> reserve(Object key) {
+    Reservation reservation = new Reservation(Thread.currentThread());
+    @Nullable Reservation pending = reserved.putIfAbsent(key, reservation);
+    if (pending != null) {
+      hits.increment();
+      // Waiting for itself would never end
+      return pending.owner == Thread.currentThread() ? HANDLED : pending;
+    }
+    if (absorbs(key)) {
+      reserved.remove(key, reservation);
+      reservation.complete(null);
+      return HANDLED;
+    }
+    return null;
+  }
+
+  /**
+   * Releases the key of a command that failed, so that its repetitions are handled again.
+   * The repetitions waiting for the command fail with the same failure.
+   *
+   * @param key     The key {@link #reserve(Object) reserved} for the command.
+   * @param failure The failure of the command.
+   */
+  public void release(Object key, Throwable failure) {
+    @Nullable Reservation reservation = reserved.remove(key);
+    if (reservation != null) {
+      reservation.completeExceptionally(failure);
+    }
+  }
+
+  /**
+   * Caches the key of a command that was handled, for the time to live of its type,
+   * and releases its {@link #reserve(Object) reservation} if any.
+   *
+   * @param key     The key of the command, as returned by {@link #keyOf(Command)}.
+   * @param command The command.
+   */
+  public void handled(Object key, Command command) {
+    try {
+      cache(key, command);
+    } finally {
+      // Released once cached, so that repetitions reserving the key next see it cached
+      @Nullable Reservation reservation = reserved.remove(key);
+      if (reservation != null) {
+        reservation.complete(null);
+      }
+    }
+  }
+
+  private void cache(Object key, Command command) {
+    long timeToLive = TIME_TO_LIVE.get(command.getClass());
+    if (timeToLive < 0) {
+      return;
+    }
+    long expiresAt = clock.getAsLong() + timeToLive;
+    lock.lock();
+    try {
+      sketch.increment(key);
+      @Nullable Node node = nodes.get(key);
+      if (node != null) {
+        node.expiresAt = expiresAt;
+        access(node);
+        return;
+      }
+      node = new Node(key, expiresAt);
+      nodes.put(key, node);
+      node.queue = window;
+      window.addLast(node);
+      evict();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of commands absorbed.
+   *
+   * @return The hit count.
+   */
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of idempotent commands that were not absorbed.
+   *
+   * @return The miss count.
+   */
+  public long missCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of keys evicted to keep the cache within its maximum size.
+   *
+   * @return The eviction count.
+   */
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns the number of keys in the cache, including the expired ones not evicted yet.
+   *
+   * @return The size of the cache.
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Moves the node to the back of its queue, promoting it to the protected segment
+   * if it was on probation.
+   */
+  private void access(Node node) {
+    @Nullable AccessQueue queue = node.queue;
+    if (queue == null) {
+      // Evicted meanwhile
+      return;
+    }
+    queue.remove(node);
+    if (queue == probation) {
+      node.queue = protectedSegment;
+      protectedSegment.addLast(node);
+      if (protectedSegment.size > protectedMaximumSize) {
+        Node demoted = protectedSegment.removeFirst();
+        demoted.queue = probation;
+        probation.addLast(demoted);
+      }
+    } else {
+      queue.addLast(node);
+    }
+  }
+
+  private void evict() {
+    while (window.size > windowMaximumSize) {
+      Node candidate = window.removeFirst();
+      candidate.queue = probation;
+      probation.addLast(candidate);
+    }
+    long now = clock.getAsLong();
+    while (nodes.size() > maximumSize) {
+      @Nullable Node victim = probation.first;
+      if (victim == null) {
+        victim = protectedSegment.first;
+      }
+      if (victim == null) {
+        victim = window.first;
+      }
+      if (victim == null) {
+        break;
+      }
+      @Nullable Node candidate = probation.last;
+      if (candidate == null || candidate == victim || victim.expiresAt - now <= 0) {
+        remove(victim);
+      } else if (candidate.expiresAt - now <= 0) {
+        remove(candidate);
+      } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+        remove(victim);
+      } else {
+        remove(candidate);
+      }
+    }
+  }
+
+  private void remove(Node node) {
+    @Nullable AccessQueue queue = node.queue;
+    if (queue != null) {
+      queue.remove(node);
+      node.queue = null;
+    }
+    nodes.remove(node.key, node);
+    evictions.increment();
+  }
+
+  /**
+   * Outcome of a command being handled, which its repetitions wait for.
+   */
+  private static final class Reservation extends CompletableFuture<Void> {
+
+    private final Thread owner;
+
+    Reservation(Thread owner) {
+      this.owner = owner;
+    }
+
+  }
+
+  private static final class Node {
+
+    private final Object key;
+
+    private volatile long expiresAt;
+
+    private @Nullable AccessQueue queue;
+
+    private @Nullable Node previous;
+
+    private @Nullable Node next;
+
+    Node(Object key, long expiresAt) {
+      this.key = key;
+      this.expiresAt = expiresAt;
+    }
+
+  }
+
+  /**
+   * Nodes from the least to the most recently accessed, linked through the nodes themselves.
+   */
+  private static final class AccessQueue {
+
+    private @Nullable Node first;
+
+    private @Nullable Node last;
+
+    private int size;
+
+    void addLast(Node node) {
+      node.previous = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+      size++;
+    }
+
+    Node removeFirst() {
+      @Nullable Node node = first;
+      if (node == null) {
+        throw new NoSuchElementException();
+      }
+      remove(node);
+      return node;
+    }
+
+    void remove(Node node) {
+      @Nullable Node previous = node.previous;
+      @Nullable Node next = node.next;
+      if (previous == null) {
+        first = next;
+      } else {
+        previous.next = next;
+      }
+      if (next == null) {
+        last = previous;
+      } else {
+        next.previous = previous;
+      }
+      node.previous = null;
+      node.next = null;
+      size--;
+    }
+
+  }
+
+  /**
+   * Key of a {@link IdempotencyKeyed} command, which only matches the commands of its type.
+   */
+  private static final class TypedKey {
+
+    private final Class<?> type;
+
+    private final Object key;
+
+    TypedKey(Class<?> type, Object key) {
+      this.type = type;
+      this.key = Objects.requireNonNull(key, "Idempotency key");
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      if (!(other instanceof TypedKey)) {
+        return false;
+      }
+      TypedKey that = (TypedKey) other;
+      return type == that.type && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + key.hashCode();
+    }
+
+  }
+
+  /**
+   * The time to live of the commands of a type in nanoseconds, negative if they are not
+   * {@link Idempotent idempotent}.
+   */
+  private static final class TimeToLive extends ClassValue<Long> {
+
+    @Override
+    protected Long computeValue(Class<?> type) {
+      @Nullable Idempotent idempotent = type.getAnnotation(Idempotent.class);
+      return idempotent == null ? -1L : idempotent.unit().toNanos(idempotent.ttl());
+    }
+
+  }
+
+}
@@ -0,0 +1,50 @@
+package com.brillantcode.gate.index;
+
+import com.brillantcode.gate.CommandRegistry;
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Build-time index of {@link com.brillantcode.gate.Command} types
+ * and their {@link com.brillantcode.gate.handler.CommandHandler} objects.
+ *
+ * <p>Implementations are generated by the {@code command-gate-processor}
+ * annotation processor and registered as a {@link ServiceLoader} service,
+ * so that neither class path scanning nor reflective handler discovery
+ * is needed when the gate is created.
+ *
+ * @see com.brillantcode.gate.config.GateConfigurer#addCommandIndexes(HandlerInstanceProvider)
+ */
+public interface CommandIndex {
+
+  /**
+   * Returns a {@link CommandRegistry} of the indexed command types.
+   *
+   * @return The registry of indexed command types.
+   */
+  CommandRegistry commandRegistry();
+
+  /**
+   * Returns a {@link CommandHandlerDiscoverer} for the indexed command handlers.
+   *
+   * @param instanceProvider Provider of the objects that own the indexed handlers.
+   * @return The discoverer of indexed command handlers.
+   */
+  CommandHandlerDiscoverer handlerDiscoverer(HandlerInstanceProvider instanceProvider);
+
+  /**
+   * Loads all the {@link CommandIndex} implementations registered
+   * as services with the given class loader.
+   *
+   * @param classLoader The class loader to load the indexes with.
+   * @return A list of loaded command indexes, empty if none is registered.
+   */
+  static List<CommandIndex> loadAll(ClassLoader classLoader) {
+    List<CommandIndex> indexes = new ArrayList<>();
+    ServiceLoader.load(CommandIndex.class, classLoader).forEach(indexes::add);
+    return indexes;
+  }
+
+}
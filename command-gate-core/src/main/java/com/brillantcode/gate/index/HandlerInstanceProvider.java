@@ -0,0 +1,48 @@
+package com.brillantcode.gate.index;
+
+import com.brillantcode.gate.GateException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the objects that own indexed command handlers,
+ * such as command handler classes and classes declaring handler methods.
+ *
+ * <p>In a Spring application this is typically the bean factory,
+ * e.g. {@code beanFactory::getBean}.
+ */
+@FunctionalInterface
+public interface HandlerInstanceProvider {
+
+  /**
+   * Returns the instance of the given type.
+   *
+   * @param type The type of the instance to return.
+   * @return The instance of the given type.
+   */
+  Object getInstance(Class<?> type);
+
+  /**
+   * Returns a provider that creates one instance of every requested type
+   * with its no-argument constructor, which does not have to be public.
+   *
+   * @return A provider constructing handler instances.
+   */
+  static HandlerInstanceProvider constructing() {
+    Map<Class<?>, Object> instances = new ConcurrentHashMap<>();
+    return type -> instances.computeIfAbsent(type, instanceType -> {
+      try {
+        Constructor<?> constructor = instanceType.getDeclaredConstructor();
+        // Handler classes are often package-private
+        constructor.setAccessible(true);
+        return constructor.newInstance();
+      } catch (InstantiationException | IllegalAccessException
+          | InvocationTargetException | NoSuchMethodException e) {
+        throw new GateException("Could not instantiate " + instanceType.getName(), e);
+      }
+    });
+  }
+
+}
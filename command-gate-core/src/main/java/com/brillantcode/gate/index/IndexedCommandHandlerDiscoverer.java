@@ -0,0 +1,87 @@
+package com.brillantcode.gate.index;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
+import com.brillantcode.gate.handler.MultipleHandlersFoundException;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of {@link CommandHandlerDiscoverer} that serves handlers
+ * from factories registered ahead of time, usually by a generated {@link CommandIndex}.
+ *
+ * <p>Handlers are only created when they are asked for, so the instances owning them
+ * are not requested from the {@link HandlerInstanceProvider} before that.
+ *
+ * <p>All factories must be registered before the discoverer is used.
+ */
+public class IndexedCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
+
+  private final HandlerInstanceProvider instanceProvider;
+
+  private final Map<Class<? extends Command>, List<HandlerFactory<?>>> handlerFactories =
+      new HashMap<>();
+
+  public IndexedCommandHandlerDiscoverer(HandlerInstanceProvider instanceProvider) {
+    Preconditions.checkNotNull(instanceProvider);
+    this.instanceProvider = instanceProvider;
+  }
+
+  /**
+   * Registers a factory of a {@link CommandHandler} for the given command type.
+   *
+   * @param commandType The type of the command handled by the created handler.
+   * @param factory     The factory creating the handler.
+   * @param <CommandT>  The type of the command handled by the created handler.
+   * @return This discoverer instance.
+   */
+  public <CommandT extends Command> IndexedCommandHandlerDiscoverer register(
+      Class<CommandT> commandType, HandlerFactory<CommandT> factory
+  ) {
+    Preconditions.checkNotNull(commandType);
+    Preconditions.checkNotNull(factory);
+    this.handlerFactories.computeIfAbsent(commandType, type -> new ArrayList<>()).add(factory);
+    return this;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    Preconditions.checkNotNull(commandType);
+
+    List<HandlerFactory<?>> factories = this.handlerFactories.get(commandType);
+    if (factories == null) {
+      return null;
+    } else if (factories.size() > 1) {
+      throw new MultipleHandlersFoundException(commandType);
+    }
+
+    return ((HandlerFactory<CommandT>) factories.get(0)).create(instanceProvider);
+  }
+
+  /**
+   * Creates a {@link CommandHandler} using instances from a {@link HandlerInstanceProvider}.
+   *
+   * @param <CommandT> The type of the command handled by the created handler.
+   */
+  @FunctionalInterface
+  public interface HandlerFactory<CommandT extends Command> {
+
+    /**
+     * Creates the command handler.
+     *
+     * @param instanceProvider The provider of instances owning the handler.
+     * @return The created command handler.
+     */
+    CommandHandler<CommandT> create(HandlerInstanceProvider instanceProvider);
+
+  }
+
+}
@@ -0,0 +1,48 @@
+package com.brillantcode.gate.interceptor;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+
+/**
+ * Command interceptor takes part in the processing of the commands
+ * before and after their {@link CommandHandler}, e.g. to validate them,
+ * to run them in a transaction or to log them.
+ *
+ * <p>Interceptors are chained in the order they are registered, the first one
+ * receives the command first. The chain of every command type is built once,
+ * when its handler is discovered, from the interceptors that
+ * {@link #appliesTo(Class) apply} to the type. Command types without
+ * interceptors are handled by their handler directly.
+ *
+ * <p>Intercepted handlers receive the commands one by one, also when
+ * they are dispatched or scheduled together.
+ *
+ * @see InterceptingCommandHandlerDiscoverer
+ */
+@FunctionalInterface
+public interface CommandInterceptor {
+
+  /**
+   * Intercepts the processing of a command.
+   *
+   * <p>The interceptor continues the processing by passing the command to the
+   * next handler of the chain, or stops it by not doing so or by throwing an exception.
+   *
+   * @param command The {@link Command} being processed.
+   * @param next    The next interceptor of the chain, or the handler of the command.
+   */
+  void intercept(Command command, CommandHandler<Command> next);
+
+  /**
+   * Tells whether the interceptor takes part in the processing of the commands of a type.
+   *
+   * <p>Applies to all the command types by default.
+   *
+   * @param commandType The type of the commands.
+   * @return True if the interceptor should intercept the commands of the type.
+   */
+  default boolean appliesTo(Class<? extends Command> commandType) {
+    return true;
+  }
+
+}
@@ -0,0 +1,35 @@
+package com.brillantcode.gate.interceptor;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+
+/**
+ * A link of a compiled interceptor chain, passing the commands to its interceptor
+ * along with the next link.
+ *
+ * @param <CommandT> The type of the {@link Command} that the handler handles.
+ */
+final class InterceptedCommandHandler<CommandT extends Command>
+    implements CommandHandler<CommandT> {
+
+  private final CommandInterceptor interceptor;
+
+  private final CommandHandler<Command> next;
+
+  InterceptedCommandHandler(CommandInterceptor interceptor, CommandHandler<Command> next) {
+    this.interceptor = interceptor;
+    this.next = next;
+  }
+
+  @Override
+  public void handle(CommandT command) {
+    interceptor.intercept(command, next);
+  }
+
+  @Override
+  public String handlerReference() {
+    // The intercepted handler, at the end of the chain
+    return next.handlerReference();
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.brillantcode.gate.interceptor;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Discoverer implementation that puts the {@link CommandInterceptor} chain
+ * of each command type in front of the handlers found by another discoverer.
+ *
+ * <p>The chain is compiled when the handler is discovered, into nested handlers
+ * calling each interceptor with a fixed next handler, so processing a command
+ * neither iterates over the interceptors nor allocates. When no interceptor applies
+ * to a command type, the discovered handler is returned as it is.
+ */
+public class InterceptingCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
+
+  private final CommandHandlerDiscoverer handlerDiscoverer;
+
+  private final List<CommandInterceptor> interceptors;
+
+  /**
+   * Creates a discoverer intercepting the handlers found by the given discoverer.
+   *
+   * @param handlerDiscoverer The discoverer of the handlers.
+   * @param interceptors      The interceptors, in the order they receive the commands.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public InterceptingCommandHandlerDiscoverer(CommandHandlerDiscoverer handlerDiscoverer,
+                                              List<CommandInterceptor> interceptors) {
+    Preconditions.checkNotNull(handlerDiscoverer);
+    Preconditions.checkNotNull(interceptors);
+    this.handlerDiscoverer = handlerDiscoverer;
+    this.interceptors = interceptors.stream().collect(Collectors.toUnmodifiableList());
+  }
+
+  @Override
+  public <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    @Nullable CommandHandler<CommandT> handler = handlerDiscoverer.getHandlerFor(commandType);
+    if (handler == null) {
+      return null;
+    }
+    return intercept(commandType, handler);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <CommandT extends Command> CommandHandler<CommandT> intercept(
+      Class<CommandT> commandType, CommandHandler<CommandT> handler
+  ) {
+    CommandHandler<CommandT> chain = handler;
+    for (int i = interceptors.size() - 1; i >= 0; i--) {
+      CommandInterceptor interceptor = interceptors.get(i);
+      if (interceptor.appliesTo(commandType)) {
+        // Links only ever receive commands of the type of their handler
+        chain = new InterceptedCommandHandler<>(interceptor, (CommandHandler<Command>) chain);
+      }
+    }
+    return chain;
+  }
+
+}
@@ -0,0 +1,32 @@
+package com.brillantcode.gate.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder event of commands dispatched synchronously,
+ * recorded when the handler takes longer than the threshold, {@code 20 ms} by default.
+ */
+@Name(CommandDispatchEvent.NAME)
+@Label("Command Dispatch")
+@Description("Commands dispatched and handled in the calling thread")
+@Threshold("20 ms")
+public final class CommandDispatchEvent extends CommandHandlingEvent {
+
+  public static final String NAME = "com.brillantcode.gate.Dispatch";
+
+  private static final CommandDispatchEvent PROBE = new CommandDispatchEvent();
+
+  /**
+   * Returns whether the event is enabled in a running recording, so that
+   * the callers do not even create the event otherwise.
+   *
+   * @return True if the event is enabled.
+   */
+  public static boolean enabled() {
+    return PROBE.isEnabled();
+  }
+
+}
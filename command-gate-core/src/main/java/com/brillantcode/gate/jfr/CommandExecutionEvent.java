@@ -0,0 +1,64 @@
+package com.brillantcode.gate.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event of scheduled commands run by the scheduler,
+ * recorded when the handler takes longer than the threshold, {@code 20 ms} by default.
+ *
+ * <p>Also carries the time the commands waited for the scheduler, which is only
+ * measured for the commands scheduled while the event was enabled.
+ */
+@Name(CommandExecutionEvent.NAME)
+@Label("Command Execution")
+@Description("Scheduled commands handled by the scheduler")
+@Threshold("20 ms")
+@StackTrace(false)
+public final class CommandExecutionEvent extends CommandHandlingEvent {
+
+  public static final String NAME = "com.brillantcode.gate.Execution";
+
+  // Enablement is a property of the event class, not of its instances
+  private static final CommandExecutionEvent PROBE = new CommandExecutionEvent();
+
+  @Label("Queue Wait")
+  @Description("Time the commands waited for the scheduler")
+  @Timespan(Timespan.NANOSECONDS)
+  private long queueWait;
+
+  /**
+   * Returns whether the event is enabled in a running recording, so that
+   * the callers do not even create the event otherwise.
+   *
+   * @return True if the event is enabled.
+   */
+  public static boolean enabled() {
+    return PROBE.isEnabled();
+  }
+
+  /**
+   * Returns the time the commands are scheduled at, to measure how long they wait
+   * for the scheduler.
+   *
+   * @return The current {@link System#nanoTime()}, or zero if the event is disabled.
+   */
+  public static long scheduledAt() {
+    return enabled() ? System.nanoTime() : 0L;
+  }
+
+  /**
+   * Sets the time the commands waited for the scheduler.
+   *
+   * @param scheduledAt The time the commands were scheduled at,
+   *                    as returned by {@link #scheduledAt()}.
+   */
+  public void queueWait(long scheduledAt) {
+    this.queueWait = scheduledAt == 0L ? 0L : System.nanoTime() - scheduledAt;
+  }
+
+}
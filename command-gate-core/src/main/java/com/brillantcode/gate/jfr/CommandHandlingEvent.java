@@ -0,0 +1,52 @@
+package com.brillantcode.gate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Base of the JDK Flight Recorder events of commands processed by a handler,
+ * lasting as long as the handler.
+ *
+ * <p>Events are only created while a recording enables them, checked through the
+ * {@code enabled()} method of each event class, so disabled events cost nothing per command.
+ * The fields are only filled in for the events that are committed.
+ */
+@Category("Command Gate")
+public abstract class CommandHandlingEvent extends Event {
+
+  // Not private, fields of event superclasses are only recorded when visible to subclasses
+  @Label("Command Type")
+  @Nullable Class<?> commandType;
+
+  @Label("Handler")
+  @Description("Reference to the handler method, or the handler class")
+  @Nullable String handler;
+
+  @Label("Commands")
+  @Description("Number of commands handled, more than one for batches")
+  int commands;
+
+  @Label("Failed")
+  @Description("Whether the handler threw an exception")
+  boolean failed;
+
+  /**
+   * Sets the fields of the event.
+   *
+   * @param commandType The type of the commands.
+   * @param handler     The reference to the handler, or null if there is no handler.
+   * @param commands    The number of commands.
+   * @param failed      Whether the handler failed.
+   */
+  public void describe(Class<?> commandType, @Nullable String handler, int commands,
+                       boolean failed) {
+    this.commandType = commandType;
+    this.handler = handler;
+    this.commands = commands;
+    this.failed = failed;
+  }
+
+}
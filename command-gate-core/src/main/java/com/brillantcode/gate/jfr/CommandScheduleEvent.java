@@ -0,0 +1,61 @@
+package com.brillantcode.gate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * JDK Flight Recorder event of commands passed to the scheduler,
+ * recorded when the scheduler holds the calling thread longer than the threshold,
+ * {@code 10 ms} by default, e.g. while it waits for space in its queue.
+ */
+@Name(CommandScheduleEvent.NAME)
+@Label("Command Schedule")
+@Description("Commands passed to the scheduler")
+@Category("Command Gate")
+@Threshold("10 ms")
+public final class CommandScheduleEvent extends Event {
+
+  public static final String NAME = "com.brillantcode.gate.Schedule";
+
+  private static final CommandScheduleEvent PROBE = new CommandScheduleEvent();
+
+  @Label("Command Type")
+  private @Nullable Class<?> commandType;
+
+  @Label("Commands")
+  @Description("Number of commands scheduled, more than one for batches")
+  private int commands;
+
+  @Label("Rejected")
+  @Description("Whether the scheduler rejected the commands")
+  private boolean rejected;
+
+  /**
+   * Returns whether the event is enabled in a running recording, so that
+   * the callers do not even create the event otherwise.
+   *
+   * @return True if the event is enabled.
+   */
+  public static boolean enabled() {
+    return PROBE.isEnabled();
+  }
+
+  /**
+   * Sets the fields of the event.
+   *
+   * @param commandType The type of the commands.
+   * @param commands    The number of commands.
+   * @param rejected    Whether the scheduler rejected the commands.
+   */
+  public void describe(Class<?> commandType, int commands, boolean rejected) {
+    this.commandType = commandType;
+    this.commands = commands;
+    this.rejected = rejected;
+  }
+
+}
@@ -0,0 +1,855 @@
+package com.brillantcode.gate.journal;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.Gate;
+import com.brillantcode.gate.codec.CommandCodecs;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Append-only log of the scheduled commands, kept in memory-mapped segment files
+ * of a directory so that the commands survive a restart of the application.
+ *
+ * <p>Appending a command encodes it with the {@link CommandCodecs} straight into
+ * the mapped segment, then waits for a group commit: a flusher thread forces the segment
+ * to the disk once
+ * the entries not yet forced reach the commit size, or once the oldest of them waited
+ * for the commit delay, so concurrent appenders share a single {@code fsync}.
+ * Acknowledging an entry, once its command ran, writes an acknowledgement that
+ * is forced with the next commit; a segment whose entries are all acknowledged
+ * is deleted once the segments before it are.
+ *
+ * <p>Opening the journal reads the segments left by the previous run, entries are
+ * checksummed and a torn entry at the end of a segment is ignored. The commands of the
+ * entries that were not acknowledged are {@link #replay(Gate) replayed} at least once.
+ *
+ * <p>The journal owns the flusher thread and the directory, which must not be shared
+ * with another journal. {@link #close()} forces the pending entries and stops the thread.
+ *
+ * @see JournalingCommandScheduler
+ */
+public class CommandJournal implements AutoCloseable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+  public static final int DEFAULT_COMMIT_SIZE = 64 << 10;
+
+  public static final Duration DEFAULT_COMMIT_DELAY = Duration.ofMillis(2);
+
+  public static final Duration DEFAULT_REPLAY_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final long MAX_REPLAY_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static final String SEGMENT_PREFIX = "commands-";
+
+  private static final String SEGMENT_SUFFIX = ".journal";
+
+  private static final byte ENTRY = 1;
+
+  private static final byte ACKNOWLEDGEMENT = 2;
+
+  /**
+   * Length and checksum of the body of a record.
+   */
+  private static final int HEADER_SIZE = 8;
+
+  /**
+   * Type and sequence number opening the body of a record.
+   */
+  private static final int BODY_PREFIX_SIZE = 9;
+
+  private static final int ACKNOWLEDGEMENT_SIZE = HEADER_SIZE + BODY_PREFIX_SIZE + 4;
+
+  private final Path directory;
+
+  private final CommandCodecs codecs;
+
+  private final int segmentSize;
+
+  private final int commitSize;
+
+  private final long commitDelayNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition pendingCommit = lock.newCondition();
+
+  private final Condition committed = lock.newCondition();
+
+  private final CRC32C checksum = new CRC32C();
+
+  private final ArrayDeque<Segment> segments;
+
+  private Segment active;
+
+  private long nextSequence;
+
+  private long writtenBytes;
+
+  private long committedBytes;
+
+  private long pendingSince;
+
+  private boolean open = true;
+
+  /**
+   * Whether closing the journal forced the entries written, or failed to.
+   */
+  private boolean closed;
+
+  private List<Command> recoveredCommands;
+
+  private List<Receipt> recoveredReceipts;
+
+  private @Nullable Thread flusher;
+
+  private CommandJournal(Path directory, CommandCodecs codecs, int segmentSize,
+                         int commitSize, Duration commitDelay, Recovery recovery,
+                         Segment active) {
+    this.directory = directory;
+    this.codecs = codecs;
+    this.segmentSize = segmentSize;
+    this.commitSize = commitSize;
+    this.commitDelayNanos = commitDelay.toNanos();
+    this.segments = recovery.segments;
+    this.segments.add(active);
+    this.active = active;
+    this.nextSequence = recovery.nextSequence;
+    this.recoveredCommands = recovery.commands;
+    this.recoveredReceipts = recovery.receipts;
+  }
+
+  /**
+   * Opens the journal of the given directory with the default segment size and commit policy,
+   * creating the directory if needed.
+   *
+   * @param directory The directory of the segment files.
+   * @param codecs    The codecs of the commands.
+   * @return The opened journal.
+   * @throws JournalException                            If the segments cannot be read
+   *                                                     or created.
+   * @throws com.brillantcode.gate.codec.CodecException If a command left by the previous run
+   *                                                     cannot be decoded.
+   */
+  public static CommandJournal open(Path directory, CommandCodecs codecs) {
+    return open(directory, codecs,
+        DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_SIZE, DEFAULT_COMMIT_DELAY);
+  }
+
+  /**
+   * Opens the journal of the given directory, creating the directory if needed.
+   *
+   * @param directory   The directory of the segment files.
+   * @param codecs      The codecs of the commands.
+   * @param segmentSize The size of the segment files in bytes,
+   *                    which limits the size of a journaled command.
+   * @param commitSize  The number of bytes written that triggers a commit.
+   * @param commitDelay How long written entries may wait for a commit.
+   * @return The opened journal.
+   * @throws IllegalArgumentException                    If the sizes are not positive
+   *                                                     or the delay is negative.
+   * @throws JournalException                            If the segments cannot be read
+   *                                                     or created.
+   * @throws com.brillantcode.gate.codec.CodecException If a command left by the previous run
+   *                                                     cannot be decoded.
+   */
+  public static CommandJournal open(Path directory, CommandCodecs codecs,
+                                    int segmentSize, int commitSize, Duration commitDelay) {
+    Preconditions.checkNotNull(directory);
+    Preconditions.checkNotNull(codecs);
+    Preconditions.checkArgument(segmentSize > ACKNOWLEDGEMENT_SIZE,
+        "Segment size must be larger than %s bytes", ACKNOWLEDGEMENT_SIZE);
+    Preconditions.checkArgument(commitSize > 0, "Commit size must be positive");
+    Preconditions.checkNotNull(commitDelay);
+    Preconditions.checkArgument(!commitDelay.isNegative(), "Commit delay cannot be negative");
+    try {
+      Files.createDirectories(directory);
+      Recovery recovery = Recovery.read(directory, codecs);
+      Segment active = Segment.create(directory, recovery.nextIndex, segmentSize);
+      CommandJournal journal = new CommandJournal(
+          directory, codecs, segmentSize, commitSize, commitDelay, recovery, active);
+      journal.start();
+      return journal;
+    } catch (IOException ex) {
+      throw new JournalException("Cannot open the command journal in " + directory, ex);
+    }
+  }
+
+  /**
+   * Writes an entry per command and waits for the entries to be committed.
+   *
+   * <p>The entries of the commands are written to the same segment. The commands are
+   * encoded while holding the lock of the journal, which keeps the segment
+   * written in order without copying the encoded commands.
+   *
+   * <p>If the journal is closed while the entries wait for the commit,
+   * they are committed by {@link #close()}.
+   *
+   * @param commands The commands to write.
+   * @return The receipt to {@link #acknowledge(Receipt) acknowledge} the entries with.
+   * @throws IllegalArgumentException                    If the commands do not fit
+   *                                                     in a segment.
+   * @throws JournalException                            If the journal is closed
+   *                                                     or the entries cannot be written
+   *                                                     or committed.
+   * @throws com.brillantcode.gate.codec.CodecException If a command cannot be encoded.
+   */
+  public Receipt append(List<Command> commands) {
+    Preconditions.checkNotNull(commands);
+    Preconditions.checkArgument(!commands.isEmpty(), "No commands to journal");
+    lock.lock();
+    try {
+      checkOpen();
+      long before = writtenBytes;
+      long firstSequence = nextSequence;
+      if (!writeEntries(commands)) {
+        Preconditions.checkArgument(active.position > 0,
+            "Journal entries of %s commands do not fit in a segment of %s bytes",
+            commands.size(), segmentSize);
+        roll();
+        Preconditions.checkArgument(writeEntries(commands),
+            "Journal entries of %s commands do not fit in a segment of %s bytes",
+            commands.size(), segmentSize);
+      }
+      Segment segment = this.active;
+      segment.live += commands.size();
+      notifyWritten(before);
+      long end = writtenBytes;
+      while (committedBytes < end) {
+        if (closed) {
+          throw new JournalException("Command journal closed without committing the entries");
+        }
+        committed.awaitUninterruptibly();
+      }
+      return new Receipt(segment, firstSequence, commands.size());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the acknowledgement of the entries of the receipt, whose commands
+   * will not be replayed once it is committed.
+   *
+   * <p>Does not wait for the commit. Does nothing if the journal is closed
+   * or the receipt was already acknowledged.
+   *
+   * @param receipt The receipt of the entries.
+   * @throws JournalException If the acknowledgement cannot be written.
+   */
+  public void acknowledge(Receipt receipt) {
+    Preconditions.checkNotNull(receipt);
+    lock.lock();
+    try {
+      if (!open || receipt.acknowledged) {
+        return;
+      }
+      if (active.position + ACKNOWLEDGEMENT_SIZE > segmentSize) {
+        roll();
+      }
+      long before = writtenBytes;
+      writeAcknowledgement(receipt);
+      notifyWritten(before);
+      receipt.acknowledged = true;
+      receipt.segment.live -= receipt.count;
+      compact();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the commands of the entries of the previous run that were not acknowledged
+   * and were not replayed yet.
+   *
+   * @return The recovered commands, in the order they were journaled.
+   */
+  public List<Command> recoveredCommands() {
+    lock.lock();
+    try {
+      return Collections.unmodifiableList(new ArrayList<>(recoveredCommands));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Schedules the {@link #recoveredCommands() recovered commands} with the gate within
+   * the {@link #DEFAULT_REPLAY_TIMEOUT}.
+   *
+   * @param gate The gate to schedule the commands with.
+   * @throws JournalException If the gate rejects a command for longer than the timeout.
+   * @see #replay(Gate, Duration)
+   */
+  public void replay(Gate gate) {
+    replay(gate, DEFAULT_REPLAY_TIMEOUT);
+  }
+
+  /**
+   * Schedules the {@link #recoveredCommands() recovered commands} with the gate
+   * one by one, in the order they were journaled, acknowledging the entry of each command
+   * once the gate accepted it.
+   *
+   * <p>A command rejected by the gate with a {@link RejectedExecutionException},
+   * e.g. because the queue of its scheduler is full, is scheduled again after a pause
+   * until it is accepted, so that a backlog larger than the queue is replayed as the
+   * scheduler makes room for it.
+   *
+   * <p>Scheduling the commands through a {@link JournalingCommandScheduler} journals them
+   * again, should the application stop before they run. If it stops before their entries
+   * are acknowledged, the commands are replayed again on the next run.
+   *
+   * <p>If the gate keeps rejecting a command for longer than the timeout, or fails it
+   * otherwise, the commands not accepted yet are kept as recovered commands and may be
+   * replayed again. If interrupted while waiting, returns with the interrupt status set
+   * and keeps the commands not accepted yet likewise.
+   *
+   * @param gate    The gate to schedule the commands with.
+   * @param timeout The longest time to wait for the gate to accept a command.
+   * @throws JournalException If the gate rejects a command for longer than the timeout.
+   */
+  public void replay(Gate gate, Duration timeout) {
+    Preconditions.checkNotNull(gate);
+    Preconditions.checkNotNull(timeout);
+    Preconditions.checkArgument(!timeout.isNegative(), "Replay timeout cannot be negative");
+    List<Command> commands;
+    List<Receipt> receipts;
+    lock.lock();
+    try {
+      commands = recoveredCommands;
+      receipts = recoveredReceipts;
+      recoveredCommands = Collections.emptyList();
+      recoveredReceipts = Collections.emptyList();
+    } finally {
+      lock.unlock();
+    }
+    int replayed = 0;
+    try {
+      // Scheduled one by one, as scheduling them all at once would group them by type
+      while (replayed < commands.size()) {
+        if (!schedule(gate, commands.get(replayed), timeout.toNanos())) {
+          return;
+        }
+        acknowledge(receipts.get(replayed));
+        replayed++;
+      }
+    } finally {
+      if (replayed < commands.size()) {
+        keepRecovered(commands.subList(replayed, commands.size()),
+            receipts.subList(replayed, receipts.size()));
+      }
+    }
+  }
+
+  /**
+   * Schedules the command, again after a growing pause while the gate rejects it.
+   *
+   * @return False if interrupted while waiting.
+   * @throws JournalException If the gate rejects the command for longer than the timeout.
+   */
+  private boolean schedule(Gate gate, Command command, long timeoutNanos) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    long backoffNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    while (true) {
+      try {
+        gate.schedule(command);
+        return true;
+      } catch (RejectedExecutionException ex) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new JournalException("Recovered command " + command.getClass().getName()
+              + " is still rejected after " + Duration.ofNanos(timeoutNanos), ex);
+        }
+        try {
+          TimeUnit.NANOSECONDS.sleep(Math.min(backoffNanos, remaining));
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+        backoffNanos = Math.min(backoffNanos * 2, MAX_REPLAY_BACKOFF_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Puts back the commands a replay did not schedule.
+   */
+  private void keepRecovered(List<Command> commands, List<Receipt> receipts) {
+    lock.lock();
+    try {
+      List<Command> keptCommands = new ArrayList<>(commands);
+      keptCommands.addAll(recoveredCommands);
+      List<Receipt> keptReceipts = new ArrayList<>(receipts);
+      keptReceipts.addAll(recoveredReceipts);
+      recoveredCommands = keptCommands;
+      recoveredReceipts = keptReceipts;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of segment files of the journal.
+   *
+   * @return The number of segments.
+   */
+  public int segmentCount() {
+    lock.lock();
+    try {
+      return segments.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the directory of the segment files.
+   *
+   * @return The journal directory.
+   */
+  public Path directory() {
+    return directory;
+  }
+
+  /**
+   * Stops the flusher thread, forces the entries written to the disk and stops accepting
+   * new ones. Appends waiting for a commit complete once the entries are forced.
+   *
+   * <p>If interrupted while waiting for the flusher thread, still forces the entries
+   * and returns with the interrupt status set.
+   *
+   * @throws JournalException If the entries cannot be forced, in which case
+   *                          the appends waiting for a commit fail.
+   */
+  @Override
+  public void close() {
+    @Nullable Thread flusher;
+    lock.lock();
+    try {
+      if (!open) {
+        return;
+      }
+      open = false;
+      pendingCommit.signalAll();
+      flusher = this.flusher;
+    } finally {
+      lock.unlock();
+    }
+    boolean interrupted = false;
+    if (flusher != null) {
+      try {
+        flusher.join();
+      } catch (InterruptedException ex) {
+        // A commit of the flusher still in progress only overlaps the one below
+        interrupted = true;
+      }
+    }
+    lock.lock();
+    try {
+      active.force();
+      committedBytes = writtenBytes;
+    } catch (RuntimeException ex) {
+      throw new JournalException("Cannot commit the command journal in " + directory, ex);
+    } finally {
+      closed = true;
+      committed.signalAll();
+      lock.unlock();
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void start() {
+    Thread flusher = new Thread(this::flush, "command-gate-journal-flusher");
+    flusher.setDaemon(true);
+    this.flusher = flusher;
+    flusher.start();
+  }
+
+  private void checkOpen() {
+    if (!open) {
+      throw new JournalException("Command journal is closed");
+    }
+  }
+
+  /**
+   * Rolls over to a new segment.
+   */
+  private void roll() {
+    // The previous segment is never written again, forcing it commits all it holds
+    active.force();
+    active.release();
+    committedBytes = writtenBytes;
+    committed.signalAll();
+    try {
+      Segment segment = Segment.create(directory, active.index + 1, segmentSize);
+      segments.add(segment);
+      active = segment;
+    } catch (IOException ex) {
+      throw new JournalException("Cannot create a command journal segment in " + directory, ex);
+    }
+  }
+
+  /**
+   * Writes an entry per command to the active segment, without publishing the lengths
+   * of the entries until they all fit.
+   *
+   * @return False if the entries do not fit in the rest of the segment,
+   *     which is left as it was.
+   */
+  private boolean writeEntries(List<Command> commands) {
+    Segment segment = active;
+    ByteBuffer buffer = segment.buffer().duplicate();
+    int start = segment.position;
+    int position = start;
+    int[] bodySizes = new int[commands.size()];
+    try {
+      for (int i = 0; i < bodySizes.length; i++) {
+        int bodyPosition = position + HEADER_SIZE;
+        if (bodyPosition + BODY_PREFIX_SIZE > segmentSize) {
+          throw new BufferOverflowException();
+        }
+        buffer.limit(segmentSize).position(bodyPosition + BODY_PREFIX_SIZE);
+        codecs.encode(commands.get(i), buffer);
+        int end = buffer.position();
+        buffer.put(bodyPosition, ENTRY);
+        buffer.putLong(bodyPosition + 1, nextSequence + i);
+        bodySizes[i] = end - bodyPosition;
+        seal(buffer, position, end);
+        position = end;
+      }
+    } catch (RuntimeException ex) {
+      // Wipes the partial entries, whose bytes would otherwise lie where the next ones go
+      buffer.limit(segmentSize);
+      int end = Math.max(position, buffer.position());
+      for (int i = start; i < end; i++) {
+        buffer.put(i, (byte) 0);
+      }
+      if (ex instanceof BufferOverflowException) {
+        return false;
+      }
+      throw ex;
+    }
+    // The lengths go last, the entries are only read once they are all written
+    position = start;
+    for (int bodySize : bodySizes) {
+      buffer.putInt(position, bodySize);
+      position += HEADER_SIZE + bodySize;
+    }
+    nextSequence += bodySizes.length;
+    segment.position = position;
+    writtenBytes += position - start;
+    return true;
+  }
+
+  private void writeAcknowledgement(Receipt receipt) {
+    ByteBuffer buffer = active.buffer().duplicate();
+    int position = active.position;
+    int bodyPosition = position + HEADER_SIZE;
+    buffer.put(bodyPosition, ACKNOWLEDGEMENT);
+    buffer.putLong(bodyPosition + 1, receipt.firstSequence);
+    buffer.putInt(bodyPosition + BODY_PREFIX_SIZE, receipt.count);
+    seal(buffer, position, position + ACKNOWLEDGEMENT_SIZE);
+    // The length goes last, a record is only read once the rest of it is written
+    buffer.putInt(position, ACKNOWLEDGEMENT_SIZE - HEADER_SIZE);
+    active.position = position + ACKNOWLEDGEMENT_SIZE;
+    writtenBytes += ACKNOWLEDGEMENT_SIZE;
+  }
+
+  /**
+   * Writes the checksum of the body of the record between the given positions.
+   */
+  private void seal(ByteBuffer buffer, int position, int end) {
+    buffer.limit(end).position(position + HEADER_SIZE);
+    checksum.reset();
+    checksum.update(buffer);
+    buffer.limit(segmentSize);
+    buffer.putInt(position + 4, (int) checksum.getValue());
+  }
+
+  private void notifyWritten(long before) {
+    if (before == committedBytes) {
+      pendingSince = System.nanoTime();
+      pendingCommit.signal();
+    } else if (writtenBytes - committedBytes >= commitSize) {
+      pendingCommit.signal();
+    }
+  }
+
+  private void compact() {
+    while (segments.size() > 1) {
+      Segment oldest = segments.getFirst();
+      if (oldest == active || oldest.live > 0) {
+        return;
+      }
+      segments.removeFirst();
+      oldest.release();
+      try {
+        Files.deleteIfExists(oldest.path);
+      } catch (IOException ex) {
+        // Left behind, the segment holds no live entry and is dropped when reopened
+      }
+    }
+  }
+
+  private void flush() {
+    lock.lock();
+    try {
+      while (true) {
+        while (open && writtenBytes == committedBytes) {
+          pendingCommit.awaitUninterruptibly();
+        }
+        long deadline = pendingSince + commitDelayNanos;
+        long remaining = deadline - System.nanoTime();
+        while (open && writtenBytes - committedBytes < commitSize && remaining > 0) {
+          remaining = pendingCommit.awaitNanos(remaining);
+        }
+        if (!open) {
+          return;
+        }
+        long target = writtenBytes;
+        Segment segment = active;
+        lock.unlock();
+        try {
+          segment.force();
+        } finally {
+          lock.lock();
+        }
+        if (target > committedBytes) {
+          committedBytes = target;
+        }
+        committed.signalAll();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Identifies the entries written by an {@link #append(List) append}.
+   */
+  public static final class Receipt {
+
+    private final Segment segment;
+
+    private final long firstSequence;
+
+    private final int count;
+
+    /**
+     * Whether the entries were acknowledged, guarded by the lock of the journal.
+     */
+    private boolean acknowledged;
+
+    private Receipt(Segment segment, long firstSequence, int count) {
+      this.segment = segment;
+      this.firstSequence = firstSequence;
+      this.count = count;
+    }
+
+    /**
+     * Returns the sequence number of the first entry.
+     *
+     * @return The first sequence number.
+     */
+    public long firstSequence() {
+      return firstSequence;
+    }
+
+    /**
+     * Returns the number of entries, one per command.
+     *
+     * @return The number of entries.
+     */
+    public int count() {
+      return count;
+    }
+
+  }
+
+  /**
+   * A segment file, mapped while it is the one written to.
+   */
+  private static final class Segment {
+
+    private final long index;
+
+    private final Path path;
+
+    private @Nullable MappedByteBuffer buffer;
+
+    private int position;
+
+    /**
+     * The number of entries not acknowledged yet.
+     */
+    private int live;
+
+    private Segment(long index, Path path, @Nullable MappedByteBuffer buffer) {
+      this.index = index;
+      this.path = path;
+      this.buffer = buffer;
+    }
+
+    static Segment create(Path directory, long index, int size) throws IOException {
+      Path path = directory.resolve(String.format("%s%020d%s",
+          SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        return new Segment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+      }
+    }
+
+    MappedByteBuffer buffer() {
+      @Nullable MappedByteBuffer buffer = this.buffer;
+      if (buffer == null) {
+        throw new IllegalStateException("Segment " + path + " is not writable");
+      }
+      return buffer;
+    }
+
+    void force() {
+      @Nullable MappedByteBuffer buffer = this.buffer;
+      if (buffer != null) {
+        buffer.force();
+      }
+    }
+
+    void release() {
+      this.buffer = null;
+    }
+
+  }
+
+  /**
+   * The state left by the previous run, read from the segments of the directory.
+   */
+  private static final class Recovery {
+
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    private final List<Command> commands = new ArrayList<>();
+
+    private final List<Receipt> receipts = new ArrayList<>();
+
+    private long nextIndex;
+
+    private long nextSequence;
+
+    static Recovery read(Path directory, CommandCodecs codecs) throws IOException {
+      List<Path> paths;
+      try (Stream<Path> files = Files.list(directory)) {
+        paths = files
+            .filter(path -> {
+              String name = String.valueOf(path.getFileName());
+              return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            })
+            .sorted()
+            .collect(Collectors.toList());
+      }
+      Recovery recovery = new Recovery();
+      Map<Long, RecoveredEntry> entries = new LinkedHashMap<>();
+      CRC32C checksum = new CRC32C();
+      for (Path path : paths) {
+        String name = String.valueOf(path.getFileName());
+        long index = Long.parseLong(name.substring(
+            SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        Segment segment = new Segment(index, path, null);
+        recovery.segments.add(segment);
+        recovery.nextIndex = Math.max(recovery.nextIndex, index + 1);
+        recovery.readSegment(segment, entries, checksum);
+      }
+      for (Map.Entry<Long, RecoveredEntry> entry : entries.entrySet()) {
+        RecoveredEntry recovered = entry.getValue();
+        recovered.segment.live++;
+        recovery.commands.add(codecs.decode(recovered.payload));
+        recovery.receipts.add(new Receipt(recovered.segment, entry.getKey(), 1));
+      }
+      // Segments of the previous run whose entries were all acknowledged
+      while (!recovery.segments.isEmpty() && recovery.segments.getFirst().live == 0) {
+        Files.deleteIfExists(recovery.segments.removeFirst().path);
+      }
+      return recovery;
+    }
+
+    private void readSegment(Segment segment, Map<Long, RecoveredEntry> entries,
+                             CRC32C checksum) throws IOException {
+      ByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      int position = 0;
+      while (position + HEADER_SIZE + BODY_PREFIX_SIZE <= buffer.limit()) {
+        int bodySize = buffer.getInt(position);
+        int bodyPosition = position + HEADER_SIZE;
+        if (bodySize < BODY_PREFIX_SIZE || bodySize > buffer.limit() - bodyPosition) {
+          return;
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.position(bodyPosition).limit(bodyPosition + bodySize);
+        checksum.reset();
+        checksum.update(body);
+        if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+          // Torn by a crash while it was written, nothing follows
+          return;
+        }
+        byte type = buffer.get(bodyPosition);
+        long sequence = buffer.getLong(bodyPosition + 1);
+        int payloadPosition = bodyPosition + BODY_PREFIX_SIZE;
+        if (type == ENTRY) {
+          ByteBuffer payload = buffer.duplicate();
+          payload.position(payloadPosition).limit(bodyPosition + bodySize);
+          entries.put(sequence, new RecoveredEntry(segment, payload));
+          nextSequence = Math.max(nextSequence, sequence + 1);
+        } else if (type == ACKNOWLEDGEMENT) {
+          int count = buffer.getInt(payloadPosition);
+          for (long acknowledged = sequence; acknowledged < sequence + count; acknowledged++) {
+            entries.remove(acknowledged);
+          }
+          nextSequence = Math.max(nextSequence, sequence + count);
+        }
+        position = bodyPosition + bodySize;
+      }
+    }
+
+  }
+
+  private static final class RecoveredEntry {
+
+    private final Segment segment;
+
+    private final ByteBuffer payload;
+
+    RecoveredEntry(Segment segment, ByteBuffer payload) {
+      this.segment = segment;
+      this.payload = payload;
+    }
+
+  }
+
+}
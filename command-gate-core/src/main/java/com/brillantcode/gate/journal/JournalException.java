@@ -0,0 +1,20 @@
+package com.brillantcode.gate.journal;
+
+import com.brillantcode.gate.GateException;
+
+/**
+ * Indicates that the {@link CommandJournal} failed to read or write its files.
+ */
+public class JournalException extends GateException {
+
+  private static final long serialVersionUID = 1L;
+
+  public JournalException(String message) {
+    super(message);
+  }
+
+  public JournalException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
@@ -0,0 +1,141 @@
+package com.brillantcode.gate.journal;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.scheduler.CommandRunner;
+import com.brillantcode.gate.scheduler.CommandScheduler;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link CommandScheduler} decorator that writes the commands of the runners
+ * to a {@link CommandJournal} before passing the runners to the decorated scheduler,
+ * so that the scheduled commands survive a restart of the application.
+ *
+ * <p>Scheduling returns once the commands are committed to the journal. Their entries
+ * are acknowledged when the runner completes, whether the commands succeeded or not,
+ * when it is discarded or when the decorated scheduler rejects it. Runners that
+ * do not tell their {@link CommandRunner#commands() commands} are not journaled.
+ *
+ * <p>Runners merged by a coalescing scheduler behind this one acknowledge
+ * the entries of all the merged runners.
+ *
+ * <p>Delayed and periodic runners are journaled when they are due, not when they are
+ * scheduled: a delayed command is lost if the application stops while it waits,
+ * and periodic commands must be scheduled again on every start.
+ *
+ * @see CommandJournal#replay(com.brillantcode.gate.Gate)
+ */
+public class JournalingCommandScheduler implements CommandScheduler {
+
+  private final CommandScheduler delegate;
+
+  private final CommandJournal journal;
+
+  public JournalingCommandScheduler(CommandScheduler delegate, CommandJournal journal) {
+    Preconditions.checkNotNull(delegate);
+    Preconditions.checkNotNull(journal);
+    this.delegate = delegate;
+    this.journal = journal;
+  }
+
+  @Override
+  public void schedule(CommandRunner runner) {
+    Preconditions.checkNotNull(runner);
+    List<Command> commands = runner.commands();
+    if (commands.isEmpty()) {
+      delegate.schedule(runner);
+      return;
+    }
+    CommandJournal.Receipt receipt = journal.append(commands);
+    try {
+      delegate.schedule(new JournaledRunner(journal, runner, Collections.singletonList(receipt)));
+    } catch (RuntimeException ex) {
+      journal.acknowledge(receipt);
+      throw ex;
+    }
+  }
+
+  private static final class JournaledRunner implements CommandRunner {
+
+    private final CommandJournal journal;
+
+    private final CommandRunner runner;
+
+    private final List<CommandJournal.Receipt> receipts;
+
+    JournaledRunner(CommandJournal journal, CommandRunner runner,
+                    List<CommandJournal.Receipt> receipts) {
+      this.journal = journal;
+      this.runner = runner;
+      this.receipts = receipts;
+    }
+
+    @Override
+    public void run() {
+      try {
+        runner.run();
+      } finally {
+        acknowledge();
+      }
+    }
+
+    @Override
+    public void discard() {
+      try {
+        runner.discard();
+      } finally {
+        acknowledge();
+      }
+    }
+
+    private void acknowledge() {
+      for (CommandJournal.Receipt receipt : receipts) {
+        journal.acknowledge(receipt);
+      }
+    }
+
+    @Override
+    public @Nullable Class<? extends Command> commandType() {
+      return runner.commandType();
+    }
+
+    @Override
+    public List<Command> commands() {
+      return runner.commands();
+    }
+
+    @Override
+    public @Nullable Object partitionKey() {
+      return runner.partitionKey();
+    }
+
+    @Override
+    public int priority() {
+      return runner.priority();
+    }
+
+    @Override
+    public @Nullable Object coalescingKey() {
+      return runner.coalescingKey();
+    }
+
+    @Override
+    public CommandRunner coalesce(CommandRunner newer) {
+      if (!(newer instanceof JournaledRunner)) {
+        discard();
+        return newer;
+      }
+      JournaledRunner newerRunner = (JournaledRunner) newer;
+      List<CommandJournal.Receipt> merged =
+          new ArrayList<>(receipts.size() + newerRunner.receipts.size());
+      merged.addAll(receipts);
+      merged.addAll(newerRunner.receipts);
+      return new JournaledRunner(journal, runner.coalesce(newerRunner.runner), merged);
+    }
+
+  }
+
+}
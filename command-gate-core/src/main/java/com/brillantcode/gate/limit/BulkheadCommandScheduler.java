@@ -0,0 +1,551 @@
+package com.brillantcode.gate.limit;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.scheduler.CommandRunner;
+import com.brillantcode.gate.scheduler.CommandScheduler;
+import com.brillantcode.gate.scheduler.SaturationPolicy;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link CommandScheduler} decorator enforcing the {@link CommandLimits} of the command types:
+ * a bulkhead of at most {@link CommandLimits#maxConcurrency()} running commands per type
+ * and a token bucket of {@link CommandLimits#permitsPerSecond()} starting commands.
+ *
+ * <p>Commands over the limits of their type are handled according to
+ * {@link CommandLimits#policy()}: they wait in memory, are rejected with
+ * a {@link RejectedExecutionException} or run on the fallback executor. Waiting commands
+ * are passed to the decorated scheduler once a running command of their type completes,
+ * or once the bucket has a token for them, so they do not hold threads of the scheduler.
+ * The commands waiting for a running command and those waiting for a token are each bounded
+ * per type, the {@link SaturationPolicy} applies when too many wait. As running them
+ * in the scheduling thread would exceed the limits, {@link SaturationPolicy#CALLER_RUNS}
+ * waits for space as {@link SaturationPolicy#BLOCK} does.
+ *
+ * <p>The commands waiting for a running command of their type to complete are passed
+ * to the decorated scheduler by a thread of the limiter, never by the thread that ran
+ * the command, which must not wait for space in its own scheduler.
+ *
+ * <p>The limits of a type are looked up in the {@link CommandLimitsRegistry} when the
+ * first command of the type is scheduled. When the registry
+ * {@link CommandLimitsRegistry#discoversHandlers() discovers handlers}, types without limits
+ * are looked up again until a runner tells its commands, whose handler may declare limits
+ * once discovered. Permits and tokens are taken with
+ * compare-and-set loops, commands of different types do not contend, and runners
+ * of unlimited or unknown types are passed to the decorated scheduler as they are.
+ *
+ * <p>The scheduler owns the thread of the limiter, started when a command first waits,
+ * which {@link #close()} stops.
+ */
+public class BulkheadCommandScheduler implements CommandScheduler, AutoCloseable {
+
+  private final CommandScheduler delegate;
+
+  private final CommandLimitsRegistry limitsRegistry;
+
+  private final Executor fallbackExecutor;
+
+  private final ConcurrentMap<Class<? extends Command>, Limiter> limiters =
+      new ConcurrentHashMap<>();
+
+  private final int waitingCapacity;
+
+  private final SaturationPolicy saturationPolicy;
+
+  private final long blockTimeoutNanos;
+
+  private final Limiter unlimited;
+
+  private volatile @Nullable ScheduledExecutorService limiterExecutor;
+
+  private boolean closed;
+
+  /**
+   * Creates a scheduler running the commands over the limits in the scheduling thread
+   * when their policy is {@link LimitPolicy#FALLBACK}.
+   *
+   * @param delegate       The scheduler of the commands within the limits.
+   * @param limitsRegistry The limits of the command types.
+   */
+  public BulkheadCommandScheduler(CommandScheduler delegate,
+                                  CommandLimitsRegistry limitsRegistry) {
+    this(delegate, limitsRegistry, Runnable::run);
+  }
+
+  /**
+   * Creates a scheduler running the commands over the limits on the given executor
+   * when their policy is {@link LimitPolicy#FALLBACK}, rejecting commands when
+   * {@link Integer#MAX_VALUE} commands of their type wait.
+   *
+   * @param delegate         The scheduler of the commands within the limits.
+   * @param limitsRegistry   The limits of the command types.
+   * @param fallbackExecutor The executor of the commands over the limits.
+   */
+  public BulkheadCommandScheduler(CommandScheduler delegate,
+                                  CommandLimitsRegistry limitsRegistry,
+                                  Executor fallbackExecutor) {
+    this(delegate, limitsRegistry, fallbackExecutor,
+        Integer.MAX_VALUE, SaturationPolicy.REJECT, Duration.ZERO);
+  }
+
+  /**
+   * Creates a scheduler running the commands over the limits on the given executor
+   * when their policy is {@link LimitPolicy#FALLBACK}, with a bounded number of commands
+   * waiting per type when their policy is {@link LimitPolicy#QUEUE}.
+   *
+   * @param delegate         The scheduler of the commands within the limits.
+   * @param limitsRegistry   The limits of the command types.
+   * @param fallbackExecutor The executor of the commands over the limits.
+   * @param waitingCapacity  The maximum number of commands of a type waiting
+   *                         for a running one to complete, and of those waiting
+   *                         for a token.
+   * @param saturationPolicy What to do with the commands over the waiting capacity.
+   * @param blockTimeout     The longest time to wait for space among the waiting commands.
+   * @throws NullPointerException     If any argument is null.
+   * @throws IllegalArgumentException If the waiting capacity is not positive,
+   *                                  or the timeout is negative.
+   */
+  public BulkheadCommandScheduler(CommandScheduler delegate,
+                                  CommandLimitsRegistry limitsRegistry,
+                                  Executor fallbackExecutor,
+                                  int waitingCapacity,
+                                  SaturationPolicy saturationPolicy,
+                                  Duration blockTimeout) {
+    Preconditions.checkNotNull(delegate);
+    Preconditions.checkNotNull(limitsRegistry);
+    Preconditions.checkNotNull(fallbackExecutor);
+    Preconditions.checkNotNull(saturationPolicy);
+    Preconditions.checkNotNull(blockTimeout);
+    Preconditions.checkArgument(waitingCapacity > 0, "Waiting capacity must be positive");
+    Preconditions.checkArgument(!blockTimeout.isNegative(), "Block timeout must not be negative");
+    this.delegate = delegate;
+    this.limitsRegistry = limitsRegistry;
+    this.fallbackExecutor = fallbackExecutor;
+    this.waitingCapacity = waitingCapacity;
+    this.saturationPolicy = saturationPolicy;
+    this.blockTimeoutNanos = blockTimeout.toNanos();
+    this.unlimited = new Limiter(CommandLimits.none());
+  }
+
+  @Override
+  public void schedule(CommandRunner runner) {
+    Preconditions.checkNotNull(runner);
+    @Nullable Class<? extends Command> commandType = runner.commandType();
+    if (commandType == null) {
+      delegate.schedule(runner);
+      return;
+    }
+    @Nullable Limiter limiter = limiters.get(commandType);
+    if (limiter == null) {
+      limiter = createLimiter(runner, commandType);
+    }
+    limiter.schedule(runner);
+  }
+
+  /**
+   * Returns the number of commands of the given type waiting for a running command
+   * of the type to complete.
+   *
+   * @param commandType The type of the commands.
+   * @return The number of waiting commands.
+   */
+  public int waitingRunners(Class<? extends Command> commandType) {
+    @Nullable Limiter limiter = limiters.get(commandType);
+    return limiter != null ? limiter.waiting.size() : 0;
+  }
+
+  /**
+   * Stops the thread of the limiter and {@link CommandRunner#discard() discards} the commands
+   * waiting for their limits. Commands that have to wait for their limits are rejected
+   * from then on.
+   */
+  @Override
+  public void close() {
+    @Nullable ScheduledExecutorService executor;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      executor = this.limiterExecutor;
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    for (Limiter limiter : limiters.values()) {
+      limiter.discardWaiting();
+    }
+  }
+
+  private Limiter createLimiter(CommandRunner runner, Class<? extends Command> commandType) {
+    // Looked up outside of the map, as discovering the handler may schedule other commands
+    List<Command> commands = runner.commands();
+    @Nullable CommandLimits limits = commands.isEmpty()
+        ? limitsRegistry.limitsFor(commandType)
+        : limitsRegistry.limitsFor(commands.get(0));
+    if (limits == null && commands.isEmpty() && limitsRegistry.discoversHandlers()) {
+      // The limits may be declared once the handler is discovered, so they are looked up again
+      return unlimited;
+    }
+    Limiter limiter = limits != null ? new Limiter(limits) : unlimited;
+    @Nullable Limiter previous = limiters.putIfAbsent(commandType, limiter);
+    return previous != null ? previous : limiter;
+  }
+
+  private ScheduledExecutorService limiterExecutor() {
+    @Nullable ScheduledExecutorService executor = this.limiterExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        if (closed) {
+          throw new RejectedExecutionException("Scheduler is closed");
+        }
+        executor = this.limiterExecutor;
+        if (executor == null) {
+          executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+              .setNameFormat("command-gate-limiter-%d")
+              .setDaemon(true)
+              .build());
+          this.limiterExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  private final class Limiter {
+
+    private final CommandLimits limits;
+
+    private final boolean concurrencyLimited;
+
+    private final boolean rateLimited;
+
+    private final AtomicInteger permits;
+
+    private final BlockingQueue<CommandRunner> waiting =
+        new LinkedBlockingQueue<>(waitingCapacity);
+
+    /**
+     * The runners waiting for a token, admitted in turn by the tasks of the limiter
+     * scheduled when their tokens are due.
+     */
+    private final BlockingQueue<CommandRunner> delayed =
+        new LinkedBlockingQueue<>(waitingCapacity);
+
+    /**
+     * Number of drains requested while one is running, the thread running it drains again
+     * instead of running them concurrently or recursively.
+     */
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    /**
+     * Theoretical arrival time of the next command in {@link System#nanoTime()} terms,
+     * as in the generic cell rate algorithm: a command may start when it is no more
+     * than the burst tolerance ahead of now, and pushes it by one interval.
+     */
+    private final AtomicLong arrivalTime = new AtomicLong(System.nanoTime());
+
+    private final long interval;
+
+    private final long tolerance;
+
+    Limiter(CommandLimits limits) {
+      this.limits = limits;
+      this.concurrencyLimited = limits.maxConcurrency() > 0;
+      this.rateLimited = limits.permitsPerSecond() > 0;
+      this.permits = new AtomicInteger(limits.maxConcurrency());
+      this.interval = rateLimited
+          ? Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / limits.permitsPerSecond()))
+          : 0L;
+      this.tolerance = (limits.burst() - 1) * interval;
+    }
+
+    void schedule(CommandRunner runner) {
+      if (rateLimited) {
+        long delay = reserveToken();
+        if (delay > 0) {
+          if (limits.policy() == LimitPolicy.QUEUE) {
+            delay(runner, System.nanoTime() + delay);
+          } else {
+            overLimits(runner, "rate");
+          }
+          return;
+        }
+      }
+      admit(runner, true);
+    }
+
+    /**
+     * Takes a token from the bucket, or reserves the next one if the commands
+     * over the limits wait for it.
+     *
+     * @return How long to wait for the token in nanoseconds, zero or less to start now.
+     */
+    private long reserveToken() {
+      boolean reserve = limits.policy() == LimitPolicy.QUEUE;
+      while (true) {
+        long now = System.nanoTime();
+        long current = arrivalTime.get();
+        long delay = current - tolerance - now;
+        if (delay > 0 && !reserve) {
+          return delay;
+        }
+        long next = Math.max(current, now) + interval;
+        if (arrivalTime.compareAndSet(current, next)) {
+          return delay;
+        }
+      }
+    }
+
+    /**
+     * Adds the runner to those waiting for a token, due at the given time.
+     */
+    private void delay(CommandRunner runner, long dueAt) {
+      try {
+        await(delayed, runner, true);
+      } catch (RejectedExecutionException ex) {
+        // Gives the reserved token back
+        arrivalTime.addAndGet(-interval);
+        throw ex;
+      }
+      try {
+        limiterExecutor().schedule(
+            this::admitDelayed, dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException ex) {
+        if (delayed.remove(runner)) {
+          throw ex;
+        }
+      }
+    }
+
+    /**
+     * Admits the runner waiting for a token the longest, the tokens being reserved in turn.
+     */
+    private void admitDelayed() {
+      @Nullable CommandRunner runner = delayed.poll();
+      if (runner == null) {
+        // Dropped by the saturation policy
+        return;
+      }
+      try {
+        // The thread of the limiter drains the waiting commands, it must not wait for space
+        admit(runner, false);
+      } catch (RuntimeException ex) {
+        runner.discard();
+      }
+    }
+
+    private void admit(CommandRunner runner, boolean mayWait) {
+      if (!concurrencyLimited) {
+        delegate.schedule(runner);
+        return;
+      }
+      if (tryAcquire()) {
+        try {
+          delegate.schedule(new PermitRunner(this, runner));
+        } catch (RuntimeException ex) {
+          releaseAndDrain();
+          throw ex;
+        }
+        return;
+      }
+      if (limits.policy() == LimitPolicy.QUEUE) {
+        await(waiting, runner, mayWait);
+        // A permit released before the runner was added would otherwise go unnoticed
+        if (drainRequests.getAndIncrement() == 0) {
+          drain();
+        }
+      } else {
+        overLimits(runner, "concurrency");
+      }
+    }
+
+    /**
+     * Adds the runner to the waiting ones, applying the saturation policy if too many wait.
+     */
+    private void await(BlockingQueue<CommandRunner> waiting, CommandRunner runner,
+                       boolean mayWait) {
+      if (waiting.offer(runner)) {
+        return;
+      }
+      switch (saturationPolicy) {
+        case DROP_OLDEST:
+          do {
+            @Nullable CommandRunner oldest = waiting.poll();
+            if (oldest != null) {
+              oldest.discard();
+            }
+          } while (!waiting.offer(runner));
+          return;
+        case BLOCK:
+        case CALLER_RUNS:
+          try {
+            if (mayWait && waiting.offer(runner, blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+              return;
+            }
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the limits", ex);
+          }
+          throw new RejectedExecutionException("Too many commands " + runner.commandType()
+              + " still waiting for their limits after " + Duration.ofNanos(blockTimeoutNanos));
+        default:
+          throw new RejectedExecutionException("Too many commands " + runner.commandType()
+              + " waiting for their limits: " + limits);
+      }
+    }
+
+    private void overLimits(CommandRunner runner, String limit) {
+      if (limits.policy() == LimitPolicy.REJECT) {
+        throw new RejectedExecutionException("Command " + runner.commandType()
+            + " is over its " + limit + " limit: " + limits);
+      }
+      fallbackExecutor.execute(runner);
+    }
+
+    private boolean tryAcquire() {
+      while (true) {
+        int available = permits.get();
+        if (available <= 0) {
+          return false;
+        }
+        if (permits.compareAndSet(available, available - 1)) {
+          return true;
+        }
+      }
+    }
+
+    void releaseAndDrain() {
+      permits.incrementAndGet();
+      if (!waiting.isEmpty() && drainRequests.getAndIncrement() == 0) {
+        // Called by the thread of a command that completed, which may be a worker
+        // of the decorated scheduler and must not wait for space in its queue
+        try {
+          limiterExecutor().execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+          // Closed, the waiting runners will not be drained
+          drainRequests.set(0);
+          discardWaiting();
+        }
+      }
+    }
+
+    void discardWaiting() {
+      for (BlockingQueue<CommandRunner> queue : List.of(delayed, waiting)) {
+        for (@Nullable CommandRunner runner = queue.poll(); runner != null;
+             runner = queue.poll()) {
+          runner.discard();
+        }
+      }
+    }
+
+    /**
+     * Passes the waiting runners to the decorated scheduler while permits are available,
+     * once per drain requested in the meantime.
+     */
+    private void drain() {
+      int requests = 1;
+      do {
+        while (!waiting.isEmpty() && tryAcquire()) {
+          @Nullable CommandRunner runner = waiting.poll();
+          if (runner == null) {
+            permits.incrementAndGet();
+            continue;
+          }
+          try {
+            delegate.schedule(new PermitRunner(this, runner));
+          } catch (RuntimeException ex) {
+            permits.incrementAndGet();
+            runner.discard();
+          }
+        }
+        requests = drainRequests.addAndGet(-requests);
+      } while (requests != 0);
+    }
+
+  }
+
+  private static final class PermitRunner implements CommandRunner {
+
+    private final Limiter limiter;
+
+    private final CommandRunner runner;
+
+    PermitRunner(Limiter limiter, CommandRunner runner) {
+      this.limiter = limiter;
+      this.runner = runner;
+    }
+
+    @Override
+    public void run() {
+      try {
+        runner.run();
+      } finally {
+        limiter.releaseAndDrain();
+      }
+    }
+
+    @Override
+    public void discard() {
+      try {
+        runner.discard();
+      } finally {
+        limiter.releaseAndDrain();
+      }
+    }
+
+    @Override
+    public @Nullable Class<? extends Command> commandType() {
+      return runner.commandType();
+    }
+
+    @Override
+    public List<Command> commands() {
+      return runner.commands();
+    }
+
+    @Override
+    public @Nullable Object partitionKey() {
+      return runner.partitionKey();
+    }
+
+    @Override
+    public int priority() {
+      return runner.priority();
+    }
+
+    @Override
+    public @Nullable Object coalescingKey() {
+      return runner.coalescingKey();
+    }
+
+    @Override
+    public CommandRunner coalesce(CommandRunner newer) {
+      if (!(newer instanceof PermitRunner) || ((PermitRunner) newer).limiter != limiter) {
+        discard();
+        return newer;
+      }
+      PermitRunner merged =
+          new PermitRunner(limiter, runner.coalesce(((PermitRunner) newer).runner));
+      // Both runners held a permit, the merged one keeps a single one
+      limiter.releaseAndDrain();
+      return merged;
+    }
+
+  }
+
+}
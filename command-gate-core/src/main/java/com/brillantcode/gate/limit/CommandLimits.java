@@ -0,0 +1,158 @@
+package com.brillantcode.gate.limit;
+
+import com.brillantcode.gate.annotation.CommandHandler;
+import com.google.common.base.Preconditions;
+import java.lang.reflect.AnnotatedElement;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Limits of the scheduled commands of a type: how many of them run at the same time,
+ * how often they start and what happens to the commands over the limits.
+ *
+ * <pre>
+ *   CommandLimits.none()
+ *     .withMaxConcurrency(4)
+ *     .withRate(100, 10)
+ *     .whenLimited(LimitPolicy.REJECT)
+ * </pre>
+ *
+ * <p>Instances are immutable.
+ *
+ * @see BulkheadCommandScheduler
+ */
+public final class CommandLimits {
+
+  private static final CommandLimits NONE = new CommandLimits(0, 0, 1, LimitPolicy.QUEUE);
+
+  private final int maxConcurrency;
+
+  private final double permitsPerSecond;
+
+  private final int burst;
+
+  private final LimitPolicy policy;
+
+  private CommandLimits(int maxConcurrency, double permitsPerSecond, int burst,
+                        LimitPolicy policy) {
+    this.maxConcurrency = maxConcurrency;
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.policy = policy;
+  }
+
+  /**
+   * Returns the limits that limit nothing, to build others from.
+   *
+   * @return The empty limits.
+   */
+  public static CommandLimits none() {
+    return NONE;
+  }
+
+  /**
+   * Reads the limits declared by the {@link CommandHandler} annotation
+   * of the given method or class.
+   *
+   * @param element The annotated method or class.
+   * @return The declared limits, or null if the element declares none.
+   */
+  public static @Nullable CommandLimits declaredOn(AnnotatedElement element) {
+    Preconditions.checkNotNull(element);
+    @Nullable CommandHandler annotation = element.getAnnotation(CommandHandler.class);
+    if (annotation == null
+        || annotation.maxConcurrency() <= 0 && annotation.permitsPerSecond() <= 0) {
+      return null;
+    }
+    CommandLimits limits = none().whenLimited(annotation.whenLimited());
+    if (annotation.maxConcurrency() > 0) {
+      limits = limits.withMaxConcurrency(annotation.maxConcurrency());
+    }
+    if (annotation.permitsPerSecond() > 0) {
+      limits = limits.withRate(annotation.permitsPerSecond(), Math.max(annotation.burst(), 1));
+    }
+    return limits;
+  }
+
+  /**
+   * Returns a copy of the limits with the given number of commands running at the same time.
+   *
+   * @param maxConcurrency Maximum number of running commands.
+   * @return The new limits.
+   * @throws IllegalArgumentException If the number is not positive.
+   */
+  public CommandLimits withMaxConcurrency(int maxConcurrency) {
+    Preconditions.checkArgument(maxConcurrency > 0, "Maximum concurrency must be positive");
+    return new CommandLimits(maxConcurrency, permitsPerSecond, burst, policy);
+  }
+
+  /**
+   * Returns a copy of the limits with the given rate of commands starting,
+   * enforced as a token bucket of {@code burst} tokens refilled at the rate.
+   *
+   * @param permitsPerSecond Maximum number of commands starting per second.
+   * @param burst            Number of commands that may start at once.
+   * @return The new limits.
+   * @throws IllegalArgumentException If the rate or the burst is not positive.
+   */
+  public CommandLimits withRate(double permitsPerSecond, int burst) {
+    Preconditions.checkArgument(permitsPerSecond > 0, "Rate must be positive");
+    Preconditions.checkArgument(burst > 0, "Burst must be positive");
+    return new CommandLimits(maxConcurrency, permitsPerSecond, burst, policy);
+  }
+
+  /**
+   * Returns a copy of the limits with the given policy for the commands over the limits.
+   *
+   * @param policy The policy to apply.
+   * @return The new limits.
+   */
+  public CommandLimits whenLimited(LimitPolicy policy) {
+    Preconditions.checkNotNull(policy);
+    return new CommandLimits(maxConcurrency, permitsPerSecond, burst, policy);
+  }
+
+  /**
+   * Returns the maximum number of commands running at the same time.
+   *
+   * @return The maximum concurrency, zero if unlimited.
+   */
+  public int maxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * Returns the maximum number of commands starting per second.
+   *
+   * @return The rate, zero if unlimited.
+   */
+  public double permitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  /**
+   * Returns the number of commands that may start at once under the rate.
+   *
+   * @return The burst.
+   */
+  public int burst() {
+    return burst;
+  }
+
+  /**
+   * Returns the policy applied to the commands over the limits.
+   *
+   * @return The limit policy.
+   */
+  public LimitPolicy policy() {
+    return policy;
+  }
+
+  @Override
+  public String toString() {
+    return "CommandLimits{maxConcurrency=" + maxConcurrency
+        + ", permitsPerSecond=" + permitsPerSecond
+        + ", burst=" + burst
+        + ", policy=" + policy + "}";
+  }
+
+}
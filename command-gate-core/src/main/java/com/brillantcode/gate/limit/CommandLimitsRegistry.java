@@ -0,0 +1,123 @@
+package com.brillantcode.gate.limit;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps the {@link CommandLimits} of the command types, either configured explicitly
+ * or declared with {@link com.brillantcode.gate.annotation.CommandHandler} annotations.
+ * Configured limits replace the declared ones of their type.
+ *
+ * <p>Limits are declared when the handler of their type is discovered. When the handlers are
+ * discovered lazily, the registry discovers the handler of a command before looking up its
+ * limits, see {@link #discoverHandlersWith(Consumer)}.
+ *
+ * @see LimitDeclaringCommandHandlerDiscoverer
+ */
+public class CommandLimitsRegistry {
+
+  private final ConcurrentMap<Class<? extends Command>, CommandLimits> configured =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Class<? extends Command>, CommandLimits> declared =
+      new ConcurrentHashMap<>();
+
+  private volatile @Nullable Consumer<Command> handlerDiscoverer;
+
+  /**
+   * Sets the limits of the given command type.
+   *
+   * @param commandType The type of the commands.
+   * @param limits      The limits of the commands.
+   */
+  public void configure(Class<? extends Command> commandType, CommandLimits limits) {
+    Preconditions.checkNotNull(commandType);
+    Preconditions.checkNotNull(limits);
+    configured.put(commandType, limits);
+  }
+
+  /**
+   * Records the limits declared for the given command type.
+   *
+   * @param commandType The type of the commands.
+   * @param limits      The limits of the commands.
+   */
+  public void declare(Class<? extends Command> commandType, CommandLimits limits) {
+    Preconditions.checkNotNull(commandType);
+    Preconditions.checkNotNull(limits);
+    declared.put(commandType, limits);
+  }
+
+  /**
+   * Sets how to discover the handler of a command, for the handler registries that discover
+   * the handlers when their commands are first handled. The limits of a command without
+   * known limits are then looked up after discovering its handler.
+   *
+   * @param handlerDiscoverer Discovers the handler of the given command, e.g. by looking it up
+   *                          in the handler registry.
+   */
+  public void discoverHandlersWith(Consumer<Command> handlerDiscoverer) {
+    Preconditions.checkNotNull(handlerDiscoverer);
+    this.handlerDiscoverer = handlerDiscoverer;
+  }
+
+  /**
+   * Returns the limits of the type of the given command, discovering the handler
+   * of the command first if its limits are unknown and handlers are discovered lazily.
+   *
+   * <p>Failures to discover the handler are left to the handling of the command to report.
+   *
+   * @param command The command.
+   * @return The limits of the commands of the type, or null if they are not limited.
+   */
+  public @Nullable CommandLimits limitsFor(Command command) {
+    Preconditions.checkNotNull(command);
+    Class<? extends Command> commandType = command.getClass();
+    @Nullable CommandLimits limits = limitsFor(commandType);
+    @Nullable Consumer<Command> handlerDiscoverer = this.handlerDiscoverer;
+    if (limits == null && handlerDiscoverer != null) {
+      try {
+        handlerDiscoverer.accept(command);
+        limits = limitsFor(commandType);
+      } catch (RuntimeException ex) {
+        // Reported when the command is handled
+      }
+    }
+    return limits;
+  }
+
+  /**
+   * Returns the limits of the given command type.
+   *
+   * @param commandType The type of the commands.
+   * @return The limits of the commands, or null if they are not limited.
+   */
+  public @Nullable CommandLimits limitsFor(Class<? extends Command> commandType) {
+    @Nullable CommandLimits limits = configured.get(commandType);
+    return limits != null ? limits : declared.get(commandType);
+  }
+
+  /**
+   * Returns whether the limits of any command type are known.
+   *
+   * @return True if no command type is limited.
+   */
+  public boolean isEmpty() {
+    return configured.isEmpty() && declared.isEmpty();
+  }
+
+  /**
+   * Returns whether limits may still be declared by handlers discovered lazily.
+   *
+   * @return True if the registry discovers handlers.
+   * @see #discoverHandlersWith(Consumer)
+   */
+  public boolean discoversHandlers() {
+    return handlerDiscoverer != null;
+  }
+
+}
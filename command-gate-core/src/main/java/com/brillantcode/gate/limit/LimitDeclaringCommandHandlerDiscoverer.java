@@ -0,0 +1,55 @@
+package com.brillantcode.gate.limit;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
+import com.brillantcode.gate.handler.HandlerDeclarations;
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Discoverer implementation that records in a {@link CommandLimitsRegistry} the limits
+ * declared by the {@link com.brillantcode.gate.annotation.CommandHandler} annotations
+ * of the handlers found by another discoverer.
+ *
+ * <p>Limits are looked up as in {@link HandlerDeclarations#lookup}, handlers are returned
+ * as they are.
+ */
+public class LimitDeclaringCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
+
+  private final CommandHandlerDiscoverer handlerDiscoverer;
+
+  private final CommandLimitsRegistry limitsRegistry;
+
+  /**
+   * Creates a discoverer recording the limits of the handlers found by the given discoverer.
+   *
+   * @param handlerDiscoverer The discoverer of the handlers.
+   * @param limitsRegistry    The registry to record the limits in.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public LimitDeclaringCommandHandlerDiscoverer(CommandHandlerDiscoverer handlerDiscoverer,
+                                                CommandLimitsRegistry limitsRegistry) {
+    Preconditions.checkNotNull(handlerDiscoverer);
+    Preconditions.checkNotNull(limitsRegistry);
+    this.handlerDiscoverer = handlerDiscoverer;
+    this.limitsRegistry = limitsRegistry;
+  }
+
+  @Override
+  public <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    @Nullable CommandHandler<CommandT> handler = handlerDiscoverer.getHandlerFor(commandType);
+    if (handler == null) {
+      return null;
+    }
+    @Nullable CommandLimits limits =
+        HandlerDeclarations.lookup(handler, commandType, CommandLimits::declaredOn);
+    if (limits != null) {
+      limitsRegistry.declare(commandType, limits);
+    }
+    return handler;
+  }
+
+}
@@ -0,0 +1,24 @@
+package com.brillantcode.gate.limit;
+
+/**
+ * What happens to scheduled commands over the {@link CommandLimits} of their type.
+ */
+public enum LimitPolicy {
+
+  /**
+   * The commands wait until they are within the limits.
+   */
+  QUEUE,
+
+  /**
+   * The commands are rejected with a {@link java.util.concurrent.RejectedExecutionException}.
+   */
+  REJECT,
+
+  /**
+   * The commands run on the fallback executor of the scheduler, by default in the
+   * scheduling thread, regardless of the limits.
+   */
+  FALLBACK
+
+}
@@ -0,0 +1,85 @@
+package com.brillantcode.gate.metrics;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link GateInstrumentation} collecting {@link CommandTypeMetrics} in memory.
+ *
+ * <p>Metrics of a command type are created with its first command.
+ * Exporters read them with {@link #snapshot()}, or follow them
+ * with {@link #onCommandType(Consumer)}.
+ */
+public class CommandMetrics implements GateInstrumentation {
+
+  private final ConcurrentMap<Class<? extends Command>, CommandTypeMetrics> metrics =
+      new ConcurrentHashMap<>();
+
+  private final List<Consumer<CommandTypeMetrics>> listeners = new CopyOnWriteArrayList<>();
+
+  @Override
+  public CommandTypeMetrics forCommandType(Class<? extends Command> commandType) {
+    Preconditions.checkNotNull(commandType);
+    CommandTypeMetrics typeMetrics = metrics.get(commandType);
+    if (typeMetrics != null) {
+      return typeMetrics;
+    }
+    CommandTypeMetrics created = new CommandTypeMetrics(commandType);
+    typeMetrics = metrics.putIfAbsent(commandType, created);
+    if (typeMetrics != null) {
+      return typeMetrics;
+    }
+    for (Consumer<CommandTypeMetrics> listener : listeners) {
+      listener.accept(created);
+    }
+    return created;
+  }
+
+  /**
+   * Calls the given listener with the metrics of every command type,
+   * those existing now and those created later.
+   *
+   * <p>The listener may receive the metrics of a command type
+   * created concurrently with the registration twice.
+   *
+   * @param listener The listener of the command type metrics.
+   */
+  public void onCommandType(Consumer<CommandTypeMetrics> listener) {
+    Preconditions.checkNotNull(listener);
+    listeners.add(listener);
+    for (CommandTypeMetrics typeMetrics : metrics.values()) {
+      listener.accept(typeMetrics);
+    }
+  }
+
+  /**
+   * Returns the metrics of the command types processed so far.
+   *
+   * @return The metrics of the command types.
+   */
+  public Collection<CommandTypeMetrics> commandTypes() {
+    return Collections.unmodifiableCollection(metrics.values());
+  }
+
+  /**
+   * Returns a copy of the current metrics of the command types processed so far.
+   *
+   * @return The snapshots of the command type metrics.
+   */
+  public List<CommandMetricsSnapshot> snapshot() {
+    List<CommandMetricsSnapshot> snapshots = new ArrayList<>(metrics.size());
+    for (CommandTypeMetrics typeMetrics : metrics.values()) {
+      snapshots.add(typeMetrics.snapshot());
+    }
+    return snapshots;
+  }
+
+}
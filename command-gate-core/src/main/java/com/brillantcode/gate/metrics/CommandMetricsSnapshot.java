@@ -0,0 +1,99 @@
+package com.brillantcode.gate.metrics;
+
+import com.brillantcode.gate.Command;
+
+/**
+ * Immutable copy of the {@link CommandTypeMetrics metrics} of one command type.
+ */
+public final class CommandMetricsSnapshot {
+
+  private final Class<? extends Command> commandType;
+
+  private final long handledCount;
+
+  private final long failedCount;
+
+  private final long coalescedCount;
+
+  private final long queueDepth;
+
+  private final HistogramSnapshot latency;
+
+  private final HistogramSnapshot queueTime;
+
+  CommandMetricsSnapshot(Class<? extends Command> commandType, long handledCount,
+                         long failedCount, long coalescedCount, long queueDepth,
+                         HistogramSnapshot latency, HistogramSnapshot queueTime) {
+    this.commandType = commandType;
+    this.handledCount = handledCount;
+    this.failedCount = failedCount;
+    this.coalescedCount = coalescedCount;
+    this.queueDepth = queueDepth;
+    this.latency = latency;
+    this.queueTime = queueTime;
+  }
+
+  /**
+   * Returns the type of the commands.
+   *
+   * @return The command type.
+   */
+  public Class<? extends Command> commandType() {
+    return commandType;
+  }
+
+  /**
+   * Returns the number of commands handled without failing.
+   *
+   * @return The number of handled commands.
+   */
+  public long handledCount() {
+    return handledCount;
+  }
+
+  /**
+   * Returns the number of commands whose handler failed.
+   *
+   * @return The number of failed commands.
+   */
+  public long failedCount() {
+    return failedCount;
+  }
+
+  /**
+   * Returns the number of commands merged into other commands waiting to run.
+   *
+   * @return The number of coalesced commands.
+   */
+  public long coalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * Returns the number of runners that were waiting for the scheduler.
+   *
+   * @return The number of queued runners.
+   */
+  public long queueDepth() {
+    return queueDepth;
+  }
+
+  /**
+   * Returns the histogram of the time the handler took per command, in nanoseconds.
+   *
+   * @return The latency histogram.
+   */
+  public HistogramSnapshot latency() {
+    return latency;
+  }
+
+  /**
+   * Returns the histogram of the time the runners waited for the scheduler, in nanoseconds.
+   *
+   * @return The time-in-queue histogram.
+   */
+  public HistogramSnapshot queueTime() {
+    return queueTime;
+  }
+
+}
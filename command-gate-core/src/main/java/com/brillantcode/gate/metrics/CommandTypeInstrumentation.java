@@ -0,0 +1,52 @@
+package com.brillantcode.gate.metrics;
+
+/**
+ * Receives the events of the processing of the commands of one type.
+ *
+ * <p>Methods are called on the hot path of the commands, from any thread,
+ * and must be cheap and thread-safe.
+ */
+public interface CommandTypeInstrumentation {
+
+  /**
+   * Called when the handler processed commands without failing.
+   *
+   * @param commands      The number of commands, more than one for batches.
+   * @param durationNanos The time the handler took, in nanoseconds.
+   */
+  void handled(int commands, long durationNanos);
+
+  /**
+   * Called when the handler failed to process commands.
+   *
+   * @param commands      The number of commands, more than one for batches.
+   * @param durationNanos The time until the handler failed, in nanoseconds.
+   */
+  void failed(int commands, long durationNanos);
+
+  /**
+   * Called when a runner of the commands was passed to the scheduler.
+   */
+  void queued();
+
+  /**
+   * Called when a runner of the commands was started by the scheduler.
+   *
+   * @param queuedNanos The time the runner waited for the scheduler, in nanoseconds.
+   */
+  void dequeued(long queuedNanos);
+
+  /**
+   * Called when a runner of the commands was rejected or discarded by the scheduler.
+   */
+  void discarded();
+
+  /**
+   * Called when a runner of the commands was merged by the scheduler
+   * into another one waiting to run.
+   *
+   * @see com.brillantcode.gate.Coalescible
+   */
+  void coalesced();
+
+}
@@ -0,0 +1,148 @@
+package com.brillantcode.gate.metrics;
+
+import com.brillantcode.gate.Command;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the commands of one type, collected by {@link CommandMetrics}.
+ *
+ * <p>Counters are striped {@link LongAdder LongAdders} and durations go to
+ * {@link LogHistogram LogHistograms}, so that threads processing commands
+ * of the same type do not contend.
+ */
+public final class CommandTypeMetrics implements CommandTypeInstrumentation {
+
+  private final Class<? extends Command> commandType;
+
+  private final LongAdder handled = new LongAdder();
+
+  private final LongAdder failed = new LongAdder();
+
+  private final LongAdder queued = new LongAdder();
+
+  private final LongAdder dequeued = new LongAdder();
+
+  private final LongAdder discarded = new LongAdder();
+
+  private final LongAdder coalesced = new LongAdder();
+
+  private final LogHistogram latency = new LogHistogram();
+
+  private final LogHistogram queueTime = new LogHistogram();
+
+  CommandTypeMetrics(Class<? extends Command> commandType) {
+    this.commandType = commandType;
+  }
+
+  @Override
+  public void handled(int commands, long durationNanos) {
+    handled.add(commands);
+    latency.record(durationNanos / commands, commands);
+  }
+
+  @Override
+  public void failed(int commands, long durationNanos) {
+    failed.add(commands);
+    latency.record(durationNanos / commands, commands);
+  }
+
+  @Override
+  public void queued() {
+    queued.increment();
+  }
+
+  @Override
+  public void dequeued(long queuedNanos) {
+    dequeued.increment();
+    queueTime.record(queuedNanos);
+  }
+
+  @Override
+  public void discarded() {
+    discarded.increment();
+  }
+
+  @Override
+  public void coalesced() {
+    coalesced.increment();
+  }
+
+  /**
+   * Returns the type of the commands.
+   *
+   * @return The command type.
+   */
+  public Class<? extends Command> commandType() {
+    return commandType;
+  }
+
+  /**
+   * Returns the number of commands handled without failing.
+   *
+   * @return The number of handled commands.
+   */
+  public long handledCount() {
+    return handled.sum();
+  }
+
+  /**
+   * Returns the number of commands whose handler failed.
+   *
+   * @return The number of failed commands.
+   */
+  public long failedCount() {
+    return failed.sum();
+  }
+
+  /**
+   * Returns the number of commands merged into other commands waiting to run.
+   *
+   * @return The number of coalesced commands.
+   */
+  public long coalescedCount() {
+    return coalesced.sum();
+  }
+
+  /**
+   * Returns the number of runners waiting for the scheduler.
+   *
+   * @return The number of queued runners.
+   */
+  public long queueDepth() {
+    // Read in the reverse order of the updates, so that the depth does not go negative
+    long left = dequeued.sum() + discarded.sum() + coalesced.sum();
+    return Math.max(queued.sum() - left, 0);
+  }
+
+  /**
+   * Returns a copy of the histogram of the time the handler took per command, in nanoseconds.
+   *
+   * @return The latency histogram.
+   */
+  public HistogramSnapshot latency() {
+    return latency.snapshot();
+  }
+
+  /**
+   * Returns a copy of the histogram of the time the runners waited for the scheduler,
+   * in nanoseconds.
+   *
+   * @return The time-in-queue histogram.
+   */
+  public HistogramSnapshot queueTime() {
+    return queueTime.snapshot();
+  }
+
+  /**
+   * Returns a copy of the current state of the metrics.
+   *
+   * @return The snapshot of the metrics.
+   */
+  public CommandMetricsSnapshot snapshot() {
+    return new CommandMetricsSnapshot(
+        commandType, handledCount(), failedCount(), coalescedCount(), queueDepth(),
+        latency.snapshot(), queueTime.snapshot()
+    );
+  }
+
+}
@@ -0,0 +1,25 @@
+package com.brillantcode.gate.metrics;
+
+import com.brillantcode.gate.Command;
+
+/**
+ * Instrumentation SPI of a {@link com.brillantcode.gate.Gate},
+ * notified about the processing of the commands of every type.
+ *
+ * <p>The instrumentation of a command type is requested once, when its first command
+ * is processed, so implementations may bind all of their state to it up front.
+ * Without an instrumentation the gate and its scheduler are not instrumented at all.
+ *
+ * @see CommandMetrics
+ */
+public interface GateInstrumentation {
+
+  /**
+   * Returns the instrumentation of the commands of the given type.
+   *
+   * @param commandType The type of the commands.
+   * @return The instrumentation of the command type.
+   */
+  CommandTypeInstrumentation forCommandType(Class<? extends Command> commandType);
+
+}
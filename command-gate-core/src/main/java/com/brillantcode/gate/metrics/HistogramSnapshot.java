@@ -0,0 +1,90 @@
+package com.brillantcode.gate.metrics;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable copy of the state of a {@link LogHistogram}.
+ */
+public final class HistogramSnapshot {
+
+  private final long[] counts;
+
+  private final long count;
+
+  private final long sum;
+
+  private final long max;
+
+  HistogramSnapshot(long[] counts, long sum, long max) {
+    this.counts = counts;
+    long count = 0;
+    for (long bucketCount : counts) {
+      count += bucketCount;
+    }
+    this.count = count;
+    this.sum = sum;
+    this.max = max;
+  }
+
+  /**
+   * Returns the number of recorded values.
+   *
+   * @return The number of values.
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Returns the sum of the recorded values.
+   *
+   * @return The sum of the values.
+   */
+  public long sum() {
+    return sum;
+  }
+
+  /**
+   * Returns the largest recorded value.
+   *
+   * @return The largest value, or zero if there are none.
+   */
+  public long max() {
+    return max;
+  }
+
+  /**
+   * Returns the mean of the recorded values.
+   *
+   * @return The mean of the values, or zero if there are none.
+   */
+  public double mean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * Returns an upper estimate of the value at the given quantile,
+   * within the width of a bucket of the histogram.
+   *
+   * @param quantile The quantile, between 0 and 1.
+   * @return The estimated value at the quantile, or zero if there are no values.
+   * @throws IllegalArgumentException If the quantile is out of range.
+   */
+  public long valueAt(double quantile) {
+    Preconditions.checkArgument(quantile >= 0 && quantile <= 1,
+        "Quantile %s is not between 0 and 1", quantile);
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int bucket = 0; bucket < counts.length; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return Math.min(LogHistogram.upperBound(bucket), max);
+      }
+    }
+    return max;
+  }
+
+}
@@ -0,0 +1,22 @@
+package com.brillantcode.gate.metrics;
+
+import com.brillantcode.gate.Command;
+
+/**
+ * Binds the {@link CommandTypeInstrumentation} of every command type
+ * to the type itself, so that the hot path looks it up without hashing.
+ */
+final class InstrumentationCache extends ClassValue<CommandTypeInstrumentation> {
+
+  private final GateInstrumentation instrumentation;
+
+  InstrumentationCache(GateInstrumentation instrumentation) {
+    this.instrumentation = instrumentation;
+  }
+
+  @Override
+  protected CommandTypeInstrumentation computeValue(Class<?> type) {
+    return instrumentation.forCommandType(type.asSubclass(Command.class));
+  }
+
+}
@@ -0,0 +1,132 @@
+package com.brillantcode.gate.metrics;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.scheduler.CommandRunner;
+import com.brillantcode.gate.scheduler.CommandScheduler;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link CommandScheduler} decorator reporting the runners it schedules
+ * to a {@link GateInstrumentation}: when they are queued, how long they wait
+ * for the scheduler and whether they are discarded or coalesced.
+ *
+ * <p>Runners that do not expose their {@link CommandRunner#commandType() command type}
+ * are scheduled as they are.
+ */
+public class InstrumentedCommandScheduler implements CommandScheduler {
+
+  private final CommandScheduler delegate;
+
+  private final InstrumentationCache instrumentations;
+
+  /**
+   * Creates the scheduler decorating the given one.
+   *
+   * @param delegate        The {@link CommandScheduler} that runs the commands.
+   * @param instrumentation The {@link GateInstrumentation} to report to.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public InstrumentedCommandScheduler(CommandScheduler delegate,
+                                      GateInstrumentation instrumentation) {
+    Preconditions.checkNotNull(delegate);
+    Preconditions.checkNotNull(instrumentation);
+    this.delegate = delegate;
+    this.instrumentations = new InstrumentationCache(instrumentation);
+  }
+
+  @Override
+  public void schedule(CommandRunner runner) {
+    @Nullable Class<? extends Command> commandType = runner.commandType();
+    if (commandType == null) {
+      delegate.schedule(runner);
+      return;
+    }
+    CommandTypeInstrumentation instrumentation = instrumentations.get(commandType);
+    instrumentation.queued();
+    try {
+      delegate.schedule(new TimedCommandRunner(runner, commandType, instrumentation));
+    } catch (RejectedExecutionException ex) {
+      instrumentation.discarded();
+      throw ex;
+    }
+  }
+
+  private static final class TimedCommandRunner implements CommandRunner {
+
+    private final CommandRunner runner;
+
+    private final Class<? extends Command> commandType;
+
+    private final CommandTypeInstrumentation instrumentation;
+
+    private final long queuedAt;
+
+    TimedCommandRunner(CommandRunner runner, Class<? extends Command> commandType,
+                       CommandTypeInstrumentation instrumentation) {
+      this(runner, commandType, instrumentation, System.nanoTime());
+    }
+
+    private TimedCommandRunner(CommandRunner runner, Class<? extends Command> commandType,
+                               CommandTypeInstrumentation instrumentation, long queuedAt) {
+      this.runner = runner;
+      this.commandType = commandType;
+      this.instrumentation = instrumentation;
+      this.queuedAt = queuedAt;
+    }
+
+    @Override
+    public void run() {
+      instrumentation.dequeued(System.nanoTime() - queuedAt);
+      runner.run();
+    }
+
+    @Override
+    public void discard() {
+      instrumentation.discarded();
+      runner.discard();
+    }
+
+    @Override
+    public Class<? extends Command> commandType() {
+      return commandType;
+    }
+
+    @Override
+    public @Nullable Object partitionKey() {
+      return runner.partitionKey();
+    }
+
+    @Override
+    public int priority() {
+      return runner.priority();
+    }
+
+    @Override
+    public List<Command> commands() {
+      return runner.commands();
+    }
+
+    @Override
+    public @Nullable Object coalescingKey() {
+      return runner.coalescingKey();
+    }
+
+    @Override
+    public CommandRunner coalesce(CommandRunner newer) {
+      // The newer runner was counted as queued, it leaves the queue merged into this one
+      CommandRunner unwrapped = newer;
+      if (newer instanceof TimedCommandRunner) {
+        unwrapped = ((TimedCommandRunner) newer).runner;
+        ((TimedCommandRunner) newer).instrumentation.coalesced();
+      }
+      return new TimedCommandRunner(
+          runner.coalesce(unwrapped), commandType, instrumentation, queuedAt
+      );
+    }
+
+  }
+
+}
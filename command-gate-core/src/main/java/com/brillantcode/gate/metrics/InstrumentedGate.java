@@ -0,0 +1,92 @@
+package com.brillantcode.gate.metrics;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.DefaultGate;
+import com.brillantcode.gate.handler.CommandHandlerRegistry;
+import com.brillantcode.gate.idempotency.IdempotencyCache;
+import com.brillantcode.gate.scheduler.CommandScheduler;
+import com.google.common.base.Preconditions;
+import java.util.List;
+
+/**
+ * {@link DefaultGate} reporting the processing of every command
+ * to a {@link GateInstrumentation}.
+ *
+ * <p>Measures the time the handlers take, batches are reported as a whole.
+ * To also measure the time the commands wait for the scheduler,
+ * decorate it with an {@link InstrumentedCommandScheduler}.
+ */
+public class InstrumentedGate extends DefaultGate {
+
+  private final InstrumentationCache instrumentations;
+
+  /**
+   * Creates the gate with the given handler registry, scheduler and instrumentation.
+   *
+   * @param commandHandlerRegistry The {@link CommandHandlerRegistry} to use.
+   * @param commandScheduler       The {@link CommandScheduler} to use.
+   * @param instrumentation        The {@link GateInstrumentation} to report to.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public InstrumentedGate(CommandHandlerRegistry commandHandlerRegistry,
+                          CommandScheduler commandScheduler,
+                          GateInstrumentation instrumentation) {
+    super(commandHandlerRegistry, commandScheduler);
+    Preconditions.checkNotNull(instrumentation);
+    this.instrumentations = new InstrumentationCache(instrumentation);
+  }
+
+  /**
+   * Creates the gate with the given handler registry, scheduler, idempotency cache
+   * and instrumentation. The commands skipped are reported as handled.
+   *
+   * @param commandHandlerRegistry The {@link CommandHandlerRegistry} to use.
+   * @param commandScheduler       The {@link CommandScheduler} to use.
+   * @param idempotencyCache       The {@link IdempotencyCache} to use.
+   * @param instrumentation        The {@link GateInstrumentation} to report to.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public InstrumentedGate(CommandHandlerRegistry commandHandlerRegistry,
+                          CommandScheduler commandScheduler,
+                          IdempotencyCache idempotencyCache,
+                          GateInstrumentation instrumentation) {
+    super(commandHandlerRegistry, commandScheduler, idempotencyCache);
+    Preconditions.checkNotNull(instrumentation);
+    this.instrumentations = new InstrumentationCache(instrumentation);
+  }
+
+  @Override
+  protected void execute(Command cmd) {
+    long start = System.nanoTime();
+    boolean handled = false;
+    try {
+      super.execute(cmd);
+      handled = true;
+    } finally {
+      record(cmd.getClass(), 1, start, handled);
+    }
+  }
+
+  @Override
+  protected void executeBatch(List<Command> batch) {
+    long start = System.nanoTime();
+    boolean handled = false;
+    try {
+      super.executeBatch(batch);
+      handled = true;
+    } finally {
+      record(batch.get(0).getClass(), batch.size(), start, handled);
+    }
+  }
+
+  private void record(Class<?> commandType, int commands, long start, boolean handled) {
+    long duration = System.nanoTime() - start;
+    CommandTypeInstrumentation instrumentation = instrumentations.get(commandType);
+    if (handled) {
+      instrumentation.handled(commands, duration);
+    } else {
+      instrumentation.failed(commands, duration);
+    }
+  }
+
+}
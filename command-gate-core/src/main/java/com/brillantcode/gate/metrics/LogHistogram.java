@@ -0,0 +1,92 @@
+package com.brillantcode.gate.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values in logarithmic buckets.
+ *
+ * <p>Every power of two is split into {@value #SUB_BUCKETS} buckets of equal width,
+ * so a bucket is at most 12.5 % wide relative to its values whatever their magnitude.
+ * Recording a value increments one counter of a fixed array, it takes no lock
+ * and allocates nothing.
+ */
+public final class LogHistogram {
+
+  static final int SUB_BUCKET_BITS = 3;
+
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Exact buckets for the values below {@link #SUB_BUCKETS}, then {@link #SUB_BUCKETS}
+   * buckets for every power of two up to {@link Long#MAX_VALUE}.
+   */
+  static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder sum = new LongAdder();
+
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records a value, negative values are recorded as zero.
+   *
+   * @param value The value to record.
+   */
+  public void record(long value) {
+    record(value, 1);
+  }
+
+  /**
+   * Records a value the given number of times, negative values are recorded as zero.
+   *
+   * @param value The value to record.
+   * @param times The number of occurrences of the value.
+   */
+  public void record(long value, int times) {
+    long recorded = Math.max(value, 0);
+    counts.addAndGet(bucket(recorded), times);
+    sum.add(recorded * times);
+    max.accumulate(recorded);
+  }
+
+  /**
+   * Returns a copy of the current state of the histogram.
+   *
+   * <p>Values recorded concurrently may be only partially reflected in the snapshot.
+   *
+   * @return The snapshot of the histogram.
+   */
+  public HistogramSnapshot snapshot() {
+    long[] bucketCounts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      bucketCounts[i] = counts.get(i);
+    }
+    return new HistogramSnapshot(bucketCounts, sum.sum(), max.get());
+  }
+
+  static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long lowerBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  static long upperBound(int bucket) {
+    return bucket == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+  }
+
+}
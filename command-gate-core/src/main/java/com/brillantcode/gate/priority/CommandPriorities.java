@@ -0,0 +1,135 @@
+package com.brillantcode.gate.priority;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.Prioritized;
+import com.brillantcode.gate.annotation.CommandHandler;
+import com.google.common.base.Preconditions;
+import java.lang.reflect.AnnotatedElement;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Keeps the priorities of the command types, either configured explicitly
+ * or declared with {@link CommandHandler} annotations, applied to the scheduled commands
+ * that do not implement {@link Prioritized}.
+ * Configured priorities replace the declared ones of their type.
+ *
+ * <p>Priorities are declared when the handler of their type is discovered. When the handlers
+ * are discovered lazily, the priorities discover the handler of a command before looking up
+ * its priority, see {@link #discoverHandlersWith(Consumer)}.
+ *
+ * @see PriorityDeclaringCommandHandlerDiscoverer
+ */
+public class CommandPriorities {
+
+  private final ConcurrentMap<Class<? extends Command>, Integer> configured =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<Class<? extends Command>, Integer> declared =
+      new ConcurrentHashMap<>();
+
+  private volatile @Nullable Consumer<Command> handlerDiscoverer;
+
+  /**
+   * Reads the priority declared by the {@link CommandHandler} annotation
+   * of the given method or class.
+   *
+   * @param element The annotated method or class.
+   * @return The declared priority, or null if the element declares none.
+   */
+  public static @Nullable Integer declaredOn(AnnotatedElement element) {
+    Preconditions.checkNotNull(element);
+    @Nullable CommandHandler annotation = element.getAnnotation(CommandHandler.class);
+    return annotation != null && annotation.priority() != 0 ? annotation.priority() : null;
+  }
+
+  /**
+   * Sets the priority of the given command type.
+   *
+   * @param commandType The type of the commands.
+   * @param priority    The priority of the commands.
+   * @throws IllegalArgumentException If the priority is out of the range of priorities.
+   */
+  public void configure(Class<? extends Command> commandType, int priority) {
+    Preconditions.checkNotNull(commandType);
+    checkPriority(priority);
+    configured.put(commandType, priority);
+  }
+
+  /**
+   * Records the priority declared for the given command type. Like the priorities
+   * of the {@link Prioritized} commands, priorities out of the range are brought within it.
+   *
+   * @param commandType The type of the commands.
+   * @param priority    The priority of the commands.
+   */
+  public void declare(Class<? extends Command> commandType, int priority) {
+    Preconditions.checkNotNull(commandType);
+    declared.put(commandType,
+        Math.max(Prioritized.MIN_PRIORITY, Math.min(Prioritized.MAX_PRIORITY, priority)));
+  }
+
+  /**
+   * Sets how to discover the handler of a command, for the handler registries that discover
+   * the handlers when their commands are first handled. The priority of a command without
+   * known priority is then looked up after discovering its handler.
+   *
+   * @param handlerDiscoverer Discovers the handler of the given command, e.g. by looking it up
+   *                          in the handler registry.
+   */
+  public void discoverHandlersWith(Consumer<Command> handlerDiscoverer) {
+    Preconditions.checkNotNull(handlerDiscoverer);
+    this.handlerDiscoverer = handlerDiscoverer;
+  }
+
+  /**
+   * Returns the priority of the type of the given command, discovering the handler
+   * of the command first if its priority is unknown and handlers are discovered lazily.
+   *
+   * <p>Failures to discover the handler are left to the handling of the command to report.
+   *
+   * @param command The command.
+   * @return The priority of the commands of the type, {@link Prioritized#NORM_PRIORITY}
+   *         if unknown.
+   */
+  public int priorityOf(Command command) {
+    Preconditions.checkNotNull(command);
+    Class<? extends Command> commandType = command.getClass();
+    @Nullable Integer priority = knownPriorityOf(commandType);
+    @Nullable Consumer<Command> handlerDiscoverer = this.handlerDiscoverer;
+    if (priority == null && handlerDiscoverer != null) {
+      try {
+        handlerDiscoverer.accept(command);
+        priority = knownPriorityOf(commandType);
+      } catch (RuntimeException ex) {
+        // Reported when the command is handled
+      }
+    }
+    return priority != null ? priority : Prioritized.NORM_PRIORITY;
+  }
+
+  /**
+   * Returns the priority of the given command type.
+   *
+   * @param commandType The type of the commands.
+   * @return The priority of the commands, {@link Prioritized#NORM_PRIORITY} if unknown.
+   */
+  public int priorityOf(Class<? extends Command> commandType) {
+    @Nullable Integer priority = knownPriorityOf(commandType);
+    return priority != null ? priority : Prioritized.NORM_PRIORITY;
+  }
+
+  private @Nullable Integer knownPriorityOf(Class<? extends Command> commandType) {
+    @Nullable Integer priority = configured.get(commandType);
+    return priority != null ? priority : declared.get(commandType);
+  }
+
+  private static void checkPriority(int priority) {
+    Preconditions.checkArgument(
+        priority >= Prioritized.MIN_PRIORITY && priority <= Prioritized.MAX_PRIORITY,
+        "Priority must be between %s and %s", Prioritized.MIN_PRIORITY, Prioritized.MAX_PRIORITY);
+  }
+
+}
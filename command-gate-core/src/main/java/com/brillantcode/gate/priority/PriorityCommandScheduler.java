@@ -0,0 +1,298 @@
+package com.brillantcode.gate.priority;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.Prioritized;
+import com.brillantcode.gate.scheduler.CommandRunner;
+import com.brillantcode.gate.scheduler.CommandScheduler;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of {@link CommandScheduler} that starts the waiting runners
+ * with higher priorities first, on its own worker threads.
+ *
+ * <p>Runners wait in one FIFO queue per priority, from {@link Prioritized#MIN_PRIORITY}
+ * to {@link Prioritized#MAX_PRIORITY}. The priority of a runner is the one of its command,
+ * or else the one of its command type in the {@link CommandPriorities}, looked up with
+ * the first command of the runner so that handlers discovered lazily declare their priority.
+ * To keep a steady flow of urgent commands from starving the others, a waiting runner
+ * gains one priority per aging interval: a free worker takes the oldest runner
+ * of the queue with the highest priority thus aged, the higher queue on a tie.
+ *
+ * <p>The queues hold a bounded number of runners in total,
+ * runners scheduled when they are full are rejected.
+ * A runner throwing an exception or an error is reported to the uncaught exception handler
+ * of the worker thread, which then carries on with the next runner.
+ *
+ * <p>The scheduler owns its worker threads, {@link #close()} stops them.
+ *
+ * @see Prioritized
+ */
+public class PriorityCommandScheduler implements CommandScheduler, AutoCloseable {
+
+  private static final int LEVELS = Prioritized.MAX_PRIORITY - Prioritized.MIN_PRIORITY + 1;
+
+  private final CommandPriorities priorities;
+
+  private final Queues queues;
+
+  private final Thread[] workers;
+
+  /**
+   * Instantiates the scheduler and starts daemon worker threads.
+   *
+   * @param priorities    The priorities of the command types.
+   * @param capacity      The maximum number of waiting runners.
+   * @param workers       The number of worker threads.
+   * @param agingInterval How long a runner waits to gain one priority.
+   * @throws NullPointerException     If the priorities or the aging interval are null.
+   * @throws IllegalArgumentException If the capacity, the number of workers
+   *                                  or the aging interval is not positive.
+   */
+  public PriorityCommandScheduler(CommandPriorities priorities, int capacity, int workers,
+                                  Duration agingInterval) {
+    this(priorities, capacity, workers, agingInterval, new ThreadFactoryBuilder()
+        .setNameFormat("command-gate-priority-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Instantiates the scheduler and starts worker threads created by the given factory.
+   *
+   * @param priorities    The priorities of the command types.
+   * @param capacity      The maximum number of waiting runners.
+   * @param workers       The number of worker threads.
+   * @param agingInterval How long a runner waits to gain one priority.
+   * @param threadFactory The factory of the worker threads.
+   * @throws NullPointerException     If the priorities, the aging interval
+   *                                  or the thread factory are null.
+   * @throws IllegalArgumentException If the capacity, the number of workers
+   *                                  or the aging interval is not positive,
+   *                                  or the thread factory does not create a thread.
+   */
+  public PriorityCommandScheduler(CommandPriorities priorities, int capacity, int workers,
+                                  Duration agingInterval, ThreadFactory threadFactory) {
+    Preconditions.checkNotNull(priorities);
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+    Preconditions.checkArgument(workers > 0, "Number of workers must be positive");
+    Preconditions.checkNotNull(agingInterval);
+    Preconditions.checkArgument(!agingInterval.isNegative() && !agingInterval.isZero(),
+        "Aging interval must be positive");
+    Preconditions.checkNotNull(threadFactory);
+
+    Queues queues = new Queues(capacity, agingInterval.toNanos());
+    this.priorities = priorities;
+    this.queues = queues;
+    this.workers = new Thread[workers];
+    for (int i = 0; i < workers; i++) {
+      @Nullable Thread worker = threadFactory.newThread(() -> work(queues));
+      if (worker == null) {
+        throw new IllegalArgumentException("Thread factory did not create a thread");
+      }
+      this.workers[i] = worker;
+    }
+    for (Thread worker : this.workers) {
+      worker.start();
+    }
+  }
+
+  /**
+   * Puts the runner at the end of the queue of its priority.
+   *
+   * @param runner The {@link CommandRunner} to execute.
+   * @throws RejectedExecutionException If the queues are full or the scheduler is closed.
+   */
+  @Override
+  public void schedule(CommandRunner runner) {
+    Preconditions.checkNotNull(runner);
+    queues.offer(level(runner), new Entry(runner, System.nanoTime()));
+  }
+
+  /**
+   * Returns the number of runners waiting for a worker.
+   *
+   * @return The number of waiting runners.
+   */
+  public int queuedRunners() {
+    return queues.size();
+  }
+
+  /**
+   * Stops accepting runners, lets the workers execute the runners already queued
+   * and waits for them to finish.
+   *
+   * <p>If interrupted while waiting, returns with the interrupt status set,
+   * the workers finish the queued runners in the background.
+   */
+  @Override
+  public void close() {
+    queues.close();
+    try {
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private int level(CommandRunner runner) {
+    int priority = runner.priority();
+    if (priority == CommandRunner.NO_PRIORITY) {
+      List<Command> commands = runner.commands();
+      @Nullable Class<? extends Command> commandType = runner.commandType();
+      if (!commands.isEmpty()) {
+        priority = priorities.priorityOf(commands.get(0));
+      } else if (commandType != null) {
+        priority = priorities.priorityOf(commandType);
+      } else {
+        priority = Prioritized.NORM_PRIORITY;
+      }
+    }
+    priority = Math.max(Prioritized.MIN_PRIORITY, Math.min(Prioritized.MAX_PRIORITY, priority));
+    return priority - Prioritized.MIN_PRIORITY;
+  }
+
+  private static void work(Queues queues) {
+    while (true) {
+      @Nullable CommandRunner runner = queues.take();
+      if (runner == null) {
+        return;
+      }
+      try {
+        runner.run();
+      } catch (Throwable ex) {
+        Thread worker = Thread.currentThread();
+        Thread.@Nullable UncaughtExceptionHandler handler = worker.getUncaughtExceptionHandler();
+        if (handler != null) {
+          handler.uncaughtException(worker, ex);
+        }
+      }
+    }
+  }
+
+  /**
+   * The queues of the runners of each priority, shared by the producers and the workers.
+   */
+  private static final class Queues {
+
+    private final List<ArrayDeque<Entry>> levels;
+
+    private final int capacity;
+
+    private final long agingNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private int size;
+
+    private boolean open = true;
+
+    Queues(int capacity, long agingNanos) {
+      this.levels = new ArrayList<>(LEVELS);
+      for (int i = 0; i < LEVELS; i++) {
+        this.levels.add(new ArrayDeque<>());
+      }
+      this.capacity = capacity;
+      this.agingNanos = agingNanos;
+    }
+
+    void offer(int level, Entry entry) {
+      lock.lock();
+      try {
+        if (!open) {
+          throw new RejectedExecutionException("Scheduler is closed");
+        }
+        if (size >= capacity) {
+          throw new RejectedExecutionException("Scheduler queues are full");
+        }
+        levels.get(level).addLast(entry);
+        size++;
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Waits for a runner and takes the one with the highest aged priority.
+     *
+     * @return The runner to execute, or null if the scheduler is closed and no runner is left.
+     */
+    @Nullable CommandRunner take() {
+      lock.lock();
+      try {
+        while (size == 0) {
+          if (!open) {
+            return null;
+          }
+          notEmpty.awaitUninterruptibly();
+        }
+        long now = System.nanoTime();
+        int selected = -1;
+        long selectedPriority = Long.MIN_VALUE;
+        for (int level = LEVELS - 1; level >= 0; level--) {
+          @Nullable Entry head = levels.get(level).peekFirst();
+          if (head == null) {
+            continue;
+          }
+          long agedPriority = level + (now - head.scheduledAt) / agingNanos;
+          if (agedPriority > selectedPriority) {
+            selected = level;
+            selectedPriority = agedPriority;
+          }
+        }
+        size--;
+        return levels.get(selected).removeFirst().runner;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    int size() {
+      lock.lock();
+      try {
+        return size;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void close() {
+      lock.lock();
+      try {
+        open = false;
+        notEmpty.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+  }
+
+  private static final class Entry {
+
+    private final CommandRunner runner;
+
+    private final long scheduledAt;
+
+    Entry(CommandRunner runner, long scheduledAt) {
+      this.runner = runner;
+      this.scheduledAt = scheduledAt;
+    }
+
+  }
+
+}
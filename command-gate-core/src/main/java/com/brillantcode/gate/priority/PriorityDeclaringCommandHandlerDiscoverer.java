@@ -0,0 +1,55 @@
+package com.brillantcode.gate.priority;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.handler.CommandHandler;
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer;
+import com.brillantcode.gate.handler.HandlerDeclarations;
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Discoverer implementation that records in {@link CommandPriorities} the priorities
+ * declared by the {@link com.brillantcode.gate.annotation.CommandHandler} annotations
+ * of the handlers found by another discoverer.
+ *
+ * <p>Priorities are looked up as in {@link HandlerDeclarations#lookup}, handlers are returned
+ * as they are.
+ */
+public class PriorityDeclaringCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
+
+  private final CommandHandlerDiscoverer handlerDiscoverer;
+
+  private final CommandPriorities priorities;
+
+  /**
+   * Creates a discoverer recording the priorities of the handlers found by the given discoverer.
+   *
+   * @param handlerDiscoverer The discoverer of the handlers.
+   * @param priorities        The priorities to record the declared ones in.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public PriorityDeclaringCommandHandlerDiscoverer(CommandHandlerDiscoverer handlerDiscoverer,
+                                                   CommandPriorities priorities) {
+    Preconditions.checkNotNull(handlerDiscoverer);
+    Preconditions.checkNotNull(priorities);
+    this.handlerDiscoverer = handlerDiscoverer;
+    this.priorities = priorities;
+  }
+
+  @Override
+  public <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    @Nullable CommandHandler<CommandT> handler = handlerDiscoverer.getHandlerFor(commandType);
+    if (handler == null) {
+      return null;
+    }
+    @Nullable Integer priority =
+        HandlerDeclarations.lookup(handler, commandType, CommandPriorities::declaredOn);
+    if (priority != null) {
+      priorities.declare(commandType, priority);
+    }
+    return handler;
+  }
+
+}
@@ -0,0 +1,28 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.Command;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Receives the commands sent to the node by the other nodes.
+ *
+ * @see CommandTransport#start(CommandReceiver)
+ */
+@FunctionalInterface
+public interface CommandReceiver {
+
+  /**
+   * Passes the commands on to be handled.
+   *
+   * <p>Called by the threads of the transport, which must not be blocked
+   * while the commands are handled.
+   *
+   * @param commands The received commands.
+   * @param delivery How the commands are passed on.
+   * @return A future completed once the commands were handled or scheduled,
+   *     as the delivery requires, or failed with the reason they were not.
+   */
+  CompletableFuture<Void> receive(List<Command> commands, Delivery delivery);
+
+}
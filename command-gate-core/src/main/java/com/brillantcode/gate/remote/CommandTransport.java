@@ -0,0 +1,46 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.Command;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries commands between the nodes of a cluster, each node being identified by a name.
+ *
+ * <p>Requests to a node may be pipelined: a request is sent without waiting
+ * for the answers to the previous ones, which may come back in any order.
+ *
+ * @see RemoteGate
+ */
+public interface CommandTransport extends AutoCloseable {
+
+  /**
+   * Starts passing the commands sent to this node to the receiver.
+   *
+   * @param receiver The receiver of the commands.
+   * @throws IllegalStateException If the transport was already started.
+   */
+  void start(CommandReceiver receiver);
+
+  /**
+   * Sends the commands to the node.
+   *
+   * @param node     The name of the node.
+   * @param commands The commands to send.
+   * @param delivery How the node passes the commands to its gate.
+   * @return A future completed once the node answered, failed with a {@link TransportException}
+   *     if the node could not be reached or a {@link RemoteCommandException}
+   *     if the commands failed on the node.
+   */
+  CompletableFuture<Void> send(String node, List<Command> commands, Delivery delivery);
+
+  /**
+   * Stops the transport, failing the requests waiting for an answer.
+   *
+   * <p>If interrupted while waiting for the threads of the transport, returns
+   * with the interrupt status set, the threads stopping in the background.
+   */
+  @Override
+  void close();
+
+}
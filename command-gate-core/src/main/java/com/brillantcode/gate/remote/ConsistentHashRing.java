@@ -0,0 +1,127 @@
+package com.brillantcode.gate.remote;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * Assigns keys to the nodes of a cluster by consistent hashing.
+ *
+ * <p>Every node is placed at a number of points of a ring of 64-bit hashes, and a key
+ * belongs to the node of the first point at or after the hash of the key. Adding or removing
+ * a node only moves the keys of the points it gains or loses.
+ *
+ * <p>Keys are hashed from their {@link Object#hashCode()}, which must be the same on all nodes,
+ * as it is for strings, numbers and {@link java.util.UUID UUIDs}. Rings are immutable.
+ */
+public final class ConsistentHashRing {
+
+  public static final int DEFAULT_POINTS_PER_NODE = 128;
+
+  private final Set<String> nodes;
+
+  private final long[] points;
+
+  private final String[] owners;
+
+  /**
+   * Creates the ring of the nodes with the default number of points per node.
+   *
+   * @param nodes The names of the nodes.
+   * @throws IllegalArgumentException If there are no nodes.
+   */
+  public ConsistentHashRing(Collection<String> nodes) {
+    this(nodes, DEFAULT_POINTS_PER_NODE);
+  }
+
+  /**
+   * Creates the ring of the nodes.
+   *
+   * @param nodes         The names of the nodes.
+   * @param pointsPerNode The number of points of each node, more points
+   *                      spreading the keys more evenly.
+   * @throws IllegalArgumentException If there are no nodes or the number of points
+   *                                  is not positive.
+   */
+  public ConsistentHashRing(Collection<String> nodes, int pointsPerNode) {
+    Preconditions.checkNotNull(nodes);
+    Preconditions.checkArgument(!nodes.isEmpty(), "No nodes");
+    Preconditions.checkArgument(pointsPerNode > 0, "Points per node must be positive");
+    this.nodes = ImmutableSet.copyOf(nodes);
+    Point[] ring = new Point[this.nodes.size() * pointsPerNode];
+    int index = 0;
+    for (String node : this.nodes) {
+      for (int i = 0; i < pointsPerNode; i++) {
+        long hash = Hashing.murmur3_128()
+            .hashString(node + '#' + i, StandardCharsets.UTF_8).asLong();
+        ring[index++] = new Point(hash, node);
+      }
+    }
+    // Ties, however unlikely, are broken by the node names to keep the rings of all nodes equal
+    Arrays.sort(ring, Comparator.comparingLong((Point point) -> point.hash)
+        .thenComparing(point -> point.node));
+    this.points = new long[ring.length];
+    this.owners = new String[ring.length];
+    for (int i = 0; i < ring.length; i++) {
+      points[i] = ring[i].hash;
+      owners[i] = ring[i].node;
+    }
+  }
+
+  /**
+   * Returns the node the key belongs to.
+   *
+   * @param key The key.
+   * @return The name of the node.
+   */
+  public String nodeFor(Object key) {
+    Preconditions.checkNotNull(key);
+    long hash = mix(key.hashCode());
+    int index = Arrays.binarySearch(points, hash);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return owners[index == points.length ? 0 : index];
+  }
+
+  /**
+   * Returns the nodes of the ring.
+   *
+   * @return The names of the nodes.
+   */
+  public Set<String> nodes() {
+    return nodes;
+  }
+
+  /**
+   * Spreads the bits of a hash code over 64 bits, with the finalizer of MurmurHash3.
+   */
+  private static long mix(int hashCode) {
+    long hash = hashCode;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private static final class Point {
+
+    private final long hash;
+
+    private final String node;
+
+    Point(long hash, String node) {
+      this.hash = hash;
+      this.node = node;
+    }
+
+  }
+
+}
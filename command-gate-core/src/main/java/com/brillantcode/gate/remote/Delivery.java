@@ -0,0 +1,22 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.Gate;
+
+/**
+ * How the commands sent to a node are passed to its {@link Gate}.
+ */
+public enum Delivery {
+
+  /**
+   * The commands are {@link Gate#dispatchAll dispatched}, the sender is answered
+   * once they are handled.
+   */
+  DISPATCH,
+
+  /**
+   * The commands are {@link Gate#scheduleAll scheduled}, the sender is answered
+   * once they are accepted by the scheduler.
+   */
+  SCHEDULE
+
+}
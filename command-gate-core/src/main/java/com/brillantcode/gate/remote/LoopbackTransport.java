@@ -0,0 +1,101 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link CommandTransport} between the nodes of a {@link Network} within the JVM,
+ * to run a cluster in a single process, e.g. in tests.
+ *
+ * <p>Commands are passed by reference, without being encoded. Failures on the receiving node
+ * are reported as a {@link RemoteCommandException}, as they are over a network.
+ */
+public class LoopbackTransport implements CommandTransport {
+
+  private final Network network;
+
+  private final String node;
+
+  private @Nullable CommandReceiver receiver;
+
+  private LoopbackTransport(Network network, String node) {
+    this.network = network;
+    this.node = node;
+  }
+
+  @Override
+  public synchronized void start(CommandReceiver receiver) {
+    Preconditions.checkNotNull(receiver);
+    Preconditions.checkState(this.receiver == null, "Transport of node %s already started", node);
+    if (network.receivers.putIfAbsent(node, receiver) != null) {
+      throw new IllegalStateException("Node " + node + " is already on the network");
+    }
+    this.receiver = receiver;
+  }
+
+  @Override
+  public CompletableFuture<Void> send(String node, List<Command> commands, Delivery delivery) {
+    Preconditions.checkNotNull(node);
+    Preconditions.checkNotNull(commands);
+    Preconditions.checkNotNull(delivery);
+    @Nullable CommandReceiver receiver = network.receivers.get(node);
+    if (receiver == null) {
+      return CompletableFuture.failedFuture(
+          new TransportException("No node " + node + " on the loopback network"));
+    }
+    CompletableFuture<Void> received;
+    try {
+      received = receiver.receive(new ArrayList<>(commands), delivery);
+    } catch (RuntimeException ex) {
+      received = CompletableFuture.failedFuture(ex);
+    }
+    CompletableFuture<Void> answer = new CompletableFuture<>();
+    received.whenComplete((result, ex) -> {
+      if (ex != null) {
+        answer.completeExceptionally(
+            new RemoteCommandException(node, RemoteCommandException.describe(ex)));
+      } else {
+        answer.complete(null);
+      }
+    });
+    return answer;
+  }
+
+  /**
+   * Removes the node from the network.
+   */
+  @Override
+  public synchronized void close() {
+    @Nullable CommandReceiver receiver = this.receiver;
+    if (receiver != null) {
+      network.receivers.remove(node, receiver);
+    }
+  }
+
+  /**
+   * The nodes reachable from each other through their loopback transports.
+   */
+  public static final class Network {
+
+    private final ConcurrentMap<String, CommandReceiver> receivers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a transport of the node, which joins the network when it is started.
+     *
+     * @param node The name of the node.
+     * @return The transport of the node.
+     */
+    public LoopbackTransport transport(String node) {
+      Preconditions.checkNotNull(node);
+      return new LoopbackTransport(this, node);
+    }
+
+  }
+
+}
@@ -0,0 +1,34 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.GateException;
+import java.util.concurrent.CompletionException;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Indicates that commands sent to another node failed there,
+ * with the description of the failure on that node.
+ */
+public class RemoteCommandException extends GateException {
+
+  private static final long serialVersionUID = 1L;
+
+  public RemoteCommandException(String node, String failure) {
+    super("Commands failed on node " + node + ": " + failure);
+  }
+
+  /**
+   * Describes the failure of the commands, to be sent to the node they came from.
+   */
+  static String describe(Throwable failure) {
+    Throwable cause = failure;
+    while (cause instanceof CompletionException) {
+      @Nullable Throwable next = cause.getCause();
+      if (next == null) {
+        break;
+      }
+      cause = next;
+    }
+    return String.valueOf(cause);
+  }
+
+}
@@ -0,0 +1,222 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.DefaultGate;
+import com.brillantcode.gate.Gate;
+import com.brillantcode.gate.PartitionKeyed;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link Gate} of a node of a cluster, passing each command to the node that owns it.
+ *
+ * <p>The owner of a {@link PartitionKeyed} command is the node its partition key belongs to
+ * on a {@link ConsistentHashRing}, so that the commands of a partition are handled by
+ * the same node. Commands without a partition key, and the commands this node owns, go straight
+ * to the local gate, usually a {@link DefaultGate}. The others are sent with
+ * a {@link CommandTransport} and passed to the local gate of their owner.
+ *
+ * <p>Dispatching and scheduling return once the owner answered, rethrowing the
+ * {@link TransportException} or {@link RemoteCommandException} it failed with. Commands
+ * dispatched or scheduled together are sent with one request per owner, the requests
+ * to different owners being in flight at the same time, so the commands
+ * of different owners are not handled in order.
+ */
+public class RemoteGate implements Gate {
+
+  private final String localNode;
+
+  private final Gate localGate;
+
+  private final CommandTransport transport;
+
+  private final Executor executor;
+
+  private volatile ConsistentHashRing ring;
+
+  /**
+   * Creates the gate of the node.
+   *
+   * @param localNode The name of this node.
+   * @param localGate The gate handling the commands this node owns.
+   * @param ring      The ring of the nodes of the cluster.
+   * @param transport The transport to the other nodes, started with this gate.
+   * @param executor  The executor dispatching and scheduling the commands received
+   *                  from other nodes and completing the futures
+   *                  of {@link #dispatchAsync(Command)}. As dispatching blocks while the
+   *                  commands are handled, it should not be shared with other work,
+   *                  such as the {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+   * @throws NullPointerException If any of the arguments are null.
+   */
+  public RemoteGate(String localNode, Gate localGate, ConsistentHashRing ring,
+                    CommandTransport transport, Executor executor) {
+    Preconditions.checkNotNull(localNode);
+    Preconditions.checkNotNull(localGate);
+    Preconditions.checkNotNull(ring);
+    Preconditions.checkNotNull(transport);
+    Preconditions.checkNotNull(executor);
+    this.localNode = localNode;
+    this.localGate = localGate;
+    this.ring = ring;
+    this.transport = transport;
+    this.executor = executor;
+    transport.start(new LocalReceiver(localGate, executor));
+  }
+
+  @Override
+  public void dispatch(Command cmd) {
+    String node = nodeFor(cmd);
+    if (node.equals(localNode)) {
+      localGate.dispatch(cmd);
+    } else {
+      await(transport.send(node, Collections.singletonList(cmd), Delivery.DISPATCH));
+    }
+  }
+
+  @Override
+  public void schedule(Command cmd) {
+    String node = nodeFor(cmd);
+    if (node.equals(localNode)) {
+      localGate.schedule(cmd);
+    } else {
+      await(transport.send(node, Collections.singletonList(cmd), Delivery.SCHEDULE));
+    }
+  }
+
+  /**
+   * Dispatches the command with the local gate, or sends it to its owner and completes
+   * the returned future in the executor once the owner handled it.
+   *
+   * @param cmd The {@link Command} to process.
+   * @return A future of the processing of the command.
+   */
+  @Override
+  public CompletableFuture<Void> dispatchAsync(Command cmd) {
+    String node = nodeFor(cmd);
+    if (node.equals(localNode)) {
+      return localGate.dispatchAsync(cmd);
+    }
+    // Keeps the callbacks of the caller off the threads of the transport
+    return transport.send(node, Collections.singletonList(cmd), Delivery.DISPATCH)
+        .whenCompleteAsync((result, ex) -> { }, executor);
+  }
+
+  @Override
+  public void dispatchAll(Collection<? extends Command> cmds) {
+    sendAll(cmds, Delivery.DISPATCH);
+  }
+
+  @Override
+  public void scheduleAll(Collection<? extends Command> cmds) {
+    sendAll(cmds, Delivery.SCHEDULE);
+  }
+
+  /**
+   * Returns the node owning the command.
+   *
+   * @param cmd The command.
+   * @return The name of the owner.
+   */
+  public String nodeFor(Command cmd) {
+    Preconditions.checkNotNull(cmd);
+    if (!(cmd instanceof PartitionKeyed)) {
+      return localNode;
+    }
+    @Nullable Object key = ((PartitionKeyed) cmd).partitionKey();
+    return key == null ? localNode : ring.nodeFor(key);
+  }
+
+  /**
+   * Replaces the ring, e.g. when nodes join or leave the cluster. Commands sent before
+   * are still handled by the owners they were sent to.
+   *
+   * @param ring The new ring.
+   */
+  public void updateRing(ConsistentHashRing ring) {
+    Preconditions.checkNotNull(ring);
+    this.ring = ring;
+  }
+
+  /**
+   * Returns the current ring.
+   *
+   * @return The ring of the nodes of the cluster.
+   */
+  public ConsistentHashRing ring() {
+    return ring;
+  }
+
+  private void sendAll(Collection<? extends Command> cmds, Delivery delivery) {
+    Preconditions.checkNotNull(cmds);
+    Map<String, List<Command>> byNode = new LinkedHashMap<>();
+    for (Command cmd : cmds) {
+      byNode.computeIfAbsent(nodeFor(cmd), node -> new ArrayList<>()).add(cmd);
+    }
+    List<CompletableFuture<Void>> sent = new ArrayList<>(byNode.size());
+    for (Map.Entry<String, List<Command>> entry : byNode.entrySet()) {
+      if (!entry.getKey().equals(localNode)) {
+        sent.add(transport.send(entry.getKey(), entry.getValue(), delivery));
+      }
+    }
+    @Nullable List<Command> local = byNode.get(localNode);
+    if (local != null) {
+      if (delivery == Delivery.DISPATCH) {
+        localGate.dispatchAll(local);
+      } else {
+        localGate.scheduleAll(local);
+      }
+    }
+    await(CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])));
+  }
+
+  private static void await(CompletableFuture<Void> future) {
+    try {
+      future.join();
+    } catch (CompletionException ex) {
+      @Nullable Throwable cause = ex.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw ex;
+    }
+  }
+
+  /**
+   * Passes the commands received from other nodes to the local gate in the executor,
+   * as the threads of the transport must not block on the gate.
+   */
+  private static final class LocalReceiver implements CommandReceiver {
+
+    private final Gate localGate;
+
+    private final Executor executor;
+
+    LocalReceiver(Gate localGate, Executor executor) {
+      this.localGate = localGate;
+      this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> receive(List<Command> commands, Delivery delivery) {
+      if (delivery == Delivery.DISPATCH) {
+        return CompletableFuture.runAsync(() -> localGate.dispatchAll(commands), executor);
+      }
+      // Scheduling may block, e.g. on a journal commit or a full queue
+      return CompletableFuture.runAsync(() -> localGate.scheduleAll(commands), executor);
+    }
+
+  }
+
+}
@@ -0,0 +1,702 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.codec.CommandCodecs;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link CommandTransport} over plain TCP connections, driven by a single selector thread.
+ *
+ * <p>A node opens one connection to each node it sends commands to and pipelines its
+ * requests over it, matching the answers to the requests by their identifier. The commands of
+ * a request are encoded with the {@link CommandCodecs} by the sending thread straight into
+ * the outgoing buffer of the connection, and the frames written while the selector thread
+ * is busy are sent together with the next write. All the nodes must have the codecs
+ * of the same command types.
+ *
+ * <p>Frames are made of their length, their kind and the identifier of the request.
+ * A request goes on with the {@link Delivery} and the encoded commands, an answer
+ * with whether the commands failed and the description of the failure.
+ *
+ * <p>The commands received are passed to the {@link CommandReceiver} on the selector thread,
+ * which must pass them on to other threads to be handled.
+ *
+ * <p>The connections are neither authenticated nor encrypted: any host reaching the port
+ * may send commands to the gate, and read those sent to it. Listen on a trusted network only,
+ * or carry the connections over TLS, such as a VPN or a service mesh. As reading Java
+ * serialization from the network may run arbitrary code, the transport refuses codecs
+ * that {@link CommandCodecs#usesJavaSerialization() use it}.
+ *
+ * <p>Connecting to a node blocks the first thread sending to it, up to the connect timeout.
+ * Sending does not wait for the node to read: once the frames waiting for it reach
+ * {@link #MAX_OUTGOING_SIZE}, sending more fails with a {@link TransportException}.
+ */
+public class TcpCommandTransport implements CommandTransport {
+
+  /**
+   * The size of the largest frame accepted, larger frames close the connection.
+   */
+  public static final int MAX_FRAME_SIZE = 64 << 20;
+
+  /**
+   * The size of the frames waiting to be sent to a node, besides those being written,
+   * above which sending fails: the node does not read what it is sent.
+   */
+  public static final int MAX_OUTGOING_SIZE = Integer.BYTES + MAX_FRAME_SIZE;
+
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+  private static final int BUFFER_SIZE = 64 << 10;
+
+  private static final byte REQUEST = 1;
+
+  private static final byte ANSWER = 2;
+
+  private static final byte HANDLED = 0;
+
+  private static final byte FAILED = 1;
+
+  private static final Delivery[] DELIVERIES = Delivery.values();
+
+  private final Map<String, InetSocketAddress> nodeAddresses;
+
+  private final CommandCodecs codecs;
+
+  private final int connectTimeoutMillis;
+
+  private final Selector selector;
+
+  private final ServerSocketChannel server;
+
+  private final ConcurrentMap<String, Connection> connections = new ConcurrentHashMap<>();
+
+  private final Queue<Connection> registrations = new ConcurrentLinkedQueue<>();
+
+  private final Queue<Connection> flushes = new ConcurrentLinkedQueue<>();
+
+  private final AtomicLong requestIds = new AtomicLong();
+
+  private volatile @Nullable CommandReceiver receiver;
+
+  private volatile boolean open = true;
+
+  private @Nullable Thread selectorThread;
+
+  private TcpCommandTransport(Map<String, InetSocketAddress> nodeAddresses, CommandCodecs codecs,
+                              Duration connectTimeout, Selector selector,
+                              ServerSocketChannel server) {
+    this.nodeAddresses = nodeAddresses;
+    this.codecs = codecs;
+    this.connectTimeoutMillis = (int) Math.min(Integer.MAX_VALUE,
+        Math.max(1, connectTimeout.toMillis()));
+    this.selector = selector;
+    this.server = server;
+  }
+
+  /**
+   * Opens the transport, listening to the given address and connecting to the nodes
+   * within the {@link #DEFAULT_CONNECT_TIMEOUT}.
+   *
+   * @param bindAddress   The address to listen to, with the port 0 to pick a free one.
+   * @param nodeAddresses The addresses of the nodes by name, looked up when connecting to
+   *                      a node for the first time or again after a failure. A concurrent map
+   *                      may be updated as nodes join the cluster.
+   * @param codecs        The codecs of the commands.
+   * @return The opened transport.
+   * @throws IllegalArgumentException If the codecs use Java serialization.
+   * @throws TransportException       If the transport cannot listen to the address.
+   */
+  public static TcpCommandTransport open(InetSocketAddress bindAddress,
+                                         Map<String, InetSocketAddress> nodeAddresses,
+                                         CommandCodecs codecs) {
+    return open(bindAddress, nodeAddresses, codecs, DEFAULT_CONNECT_TIMEOUT);
+  }
+
+  /**
+   * Opens the transport, listening to the given address.
+   *
+   * @param bindAddress    The address to listen to, with the port 0 to pick a free one.
+   * @param nodeAddresses  The addresses of the nodes by name, looked up when connecting to
+   *                       a node for the first time or again after a failure. A concurrent map
+   *                       may be updated as nodes join the cluster.
+   * @param codecs         The codecs of the commands.
+   * @param connectTimeout The longest time to wait for a connection to a node.
+   * @return The opened transport.
+   * @throws IllegalArgumentException If the codecs use Java serialization,
+   *                                  or the timeout is not positive.
+   * @throws TransportException       If the transport cannot listen to the address.
+   */
+  public static TcpCommandTransport open(InetSocketAddress bindAddress,
+                                         Map<String, InetSocketAddress> nodeAddresses,
+                                         CommandCodecs codecs, Duration connectTimeout) {
+    Preconditions.checkNotNull(bindAddress);
+    Preconditions.checkNotNull(nodeAddresses);
+    Preconditions.checkNotNull(codecs);
+    Preconditions.checkNotNull(connectTimeout);
+    Preconditions.checkArgument(!connectTimeout.isNegative() && !connectTimeout.isZero(),
+        "Connect timeout must be positive");
+    Preconditions.checkArgument(!codecs.usesJavaSerialization(),
+        "Codecs using Java serialization cannot read commands from the network");
+    try {
+      Selector selector = Selector.open();
+      ServerSocketChannel server = ServerSocketChannel.open();
+      server.bind(bindAddress);
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+      TcpCommandTransport transport =
+          new TcpCommandTransport(nodeAddresses, codecs, connectTimeout, selector, server);
+      transport.startSelector();
+      return transport;
+    } catch (IOException ex) {
+      throw new TransportException("Cannot listen to " + bindAddress, ex);
+    }
+  }
+
+  /**
+   * Returns the address the transport listens to.
+   *
+   * @return The local address.
+   * @throws TransportException If the transport is closed.
+   */
+  public InetSocketAddress localAddress() {
+    try {
+      @Nullable SocketAddress address = server.getLocalAddress();
+      if (address == null) {
+        throw new TransportException("Transport is not bound");
+      }
+      return (InetSocketAddress) address;
+    } catch (IOException ex) {
+      throw new TransportException("Transport is closed", ex);
+    }
+  }
+
+  @Override
+  public void start(CommandReceiver receiver) {
+    Preconditions.checkNotNull(receiver);
+    synchronized (this) {
+      Preconditions.checkState(this.receiver == null, "Transport already started");
+      this.receiver = receiver;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> send(String node, List<Command> commands, Delivery delivery) {
+    Preconditions.checkNotNull(node);
+    Preconditions.checkNotNull(commands);
+    Preconditions.checkNotNull(delivery);
+    if (!open) {
+      return CompletableFuture.failedFuture(new TransportException("Transport is closed"));
+    }
+    @Nullable Connection connection = connections.get(node);
+    if (connection == null) {
+      try {
+        connection = connect(node);
+      } catch (TransportException ex) {
+        return CompletableFuture.failedFuture(ex);
+      }
+    }
+    if (!open) {
+      // Closed while connecting, the selector thread may be gone already
+      connection.close(new TransportException("Transport is closed"));
+    }
+    return connection.request(commands, delivery);
+  }
+
+  /**
+   * Stops the selector thread and closes the connections, failing the requests
+   * waiting for an answer.
+   *
+   * <p>If interrupted while waiting for the selector thread, returns with the interrupt
+   * status set, the selector thread closing the connections in the background.
+   */
+  @Override
+  public void close() {
+    @Nullable Thread selectorThread;
+    synchronized (this) {
+      if (!open) {
+        return;
+      }
+      open = false;
+      selectorThread = this.selectorThread;
+    }
+    selector.wakeup();
+    if (selectorThread != null) {
+      try {
+        selectorThread.join();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private synchronized void startSelector() {
+    Thread thread = new Thread(this::select, "command-gate-transport");
+    thread.setDaemon(true);
+    this.selectorThread = thread;
+    thread.start();
+  }
+
+  /**
+   * Connects to the node, outside of the map of the connections so that connecting
+   * does not block the threads sending to other nodes.
+   *
+   * @return The connection to the node, this one or the one of a concurrent sender.
+   */
+  private Connection connect(String node) {
+    @Nullable InetSocketAddress address = nodeAddresses.get(node);
+    if (address == null) {
+      throw new TransportException("No address of node " + node);
+    }
+    SocketChannel channel;
+    try {
+      channel = SocketChannel.open();
+    } catch (IOException ex) {
+      throw new TransportException("Cannot connect to node " + node + " at " + address, ex);
+    }
+    Connection connection = new Connection(channel, node);
+    try {
+      channel.socket().connect(address, connectTimeoutMillis);
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    } catch (IOException ex) {
+      TransportException failure =
+          new TransportException("Cannot connect to node " + node + " at " + address, ex);
+      connection.close(failure);
+      throw failure;
+    }
+    @Nullable Connection previous = connections.putIfAbsent(node, connection);
+    if (previous != null) {
+      connection.close(new TransportException("Connected to node " + node + " concurrently"));
+      return previous;
+    }
+    registrations.add(connection);
+    selector.wakeup();
+    return connection;
+  }
+
+  private void select() {
+    try {
+      while (open) {
+        selector.select();
+        for (@Nullable Connection connection = registrations.poll(); connection != null;
+             connection = registrations.poll()) {
+          connection.register();
+        }
+        for (@Nullable Connection connection = flushes.poll(); connection != null;
+             connection = flushes.poll()) {
+          connection.flushOrClose();
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+            continue;
+          }
+          @Nullable Object attachment = key.attachment();
+          if (attachment instanceof Connection) {
+            Connection connection = (Connection) attachment;
+            try {
+              if (key.isReadable()) {
+                connection.read();
+              }
+              if (key.isValid() && key.isWritable()) {
+                connection.flush();
+              }
+            } catch (IOException | RuntimeException ex) {
+              connection.close(ex);
+            }
+          }
+        }
+      }
+    } catch (IOException ex) {
+      open = false;
+    } finally {
+      for (Connection connection : connections.values()) {
+        connection.close(new TransportException("Transport is closed"));
+      }
+      for (SelectionKey key : selector.keys()) {
+        @Nullable Object attachment = key.attachment();
+        if (attachment instanceof Connection) {
+          ((Connection) attachment).close(new TransportException("Transport is closed"));
+        }
+      }
+      try {
+        server.close();
+        selector.close();
+      } catch (IOException ex) {
+        // Nothing is left to release
+      }
+    }
+  }
+
+  private void accept() throws IOException {
+    @Nullable SocketChannel channel = server.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    new Connection(channel, null).register();
+  }
+
+  private static ByteBuffer grow(ByteBuffer buffer, int keep, int capacity) {
+    ByteBuffer grown = ByteBuffer.allocate(capacity);
+    buffer.limit(keep).position(0);
+    grown.put(buffer);
+    return grown;
+  }
+
+  /**
+   * A connection to another node, opened by either node. Requests are only sent
+   * on the connections this node opened.
+   */
+  private final class Connection {
+
+    private final SocketChannel channel;
+
+    private final @Nullable String node;
+
+    private final ConcurrentMap<Long, CompletableFuture<Void>> pendingAnswers =
+        new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The frames to be written, guarded by the lock.
+     */
+    private ByteBuffer outgoing = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * True while the connection is waiting to be flushed, guarded by the lock.
+     */
+    private boolean flushPending;
+
+    private boolean closed;
+
+    /**
+     * The frames being written by the selector thread.
+     */
+    private ByteBuffer flushing = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+    /**
+     * The bytes read by the selector thread, up to an incomplete frame.
+     */
+    private ByteBuffer incoming = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private @Nullable SelectionKey key;
+
+    Connection(SocketChannel channel, @Nullable String node) {
+      this.channel = channel;
+      this.node = node;
+    }
+
+    CompletableFuture<Void> request(List<Command> commands, Delivery delivery) {
+      long id = requestIds.incrementAndGet();
+      CompletableFuture<Void> answer = new CompletableFuture<>();
+      pendingAnswers.put(id, answer);
+      try {
+        enqueue(buffer -> {
+          buffer.put(REQUEST);
+          buffer.putLong(id);
+          buffer.put((byte) delivery.ordinal());
+          buffer.putInt(commands.size());
+          for (Command command : commands) {
+            codecs.encode(command, buffer);
+          }
+        });
+      } catch (RuntimeException ex) {
+        pendingAnswers.remove(id);
+        answer.completeExceptionally(ex);
+      }
+      return answer;
+    }
+
+    void answer(long id, @Nullable Throwable failure) {
+      byte[] description = failure == null ? new byte[0]
+          : RemoteCommandException.describe(failure).getBytes(StandardCharsets.UTF_8);
+      try {
+        enqueue(buffer -> {
+          buffer.put(ANSWER);
+          buffer.putLong(id);
+          buffer.put(failure == null ? HANDLED : FAILED);
+          buffer.putInt(description.length);
+          buffer.put(description);
+        });
+      } catch (TransportException ex) {
+        // Closed or not read, the other node fails the request once the connection closes
+        close(ex);
+      }
+    }
+
+    /**
+     * Writes a frame to the outgoing buffer, to be sent with the next flush.
+     *
+     * @throws TransportException If the connection is closed or the outgoing buffer is full.
+     */
+    private void enqueue(Consumer<ByteBuffer> frame) {
+      boolean flush;
+      lock.lock();
+      try {
+        if (closed) {
+          throw new TransportException("Connection to " + describe() + " is closed");
+        }
+        int start = outgoing.position();
+        while (!write(frame, start)) {
+          if (outgoing.capacity() - start >= Integer.BYTES + MAX_FRAME_SIZE) {
+            outgoing.position(start);
+            throw new IllegalArgumentException(
+                "Frame is larger than " + MAX_FRAME_SIZE + " bytes");
+          }
+          if (outgoing.capacity() >= MAX_OUTGOING_SIZE) {
+            outgoing.position(start);
+            throw new TransportException("Frames waiting to be sent to " + describe()
+                + " exceed " + MAX_OUTGOING_SIZE + " bytes");
+          }
+          outgoing = grow(outgoing, start,
+              (int) Math.min(MAX_OUTGOING_SIZE, outgoing.capacity() * 2L));
+        }
+        flush = !flushPending;
+        flushPending = true;
+      } finally {
+        lock.unlock();
+      }
+      if (flush) {
+        flushes.add(this);
+        selector.wakeup();
+      }
+    }
+
+    /**
+     * Writes the frame after the frames before the given position.
+     *
+     * @return False if the frame does not fit in the outgoing buffer.
+     */
+    private boolean write(Consumer<ByteBuffer> frame, int start) {
+      if (outgoing.capacity() - start < Integer.BYTES) {
+        return false;
+      }
+      outgoing.position(start + Integer.BYTES);
+      try {
+        frame.accept(outgoing);
+      } catch (BufferOverflowException ex) {
+        return false;
+      } catch (RuntimeException ex) {
+        outgoing.position(start);
+        throw ex;
+      }
+      int length = outgoing.position() - start - Integer.BYTES;
+      if (length > MAX_FRAME_SIZE) {
+        outgoing.position(start);
+        throw new IllegalArgumentException(
+            "Frame of " + length + " bytes is larger than " + MAX_FRAME_SIZE + " bytes");
+      }
+      outgoing.putInt(start, length);
+      return true;
+    }
+
+    void register() {
+      try {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+      } catch (IOException ex) {
+        close(ex);
+      }
+    }
+
+    void flushOrClose() {
+      try {
+        flush();
+      } catch (IOException | RuntimeException ex) {
+        close(ex);
+      }
+    }
+
+    /**
+     * Writes the outgoing frames, swapping the buffers once the previous ones are written.
+     */
+    void flush() throws IOException {
+      while (true) {
+        if (!flushing.hasRemaining()) {
+          lock.lock();
+          try {
+            if (outgoing.position() == 0) {
+              flushPending = false;
+              interest(SelectionKey.OP_READ);
+              return;
+            }
+            ByteBuffer written = flushing;
+            flushing = outgoing.flip();
+            outgoing = written.clear();
+          } finally {
+            lock.unlock();
+          }
+        }
+        channel.write(flushing);
+        if (flushing.hasRemaining()) {
+          interest(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+          return;
+        }
+      }
+    }
+
+    void read() throws IOException {
+      if (channel.read(incoming) < 0) {
+        throw new TransportException("Connection closed by " + describe());
+      }
+      incoming.flip();
+      while (incoming.remaining() >= Integer.BYTES) {
+        int length = incoming.getInt(incoming.position());
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+          throw new TransportException("Frame of " + length + " bytes from " + describe());
+        }
+        if (incoming.remaining() < Integer.BYTES + length) {
+          break;
+        }
+        int start = incoming.position() + Integer.BYTES;
+        ByteBuffer frame = incoming.duplicate();
+        frame.position(start).limit(start + length);
+        receive(frame);
+        incoming.position(start + length);
+      }
+      incoming.compact();
+      if (incoming.position() >= Integer.BYTES) {
+        int frameSize = Integer.BYTES + incoming.getInt(0);
+        if (frameSize > incoming.capacity()) {
+          incoming = grow(incoming, incoming.position(), frameSize);
+        }
+      }
+    }
+
+    private void receive(ByteBuffer frame) {
+      byte kind = frame.get();
+      long id = frame.getLong();
+      if (kind == REQUEST) {
+        CompletableFuture<Void> handled;
+        try {
+          Delivery delivery = DELIVERIES[frame.get()];
+          int count = frame.getInt();
+          // Encoded commands start with their tag, a larger count is not to be trusted
+          if (count < 0 || count > frame.remaining() / Integer.BYTES) {
+            throw new TransportException(
+                "Request of " + count + " commands from " + describe() + " is malformed");
+          }
+          List<Command> commands = new ArrayList<>(count);
+          for (int i = 0; i < count; i++) {
+            commands.add(codecs.decode(frame));
+          }
+          @Nullable CommandReceiver receiver = TcpCommandTransport.this.receiver;
+          handled = receiver == null
+              ? CompletableFuture.failedFuture(new TransportException("Transport not started"))
+              : receiver.receive(commands, delivery);
+        } catch (RuntimeException ex) {
+          handled = CompletableFuture.failedFuture(ex);
+        }
+        handled.whenComplete((result, ex) -> answer(id, ex));
+      } else if (kind == ANSWER) {
+        @Nullable CompletableFuture<Void> answer = pendingAnswers.remove(id);
+        if (answer == null) {
+          return;
+        }
+        if (frame.get() == HANDLED) {
+          answer.complete(null);
+        } else {
+          int length = frame.getInt();
+          if (length < 0 || length > frame.remaining()) {
+            answer.completeExceptionally(new TransportException(
+                "Answer with a description of " + length + " bytes from " + describe()
+                    + " is malformed"));
+            return;
+          }
+          byte[] description = new byte[length];
+          frame.get(description);
+          answer.completeExceptionally(new RemoteCommandException(describe(),
+              new String(description, StandardCharsets.UTF_8)));
+        }
+      }
+    }
+
+    private void interest(int ops) {
+      @Nullable SelectionKey key = this.key;
+      if (key != null && key.isValid()) {
+        key.interestOps(ops);
+      }
+    }
+
+    void close(Throwable cause) {
+      lock.lock();
+      try {
+        if (closed) {
+          return;
+        }
+        closed = true;
+      } finally {
+        lock.unlock();
+      }
+      @Nullable String node = this.node;
+      if (node != null) {
+        connections.remove(node, this);
+      }
+      @Nullable SelectionKey key = this.key;
+      if (key != null) {
+        key.cancel();
+      }
+      try {
+        channel.close();
+      } catch (IOException ex) {
+        // Closed all the same
+      }
+      TransportException failure = cause instanceof TransportException
+          ? (TransportException) cause
+          : new TransportException("Connection to " + describe() + " failed", cause);
+      for (Long id : pendingAnswers.keySet()) {
+        @Nullable CompletableFuture<Void> answer = pendingAnswers.remove(id);
+        if (answer != null) {
+          answer.completeExceptionally(failure);
+        }
+      }
+    }
+
+    private String describe() {
+      @Nullable String node = this.node;
+      if (node != null) {
+        return node;
+      }
+      try {
+        return String.valueOf(channel.getRemoteAddress());
+      } catch (IOException ex) {
+        return "a closed connection";
+      }
+    }
+
+  }
+
+}
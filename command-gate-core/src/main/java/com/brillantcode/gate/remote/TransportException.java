@@ -0,0 +1,20 @@
+package com.brillantcode.gate.remote;
+
+import com.brillantcode.gate.GateException;
+
+/**
+ * Indicates that a {@link CommandTransport} could not reach a node.
+ */
+public class TransportException extends GateException {
+
+  private static final long serialVersionUID = 1L;
+
+  public TransportException(String message) {
+    super(message);
+  }
+
+  public TransportException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+}
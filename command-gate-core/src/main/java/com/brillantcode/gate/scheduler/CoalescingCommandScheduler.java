@@ -0,0 +1,186 @@
+package com.brillantcode.gate.scheduler;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link CommandScheduler} decorator that keeps at most one runner per command type
+ * and {@link CommandRunner#coalescingKey() coalescing key} waiting to run.
+ *
+ * <p>A runner scheduled while another one of the same type and key waits in the
+ * decorated scheduler is {@link CommandRunner#coalesce(CommandRunner) merged} into it
+ * and not scheduled again. Once a runner starts, the next one with its key
+ * is scheduled as usual, so it runs after the changes the started one made.
+ * Runners without a coalescing key are passed to the decorated scheduler as they are.
+ *
+ * <p>Merging takes a lock on the waiting runner only, runners with different keys
+ * do not contend.
+ *
+ * @see com.brillantcode.gate.Coalescible
+ */
+public class CoalescingCommandScheduler implements CommandScheduler {
+
+  private final CommandScheduler delegate;
+
+  private final ConcurrentMap<Key, PendingRunner> pending = new ConcurrentHashMap<>();
+
+  public CoalescingCommandScheduler(CommandScheduler delegate) {
+    Preconditions.checkNotNull(delegate);
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void schedule(CommandRunner runner) {
+    Preconditions.checkNotNull(runner);
+    @Nullable Object coalescingKey = runner.coalescingKey();
+    if (coalescingKey == null) {
+      delegate.schedule(runner);
+      return;
+    }
+    Key key = new Key(runner.commandType(), coalescingKey);
+    while (true) {
+      @Nullable PendingRunner queued = pending.get(key);
+      if (queued != null) {
+        if (queued.merge(runner)) {
+          return;
+        }
+        // Started meanwhile, it removes itself but may not have done it yet
+        pending.remove(key, queued);
+        continue;
+      }
+      PendingRunner created = new PendingRunner(pending, key, runner);
+      if (pending.putIfAbsent(key, created) == null) {
+        schedule(created);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the number of runners waiting to run that other runners may be merged into.
+   *
+   * @return The number of pending runners.
+   */
+  public int pendingRunners() {
+    return pending.size();
+  }
+
+  private void schedule(PendingRunner created) {
+    try {
+      delegate.schedule(created);
+    } catch (RuntimeException ex) {
+      // The caller hears of the original, the runners merged into it would not
+      @Nullable CommandRunner merged = created.takeMerged();
+      if (merged != null) {
+        merged.discard();
+      }
+      throw ex;
+    }
+  }
+
+  private static final class Key {
+
+    private final @Nullable Class<? extends Command> commandType;
+
+    private final Object coalescingKey;
+
+    Key(@Nullable Class<? extends Command> commandType, Object coalescingKey) {
+      this.commandType = commandType;
+      this.coalescingKey = coalescingKey;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return commandType == key.commandType && coalescingKey.equals(key.coalescingKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Objects.hashCode(commandType) + coalescingKey.hashCode();
+    }
+
+  }
+
+  private static final class PendingRunner implements CommandRunner {
+
+    private final ConcurrentMap<Key, PendingRunner> pending;
+
+    private final Key key;
+
+    private final CommandRunner original;
+
+    /**
+     * The runners merged in after the original, coalesced with each other,
+     * kept apart so that a rejection of the original leaves them to be discarded.
+     */
+    private @Nullable CommandRunner merged;
+
+    private boolean started;
+
+    PendingRunner(ConcurrentMap<Key, PendingRunner> pending, Key key, CommandRunner runner) {
+      this.pending = pending;
+      this.key = key;
+      this.original = runner;
+    }
+
+    synchronized boolean merge(CommandRunner newer) {
+      if (started) {
+        return false;
+      }
+      @Nullable CommandRunner merged = this.merged;
+      this.merged = merged == null ? newer : merged.coalesce(newer);
+      return true;
+    }
+
+    CommandRunner take() {
+      @Nullable CommandRunner merged = takeMerged();
+      return merged == null ? original : original.coalesce(merged);
+    }
+
+    @Nullable CommandRunner takeMerged() {
+      @Nullable CommandRunner taken;
+      synchronized (this) {
+        started = true;
+        taken = merged;
+        merged = null;
+      }
+      pending.remove(key, this);
+      return taken;
+    }
+
+    @Override
+    public void run() {
+      take().run();
+    }
+
+    @Override
+    public void discard() {
+      take().discard();
+    }
+
+    @Override
+    public @Nullable Class<? extends Command> commandType() {
+      return original.commandType();
+    }
+
+    @Override
+    public @Nullable Object partitionKey() {
+      return original.partitionKey();
+    }
+
+    @Override
+    public int priority() {
+      return original.priority();
+    }
+
+  }
+
+}
@@ -1,5 +1,10 @@
 package com.brillantcode.gate.scheduler;
 
+import com.brillantcode.gate.Command;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 /**
  * Command runner interface implementation should
  * commence an execution of a {@link com.brillantcode.gate.Command}.
@@ -7,15 +12,111 @@ package com.brillantcode.gate.scheduler;
  * <p>It is up to the implementation to decide what it exactly means
  * to commence a command execution and how it's done.
  *
+ * <p>Runners are {@link Runnable runnables}, so that schedulers backed by
+ * a {@link java.util.concurrent.Executor} can submit them without a wrapper.
+ *
  * @see CommandScheduler
  */
 @FunctionalInterface
-public interface CommandRunner {
+public interface CommandRunner extends Runnable {
+
+  /**
+   * The {@link #priority() priority} of the runners whose command does not tell it,
+   * outside of the range of the priorities of the commands.
+   */
+  int NO_PRIORITY = Integer.MIN_VALUE;
 
   /**
    * Called by the {@link CommandScheduler} implementations
    * when the command is supposed to be executed.
    */
+  @Override
   void run();
 
+  /**
+   * Called by the {@link CommandScheduler} implementations
+   * when the command is dropped and will never be executed,
+   * e.g. by the {@link SaturationPolicy#DROP_OLDEST} policy.
+   *
+   * <p>Does nothing by default.
+   */
+  default void discard() {
+  }
+
+  /**
+   * Returns the type of the {@link Command} executed by the runner,
+   * used by the {@link CommandScheduler} implementations
+   * that treat command types differently.
+   *
+   * @return The type of the command, or null if unknown.
+   */
+  default @Nullable Class<? extends Command> commandType() {
+    return null;
+  }
+
+  /**
+   * Returns the {@link Command commands} executed by the runner,
+   * used by the {@link CommandScheduler} implementations that keep a copy of them
+   * outside of the heap.
+   *
+   * @return The commands of the runner, or an empty list if unknown.
+   */
+  default List<Command> commands() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Returns the partition key of the {@link Command} executed by the runner,
+   * used by the {@link CommandScheduler} implementations that keep
+   * the commands of a partition in order.
+   *
+   * @return The partition key, or null if the command is not partitioned.
+   * @see com.brillantcode.gate.PartitionKeyed
+   */
+  default @Nullable Object partitionKey() {
+    return null;
+  }
+
+  /**
+   * Returns the priority of the {@link Command} executed by the runner,
+   * used by the {@link CommandScheduler} implementations that start
+   * the runners with higher priorities first.
+   *
+   * @return The priority of the command, or {@link #NO_PRIORITY} if the command
+   *     does not tell it.
+   * @see com.brillantcode.gate.Prioritized
+   */
+  default int priority() {
+    return NO_PRIORITY;
+  }
+
+  /**
+   * Returns the coalescing key of the {@link Command} executed by the runner,
+   * used by the {@link CommandScheduler} implementations that merge the runners
+   * waiting to run with the same key.
+   *
+   * @return The coalescing key, or null if the command is not coalescible.
+   * @see com.brillantcode.gate.Coalescible
+   */
+  default @Nullable Object coalescingKey() {
+    return null;
+  }
+
+  /**
+   * Called by the {@link CommandScheduler} implementations to merge a newer runner
+   * with an equal {@link #coalescingKey() coalescing key} into this one,
+   * while this one still waits to run.
+   *
+   * <p>The runners replaced by the returned one are neither run nor discarded
+   * by the scheduler. By default the newer runner supersedes this one,
+   * which is discarded.
+   *
+   * @param newer The newer runner.
+   * @return The runner to run in place of both.
+   */
+  default CommandRunner coalesce(CommandRunner newer) {
+    discard();
+    return newer;
+  }
+
 }
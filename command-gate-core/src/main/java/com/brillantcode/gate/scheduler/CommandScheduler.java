@@ -1,5 +1,10 @@
 package com.brillantcode.gate.scheduler;
 
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
 /**
  * Interface for scheduling {@link com.brillantcode.gate.Command} executions.
  */
@@ -16,4 +21,63 @@ public interface CommandScheduler {
    */
   void schedule(CommandRunner runner);
 
+  /**
+   * Schedule the execution of a {@link com.brillantcode.gate.Command} once the delay is over.
+   *
+   * <p>By default the {@link TimingWheel#shared() shared timing wheel} hands the runner over
+   * to the {@link TimingWheel#sharedExecutor() shared executor} when the delay is over, which
+   * {@link #schedule(CommandRunner) schedules} it, so that a scheduler blocking, e.g. on
+   * a journal commit or a full queue, does not hold up the other tasks of the wheel.
+   * If the runner is rejected then, by the shared executor or by this scheduler,
+   * the exception is reported to the uncaught exception handler of the thread running it,
+   * and a runner rejected by the shared executor is {@link CommandRunner#discard() discarded}.
+   *
+   * <p>The runner only reaches this scheduler when due, so a decorator such as
+   * a {@link com.brillantcode.gate.journal.JournalingCommandScheduler} does not see it
+   * before: a delayed command is lost if the application stops while it waits.
+   *
+   * @param runner The {@link CommandRunner} to execute
+   *               the {@link com.brillantcode.gate.Command}.
+   * @param delay  The delay, from now.
+   * @return The handle of the delayed execution.
+   * @throws IllegalArgumentException If the delay is negative.
+   */
+  default ScheduledTask schedule(CommandRunner runner, Duration delay) {
+    Preconditions.checkNotNull(runner);
+    return TimingWheel.shared().schedule(() -> handOver(runner), delay);
+  }
+
+  /**
+   * Schedule the execution of a {@link com.brillantcode.gate.Command} once the initial delay
+   * is over, then every period until cancelled.
+   *
+   * <p>Each execution has a runner of its own, so that runners may be merged or discarded
+   * like the runners scheduled one by one. Executions may overlap when they last longer
+   * than the period. By default the {@link TimingWheel#shared() shared timing wheel} hands
+   * the runners over to the {@link TimingWheel#sharedExecutor() shared executor}, which
+   * {@link #schedule(CommandRunner) schedules} them. Like delayed runners, they are
+   * not journaled before they are due.
+   *
+   * @param runners      The supplier of the runner of each execution.
+   * @param initialDelay The delay of the first execution, from now.
+   * @param period       The time between the executions.
+   * @return The handle of the periodic executions.
+   * @throws IllegalArgumentException If the delay is negative, or the period is not positive.
+   */
+  default ScheduledTask scheduleAtFixedRate(Supplier<? extends CommandRunner> runners,
+                                            Duration initialDelay, Duration period) {
+    Preconditions.checkNotNull(runners);
+    return TimingWheel.shared().scheduleAtFixedRate(
+        () -> handOver(runners.get()), initialDelay, period);
+  }
+
+  private void handOver(CommandRunner runner) {
+    try {
+      TimingWheel.sharedExecutor().execute(() -> schedule(runner));
+    } catch (RejectedExecutionException ex) {
+      runner.discard();
+      throw ex;
+    }
+  }
+
 }
@@ -8,6 +8,9 @@ import java.util.concurrent.Executor;
  * a Java {@link Executor} provided to schedule
  * {@link com.brillantcode.gate.Command} execution.
  *
+ * <p>Runners are submitted to the executor as they are, so that
+ * saturation policies discarding queued tasks recognize them.
+ *
  * <p>Clients are responsible for managing
  * and shutting down the {@link Executor}.
  */
@@ -22,7 +25,7 @@ public class JavaExecutorCommandScheduler implements CommandScheduler {
 
   @Override
   public void schedule(CommandRunner runner) {
-    executor.execute(runner::run);
+    executor.execute(runner);
   }
 
 }
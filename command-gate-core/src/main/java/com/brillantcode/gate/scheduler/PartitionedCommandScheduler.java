@@ -0,0 +1,288 @@
+package com.brillantcode.gate.scheduler;
+
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of {@link CommandScheduler} that runs the commands
+ * with the same partition key in order.
+ *
+ * <p>Commands are routed by their {@link CommandRunner#partitionKey() partition key}
+ * to one of a fixed number of lanes. A lane runs one command at a time,
+ * in the order the commands were scheduled, on a thread of the {@link Executor} provided.
+ * Different lanes run in parallel, so commands with different keys
+ * only wait for each other when their keys share a lane.
+ * Commands without a partition key are executed directly, in no particular order.
+ *
+ * <p>Each lane holds a bounded number of waiting commands. When a lane is full
+ * the {@link SaturationPolicy} applies: {@link SaturationPolicy#REJECT} throws,
+ * {@link SaturationPolicy#DROP_OLDEST} discards the oldest command of the lane, and
+ * {@link SaturationPolicy#BLOCK} waits for space up to a timeout. As running a command
+ * out of its lane would break the order, {@link SaturationPolicy#CALLER_RUNS} waits too.
+ * The command running a lane never waits for space in its own lane, the commands it schedules
+ * there are queued beyond the capacity.
+ *
+ * <p>Lanes submit tasks to the executor. A task runs at most {@link #LANE_BATCH_SIZE}
+ * commands, then submits the lane again if commands are still waiting in it, so that
+ * a busy lane does not keep a thread of the executor from the other lanes. If the executor
+ * rejects the task of a lane, the command being scheduled is rejected and the other commands
+ * waiting in the lane are {@link CommandRunner#discard() discarded}, unless the lane was
+ * already running, in which case it goes on in its current task. If the executor discards queued tasks
+ * instead of rejecting them, the commands of the lane are never executed.
+ *
+ * <p>Clients are responsible for managing
+ * and shutting down the {@link Executor}.
+ *
+ * @see com.brillantcode.gate.PartitionKeyed
+ */
+public class PartitionedCommandScheduler implements CommandScheduler {
+
+  public static final int DEFAULT_LANE_CAPACITY = 1024;
+
+  /**
+   * The maximum number of commands a lane runs before it is submitted to the executor again.
+   */
+  public static final int LANE_BATCH_SIZE = 64;
+
+  private final Executor executor;
+
+  private final Lane[] lanes;
+
+  private final int laneCapacity;
+
+  private final SaturationPolicy saturationPolicy;
+
+  private final long blockTimeoutNanos;
+
+  /**
+   * Instantiates a scheduler with the given number of lanes, rejecting commands
+   * when a lane holds {@link #DEFAULT_LANE_CAPACITY} commands.
+   *
+   * @param executor The executor running the commands.
+   * @param lanes    The number of lanes, i.e. the maximum number of commands
+   *                 with partition keys running at the same time.
+   * @throws NullPointerException     If the executor is null.
+   * @throws IllegalArgumentException If the number of lanes is not positive.
+   */
+  public PartitionedCommandScheduler(Executor executor, int lanes) {
+    this(executor, lanes, DEFAULT_LANE_CAPACITY, SaturationPolicy.REJECT, Duration.ZERO);
+  }
+
+  /**
+   * Instantiates a scheduler with the given number of bounded lanes.
+   *
+   * @param executor         The executor running the commands.
+   * @param lanes            The number of lanes, i.e. the maximum number of commands
+   *                         with partition keys running at the same time.
+   * @param laneCapacity     The maximum number of commands waiting in a lane.
+   * @param saturationPolicy What to do with the commands scheduled to a full lane.
+   * @param blockTimeout     The longest time to wait for space in a full lane.
+   * @throws NullPointerException     If any argument is null.
+   * @throws IllegalArgumentException If the number of lanes or their capacity is not positive,
+   *                                  or the timeout is negative.
+   */
+  public PartitionedCommandScheduler(Executor executor, int lanes, int laneCapacity,
+                                     SaturationPolicy saturationPolicy, Duration blockTimeout) {
+    Preconditions.checkNotNull(executor);
+    Preconditions.checkNotNull(saturationPolicy);
+    Preconditions.checkNotNull(blockTimeout);
+    Preconditions.checkArgument(lanes > 0, "Number of lanes must be positive");
+    Preconditions.checkArgument(laneCapacity > 0, "Lane capacity must be positive");
+    Preconditions.checkArgument(!blockTimeout.isNegative(), "Block timeout must not be negative");
+    this.executor = executor;
+    this.laneCapacity = laneCapacity;
+    this.saturationPolicy = saturationPolicy;
+    this.blockTimeoutNanos = blockTimeout.toNanos();
+    this.lanes = new Lane[lanes];
+    for (int i = 0; i < lanes; i++) {
+      this.lanes[i] = new Lane();
+    }
+  }
+
+  @Override
+  public void schedule(CommandRunner runner) {
+    Preconditions.checkNotNull(runner);
+    @Nullable Object partitionKey = runner.partitionKey();
+    if (partitionKey == null) {
+      executor.execute(runner);
+    } else {
+      lanes[lane(partitionKey)].schedule(runner);
+    }
+  }
+
+  /**
+   * Returns the number of lanes of the scheduler.
+   *
+   * @return The number of lanes.
+   */
+  public int lanes() {
+    return lanes.length;
+  }
+
+  int lane(Object partitionKey) {
+    int hash = partitionKey.hashCode();
+    // Spreads the higher bits, weak hash codes tend to differ in them only
+    return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+  }
+
+  /**
+   * Commands of a lane, run one at a time by a task submitted to the executor
+   * while the lane is not empty.
+   */
+  private final class Lane implements Runnable {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final ArrayDeque<CommandRunner> runners = new ArrayDeque<>();
+
+    private boolean running;
+
+    private @Nullable Thread worker;
+
+    void schedule(CommandRunner runner) {
+      @Nullable CommandRunner dropped = null;
+      boolean start;
+      lock.lock();
+      try {
+        if (runners.size() >= laneCapacity && Thread.currentThread() != worker) {
+          dropped = saturate();
+        }
+        runners.addLast(runner);
+        start = !running;
+        running = true;
+      } finally {
+        lock.unlock();
+      }
+      if (dropped != null) {
+        dropped.discard();
+      }
+      if (start) {
+        start(runner);
+      }
+    }
+
+    /**
+     * Applies the saturation policy to the full lane, holding the lock.
+     *
+     * @return The runner dropped to make space, if any.
+     */
+    private @Nullable CommandRunner saturate() {
+      switch (saturationPolicy) {
+        case DROP_OLDEST:
+          return runners.pollFirst();
+        case BLOCK:
+        case CALLER_RUNS:
+          long remainingNanos = blockTimeoutNanos;
+          try {
+            while (runners.size() >= laneCapacity) {
+              if (remainingNanos <= 0) {
+                throw new RejectedExecutionException("Partition lane is still full after "
+                    + Duration.ofNanos(blockTimeoutNanos));
+              }
+              remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the lane", ex);
+          }
+          return null;
+        default:
+          throw new RejectedExecutionException("Partition lane is full");
+      }
+    }
+
+    private void start(CommandRunner runner) {
+      try {
+        executor.execute(this);
+      } catch (RuntimeException ex) {
+        List<CommandRunner> rejected;
+        lock.lock();
+        try {
+          rejected = new ArrayList<>(runners);
+          runners.clear();
+          running = false;
+          notFull.signalAll();
+        } finally {
+          lock.unlock();
+        }
+        // The runner being scheduled is rejected with the exception, the others were accepted
+        for (CommandRunner other : rejected) {
+          if (other != runner) {
+            other.discard();
+          }
+        }
+        throw ex;
+      }
+    }
+
+    @Override
+    public void run() {
+      int ran = 0;
+      while (true) {
+        @Nullable CommandRunner runner;
+        lock.lock();
+        try {
+          if (runners.isEmpty()) {
+            running = false;
+            worker = null;
+            return;
+          }
+          if (ran == LANE_BATCH_SIZE) {
+            runner = null;
+            worker = null;
+          } else {
+            runner = runners.pollFirst();
+            worker = Thread.currentThread();
+            notFull.signal();
+          }
+        } finally {
+          lock.unlock();
+        }
+        if (runner == null) {
+          if (resubmit()) {
+            return;
+          }
+          ran = 0;
+          continue;
+        }
+        ran++;
+        try {
+          runner.run();
+        } catch (Throwable ex) {
+          // The lane goes on with the next commands
+          Thread thread = Thread.currentThread();
+          Thread.@Nullable UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+          if (handler != null) {
+            handler.uncaughtException(thread, ex);
+          }
+        }
+      }
+    }
+
+    /**
+     * Submits the lane to the executor again, the lane still running.
+     *
+     * @return False if the executor rejected the task, the lane going on in this one.
+     */
+    private boolean resubmit() {
+      try {
+        executor.execute(this);
+        return true;
+      } catch (RejectedExecutionException ex) {
+        return false;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,298 @@
+package com.brillantcode.gate.scheduler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of {@link CommandScheduler} that hands the runners over to its own
+ * worker threads through a pre-allocated ring of slots.
+ *
+ * <p>The ring has a power-of-two number of slots, each with a sequence number telling
+ * whether the slot is free or holds a runner. Producers and workers claim slots
+ * with a compare-and-set on a shared counter and publish them by advancing the slot
+ * sequence, so scheduling takes no lock and allocates nothing.
+ * When the ring is full the scheduling thread waits for a free slot,
+ * unless it is one of the workers: a worker waiting could leave no one to free the slot,
+ * so it runs the runner itself instead.
+ * Waiting producers and idle workers wait according to the {@link WaitStrategy},
+ * producers unpark the workers parked by {@link WaitStrategy#PARK}.
+ *
+ * <p>A runner throwing an exception or an error is reported to the uncaught exception handler
+ * of the worker thread, which then carries on with the next runner.
+ *
+ * <p>The scheduler owns its worker threads, {@link #close()} stops them.
+ */
+public class RingBufferCommandScheduler implements CommandScheduler, AutoCloseable {
+
+  private final Ring ring;
+
+  private final WaitStrategy waitStrategy;
+
+  private final Thread[] workers;
+
+  /**
+   * Instantiates the scheduler and starts daemon worker threads.
+   *
+   * @param capacity     The minimum number of slots of the ring,
+   *                     rounded up to a power of two.
+   * @param workers      The number of worker threads.
+   * @param waitStrategy How the producers and workers wait.
+   * @throws NullPointerException     If the wait strategy is null.
+   * @throws IllegalArgumentException If the capacity or the number of workers is not positive,
+   *                                  or the capacity is too large.
+   */
+  public RingBufferCommandScheduler(int capacity, int workers, WaitStrategy waitStrategy) {
+    this(capacity, workers, waitStrategy, new ThreadFactoryBuilder()
+        .setNameFormat("command-gate-ring-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Instantiates the scheduler and starts worker threads created by the given factory.
+   *
+   * @param capacity      The minimum number of slots of the ring,
+   *                      rounded up to a power of two.
+   * @param workers       The number of worker threads.
+   * @param waitStrategy  How the producers and workers wait.
+   * @param threadFactory The factory of the worker threads.
+   * @throws NullPointerException     If the wait strategy or the thread factory is null.
+   * @throws IllegalArgumentException If the capacity or the number of workers is not positive,
+   *                                  the capacity is too large,
+   *                                  or the thread factory does not create a thread.
+   */
+  public RingBufferCommandScheduler(int capacity, int workers, WaitStrategy waitStrategy,
+                                    ThreadFactory threadFactory) {
+    Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+    Preconditions.checkArgument(capacity <= 1 << 30, "Capacity must not exceed 2^30");
+    Preconditions.checkArgument(workers > 0, "Number of workers must be positive");
+    Preconditions.checkNotNull(waitStrategy);
+    Preconditions.checkNotNull(threadFactory);
+
+    Ring ring = new Ring(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+    this.ring = ring;
+    this.waitStrategy = waitStrategy;
+    this.workers = new Thread[workers];
+    for (int i = 0; i < workers; i++) {
+      @Nullable Thread worker = threadFactory.newThread(() -> work(ring, waitStrategy));
+      if (worker == null) {
+        throw new IllegalArgumentException("Thread factory did not create a thread");
+      }
+      this.workers[i] = worker;
+    }
+    for (Thread worker : this.workers) {
+      worker.start();
+    }
+  }
+
+  /**
+   * Puts the runner into the next free slot of the ring,
+   * waiting for a slot if the ring is full.
+   *
+   * <p>A worker of the scheduler finding the ring full runs the runner in place of waiting.
+   *
+   * @param runner The {@link CommandRunner} to execute.
+   * @throws RejectedExecutionException If the scheduler is closed.
+   */
+  @Override
+  public void schedule(CommandRunner runner) {
+    Preconditions.checkNotNull(runner);
+    int idleCount = 0;
+    while (true) {
+      if (!ring.open) {
+        throw new RejectedExecutionException("Scheduler is closed");
+      }
+      if (ring.offer(runner)) {
+        if (!ring.open) {
+          // Closed after the check, the workers and close() may have drained the ring already
+          discardRunners();
+        } else if (ring.parkedWorkers.get() > 0) {
+          unparkWorkers();
+        }
+        return;
+      }
+      if (isWorker(Thread.currentThread())) {
+        run(runner);
+        return;
+      }
+      idleCount = waitStrategy.idle(idleCount);
+    }
+  }
+
+  /**
+   * Returns the number of slots of the ring.
+   *
+   * @return The capacity of the ring.
+   */
+  public int capacity() {
+    return ring.slots.length;
+  }
+
+  /**
+   * Stops accepting runners, lets the workers execute the runners already in the ring
+   * and waits for them to finish.
+   *
+   * <p>Runners scheduled concurrently with closing may be left in the ring,
+   * they are {@link CommandRunner#discard() discarded}.
+   *
+   * <p>If interrupted while waiting, returns with the interrupt status set,
+   * the workers finish the runners of the ring in the background.
+   */
+  @Override
+  public void close() {
+    ring.open = false;
+    unparkWorkers();
+    try {
+      for (Thread worker : workers) {
+        worker.join();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    discardRunners();
+  }
+
+  private boolean isWorker(Thread thread) {
+    for (Thread worker : workers) {
+      if (worker == thread) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void discardRunners() {
+    for (CommandRunner runner = ring.poll(); runner != null; runner = ring.poll()) {
+      runner.discard();
+    }
+  }
+
+  private void unparkWorkers() {
+    for (Thread worker : workers) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  private static void work(Ring ring, WaitStrategy waitStrategy) {
+    int idleCount = 0;
+    while (true) {
+      @Nullable CommandRunner runner = ring.poll();
+      if (runner == null) {
+        if (!ring.open) {
+          return;
+        }
+        if (waitStrategy.parks(idleCount)) {
+          // Registers before checking the ring again, so that producers see it and unpark
+          ring.parkedWorkers.incrementAndGet();
+          if (ring.isEmpty() && ring.open) {
+            idleCount = waitStrategy.idle(idleCount);
+          }
+          ring.parkedWorkers.decrementAndGet();
+        } else {
+          idleCount = waitStrategy.idle(idleCount);
+        }
+        continue;
+      }
+      idleCount = 0;
+      run(runner);
+    }
+  }
+
+  private static void run(CommandRunner runner) {
+    try {
+      runner.run();
+    } catch (Throwable ex) {
+      Thread worker = Thread.currentThread();
+      Thread.@Nullable UncaughtExceptionHandler handler = worker.getUncaughtExceptionHandler();
+      if (handler != null) {
+        handler.uncaughtException(worker, ex);
+      }
+    }
+  }
+
+  /**
+   * The slots shared by the producers and the workers.
+   */
+  private static final class Ring {
+
+    private final int mask;
+
+    private final @Nullable CommandRunner[] slots;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong producerSequence = new AtomicLong();
+
+    private final AtomicLong consumerSequence = new AtomicLong();
+
+    private final AtomicInteger parkedWorkers = new AtomicInteger();
+
+    private volatile boolean open = true;
+
+    Ring(int size) {
+      this.mask = size - 1;
+      this.slots = new CommandRunner[size];
+      this.sequences = new AtomicLongArray(size);
+      for (int i = 0; i < size; i++) {
+        // A slot is free for the producer of the sequence equal to its own
+        sequences.set(i, i);
+      }
+    }
+
+    boolean offer(CommandRunner runner) {
+      while (true) {
+        long sequence = producerSequence.get();
+        int index = (int) sequence & mask;
+        long lag = sequences.get(index) - sequence;
+        if (lag == 0) {
+          if (producerSequence.compareAndSet(sequence, sequence + 1)) {
+            slots[index] = runner;
+            // Publishes the runner to the worker claiming the slot
+            sequences.set(index, sequence + 1);
+            return true;
+          }
+        } else if (lag < 0) {
+          // The slot still holds a runner from the previous lap, the ring is full
+          return false;
+        }
+        // Otherwise another producer claimed the slot, retry with the next sequence
+      }
+    }
+
+    boolean isEmpty() {
+      long sequence = consumerSequence.get();
+      return sequences.get((int) sequence & mask) != sequence + 1;
+    }
+
+    @Nullable CommandRunner poll() {
+      while (true) {
+        long sequence = consumerSequence.get();
+        int index = (int) sequence & mask;
+        long lag = sequences.get(index) - (sequence + 1);
+        if (lag == 0) {
+          if (consumerSequence.compareAndSet(sequence, sequence + 1)) {
+            @Nullable CommandRunner runner = slots[index];
+            slots[index] = null;
+            // Frees the slot for the producer of the next lap
+            sequences.set(index, sequence + slots.length);
+            return runner;
+          }
+        } else if (lag < 0) {
+          // The slot has not been published yet, the ring is empty
+          return null;
+        }
+        // Otherwise another worker claimed the slot, retry with the next sequence
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,115 @@
+package com.brillantcode.gate.scheduler;
+
+import com.google.common.base.Preconditions;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * What a {@link CommandScheduler} backed by a bounded queue does
+ * with a command scheduled when the queue is full.
+ */
+public enum SaturationPolicy {
+
+  /**
+   * The command is rejected with a {@link RejectedExecutionException}
+   * thrown to the scheduling thread.
+   */
+  REJECT {
+    @Override
+    public RejectedExecutionHandler rejectedExecutionHandler(Duration blockTimeout) {
+      return new ThreadPoolExecutor.AbortPolicy();
+    }
+  },
+
+  /**
+   * The command is executed by the scheduling thread,
+   * which slows down the producers of the commands.
+   *
+   * <p>Once the executor is shut down the command is discarded.
+   *
+   * @see CommandRunner#discard()
+   */
+  CALLER_RUNS {
+    @Override
+    public RejectedExecutionHandler rejectedExecutionHandler(Duration blockTimeout) {
+      return (runnable, executor) -> {
+        if (executor.isShutdown()) {
+          discard(runnable);
+          return;
+        }
+        runnable.run();
+      };
+    }
+  },
+
+  /**
+   * The scheduling thread waits for space in the queue up to a timeout,
+   * after which the command is rejected with a {@link RejectedExecutionException}.
+   */
+  BLOCK {
+    @Override
+    public RejectedExecutionHandler rejectedExecutionHandler(Duration blockTimeout) {
+      Preconditions.checkNotNull(blockTimeout);
+      long timeoutNanos = blockTimeout.toNanos();
+      return (runnable, executor) -> {
+        if (executor.isShutdown()) {
+          throw new RejectedExecutionException("Executor is shut down");
+        }
+        try {
+          if (!executor.getQueue().offer(runnable, timeoutNanos, TimeUnit.NANOSECONDS)) {
+            throw new RejectedExecutionException(
+                "Command queue is still full after " + blockTimeout);
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new RejectedExecutionException("Interrupted while waiting for the queue", ex);
+        }
+      };
+    }
+  },
+
+  /**
+   * The oldest command waiting in the queue is discarded to make space for the new one.
+   *
+   * <p>Once the executor is shut down the new command is discarded.
+   *
+   * @see CommandRunner#discard()
+   */
+  DROP_OLDEST {
+    @Override
+    public RejectedExecutionHandler rejectedExecutionHandler(Duration blockTimeout) {
+      return (runnable, executor) -> {
+        if (executor.isShutdown()) {
+          discard(runnable);
+          return;
+        }
+        @Nullable Runnable oldest = executor.getQueue().poll();
+        if (oldest != null) {
+          discard(oldest);
+        }
+        executor.execute(runnable);
+      };
+    }
+  };
+
+  /**
+   * Creates a {@link RejectedExecutionHandler} applying the policy
+   * to a {@link ThreadPoolExecutor}.
+   *
+   * @param blockTimeout The longest time to wait for space in the queue,
+   *                     only used by {@link #BLOCK}.
+   * @return The handler of rejected executions.
+   */
+  public abstract RejectedExecutionHandler rejectedExecutionHandler(Duration blockTimeout);
+
+  private static void discard(Runnable runnable) {
+    if (runnable instanceof CommandRunner) {
+      ((CommandRunner) runnable).discard();
+    }
+  }
+
+}
@@ -0,0 +1,26 @@
+package com.brillantcode.gate.scheduler;
+
+/**
+ * Handle of a command scheduled to run after a delay, or periodically.
+ *
+ * @see TimingWheel
+ */
+public interface ScheduledTask {
+
+  /**
+   * Cancels the task, unless it already ran, or is running, for the last time.
+   *
+   * <p>A periodic task is not run again once cancelled.
+   *
+   * @return True if this call cancelled the task.
+   */
+  boolean cancel();
+
+  /**
+   * Tells whether the task was cancelled before it ran for the last time.
+   *
+   * @return True if the task was cancelled.
+   */
+  boolean isCancelled();
+
+}
@@ -0,0 +1,503 @@
+package com.brillantcode.gate.scheduler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Timer running tasks after a delay or at a fixed rate, on a hierarchical hashed timing wheel
+ * turned by a single thread.
+ *
+ * <p>Time is divided in ticks, of a millisecond by default. The wheel has levels of 64 slots,
+ * each slot of a level spanning as many ticks as the whole level below. A task is linked into
+ * the slot of the highest level on which its due tick differs from the current tick, so that
+ * linking and unlinking it take constant time, however many tasks are pending. When the current
+ * tick enters a slot of a higher level, the tasks of the slot are moved down a level,
+ * and the tasks of the slot of the lowest level run.
+ *
+ * <p>Scheduling and cancelling append the task to a lock-free queue, the thread of the wheel
+ * links and unlinks the queued tasks at every tick. The thread parks while no task is pending.
+ * Tasks never run before they are due, and run within a tick after. They run on the thread
+ * of the wheel, so they must be short and must not block, e.g. hand a command over
+ * to an executor. A task throwing an exception or an error is reported to the uncaught
+ * exception handler of the thread, and the wheel goes on.
+ *
+ * <p>Each run of a periodic task is due a period after the previous one was due. Runs that are
+ * late, e.g. while the thread of the wheel was not scheduled, run once per tick until the task
+ * catches up.
+ */
+public class TimingWheel implements AutoCloseable {
+
+  public static final Duration DEFAULT_TICK = Duration.ofMillis(1);
+
+  /**
+   * The number of threads of the {@link #sharedExecutor() shared executor}.
+   */
+  public static final int SHARED_EXECUTOR_THREADS =
+      Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  /**
+   * The number of due tasks the {@link #sharedExecutor() shared executor} holds
+   * while all its threads are busy.
+   */
+  public static final int SHARED_EXECUTOR_QUEUE_CAPACITY = 64 << 10;
+
+  private static final int SLOT_BITS = 6;
+
+  private static final int SLOTS = 1 << SLOT_BITS;
+
+  private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+  private static final long MAX_DELAY_NANOS = Long.MAX_VALUE / 4;
+
+  private final Wheel wheel;
+
+  private final Thread thread;
+
+  /**
+   * Creates the wheel with the {@link #DEFAULT_TICK default tick} and starts its daemon thread.
+   */
+  public TimingWheel() {
+    this(DEFAULT_TICK);
+  }
+
+  /**
+   * Creates the wheel and starts its daemon thread.
+   *
+   * @param tick The duration of a tick.
+   * @throws NullPointerException     If the tick is null.
+   * @throws IllegalArgumentException If the tick is not positive.
+   */
+  public TimingWheel(Duration tick) {
+    this(tick, new ThreadFactoryBuilder()
+        .setNameFormat("command-gate-timer-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  /**
+   * Creates the wheel and starts its thread, created by the given factory.
+   *
+   * @param tick          The duration of a tick.
+   * @param threadFactory The factory of the thread of the wheel.
+   * @throws NullPointerException     If any of the arguments are null.
+   * @throws IllegalArgumentException If the tick is not positive,
+   *                                  or the thread factory does not create a thread.
+   */
+  public TimingWheel(Duration tick, ThreadFactory threadFactory) {
+    Preconditions.checkNotNull(tick);
+    Preconditions.checkArgument(!tick.isNegative() && !tick.isZero(), "Tick must be positive");
+    Preconditions.checkNotNull(threadFactory);
+    Wheel wheel = new Wheel(TimeUnit.NANOSECONDS.convert(tick));
+    this.wheel = wheel;
+    @Nullable Thread thread = threadFactory.newThread(wheel::turn);
+    if (thread == null) {
+      throw new IllegalArgumentException("Thread factory did not create a thread");
+    }
+    this.thread = thread;
+    thread.start();
+  }
+
+  /**
+   * Returns the wheel shared within the JVM, created with the {@link #DEFAULT_TICK default tick}
+   * when first used. It runs the delayed and periodic commands of the schedulers and gates
+   * without a wheel of their own, and must not be closed.
+   *
+   * @return The shared wheel.
+   */
+  public static TimingWheel shared() {
+    return SharedWheel.INSTANCE;
+  }
+
+  /**
+   * Returns the executor the delayed and periodic commands of the {@link #shared() shared wheel}
+   * are handed over to when due, to be scheduled off the thread of the wheel, so that
+   * a scheduler blocking, e.g. on a journal commit or a full queue, holds up neither the wheel
+   * nor the other commands due. It must not be shut down.
+   *
+   * <p>It runs up to {@link #SHARED_EXECUTOR_THREADS} daemon threads, which stop when idle,
+   * and queues up to {@link #SHARED_EXECUTOR_QUEUE_CAPACITY} due tasks while they are all busy.
+   * Tasks handed over to a full queue are rejected with a {@link RejectedExecutionException}.
+   *
+   * @return The shared executor.
+   */
+  public static Executor sharedExecutor() {
+    return SharedWheel.EXECUTOR;
+  }
+
+  /**
+   * Runs the task once the delay is over.
+   *
+   * @param task  The task to run.
+   * @param delay The delay, from now.
+   * @return The handle of the task.
+   * @throws NullPointerException       If any of the arguments are null.
+   * @throws IllegalArgumentException   If the delay is negative.
+   * @throws RejectedExecutionException If the wheel is closed.
+   */
+  public ScheduledTask schedule(Runnable task, Duration delay) {
+    Preconditions.checkNotNull(task);
+    Preconditions.checkNotNull(delay);
+    Preconditions.checkArgument(!delay.isNegative(), "Delay must not be negative");
+    return wheel.add(task, nanos(delay), 0L);
+  }
+
+  /**
+   * Runs the task once the initial delay is over, then every period until it is cancelled.
+   *
+   * @param task         The task to run.
+   * @param initialDelay The delay of the first run, from now.
+   * @param period       The time between the runs.
+   * @return The handle of the task.
+   * @throws NullPointerException       If any of the arguments are null.
+   * @throws IllegalArgumentException   If the delay is negative, or the period is not positive.
+   * @throws RejectedExecutionException If the wheel is closed.
+   */
+  public ScheduledTask scheduleAtFixedRate(Runnable task, Duration initialDelay,
+                                           Duration period) {
+    Preconditions.checkNotNull(task);
+    Preconditions.checkNotNull(initialDelay);
+    Preconditions.checkNotNull(period);
+    Preconditions.checkArgument(!initialDelay.isNegative(), "Delay must not be negative");
+    Preconditions.checkArgument(!period.isNegative() && !period.isZero(),
+        "Period must be positive");
+    return wheel.add(task, nanos(initialDelay), nanos(period));
+  }
+
+  /**
+   * Returns the number of tasks pending, periodic tasks being pending until cancelled.
+   *
+   * @return The number of tasks.
+   */
+  public int size() {
+    return wheel.size.get();
+  }
+
+  /**
+   * Stops the thread of the wheel and cancels the pending tasks.
+   *
+   * <p>Tasks scheduled concurrently with closing may be cancelled without being rejected.
+   * If interrupted while waiting for the thread, returns with the interrupt status set,
+   * the thread cancelling the tasks in the background.
+   */
+  @Override
+  public void close() {
+    wheel.open = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static long nanos(Duration duration) {
+    // Keeps the deadlines far from overflowing, such delays never being over anyway
+    return Math.min(TimeUnit.NANOSECONDS.convert(duration), MAX_DELAY_NANOS);
+  }
+
+  private static void run(Runnable task) {
+    try {
+      task.run();
+    } catch (Throwable ex) {
+      // The wheel goes on with the other tasks
+      Thread thread = Thread.currentThread();
+      Thread.@Nullable UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+      if (handler != null) {
+        handler.uncaughtException(thread, ex);
+      }
+    }
+  }
+
+  /**
+   * The slots and the current tick, only accessed by the thread of the wheel,
+   * and the queues of the tasks scheduled and cancelled since the last tick.
+   */
+  private static final class Wheel {
+
+    private final long tickNanos;
+
+    private final long origin = System.nanoTime();
+
+    private final Queue<Timer> scheduled = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timer> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final @Nullable Timer[] slots = new Timer[LEVELS * SLOTS];
+
+    private volatile boolean open = true;
+
+    private volatile boolean idle;
+
+    private volatile @Nullable Thread thread;
+
+    private long currentTick;
+
+    private int linked;
+
+    Wheel(long tickNanos) {
+      this.tickNanos = tickNanos;
+    }
+
+    Timer add(Runnable task, long delayNanos, long periodNanos) {
+      if (!open) {
+        throw new RejectedExecutionException("Timing wheel is closed");
+      }
+      Timer timer = new Timer(this, task, elapsed() + delayNanos, periodNanos);
+      size.incrementAndGet();
+      scheduled.offer(timer);
+      // Checked after queueing, while the thread checks the queue after becoming idle
+      if (idle) {
+        @Nullable Thread thread = this.thread;
+        if (thread != null) {
+          LockSupport.unpark(thread);
+        }
+      }
+      if (!open && timer.cancel()) {
+        throw new RejectedExecutionException("Timing wheel is closed");
+      }
+      return timer;
+    }
+
+    void cancelled(Timer timer) {
+      size.decrementAndGet();
+      // Unlinked at the next tick, a cancelled timer left in its slot does not run
+      cancelled.offer(timer);
+    }
+
+    void turn() {
+      thread = Thread.currentThread();
+      while (open) {
+        long now = elapsed();
+        long nowTick = now / tickNanos;
+        if (linked == 0) {
+          // No slot to go through, skips the ticks the thread was parked for
+          currentTick = Math.max(currentTick, nowTick);
+        }
+        for (@Nullable Timer timer = cancelled.poll(); timer != null; timer = cancelled.poll()) {
+          if (timer.slot >= 0) {
+            unlink(timer);
+          }
+        }
+        for (@Nullable Timer timer = scheduled.poll(); timer != null; timer = scheduled.poll()) {
+          if (!timer.isCancelled()) {
+            timer.tick = Math.max(dueTick(timer), currentTick + 1);
+            link(timer);
+          }
+        }
+        while (currentTick < nowTick) {
+          advance();
+        }
+        if (linked == 0) {
+          idle = true;
+          if (scheduled.isEmpty() && open) {
+            LockSupport.park(this);
+          }
+          idle = false;
+        } else {
+          LockSupport.parkNanos(this, (currentTick + 1) * tickNanos - elapsed());
+        }
+      }
+      for (@Nullable Timer timer = scheduled.poll(); timer != null; timer = scheduled.poll()) {
+        timer.cancel();
+      }
+      for (int i = 0; i < slots.length; i++) {
+        for (@Nullable Timer timer = slots[i]; timer != null; timer = timer.next) {
+          timer.cancel();
+        }
+        slots[i] = null;
+      }
+    }
+
+    private void advance() {
+      long tick = ++currentTick;
+      // Moves down the tasks of the slots the tick enters, from the highest level
+      int top = Math.min(Long.numberOfTrailingZeros(tick) / SLOT_BITS, LEVELS - 1);
+      for (int level = top; level > 0; level--) {
+        @Nullable Timer timer = detach(level * SLOTS + slotOf(tick, level));
+        while (timer != null) {
+          @Nullable Timer next = timer.next;
+          timer.next = null;
+          link(timer);
+          timer = next;
+        }
+      }
+      @Nullable Timer timer = detach(slotOf(tick, 0));
+      while (timer != null) {
+        @Nullable Timer next = timer.next;
+        timer.next = null;
+        expire(timer);
+        timer = next;
+      }
+    }
+
+    private void expire(Timer timer) {
+      if (timer.period == 0L) {
+        if (timer.expire()) {
+          size.decrementAndGet();
+          run(timer.task);
+        }
+        return;
+      }
+      if (timer.isCancelled()) {
+        return;
+      }
+      run(timer.task);
+      if (!timer.isCancelled()) {
+        timer.deadline += timer.period;
+        timer.tick = Math.max(dueTick(timer), currentTick + 1);
+        link(timer);
+      }
+    }
+
+    private void link(Timer timer) {
+      long difference = timer.tick ^ currentTick;
+      int level = difference == 0L
+          ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(difference)) / SLOT_BITS;
+      int slot = level * SLOTS + slotOf(timer.tick, level);
+      @Nullable Timer head = slots[slot];
+      timer.slot = slot;
+      timer.previous = null;
+      timer.next = head;
+      if (head != null) {
+        head.previous = timer;
+      }
+      slots[slot] = timer;
+      linked++;
+    }
+
+    private void unlink(Timer timer) {
+      @Nullable Timer previous = timer.previous;
+      @Nullable Timer next = timer.next;
+      if (previous == null) {
+        slots[timer.slot] = next;
+      } else {
+        previous.next = next;
+      }
+      if (next != null) {
+        next.previous = previous;
+      }
+      timer.slot = -1;
+      timer.previous = null;
+      timer.next = null;
+      linked--;
+    }
+
+    private @Nullable Timer detach(int slot) {
+      @Nullable Timer head = slots[slot];
+      slots[slot] = null;
+      for (@Nullable Timer timer = head; timer != null; timer = timer.next) {
+        timer.slot = -1;
+        timer.previous = null;
+        linked--;
+      }
+      return head;
+    }
+
+    private long dueTick(Timer timer) {
+      return (timer.deadline + tickNanos - 1) / tickNanos;
+    }
+
+    private long elapsed() {
+      return System.nanoTime() - origin;
+    }
+
+    private static int slotOf(long tick, int level) {
+      return (int) (tick >>> (level * SLOT_BITS)) & (SLOTS - 1);
+    }
+
+  }
+
+  /**
+   * A task on the wheel, linked into the list of its slot.
+   */
+  private static final class Timer implements ScheduledTask {
+
+    private static final int PENDING = 0;
+
+    private static final int EXPIRED = 1;
+
+    private static final int CANCELLED = 2;
+
+    private final Wheel wheel;
+
+    private final Runnable task;
+
+    private final long period;
+
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    private long deadline;
+
+    private long tick;
+
+    private int slot = -1;
+
+    private @Nullable Timer previous;
+
+    private @Nullable Timer next;
+
+    Timer(Wheel wheel, Runnable task, long deadline, long period) {
+      this.wheel = wheel;
+      this.task = task;
+      this.deadline = deadline;
+      this.period = period;
+    }
+
+    @Override
+    public boolean cancel() {
+      if (!state.compareAndSet(PENDING, CANCELLED)) {
+        return false;
+      }
+      wheel.cancelled(this);
+      return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+      return state.get() == CANCELLED;
+    }
+
+    boolean expire() {
+      return state.compareAndSet(PENDING, EXPIRED);
+    }
+
+  }
+
+  private static final class SharedWheel {
+
+    private static final TimingWheel INSTANCE = new TimingWheel();
+
+    private static final Executor EXECUTOR = createExecutor();
+
+    private static Executor createExecutor() {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          SHARED_EXECUTOR_THREADS,
+          SHARED_EXECUTOR_THREADS,
+          1, TimeUnit.MINUTES,
+          new ArrayBlockingQueue<>(SHARED_EXECUTOR_QUEUE_CAPACITY),
+          new ThreadFactoryBuilder()
+              .setNameFormat("command-gate-timer-handoff-%d")
+              .setDaemon(true)
+              .build(),
+          new ThreadPoolExecutor.AbortPolicy());
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+
+  }
+
+}
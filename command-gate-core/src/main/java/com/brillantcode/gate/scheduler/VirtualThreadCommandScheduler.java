@@ -0,0 +1,66 @@
+package com.brillantcode.gate.scheduler;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Implementation of {@link CommandScheduler} that runs every
+ * {@link CommandRunner} on its own virtual thread.
+ *
+ * <p>Virtual threads are cheap to create and to block, so commands whose handlers
+ * wait on I/O do not need a sized thread pool. The number of commands of a type
+ * running at the same time may still be limited with a concurrency limit,
+ * e.g. to protect a connection pool. Commands over the limit wait
+ * on their virtual thread until a permit is released.
+ *
+ * <p>Virtual threads require Java 21. The implementation is shipped in the Java 21
+ * layer of the multi-release jar, this Java 11 version is only used on older
+ * runtimes, where it cannot be instantiated.
+ *
+ * @see #isSupported()
+ */
+public class VirtualThreadCommandScheduler implements CommandScheduler {
+
+  /**
+   * Instantiates a scheduler without concurrency limits.
+   *
+   * @throws UnsupportedOperationException If virtual threads are not supported by the runtime.
+   */
+  public VirtualThreadCommandScheduler() {
+    this(Collections.emptyMap());
+  }
+
+  /**
+   * Instantiates a scheduler limiting the number of commands of the given types
+   * running at the same time.
+   *
+   * @param concurrencyLimits Maximum number of running commands by command type.
+   * @throws NullPointerException          If the limits are null.
+   * @throws IllegalArgumentException      If any of the limits is not positive.
+   * @throws UnsupportedOperationException If virtual threads are not supported by the runtime.
+   */
+  public VirtualThreadCommandScheduler(
+      Map<Class<? extends Command>, Integer> concurrencyLimits) {
+    Preconditions.checkNotNull(concurrencyLimits);
+    throw new UnsupportedOperationException(
+        "Virtual threads require Java 21, current runtime is Java "
+            + Runtime.version().feature());
+  }
+
+  /**
+   * Tells whether virtual threads are supported by the runtime.
+   *
+   * @return True if the scheduler can be instantiated.
+   */
+  public static boolean isSupported() {
+    return false;
+  }
+
+  @Override
+  public void schedule(CommandRunner runner) {
+    throw new UnsupportedOperationException("Virtual threads require Java 21");
+  }
+
+}
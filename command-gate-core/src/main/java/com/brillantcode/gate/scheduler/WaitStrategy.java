@@ -0,0 +1,94 @@
+package com.brillantcode.gate.scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How the threads of a {@link RingBufferCommandScheduler} wait,
+ * for commands when the ring is empty and for free slots when it is full.
+ *
+ * <p>Strategies trade latency for CPU usage: spinning threads react
+ * to new commands fastest but keep their cores busy while idle.
+ */
+public enum WaitStrategy {
+
+  /**
+   * Spins on the CPU, for the lowest latency when every worker has a dedicated core.
+   */
+  BUSY_SPIN {
+    @Override
+    public int idle(int idleCount) {
+      Thread.onSpinWait();
+      return idleCount + 1;
+    }
+  },
+
+  /**
+   * Spins for a while, then yields the CPU to other threads between checks.
+   */
+  YIELD {
+    @Override
+    public int idle(int idleCount) {
+      if (idleCount < SPIN_TRIES) {
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+      return idleCount + 1;
+    }
+  },
+
+  /**
+   * Spins and yields for a while, then parks the thread for increasing periods
+   * of up to {@value #MAX_PARK_MICROS} microseconds, which keeps idle threads cheap.
+   * Schedulers unpark the parked workers when they publish a command.
+   */
+  PARK {
+    @Override
+    public int idle(int idleCount) {
+      if (idleCount < SPIN_TRIES) {
+        Thread.onSpinWait();
+      } else if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+        Thread.yield();
+      } else {
+        int parkShift = Math.min(idleCount - SPIN_TRIES - YIELD_TRIES, MAX_PARK_SHIFT);
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(
+            Math.min(1L << parkShift, MAX_PARK_MICROS)));
+      }
+      return idleCount + 1;
+    }
+
+    @Override
+    boolean parks(int idleCount) {
+      return idleCount >= SPIN_TRIES + YIELD_TRIES;
+    }
+  };
+
+  private static final int SPIN_TRIES = 100;
+
+  private static final int YIELD_TRIES = 100;
+
+  private static final int MAX_PARK_SHIFT = 10;
+
+  static final long MAX_PARK_MICROS = 1000;
+
+  /**
+   * Waits once, called repeatedly until the awaited condition is met.
+   *
+   * @param idleCount The number of times the thread already waited for the condition.
+   * @return The number of times the thread waited for the condition, including this one.
+   */
+  public abstract int idle(int idleCount);
+
+  /**
+   * Tells whether the next call to {@link #idle(int)} parks the thread,
+   * in which case it has to be unparked when the awaited condition is met.
+   *
+   * @param idleCount The number of times the thread already waited for the condition.
+   * @return True if the thread is going to park.
+   */
+  boolean parks(int idleCount) {
+    return false;
+  }
+
+}
@@ -0,0 +1,92 @@
+package com.brillantcode.gate.scheduler;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of {@link CommandScheduler} that runs every
+ * {@link CommandRunner} on its own virtual thread.
+ *
+ * <p>Virtual threads are cheap to create and to block, so commands whose handlers
+ * wait on I/O do not need a sized thread pool. The number of commands of a type
+ * running at the same time may still be limited with a concurrency limit,
+ * e.g. to protect a connection pool. Commands over the limit wait
+ * on their virtual thread until a permit is released.
+ *
+ * <p>This is the Java 21 version of the scheduler from the multi-release jar.
+ *
+ * @see #isSupported()
+ */
+public class VirtualThreadCommandScheduler implements CommandScheduler {
+
+  private final ThreadFactory threadFactory =
+      Thread.ofVirtual().name("command-gate-virtual-", 0).factory();
+
+  private final Map<Class<? extends Command>, Semaphore> semaphores;
+
+  /**
+   * Instantiates a scheduler without concurrency limits.
+   */
+  public VirtualThreadCommandScheduler() {
+    this(Collections.emptyMap());
+  }
+
+  /**
+   * Instantiates a scheduler limiting the number of commands of the given types
+   * running at the same time.
+   *
+   * @param concurrencyLimits Maximum number of running commands by command type.
+   * @throws NullPointerException     If the limits are null.
+   * @throws IllegalArgumentException If any of the limits is not positive.
+   */
+  public VirtualThreadCommandScheduler(
+      Map<Class<? extends Command>, Integer> concurrencyLimits) {
+    Preconditions.checkNotNull(concurrencyLimits);
+    Map<Class<? extends Command>, Semaphore> semaphores = new IdentityHashMap<>();
+    concurrencyLimits.forEach((commandType, limit) -> {
+      Preconditions.checkArgument(limit > 0,
+          "Concurrency limit of command type %s must be positive", commandType.getName());
+      semaphores.put(commandType, new Semaphore(limit));
+    });
+    this.semaphores = semaphores;
+  }
+
+  /**
+   * Tells whether virtual threads are supported by the runtime.
+   *
+   * @return True if the scheduler can be instantiated.
+   */
+  public static boolean isSupported() {
+    return true;
+  }
+
+  @Override
+  public void schedule(CommandRunner runner) {
+    Preconditions.checkNotNull(runner);
+    @Nullable Class<? extends Command> commandType = runner.commandType();
+    @Nullable Semaphore semaphore = commandType == null ? null : semaphores.get(commandType);
+    Runnable task = semaphore == null ? runner::run : () -> runLimited(runner, semaphore);
+    @Nullable Thread thread = threadFactory.newThread(task);
+    if (thread == null) {
+      throw new RejectedExecutionException("Could not start a virtual thread");
+    }
+    thread.start();
+  }
+
+  private static void runLimited(CommandRunner runner, Semaphore semaphore) {
+    semaphore.acquireUninterruptibly();
+    try {
+      runner.run();
+    } finally {
+      semaphore.release();
+    }
+  }
+
+}
@@ -1,11 +1,20 @@
 package com.brillantcode.gate
 
+import com.brillantcode.gate.handler.BatchCommandHandler
 import com.brillantcode.gate.handler.CommandHandler
 import com.brillantcode.gate.handler.CommandHandlerRegistry
+import com.brillantcode.gate.idempotency.IdempotencyCache
 import com.brillantcode.gate.scheduler.CommandRunner
 import com.brillantcode.gate.scheduler.CommandScheduler
+import java.time.Duration
+import java.util.concurrent.CompletionException
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
 import spock.lang.Specification
 import spock.lang.Subject
+import spock.util.concurrent.PollingConditions
 
 class DefaultGateSpec extends Specification {
 
@@ -61,4 +70,471 @@ class DefaultGateSpec extends Specification {
     1 * commandHandler.handle(cmd)
   }
 
+  def "Command runner passed to schedule should expose the command type"() {
+    given: "a command"
+    def cmd = new TestCommands.SimpleCommand("arg")
+
+    when: "it is scheduled with a gate"
+    gate.schedule(cmd)
+
+    then: "command runner exposes the type of the command"
+    1 * commandScheduler.schedule({ it.commandType() == TestCommands.SimpleCommand })
+  }
+
+  def "Command runner passed to schedule should expose the partition key"() {
+    given: "a partitioned command"
+    def cmd = new TestCommands.PartitionedCommand("order-1", 1)
+
+    when: "it is scheduled with a gate"
+    gate.schedule(cmd)
+
+    then: "command runner exposes the partition key of the command"
+    1 * commandScheduler.schedule({ it.partitionKey() == "order-1" })
+  }
+
+  def "Command runner passed to schedule should expose the priority"() {
+    when: "a prioritized command and a plain one are scheduled with a gate"
+    gate.schedule(new TestCommands.UrgentCommand())
+    gate.schedule(new TestCommands.SimpleCommand("arg"))
+
+    then: "command runners expose the priority of the command, or tell it has none"
+    1 * commandScheduler.schedule({ it.priority() == Prioritized.MAX_PRIORITY })
+    1 * commandScheduler.schedule({ it.priority() == CommandRunner.NO_PRIORITY })
+  }
+
+  def "Command runner passed to schedule should bring the priority within range"() {
+    when: "commands with priorities out of range are scheduled with a gate"
+    gate.schedule(new TestCommands.RankedCommand(0))
+    gate.schedule(new TestCommands.RankedCommand(Prioritized.MAX_PRIORITY + 1))
+
+    then: "command runners expose the nearest priority within range"
+    1 * commandScheduler.schedule({ it.priority() == Prioritized.MIN_PRIORITY })
+    1 * commandScheduler.schedule({ it.priority() == Prioritized.MAX_PRIORITY })
+  }
+
+  def "ScheduleAll should split the batches of partitioned commands by partition"() {
+    given: "partitioned commands of two partitions"
+    def cmds = [
+        new TestCommands.PartitionedCommand("a", 1),
+        new TestCommands.PartitionedCommand("b", 1),
+        new TestCommands.PartitionedCommand("a", 2)
+    ]
+
+    and: "a recording scheduler"
+    List<CommandRunner> runners = []
+    commandScheduler.schedule(_ as CommandRunner) >> { CommandRunner runner -> runners << runner }
+
+    when: "the commands are scheduled with a gate"
+    gate.scheduleAll(cmds)
+
+    then: "one runner is scheduled per partition"
+    assert runners*.partitionKey() == ["a", "b"]
+  }
+
+  def "DispatchAsync should complete the future when the handler returns"() {
+    given: "a command"
+    def cmd = new TestCommands.SimpleCommand("arg")
+
+    and: "command scheduler that keeps the runner"
+    CommandRunner scheduledRunner = null
+    commandScheduler.schedule(_ as CommandRunner) >> { CommandRunner runner ->
+      scheduledRunner = runner
+    }
+
+    when: "the command is dispatched asynchronously"
+    def future = gate.dispatchAsync(cmd)
+
+    then: "the future is not completed before the runner runs"
+    assert !future.done
+
+    when: "the scheduler runs the runner"
+    scheduledRunner.run()
+
+    then: "command handler is called and the future is completed"
+    1 * commandHandler.handle(cmd)
+    assert future.done && !future.completedExceptionally
+  }
+
+  def "DispatchAsync should complete the future exceptionally when the handler throws"() {
+    given: "a command with a failing handler"
+    def cmd = new TestCommands.SimpleCommand("arg")
+    def failure = new IllegalStateException("failed")
+    commandHandler.handle(cmd) >> { throw failure }
+
+    and: "command scheduler which immediately calls command runner's run method"
+    commandScheduler.schedule(_ as CommandRunner) >> { CommandRunner runner -> runner.run() }
+
+    when: "the command is dispatched asynchronously"
+    def future = gate.dispatchAsync(cmd)
+    future.join()
+
+    then: "the future is completed with the handler's exception"
+    def ex = thrown(CompletionException)
+    assert ex.cause.is(failure)
+  }
+
+  def "DispatchAsync should complete the future exceptionally when the scheduler rejects"() {
+    given: "a scheduler rejecting the command"
+    def rejection = new RejectedExecutionException("saturated")
+    commandScheduler.schedule(_ as CommandRunner) >> { throw rejection }
+
+    when: "the command is dispatched asynchronously"
+    def future = gate.dispatchAsync(new TestCommands.SimpleCommand("arg"))
+    future.join()
+
+    then: "the future is completed with the rejection"
+    def ex = thrown(CompletionException)
+    assert ex.cause.is(rejection)
+  }
+
+  def "Coalesced commands are merged and complete together"() {
+    given: "a handler of refresh commands"
+    def refreshHandler = Mock(CommandHandler)
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.RefreshCommand) >> refreshHandler
+
+    and: "a recording scheduler"
+    List<CommandRunner> runners = []
+    commandScheduler.schedule(_ as CommandRunner) >> { CommandRunner runner -> runners << runner }
+
+    when: "refresh commands with the same key are scheduled and dispatched asynchronously"
+    def first = gate.dispatchAsync(new TestCommands.RefreshCommand("cache", 1))
+    gate.schedule(new TestCommands.RefreshCommand("cache", 2))
+    def third = gate.dispatchAsync(new TestCommands.RefreshCommand("cache", 4))
+
+    and: "the first runner is merged with the others, as a coalescing scheduler would"
+    def merged = runners[0].coalesce(runners[1]).coalesce(runners[2])
+    merged.run()
+
+    then: "the merged command is handled once"
+    1 * refreshHandler.handle(new TestCommands.RefreshCommand("cache", 7))
+
+    and: "all the futures are completed"
+    assert runners*.coalescingKey() == ["cache"] * 3
+    assert first.done && !first.completedExceptionally
+    assert third.done && !third.completedExceptionally
+  }
+
+  def "DispatchAll should look up the handler once per command type"() {
+    given: "commands of two types"
+    def handled = []
+    def recordingHandler = { cmd -> handled << cmd } as CommandHandler
+    def cmd1 = new TestCommands.SimpleCommand("1")
+    def cmd2 = new TestCommands.NoParamsCommand()
+    def cmd3 = new TestCommands.SimpleCommand("3")
+
+    when: "they are dispatched together"
+    gate.dispatchAll([cmd1, cmd2, cmd3])
+
+    then: "the handlers are looked up once per type"
+    1 * commandHandlerRegistry.getCommandHandler(cmd1) >> recordingHandler
+    1 * commandHandlerRegistry.getCommandHandler(cmd2) >> recordingHandler
+
+    and: "the commands are handled grouped by type, in order"
+    assert handled == [cmd1, cmd3, cmd2]
+  }
+
+  def "DispatchAll should pass the whole group to a batch handler"() {
+    given: "a batch handler of simple commands"
+    def batchHandler = Mock(BatchCommandHandler)
+    def cmd1 = new TestCommands.SimpleCommand("1")
+    def cmd2 = new TestCommands.SimpleCommand("2")
+
+    when: "the commands are dispatched together"
+    gate.dispatchAll([cmd1, cmd2])
+
+    then: "the batch handler receives all the commands at once"
+    1 * commandHandlerRegistry.getCommandHandler(cmd1) >> batchHandler
+    1 * batchHandler.handleAll([cmd1, cmd2])
+    0 * batchHandler.handle(_)
+  }
+
+  def "ScheduleAll should schedule one runner per command type"() {
+    given: "commands of two types"
+    def noParamsHandler = Mock(CommandHandler)
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.NoParamsCommand) >> noParamsHandler
+    def cmd1 = new TestCommands.SimpleCommand("1")
+    def cmd2 = new TestCommands.NoParamsCommand()
+    def cmd3 = new TestCommands.SimpleCommand("3")
+
+    and: "command scheduler which immediately calls command runner's run method"
+    def runners = []
+    commandScheduler.schedule(_ as CommandRunner) >> { CommandRunner runner ->
+      runners << runner
+      runner.run()
+    }
+
+    when: "the commands are scheduled together"
+    gate.scheduleAll([cmd1, cmd2, cmd3])
+
+    then: "all the commands are handled"
+    1 * commandHandler.handle(cmd1)
+    1 * commandHandler.handle(cmd3)
+    1 * noParamsHandler.handle(cmd2)
+
+    and: "a runner was scheduled per type"
+    assert runners.size() == 2
+  }
+
+  def "Gate dispatches all commands one by one by default"() {
+    given: "a gate with only the single command methods"
+    def dispatched = []
+    def scheduled = []
+    def singleGate = new Gate() {
+      void dispatch(Command cmd) { dispatched << cmd }
+
+      void schedule(Command cmd) { scheduled << cmd }
+    }
+
+    and: "commands"
+    def cmd1 = new TestCommands.SimpleCommand("1")
+    def cmd2 = new TestCommands.NoParamsCommand()
+
+    when: "commands are dispatched and scheduled together"
+    singleGate.dispatchAll([cmd1, cmd2])
+    singleGate.scheduleAll([cmd1, cmd2])
+
+    then: "every command is dispatched and scheduled"
+    assert dispatched == [cmd1, cmd2]
+    assert scheduled == [cmd1, cmd2]
+  }
+
+  def "Idempotent commands repeating a handled one are skipped"() {
+    given: "a gate with an idempotency cache"
+    def cache = new IdempotencyCache(100)
+    def cachingGate = new DefaultGate(commandHandlerRegistry, commandScheduler, cache)
+    def idempotentHandler = Mock(CommandHandler)
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.IdempotentCommand) >>
+        idempotentHandler
+
+    when: "the same idempotent command is dispatched twice, and another one once"
+    cachingGate.dispatch(new TestCommands.IdempotentCommand("a"))
+    cachingGate.dispatch(new TestCommands.IdempotentCommand("a"))
+    cachingGate.dispatch(new TestCommands.IdempotentCommand("b"))
+
+    then: "each distinct command is handled once"
+    1 * idempotentHandler.handle(new TestCommands.IdempotentCommand("a"))
+    1 * idempotentHandler.handle(new TestCommands.IdempotentCommand("b"))
+    assert cache.hitCount() == 1
+    assert cache.missCount() == 2
+  }
+
+  def "Idempotent commands are handled again when they failed"() {
+    given: "a gate with an idempotency cache and a handler failing once"
+    def cachingGate = new DefaultGate(commandHandlerRegistry, commandScheduler,
+        new IdempotencyCache(100))
+    def idempotentHandler = Mock(CommandHandler)
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.IdempotentCommand) >>
+        idempotentHandler
+    def cmd = new TestCommands.IdempotentCommand("a")
+
+    when: "the command is dispatched and fails"
+    cachingGate.dispatch(cmd)
+
+    then: "the failure is thrown"
+    1 * idempotentHandler.handle(cmd) >> { throw new IllegalStateException("failed") }
+    thrown(IllegalStateException)
+
+    when: "the command is retried"
+    cachingGate.dispatch(cmd)
+
+    then: "it is handled again"
+    1 * idempotentHandler.handle(cmd)
+  }
+
+  def "Idempotent commands repeating one being handled wait for it"() {
+    given: "a gate with an idempotency cache and a handler waiting to be released"
+    def cache = new IdempotencyCache(100)
+    def cachingGate = new DefaultGate(commandHandlerRegistry, commandScheduler, cache)
+    def started = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    def handled = new CopyOnWriteArrayList()
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.IdempotentCommand) >>
+        ({ cmd ->
+          handled << cmd
+          started.countDown()
+          release.await(5, TimeUnit.SECONDS)
+        } as CommandHandler)
+
+    when: "a command is repeated while it is being handled"
+    def first = Thread.start { cachingGate.dispatch(new TestCommands.IdempotentCommand("a")) }
+    started.await(5, TimeUnit.SECONDS)
+    def repeated = new CountDownLatch(1)
+    def repetition = Thread.start {
+      cachingGate.dispatch(new TestCommands.IdempotentCommand("a"))
+      repeated.countDown()
+    }
+
+    then: "the repetition waits for the command"
+    assert !repeated.await(100, TimeUnit.MILLISECONDS)
+
+    when: "the command is handled"
+    release.countDown()
+    first.join()
+    repetition.join()
+
+    then: "the repetition returns, the command being handled once"
+    assert repeated.count == 0
+    assert handled == [new TestCommands.IdempotentCommand("a")]
+    assert cache.hitCount() == 1
+  }
+
+  def "Idempotent commands repeating one being handled fail when it fails"() {
+    given: "a gate with an idempotency cache and a handler failing once released"
+    def cache = new IdempotencyCache(100)
+    def cachingGate = new DefaultGate(commandHandlerRegistry, commandScheduler, cache)
+    def started = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    def handled = new CopyOnWriteArrayList()
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.IdempotentCommand) >>
+        ({ cmd ->
+          handled << cmd
+          if (handled.size() == 1) {
+            started.countDown()
+            release.await(5, TimeUnit.SECONDS)
+            throw new IllegalStateException("failed")
+          }
+        } as CommandHandler)
+
+    when: "a command is repeated while it is being handled"
+    def failures = new CopyOnWriteArrayList()
+    def first = Thread.start {
+      try {
+        cachingGate.dispatch(new TestCommands.IdempotentCommand("a"))
+      } catch (IllegalStateException ex) {
+        failures << ex
+      }
+    }
+    started.await(5, TimeUnit.SECONDS)
+    def repetition = Thread.start {
+      try {
+        cachingGate.dispatch(new TestCommands.IdempotentCommand("a"))
+      } catch (IllegalStateException ex) {
+        failures << ex
+      }
+    }
+    new PollingConditions(timeout: 5).eventually {
+      assert cache.hitCount() == 1
+    }
+
+    and: "the command fails"
+    release.countDown()
+    first.join()
+    repetition.join()
+
+    then: "the repetition fails with the failure of the command"
+    assert failures.size() == 2
+    assert failures[0].is(failures[1])
+
+    when: "the command is retried"
+    cachingGate.dispatch(new TestCommands.IdempotentCommand("a"))
+
+    then: "it is handled again"
+    assert handled.size() == 2
+  }
+
+  def "DispatchAll should skip the repetitions of idempotent commands within the batch"() {
+    given: "a gate with an idempotency cache"
+    def cachingGate = new DefaultGate(commandHandlerRegistry, commandScheduler,
+        new IdempotencyCache(100))
+    def handled = []
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.KeyedIdempotentCommand) >>
+        ({ cmd -> handled << cmd } as CommandHandler)
+
+    when: "keyed commands are dispatched, repeating a key within and across batches"
+    cachingGate.dispatch(new TestCommands.KeyedIdempotentCommand("r1", 1))
+    cachingGate.dispatchAll([
+        new TestCommands.KeyedIdempotentCommand("r1", 2),
+        new TestCommands.KeyedIdempotentCommand("r2", 1),
+        new TestCommands.KeyedIdempotentCommand("r2", 2),
+        new TestCommands.KeyedIdempotentCommand("r3", 1)
+    ])
+
+    then: "only the first command of each key is handled"
+    assert handled == [
+        new TestCommands.KeyedIdempotentCommand("r1", 1),
+        new TestCommands.KeyedIdempotentCommand("r2", 1),
+        new TestCommands.KeyedIdempotentCommand("r3", 1)
+    ]
+  }
+
+  def "Commands that are not idempotent are always handled"() {
+    given: "a gate with an idempotency cache"
+    def cache = new IdempotencyCache(100)
+    def cachingGate = new DefaultGate(commandHandlerRegistry, commandScheduler, cache)
+    def cmd = new TestCommands.SimpleCommand("arg")
+
+    when: "the same command is dispatched twice"
+    cachingGate.dispatch(cmd)
+    cachingGate.dispatch(cmd)
+
+    then: "it is handled twice, without being looked up in the cache"
+    2 * commandHandler.handle(cmd)
+    assert cache.missCount() == 0
+  }
+
+  def "Delayed commands are passed to the scheduler with their delay"() {
+    given: "a command"
+    def cmd = new TestCommands.SimpleCommand("arg")
+
+    when: "it is scheduled with a delay"
+    gate.schedule(cmd, Duration.ofSeconds(5))
+
+    then: "the scheduler gets a runner of the command and the delay"
+    1 * commandScheduler.schedule({ it.commands() == [cmd] }, Duration.ofSeconds(5))
+  }
+
+  def "Delayed and periodic commands are handled once due"() {
+    given: "a gate with a scheduler running the runners in the scheduling thread"
+    def immediateScheduler = new CommandScheduler() {
+      void schedule(CommandRunner runner) { runner.run() }
+    }
+    def timedGate = new DefaultGate(commandHandlerRegistry, immediateScheduler)
+    def delayed = new CountDownLatch(1)
+    def periodic = new CountDownLatch(3)
+    commandHandlerRegistry.getCommandHandler(_ as TestCommands.NoParamsCommand) >>
+        ({ periodic.countDown() } as CommandHandler)
+    commandHandler.handle(_) >> { delayed.countDown() }
+
+    when: "a command is delayed and another one is scheduled periodically"
+    def start = System.nanoTime()
+    timedGate.schedule(new TestCommands.SimpleCommand("arg"), Duration.ofMillis(30))
+    def task = timedGate.scheduleAtFixedRate(new TestCommands.NoParamsCommand(),
+        Duration.ZERO, Duration.ofMillis(10))
+
+    then: "the delayed command is handled after its delay and the other one repeatedly"
+    assert delayed.await(5, TimeUnit.SECONDS)
+    assert System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30)
+    assert periodic.await(5, TimeUnit.SECONDS)
+
+    cleanup:
+    task?.cancel()
+  }
+
+  def "Delayed commands due while the scheduler blocks are still handed over"() {
+    given: "a gate whose scheduler blocks on the first command handed over"
+    def release = new CountDownLatch(1)
+    def handedOver = new CountDownLatch(2)
+    def blockingScheduler = new CommandScheduler() {
+      void schedule(CommandRunner runner) {
+        if (runner.commands() == [new TestCommands.SimpleCommand("blocking")]) {
+          release.await(5, TimeUnit.SECONDS)
+        }
+        handedOver.countDown()
+      }
+    }
+    def timedGate = new DefaultGate(commandHandlerRegistry, blockingScheduler)
+
+    when: "a command is delayed, then another one due later"
+    timedGate.schedule(new TestCommands.SimpleCommand("blocking"), Duration.ofMillis(1))
+    timedGate.schedule(new TestCommands.SimpleCommand("other"), Duration.ofMillis(20))
+
+    then: "the other command is handed over while the first one blocks"
+    new PollingConditions(timeout: 5).eventually {
+      assert handedOver.count == 1
+    }
+
+    cleanup:
+    release.countDown()
+  }
+
 }
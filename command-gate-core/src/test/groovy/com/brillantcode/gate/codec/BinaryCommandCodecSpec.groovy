@@ -0,0 +1,156 @@
+package com.brillantcode.gate.codec
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.TestCommands.DetailedCommand
+import com.brillantcode.gate.TestCommands.Level
+import com.brillantcode.gate.TestCommands.MutableCommand
+import com.brillantcode.gate.TestCommands.NoParamsCommand
+import com.brillantcode.gate.TestCommands.SerializableCommand
+import com.brillantcode.gate.TestCommands.SimpleCommand
+import com.brillantcode.gate.TestCommands.SwappedCommand
+import com.brillantcode.gate.TestCommands.SwappedDefaultCommand
+import java.nio.BufferOverflowException
+import java.nio.ByteBuffer
+import java.time.Duration
+import java.time.Instant
+import spock.lang.Specification
+
+class BinaryCommandCodecSpec extends Specification {
+
+  def "Commands with fields of every kind read back equal"() {
+    given: "the codec of a command type with fields of every kind"
+    def codec = CommandCodecFactory.binary().create(DetailedCommand)
+
+    and: "a command"
+    def cmd = new DetailedCommand(true, (byte) -3, (short) 300, 'é' as char, -42, Long.MAX_VALUE,
+        0.5f, 12.25d, null, "Grüße 😀", Level.HIGH, UUID.randomUUID(),
+        Instant.ofEpochSecond(-10, 5), Duration.ofMillis(1500), [1, 2, 3] as byte[], ["a", "b"])
+
+    when: "it is encoded and decoded"
+    def buffer = ByteBuffer.allocate(1024)
+    codec.encode(cmd, buffer)
+    buffer.flip()
+    def decoded = codec.decode(buffer)
+
+    then: "the decoded command is equal and the buffer consumed"
+    assert decoded == cmd
+    assert !buffer.hasRemaining()
+  }
+
+  def "Small integers and short strings take a byte each"() {
+    given: "the codec of a command type with a string"
+    def codec = CommandCodecFactory.binary().create(SimpleCommand)
+
+    when: "a command is encoded"
+    def buffer = ByteBuffer.allocate(64)
+    codec.encode(new SimpleCommand("abc"), buffer)
+
+    then: "it takes the null flag, the length and the bytes of the string"
+    assert buffer.position() == 5
+  }
+
+  def "Commands without a constructor taking all fields are created and their fields set"() {
+    given: "the codec of a mutable command type"
+    def codec = CommandCodecFactory.binary().create(MutableCommand)
+
+    and: "a command"
+    def cmd = new MutableCommand()
+    cmd.name = "name"
+    cmd.count = 7
+
+    when: "it is encoded and decoded"
+    def buffer = ByteBuffer.allocate(64)
+    codec.encode(cmd, buffer)
+    buffer.flip()
+
+    then: "the decoded command is equal"
+    assert codec.decode(buffer) == cmd
+  }
+
+  def "Constructors whose parameters are not named after the fields are not used"() {
+    when: "the codec of a command type whose constructor swaps two fields of the same type"
+    CommandCodecFactory.binary().create(SwappedCommand)
+
+    then: "it fails rather than swapping their values"
+    thrown(CodecException)
+  }
+
+  def "Commands are created without parameters when the constructor swaps the fields"() {
+    given: "the codec of a command type with a swapping constructor and one without parameters"
+    def codec = CommandCodecFactory.binary().create(SwappedDefaultCommand)
+
+    and: "a command"
+    def cmd = new SwappedDefaultCommand("last", "first")
+
+    when: "it is encoded and decoded"
+    def buffer = ByteBuffer.allocate(64)
+    codec.encode(cmd, buffer)
+    buffer.flip()
+
+    then: "the decoded command is equal"
+    assert codec.decode(buffer) == cmd
+  }
+
+  def "Lengths beyond the end of the buffer fail to decode"() {
+    given: "the codec of a command type with a string"
+    def codec = CommandCodecFactory.binary().create(SimpleCommand)
+
+    and: "a string claiming more bytes than the buffer holds"
+    def buffer = ByteBuffer.allocate(16)
+    buffer.put((byte) 1)
+    BinaryValue.putUnsigned(Integer.MAX_VALUE, buffer)
+    buffer.flip()
+
+    when: "it is decoded"
+    codec.decode(buffer)
+
+    then: "it fails without allocating the length"
+    thrown(CodecException)
+  }
+
+  def "Serialized lengths beyond the end of the buffer fail to decode"() {
+    given: "a serialized command claiming more bytes than the buffer holds"
+    def buffer = ByteBuffer.allocate(16)
+    buffer.putInt(Integer.MAX_VALUE)
+    buffer.flip()
+
+    when: "it is decoded"
+    CommandCodecFactory.javaSerialization().create(SerializableCommand).decode(buffer)
+
+    then: "it fails"
+    thrown(CodecException)
+  }
+
+  def "Commands without fields take no bytes"() {
+    given: "the codec of a command type without fields"
+    def codec = CommandCodecFactory.binary().create(NoParamsCommand)
+
+    when: "a command is encoded and decoded"
+    def buffer = ByteBuffer.allocate(0)
+    codec.encode(new NoParamsCommand(), buffer)
+
+    then: "nothing is written and a command is read"
+    assert buffer.position() == 0
+    assert codec.decode(buffer) instanceof NoParamsCommand
+  }
+
+  def "Encoding a command larger than the buffer overflows"() {
+    given: "the codec of a command type with a string"
+    def codec = CommandCodecFactory.binary().create(SimpleCommand)
+
+    when: "a command is encoded to a too small buffer"
+    codec.encode(new SimpleCommand("abcdef"), ByteBuffer.allocate(4))
+
+    then: "the buffer overflows"
+    thrown(BufferOverflowException)
+  }
+
+  def "Codecs cannot be created for abstract command types"() {
+    when: "the codec of an interface is created"
+    CommandCodecFactory.binary().create(Command)
+
+    then: "it fails"
+    thrown(CodecException)
+  }
+
+}
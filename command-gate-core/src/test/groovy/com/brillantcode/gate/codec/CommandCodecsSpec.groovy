@@ -0,0 +1,103 @@
+package com.brillantcode.gate.codec
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.CommandCollectionRegistry
+import com.brillantcode.gate.TestCommands.DetailedCommand
+import com.brillantcode.gate.TestCommands.NoHandlerCommand
+import com.brillantcode.gate.TestCommands.PartitionedCommand
+import com.brillantcode.gate.TestCommands.SerializableCommand
+import com.brillantcode.gate.TestCommands.SimpleCommand
+import java.nio.ByteBuffer
+import spock.lang.Specification
+
+class CommandCodecsSpec extends Specification {
+
+  def "Commands of the registered types are decoded by the codec of their type"() {
+    given: "the codecs of two command types"
+    def codecs = new CommandCodecs(new CommandCollectionRegistry([SimpleCommand, PartitionedCommand]))
+
+    when: "commands of both types are encoded one after another and decoded"
+    def buffer = ByteBuffer.allocate(256)
+    codecs.encode(new SimpleCommand("a"), buffer)
+    codecs.encode(new PartitionedCommand("b", 2), buffer)
+    buffer.flip()
+
+    then: "they are decoded in order"
+    assert codecs.decode(buffer) == new SimpleCommand("a")
+    assert codecs.decode(buffer) == new PartitionedCommand("b", 2)
+    assert codecs.getCommandTypes() == [SimpleCommand, PartitionedCommand] as Set
+  }
+
+  def "Commands of types not in the registry cannot be encoded"() {
+    given: "the codecs of a command type"
+    def codecs = new CommandCodecs(new CommandCollectionRegistry([SimpleCommand]))
+
+    when: "a command of another type is encoded"
+    codecs.encode(new NoHandlerCommand(), ByteBuffer.allocate(64))
+
+    then: "it fails"
+    thrown(CodecException)
+  }
+
+  def "Types without a codec fail when their commands are encoded"() {
+    given: "Java serialization codecs of a serializable and a plain command type"
+    def codecs = new CommandCodecs(new CommandCollectionRegistry([SerializableCommand, SimpleCommand]),
+        CommandCodecFactory.javaSerialization())
+
+    when: "a serializable command is encoded and decoded"
+    def buffer = ByteBuffer.allocate(512)
+    codecs.encode(new SerializableCommand("a"), buffer)
+    buffer.flip()
+
+    then: "it is decoded"
+    assert codecs.decode(buffer) == new SerializableCommand("a")
+
+    when: "a plain command is encoded"
+    codecs.encode(new SimpleCommand("b"), ByteBuffer.allocate(512))
+
+    then: "it fails with the reason"
+    def ex = thrown(CodecException)
+    assert ex.cause.message.contains("not serializable")
+  }
+
+  def "The codec of a type is returned by its type"() {
+    given: "codecs created by a factory"
+    def codec = Mock(CommandCodec)
+    def factory = Mock(CommandCodecFactory)
+
+    when: "the codecs of a registry are created"
+    def codecs = new CommandCodecs(new CommandCollectionRegistry([SimpleCommand]), factory)
+
+    then: "the codec of each type is created once"
+    1 * factory.create(SimpleCommand) >> codec
+
+    and: "returned for the type"
+    assert codecs.codecFor(SimpleCommand).is(codec)
+  }
+
+  def "Unknown tags cannot be decoded"() {
+    given: "the codecs of a command type"
+    def codecs = new CommandCodecs(new CommandCollectionRegistry([SimpleCommand]))
+
+    when: "a buffer with another tag is decoded"
+    codecs.decode(ByteBuffer.allocate(4).putInt(Command.name.hashCode()).flip())
+
+    then: "it fails"
+    thrown(CodecException)
+  }
+
+  def "Codecs tell whether they read Java serialization"() {
+    expect: "binary codecs of fields with a binary form not to"
+    assert !new CommandCodecs(new CommandCollectionRegistry([SimpleCommand, PartitionedCommand]))
+        .usesJavaSerialization()
+
+    and: "binary codecs of a field without a binary form to"
+    assert new CommandCodecs(new CommandCollectionRegistry([DetailedCommand]))
+        .usesJavaSerialization()
+
+    and: "Java serialization codecs to"
+    assert new CommandCodecs(new CommandCollectionRegistry([SerializableCommand]),
+        CommandCodecFactory.javaSerialization()).usesJavaSerialization()
+  }
+
+}
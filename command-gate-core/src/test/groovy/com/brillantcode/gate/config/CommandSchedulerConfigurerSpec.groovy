@@ -0,0 +1,220 @@
+package com.brillantcode.gate.config
+
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.limit.BulkheadCommandScheduler
+import com.brillantcode.gate.limit.CommandLimits
+import com.brillantcode.gate.priority.PriorityCommandScheduler
+import com.brillantcode.gate.scheduler.CoalescingCommandScheduler
+import com.brillantcode.gate.scheduler.CommandRunner
+import com.brillantcode.gate.scheduler.CommandScheduler
+import com.brillantcode.gate.scheduler.SaturationPolicy
+import com.brillantcode.gate.scheduler.VirtualThreadCommandScheduler
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+
+class CommandSchedulerConfigurerSpec extends Specification {
+
+  CommandSchedulerConfigurer<GateConfigurer> configurer =
+      new CommandSchedulerConfigurer<>(GateConfigurer.create())
+
+  CountDownLatch release = new CountDownLatch(1)
+
+  def cleanup() {
+    release.countDown()
+  }
+
+  def "Configured scheduler runs the commands on named daemon threads"() {
+    given: "a scheduler with a thread name prefix"
+    def scheduler = configurer.threadNamePrefix("test-gate-").configure()
+
+    and: "a runner recording its thread"
+    def done = new CountDownLatch(1)
+    Thread thread = null
+    def runner = { thread = Thread.currentThread(); done.countDown() } as CommandRunner
+
+    when: "the runner is scheduled"
+    scheduler.schedule(runner)
+
+    then: "it runs on a daemon pool thread"
+    assert done.await(5, TimeUnit.SECONDS)
+    assert thread.name.startsWith("test-gate-")
+    assert thread.daemon
+  }
+
+  def "Configured scheduler uses a custom executor"() {
+    given: "a custom executor"
+    def executor = Mock(Executor)
+
+    when: "a runner is scheduled"
+    configurer.executor(executor).configure().schedule({} as CommandRunner)
+
+    then: "the executor is used"
+    1 * executor.execute(_)
+  }
+
+  @IgnoreIf({ VirtualThreadCommandScheduler.supported })
+  def "Virtual threads cannot be configured when they are not supported"() {
+    when: "the scheduler is configured with virtual threads"
+    configurer.virtualThreads().concurrencyLimit(TestCommands.SimpleCommand, 2).configure()
+
+    then: "it fails"
+    thrown(UnsupportedOperationException)
+  }
+
+  def "Partition lanes cannot be combined with the drop oldest policy"() {
+    when: "the scheduler is configured with partition lanes and the drop oldest policy"
+    configurer.partitionLanes(4).saturationPolicy(SaturationPolicy.DROP_OLDEST).configure()
+
+    then: "it fails"
+    thrown(IllegalStateException)
+  }
+
+  def "Reject policy throws when the queue is full"() {
+    given: "a saturated scheduler"
+    def scheduler = saturated(configurer.saturationPolicy(SaturationPolicy.REJECT))
+
+    when: "another runner is scheduled"
+    scheduler.schedule({} as CommandRunner)
+
+    then: "the runner is rejected"
+    thrown(RejectedExecutionException)
+  }
+
+  def "Caller runs policy runs the command in the scheduling thread"() {
+    given: "a saturated scheduler"
+    def scheduler = saturated(configurer.saturationPolicy(SaturationPolicy.CALLER_RUNS))
+
+    and: "a runner recording its thread"
+    Thread thread = null
+    def runner = { thread = Thread.currentThread() } as CommandRunner
+
+    when: "the runner is scheduled"
+    scheduler.schedule(runner)
+
+    then: "it runs in the scheduling thread"
+    assert thread.is(Thread.currentThread())
+  }
+
+  def "Block policy waits for space in the queue until the timeout"() {
+    given: "a saturated scheduler"
+    def scheduler = saturated(configurer.blockWhenSaturated(Duration.ofMillis(50)))
+
+    when: "another runner is scheduled"
+    long start = System.nanoTime()
+    scheduler.schedule({} as CommandRunner)
+
+    then: "the runner is rejected after the timeout"
+    thrown(RejectedExecutionException)
+    assert System.nanoTime() - start >= Duration.ofMillis(50).toNanos()
+  }
+
+  def "Block policy schedules the command once there is space in the queue"() {
+    given: "a saturated scheduler"
+    def scheduler = saturated(configurer.blockWhenSaturated(Duration.ofSeconds(5)))
+
+    and: "a runner"
+    def done = new CountDownLatch(1)
+
+    when: "the pool is released shortly after the runner is scheduled"
+    Thread.start {
+      Thread.sleep(50)
+      release.countDown()
+    }
+    scheduler.schedule({ done.countDown() } as CommandRunner)
+
+    then: "the runner is executed"
+    assert done.await(5, TimeUnit.SECONDS)
+  }
+
+  def "Drop oldest policy discards the oldest queued command"() {
+    given: "a saturated scheduler with a queued runner"
+    def oldest = Mock(CommandRunner)
+    def scheduler = saturated(configurer.saturationPolicy(SaturationPolicy.DROP_OLDEST), oldest)
+
+    and: "a new runner"
+    def done = new CountDownLatch(1)
+
+    when: "the new runner is scheduled and the pool released"
+    scheduler.schedule({ done.countDown() } as CommandRunner)
+    release.countDown()
+
+    then: "the new runner is executed"
+    assert done.await(5, TimeUnit.SECONDS)
+
+    and: "the oldest runner is discarded, not run"
+    1 * oldest.discard()
+    0 * oldest.run()
+  }
+
+  private CommandScheduler saturated(CommandSchedulerConfigurer<GateConfigurer> configurer,
+                                     CommandRunner queued = {} as CommandRunner) {
+    def scheduler = configurer.corePoolSize(1).maximumPoolSize(1).queueCapacity(1).configure()
+    def started = new CountDownLatch(1)
+    scheduler.schedule({
+      started.countDown()
+      release.await()
+    } as CommandRunner)
+    assert started.await(5, TimeUnit.SECONDS)
+    scheduler.schedule(queued)
+    return scheduler
+  }
+
+  def "Configured scheduler coalesces the commands when asked to"() {
+    given: "a scheduler on an executor"
+    Executor executor = { it.run() } as Executor
+
+    when: "coalescing is enabled"
+    def scheduler = configurer.executor(executor).coalescing().configure()
+
+    then: "the scheduler merges the pending commands"
+    assert scheduler instanceof CoalescingCommandScheduler
+  }
+
+  def "Configured scheduler limits the command types when asked to"() {
+    given: "a scheduler on an executor keeping the commands"
+    List<Runnable> queued = []
+    Executor executor = { queued << it } as Executor
+
+    when: "the simple commands are limited to one at a time"
+    def scheduler = configurer.executor(executor)
+        .limit(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+        .configure()
+
+    and: "two simple commands are scheduled"
+    2.times {
+      scheduler.schedule({ } as CommandRunner)
+    }
+    2.times {
+      scheduler.schedule(new CommandRunner() {
+        void run() {
+        }
+
+        Class commandType() {
+          TestCommands.SimpleCommand
+        }
+      })
+    }
+
+    then: "commands of other types run freely, the second simple command waits"
+    assert scheduler instanceof BulkheadCommandScheduler
+    assert queued.size() == 3
+    assert scheduler.waitingRunners(TestCommands.SimpleCommand) == 1
+  }
+
+  def "Configured scheduler starts the commands in order of priority when asked to"() {
+    when: "priorities are enabled"
+    def scheduler = configurer.corePoolSize(1).priorities(Duration.ofSeconds(1)).configure()
+
+    then: "the scheduler is a priority scheduler"
+    assert scheduler instanceof PriorityCommandScheduler
+
+    cleanup:
+    (scheduler as PriorityCommandScheduler)?.close()
+  }
+
+}
@@ -1,10 +1,29 @@
 package com.brillantcode.gate.config
 
 
+import com.brillantcode.gate.CommandCollectionRegistry
 import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.codec.CommandCodecs
 import com.brillantcode.gate.handler.CommandHandler
 import com.brillantcode.gate.handler.CommandHandlerDiscoverer
+import com.brillantcode.gate.handler.CommandHandlerRegistry
+import com.brillantcode.gate.handler.LazyCommandHandlerRegistry
+import com.brillantcode.gate.idempotency.IdempotencyCache
+import com.brillantcode.gate.interceptor.CommandInterceptor
+import com.brillantcode.gate.journal.CommandJournal
+import com.brillantcode.gate.limit.CommandLimits
+import com.brillantcode.gate.metrics.CommandMetrics
+import com.brillantcode.gate.metrics.InstrumentedGate
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.TimeUnit
 import spock.lang.Specification
+import spock.lang.TempDir
+import spock.util.concurrent.PollingConditions
 
 class GateConfigurerSpec extends Specification {
 
@@ -12,6 +31,9 @@ class GateConfigurerSpec extends Specification {
 
   CommandHandler simpleCommandHandler = Mock(CommandHandler)
 
+  @TempDir
+  Path directory
+
   def setup() {
     handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> simpleCommandHandler
   }
@@ -39,4 +61,291 @@ class GateConfigurerSpec extends Specification {
     1 * simpleCommandHandler.handle(cmd)
   }
 
+  def "Configures a command gate registering handlers on a registration pool"() {
+    given: "a command gate configurer with a registration pool"
+    def pool = new ForkJoinPool(2)
+    def configurer = GateConfigurer.create()
+        .registrationPool(pool)
+        .addHandlerDiscoverer(handlerDiscoverer)
+    configurer.commandRegistry().addTypes([TestCommands.SimpleCommand])
+
+    and: "a simple command"
+    def cmd = new TestCommands.SimpleCommand("Hello")
+
+    when: "SimpleCommand is dispatched to the configured gate"
+    configurer.configure().dispatch(cmd)
+
+    then: "command handler is invoked"
+    1 * simpleCommandHandler.handle(cmd)
+
+    cleanup:
+    pool.shutdown()
+  }
+
+  def "Configures a command gate with interceptors"() {
+    given: "a command gate configurer with an interceptor"
+    List<String> calls = []
+    def configurer = GateConfigurer.create()
+        .addHandlerDiscoverer(handlerDiscoverer)
+        .addInterceptor({ command, next ->
+          calls << "intercepted"
+          next.handle(command)
+        } as CommandInterceptor)
+    configurer.commandRegistry().addTypes([TestCommands.SimpleCommand])
+
+    and: "a handler recording its calls"
+    simpleCommandHandler.handle(_) >> { calls << "handled" }
+
+    when: "SimpleCommand is dispatched to the configured gate"
+    configurer.configure().dispatch(new TestCommands.SimpleCommand("Hello"))
+
+    then: "the interceptor runs before the handler"
+    assert calls == ["intercepted", "handled"]
+  }
+
+  def "Configures an instrumented command gate"() {
+    given: "a command gate configurer with metrics"
+    def metrics = new CommandMetrics()
+    def configurer = GateConfigurer.create()
+        .addHandlerDiscoverer(handlerDiscoverer)
+        .instrumentation(metrics)
+    configurer.commandRegistry().addTypes([TestCommands.SimpleCommand])
+
+    when: "SimpleCommand is dispatched to the configured gate"
+    def gate = configurer.configure()
+    gate.dispatch(new TestCommands.SimpleCommand("Hello"))
+
+    then: "the gate is instrumented and the command is counted"
+    assert gate instanceof InstrumentedGate
+    assert metrics.forCommandType(TestCommands.SimpleCommand).handledCount() == 1
+  }
+
+  def "Configures an instrumented command gate skipping repeated idempotent commands"() {
+    given: "a command gate configurer with metrics and an idempotency cache"
+    def idempotentHandler = Mock(CommandHandler)
+    handlerDiscoverer.getHandlerFor(TestCommands.IdempotentCommand) >> idempotentHandler
+    def metrics = new CommandMetrics()
+    def cache = new IdempotencyCache()
+    def configurer = GateConfigurer.create()
+        .addHandlerDiscoverer(handlerDiscoverer)
+        .instrumentation(metrics)
+        .idempotencyCache(cache)
+    configurer.commandRegistry().addTypes([TestCommands.IdempotentCommand])
+
+    when: "the same idempotent command is dispatched twice to the configured gate"
+    def gate = configurer.configure()
+    gate.dispatch(new TestCommands.IdempotentCommand("Hello"))
+    gate.dispatch(new TestCommands.IdempotentCommand("Hello"))
+
+    then: "it is handled once and both dispatches are counted"
+    1 * idempotentHandler.handle(new TestCommands.IdempotentCommand("Hello"))
+    assert cache.hitCount() == 1
+    assert metrics.forCommandType(TestCommands.IdempotentCommand).handledCount() == 2
+  }
+
+  def "Configures a command gate limiting the scheduled commands"() {
+    given: "a command gate configurer limiting simple commands on a keeping executor"
+    List<Runnable> queued = new CopyOnWriteArrayList<>()
+    def configurer = GateConfigurer.create()
+        .addHandlerDiscoverer(handlerDiscoverer)
+        .commandScheduler()
+            .executor({ queued << it } as Executor)
+            .limit(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+            .and()
+    configurer.commandRegistry().addTypes([TestCommands.SimpleCommand])
+    def gate = configurer.configure()
+
+    when: "two simple commands are scheduled"
+    gate.schedule(new TestCommands.SimpleCommand("1"))
+    gate.schedule(new TestCommands.SimpleCommand("2"))
+
+    then: "only the first one reaches the executor"
+    assert queued.size() == 1
+
+    when: "it runs"
+    queued[0].run()
+
+    then: "the second one follows"
+    new PollingConditions(timeout: 5).eventually {
+      assert queued.size() == 2
+    }
+    1 * simpleCommandHandler.handle(new TestCommands.SimpleCommand("1"))
+  }
+
+  def "Configures a command gate limiting the commands of lazily discovered handlers"() {
+    given: "a lazy handler registry and a handler declaring a concurrency limit"
+    List<Runnable> queued = new CopyOnWriteArrayList<>()
+    def handled = new CopyOnWriteArrayList<>()
+    def limitedDiscoverer = Stub(CommandHandlerDiscoverer) {
+      getHandlerFor(TestCommands.SimpleCommand) >> new LimitedHandler(handled)
+    }
+    def configurer = GateConfigurer.create()
+        .addHandlerDiscoverer(limitedDiscoverer)
+        .commandHandlerRegistry({ registry, discoverer ->
+          new LazyCommandHandlerRegistry(registry, discoverer)
+        } as CommandHandlerRegistryFactory)
+        .commandScheduler()
+            .executor({ queued << it } as Executor)
+            .and()
+    configurer.commandRegistry().addTypes([TestCommands.SimpleCommand])
+    def gate = configurer.configure()
+
+    when: "two simple commands are scheduled before the handler was discovered"
+    gate.schedule(new TestCommands.SimpleCommand("1"))
+    gate.schedule(new TestCommands.SimpleCommand("2"))
+
+    then: "only the first one reaches the executor"
+    assert queued.size() == 1
+
+    when: "it runs"
+    queued[0].run()
+
+    then: "the second one follows"
+    new PollingConditions(timeout: 5).eventually {
+      assert queued.size() == 2
+    }
+    assert handled == [new TestCommands.SimpleCommand("1")]
+  }
+
+  def "Configures a command gate prioritizing the limited commands of lazily discovered handlers"() {
+    given: "a lazy handler registry, a handler waiting to be released and one declaring a priority"
+    def started = new CountDownLatch(1)
+    def release = new CountDownLatch(1)
+    def handled = new CopyOnWriteArrayList<>()
+    def waitingHandler = { cmd ->
+      handled << "other"
+      started.countDown()
+      release.await(5, TimeUnit.SECONDS)
+    } as CommandHandler
+    def prioritizingDiscoverer = Stub(CommandHandlerDiscoverer) {
+      getHandlerFor(TestCommands.NoParamsCommand) >> waitingHandler
+      getHandlerFor(TestCommands.SimpleCommand) >> new UrgentHandler(handled)
+    }
+
+    and: "a gate limiting the simple commands and starting the urgent commands first"
+    def configurer = GateConfigurer.create()
+        .addHandlerDiscoverer(prioritizingDiscoverer)
+        .commandHandlerRegistry({ registry, discoverer ->
+          new LazyCommandHandlerRegistry(registry, discoverer)
+        } as CommandHandlerRegistryFactory)
+        .commandScheduler()
+            .corePoolSize(1)
+            .daemonThreads(true)
+            .priorities(Duration.ofMinutes(1))
+            .limit(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(2))
+            .and()
+    configurer.commandRegistry().addTypes([TestCommands.NoParamsCommand, TestCommands.SimpleCommand])
+    def gate = configurer.configure()
+
+    when: "a command keeps the worker busy"
+    gate.schedule(new TestCommands.NoParamsCommand())
+    started.await(5, TimeUnit.SECONDS)
+
+    and: "another command and a limited one are scheduled before its handler was discovered"
+    gate.schedule(new TestCommands.NoParamsCommand())
+    gate.schedule(new TestCommands.SimpleCommand("urgent"))
+    release.countDown()
+
+    then: "the limited command runs first, with the priority declared by its handler"
+    new PollingConditions(timeout: 5).eventually {
+      assert handled == ["other", "urgent", "other"]
+    }
+  }
+
+  def "Configures a command gate not looking up the handlers of a custom registry when scheduling"() {
+    given: "a custom registry discovering its handlers up front"
+    def lookups = 0
+    def handled = new CopyOnWriteArrayList<>()
+    def handlerRegistry = { command ->
+      lookups++
+      new LimitedHandler(handled)
+    } as CommandHandlerRegistry
+    List<Runnable> queued = []
+    def configurer = GateConfigurer.create()
+        .commandHandlerRegistry({ registry, discoverer -> handlerRegistry }
+            as CommandHandlerRegistryFactory)
+        .commandScheduler()
+            .executor({ queued << it } as Executor)
+            .and()
+    configurer.commandRegistry().addTypes([TestCommands.SimpleCommand])
+    def gate = configurer.configure()
+
+    when: "a command is scheduled"
+    gate.schedule(new TestCommands.SimpleCommand("1"))
+
+    then: "its handler is not looked up before it runs"
+    assert queued.size() == 1
+    assert lookups == 0
+
+    when: "it runs"
+    queued[0].run()
+
+    then: "its handler is looked up once"
+    assert lookups == 1
+    assert handled == [new TestCommands.SimpleCommand("1")]
+  }
+
+  def "Configures a command gate replaying the journaled commands"() {
+    given: "a journal left with a command by a previous run"
+    def cmd = new TestCommands.SerializableCommand("Hello")
+    def codecs = new CommandCodecs(new CommandCollectionRegistry([TestCommands.SerializableCommand]))
+    def previous = CommandJournal.open(directory, codecs)
+    previous.append([cmd])
+    previous.close()
+
+    and: "a command gate configurer journaling the commands on a keeping executor"
+    List<Runnable> queued = []
+    def serializableHandler = Mock(CommandHandler)
+    def journal = CommandJournal.open(directory, codecs)
+    def configurer = GateConfigurer.create()
+        .addHandlerDiscoverer({ type -> serializableHandler } as CommandHandlerDiscoverer)
+        .commandScheduler()
+            .executor({ queued << it } as Executor)
+            .journal(journal)
+            .and()
+    configurer.commandRegistry().addTypes([TestCommands.SerializableCommand])
+
+    when: "the gate is configured and the queued commands run"
+    configurer.configure()
+    queued*.run()
+
+    then: "the journaled command is handled"
+    1 * serializableHandler.handle(cmd)
+
+    cleanup:
+    journal.close()
+  }
+
+  @com.brillantcode.gate.annotation.CommandHandler(priority = 9)
+  static class UrgentHandler implements CommandHandler<TestCommands.SimpleCommand> {
+
+    final List<Object> handled
+
+    UrgentHandler(List<Object> handled) {
+      this.handled = handled
+    }
+
+    @Override
+    void handle(TestCommands.SimpleCommand command) {
+      handled << command.parameter
+    }
+
+  }
+
+  @com.brillantcode.gate.annotation.CommandHandler(maxConcurrency = 1)
+  static class LimitedHandler implements CommandHandler<TestCommands.SimpleCommand> {
+
+    final List<TestCommands.SimpleCommand> handled
+
+    LimitedHandler(List<TestCommands.SimpleCommand> handled) {
+      this.handled = handled
+    }
+
+    @Override
+    void handle(TestCommands.SimpleCommand command) {
+      handled << command
+    }
+
+  }
+
 }
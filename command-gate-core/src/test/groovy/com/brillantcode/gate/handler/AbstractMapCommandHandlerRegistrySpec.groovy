@@ -4,6 +4,9 @@ import com.brillantcode.gate.CommandCollectionRegistry
 import com.brillantcode.gate.CommandRegistry
 import com.brillantcode.gate.TestClassHandler
 import com.brillantcode.gate.TestCommands
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinWorkerThread
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -92,6 +95,61 @@ class AbstractMapCommandHandlerRegistrySpec extends Specification {
     assert registry.isInitialized()
   }
 
+  def "DoRegister reports all the command types without a single handler"() {
+    given: "a registry of two command types, neither with a single handler"
+    def twoTypeRegistry = new TestingMapCommandHandlerRegistryTest(
+        new CommandCollectionRegistry([TestCommands.SimpleCommand, TestCommands.NoParamsCommand]),
+        handlerDiscoverer
+    )
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> null
+    handlerDiscoverer.getHandlerFor(TestCommands.NoParamsCommand) >> {
+      throw new MultipleHandlersFoundException(TestCommands.NoParamsCommand)
+    }
+
+    when: "doRegister is called"
+    twoTypeRegistry.doRegister()
+
+    then: "one failure is thrown with the other suppressed"
+    def ex = thrown(RuntimeException)
+    assert ([ex] + (ex.suppressed as List))*.class as Set ==
+        [NoHandlerFoundException, MultipleHandlersFoundException] as Set
+  }
+
+  def "DoRegister discovers the handlers in parallel on the registration pool"() {
+    given: "a registry with a registration pool"
+    def pool = new ForkJoinPool(4)
+    def twoTypeRegistry = new TestingMapCommandHandlerRegistryTest(
+        new CommandCollectionRegistry([TestCommands.SimpleCommand, TestCommands.NoParamsCommand]),
+        handlerDiscoverer, pool
+    )
+    def discoveryThreads = ConcurrentHashMap.newKeySet()
+    def simpleHandler = new TestClassHandler()
+    def noParamsHandler = Mock(CommandHandler)
+
+    when: "doRegister is called"
+    twoTypeRegistry.doRegister()
+
+    then: "the handlers are discovered in the pool"
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> {
+      discoveryThreads << Thread.currentThread()
+      simpleHandler
+    }
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.NoParamsCommand) >> {
+      discoveryThreads << Thread.currentThread()
+      noParamsHandler
+    }
+    assert discoveryThreads.every { it instanceof ForkJoinWorkerThread && it.pool.is(pool) }
+
+    and: "the handlers are registered"
+    assert twoTypeRegistry.getCommandHandler(new TestCommands.SimpleCommand("Hello"))
+        .is(simpleHandler)
+    assert twoTypeRegistry.getCommandHandler(new TestCommands.NoParamsCommand())
+        .is(noParamsHandler)
+
+    cleanup:
+    pool.shutdown()
+  }
+
   static class TestingMapCommandHandlerRegistryTest
       extends AbstractMapCommandHandlerRegistry {
 
@@ -102,6 +160,12 @@ class AbstractMapCommandHandlerRegistrySpec extends Specification {
       super(commandRegistry, handlerDiscoverer)
     }
 
+    TestingMapCommandHandlerRegistryTest(CommandRegistry commandRegistry,
+                                         CommandHandlerDiscoverer handlerDiscoverer,
+                                         ForkJoinPool registrationPool) {
+      super(commandRegistry, handlerDiscoverer, registrationPool)
+    }
+
     @Override
     protected boolean isInitialized() {
       return this.initialized
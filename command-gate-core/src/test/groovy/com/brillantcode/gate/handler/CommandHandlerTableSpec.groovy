@@ -0,0 +1,53 @@
+package com.brillantcode.gate.handler
+
+import com.brillantcode.gate.TestClassHandler
+import com.brillantcode.gate.TestCommands
+import spock.lang.Specification
+import spock.lang.Subject
+
+class CommandHandlerTableSpec extends Specification {
+
+  TestClassHandler simpleHandler = new TestClassHandler()
+
+  CommandHandler<TestCommands.NoParamsCommand> noParamsHandler = Mock(CommandHandler)
+
+  @Subject
+  CommandHandlerTable table
+
+  def setup() {
+    table = new CommandHandlerTable([
+        (TestCommands.SimpleCommand)  : simpleHandler,
+        (TestCommands.NoParamsCommand): noParamsHandler
+    ])
+  }
+
+  def "Get returns the handler of a command type"() {
+    expect: "the handlers are found by command type"
+    assert table.get(TestCommands.SimpleCommand).is(simpleHandler)
+    assert table.get(TestCommands.NoParamsCommand).is(noParamsHandler)
+  }
+
+  def "Get returns null for an unknown command type"() {
+    expect: "no handler for a type that is not in the table"
+    assert table.get(TestCommands.NoHandlerCommand) == null
+  }
+
+  def "Size returns the number of command types"() {
+    expect: "one entry per command type"
+    assert table.size() == 2
+  }
+
+  def "Table does not change with the source map"() {
+    given: "a source map"
+    def handlers = [(TestCommands.SimpleCommand): simpleHandler]
+    def ownTable = new CommandHandlerTable(handlers)
+
+    when: "the source map is changed"
+    handlers.put(TestCommands.NoParamsCommand, noParamsHandler)
+
+    then: "the table is not changed"
+    assert ownTable.get(TestCommands.NoParamsCommand) == null
+    assert ownTable.size() == 1
+  }
+
+}
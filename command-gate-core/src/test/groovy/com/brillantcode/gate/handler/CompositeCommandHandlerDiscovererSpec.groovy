@@ -2,6 +2,9 @@ package com.brillantcode.gate.handler
 
 import com.brillantcode.gate.TestClassHandler
 import com.brillantcode.gate.TestCommands
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinWorkerThread
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -79,4 +82,51 @@ class CompositeCommandHandlerDiscovererSpec extends Specification {
     assert result == handler
   }
 
+  def "GetHandlerFor calls the discoverers on the discovery pool"() {
+    given: "a composite discoverer with a discovery pool"
+    def pool = new ForkJoinPool(2)
+    def parallelDiscoverer = new CompositeCommandHandlerDiscoverer([discoverer1, discoverer2], pool)
+    def handler = new TestClassHandler()
+    def discoveryThreads = ConcurrentHashMap.newKeySet()
+
+    when: "getHandlerFor is called"
+    def result = parallelDiscoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "both discoverers were called in the pool"
+    1 * discoverer1.getHandlerFor(TestCommands.SimpleCommand) >> {
+      discoveryThreads << Thread.currentThread()
+      null
+    }
+    1 * discoverer2.getHandlerFor(TestCommands.SimpleCommand) >> {
+      discoveryThreads << Thread.currentThread()
+      handler
+    }
+    assert discoveryThreads.every { it instanceof ForkJoinWorkerThread && it.pool.is(pool) }
+
+    and: "handler is returned"
+    assert result.is(handler)
+
+    cleanup:
+    pool.shutdown()
+  }
+
+  def "GetHandlerFor on the discovery pool throws if more than one handler found"() {
+    given: "a composite discoverer with a discovery pool"
+    def pool = new ForkJoinPool(2)
+    def parallelDiscoverer = new CompositeCommandHandlerDiscoverer([discoverer1, discoverer2], pool)
+
+    and: "both discoverers return a handler"
+    discoverer1.getHandlerFor(TestCommands.SimpleCommand) >> new TestClassHandler()
+    discoverer2.getHandlerFor(TestCommands.SimpleCommand) >> new TestClassHandler()
+
+    when: "getHandlerFor is called"
+    parallelDiscoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "exception is thrown"
+    thrown(MultipleHandlersFoundException)
+
+    cleanup:
+    pool.shutdown()
+  }
+
 }
@@ -0,0 +1,119 @@
+package com.brillantcode.gate.handler
+
+import com.brillantcode.gate.MethodDescriptor
+import com.brillantcode.gate.TestCommands.NoParamsCommand
+import com.brillantcode.gate.TestCommands.SimpleCommand
+import spock.lang.Specification
+
+class LambdaMethodCommandHandlerSpec extends Specification {
+
+  HandlerHolder handlerHolder
+
+  def setup() {
+    handlerHolder = new HandlerHolder()
+  }
+
+  def "Handle should invoke the handler method with the command"() {
+    given: "a handler bound to a valid handler method"
+    def handler = new LambdaMethodCommandHandler<>(handlerHolder, method("handler"), SimpleCommand)
+
+    and: "a command"
+    def cmd = new SimpleCommand("Hello")
+
+    when: "the command is handled"
+    handler.handle(cmd)
+
+    then: "the handler method received the command"
+    assert handlerHolder.received == [cmd]
+  }
+
+  def "Handle should rethrow runtime exceptions of the handler method as they are"() {
+    given: "a handler bound to a method throwing a runtime exception"
+    def handler = new LambdaMethodCommandHandler<>(
+        handlerHolder, method("throwingHandler"), SimpleCommand
+    )
+
+    when: "a command is handled"
+    handler.handle(new SimpleCommand("Hello"))
+
+    then: "the exception of the handler method is thrown"
+    thrown(UnsupportedOperationException)
+  }
+
+  def "Handle should wrap checked exceptions of the handler method"() {
+    given: "a handler bound to a method throwing a checked exception"
+    def handler = new LambdaMethodCommandHandler<>(
+        handlerHolder, method("checkedThrowingHandler"), SimpleCommand
+    )
+
+    when: "a command is handled"
+    handler.handle(new SimpleCommand("Hello"))
+
+    then: "the exception is wrapped in a runtime exception"
+    def ex = thrown(RuntimeException)
+    assert ex.cause instanceof IOException
+  }
+
+  def "Handle should throw when receiving a command of a different type"() {
+    given: "a handler bound to a valid handler method"
+    def handler = new LambdaMethodCommandHandler<>(handlerHolder, method("handler"), SimpleCommand)
+
+    when: "a command of another type is handled"
+    handler.handle(new NoParamsCommand())
+
+    then: "exception is thrown"
+    thrown(IllegalArgumentException)
+  }
+
+  def "Handler method must not return a value"() {
+    when:
+    new LambdaMethodCommandHandler<>(handlerHolder, method("handlerReturningValue"), SimpleCommand)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  def "Handler method parameter type must match the command type"() {
+    given:
+    def method = new MethodDescriptor(
+        HandlerHolder.getDeclaredMethod("handlerWithWrongParamType", NoParamsCommand)
+    )
+
+    when:
+    new LambdaMethodCommandHandler<>(handlerHolder, method, SimpleCommand)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  private static MethodDescriptor method(String name) {
+    new MethodDescriptor(HandlerHolder.getDeclaredMethod(name, SimpleCommand))
+  }
+
+  static class HandlerHolder {
+
+    List<SimpleCommand> received = []
+
+    void handler(SimpleCommand cmd) {
+      received << cmd
+    }
+
+    void throwingHandler(SimpleCommand cmd) {
+      throw new UnsupportedOperationException()
+    }
+
+    void checkedThrowingHandler(SimpleCommand cmd) throws IOException {
+      throw new IOException()
+    }
+
+    Integer handlerReturningValue(SimpleCommand cmd) {
+      42
+    }
+
+    void handlerWithWrongParamType(NoParamsCommand cmd) {
+
+    }
+
+  }
+
+}
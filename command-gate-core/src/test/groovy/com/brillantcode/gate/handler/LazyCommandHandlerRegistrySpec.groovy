@@ -0,0 +1,145 @@
+package com.brillantcode.gate.handler
+
+import com.brillantcode.gate.CommandCollectionRegistry
+import com.brillantcode.gate.CommandRegistry
+import com.brillantcode.gate.TestClassHandler
+import com.brillantcode.gate.TestCommands
+import java.util.concurrent.CompletionException
+import spock.lang.Specification
+import spock.lang.Subject
+
+class LazyCommandHandlerRegistrySpec extends Specification {
+
+  @Subject
+  LazyCommandHandlerRegistry registry
+
+  CommandHandlerDiscoverer handlerDiscoverer = Mock(CommandHandlerDiscoverer)
+
+  CommandRegistry commandRegistry = new CommandCollectionRegistry(
+      [TestCommands.SimpleCommand, TestCommands.NoParamsCommand]
+  )
+
+  def setup() {
+    registry = new LazyCommandHandlerRegistry(commandRegistry, handlerDiscoverer)
+  }
+
+  def "Creating the registry does not discover handlers"() {
+    when: "the registry is created"
+    new LazyCommandHandlerRegistry(commandRegistry, handlerDiscoverer)
+
+    then: "no handler is discovered"
+    0 * handlerDiscoverer.getHandlerFor(_)
+  }
+
+  def "GetCommandHandler discovers the handler once"() {
+    given: "a handler of the command"
+    def expectedHandler = new TestClassHandler()
+
+    when: "handlers of two commands of the same type are requested"
+    def first = registry.getCommandHandler(new TestCommands.SimpleCommand("Hello"))
+    def second = registry.getCommandHandler(new TestCommands.SimpleCommand("World"))
+
+    then: "the handler is discovered once"
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> expectedHandler
+
+    and: "the same handler is returned"
+    assert first.is(expectedHandler)
+    assert second.is(expectedHandler)
+  }
+
+  def "Discovering a handler may resolve the handler of another command type"() {
+    given: "a handler whose discovery resolves the handler of another command type"
+    def simpleHandler = new TestClassHandler()
+    def noParamsHandler = Mock(CommandHandler)
+    handlerDiscoverer.getHandlerFor(TestCommands.NoParamsCommand) >> noParamsHandler
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> {
+      registry.getCommandHandler(new TestCommands.NoParamsCommand())
+      simpleHandler
+    }
+
+    when: "the handler is requested"
+    def handler = registry.getCommandHandler(new TestCommands.SimpleCommand("Hello"))
+
+    then: "both handlers are discovered"
+    assert handler.is(simpleHandler)
+    assert registry.getCommandHandler(new TestCommands.NoParamsCommand()).is(noParamsHandler)
+  }
+
+  def "GetCommandHandler throws for a command type that is not registered"() {
+    when: "the handler of an unknown command type is requested"
+    registry.getCommandHandler(new TestCommands.NoHandlerCommand())
+
+    then: "exception is thrown"
+    thrown(NoHandlerFoundException)
+
+    and: "the discoverer is not asked"
+    0 * handlerDiscoverer.getHandlerFor(_)
+  }
+
+  def "GetCommandHandler throws and retries if no handler is found"() {
+    when: "the handler of a command without a handler is requested"
+    registry.getCommandHandler(new TestCommands.SimpleCommand("Hello"))
+
+    then: "exception is thrown"
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> null
+    thrown(NoHandlerFoundException)
+
+    when: "the handler is requested again"
+    registry.getCommandHandler(new TestCommands.SimpleCommand("Hello"))
+
+    then: "the discoverer is asked again"
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> new TestClassHandler()
+  }
+
+  def "ValidateAll reports all the failures together"() {
+    given: "no command type has a single handler"
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> null
+    handlerDiscoverer.getHandlerFor(TestCommands.NoParamsCommand) >> {
+      throw new MultipleHandlersFoundException(TestCommands.NoParamsCommand)
+    }
+
+    when: "all handlers are validated"
+    registry.validateAll()
+
+    then: "one failure is thrown with the other suppressed"
+    def ex = thrown(RuntimeException)
+    assert ([ex] + (ex.suppressed as List))*.class as Set ==
+        [NoHandlerFoundException, MultipleHandlersFoundException] as Set
+  }
+
+  def "Strict registry discovers all the handlers right away"() {
+    when: "a strict registry is created"
+    LazyCommandHandlerRegistry.strict(commandRegistry, handlerDiscoverer)
+
+    then: "handlers of all the command types are discovered"
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> new TestClassHandler()
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.NoParamsCommand) >> Mock(CommandHandler)
+  }
+
+  def "Prewarm discovers the remaining handlers on the executor"() {
+    given: "a handler already discovered"
+    def simpleHandler = new TestClassHandler()
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> simpleHandler
+    registry.getCommandHandler(new TestCommands.SimpleCommand("Hello"))
+
+    when: "the registry is pre-warmed"
+    registry.prewarm({ it.run() }).join()
+
+    then: "only the remaining handler is discovered"
+    1 * handlerDiscoverer.getHandlerFor(TestCommands.NoParamsCommand) >> Mock(CommandHandler)
+    0 * handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand)
+  }
+
+  def "Prewarm completes exceptionally if a handler is missing"() {
+    given: "a command type without handler"
+    handlerDiscoverer.getHandlerFor(_) >> null
+
+    when: "the registry is pre-warmed"
+    registry.prewarm({ it.run() }).join()
+
+    then: "the future completes with the failure"
+    def ex = thrown(CompletionException)
+    assert ex.cause instanceof NoHandlerFoundException
+  }
+
+}
@@ -13,6 +13,85 @@ class ReflectiveMethodCommandHandlerSpec extends Specification {
     handlerHolder = new HandlerHolder()
   }
 
+  def "Handle should invoke the handler method with the command"() {
+    given: "a handler of a valid handler method"
+    def handler = new ReflectiveMethodCommandHandler<>(
+        handlerHolder, method("handler"), SimpleCommand
+    )
+
+    and: "a command"
+    def cmd = new SimpleCommand("Hello")
+
+    when: "the command is handled"
+    handler.handle(cmd)
+
+    then: "the handler method received the command"
+    assert handlerHolder.received == [cmd]
+  }
+
+  def "Handle should rethrow runtime exceptions of the handler method as they are"() {
+    given: "a handler of a method throwing a runtime exception"
+    def handler = new ReflectiveMethodCommandHandler<>(
+        handlerHolder, method("throwingHandler"), SimpleCommand
+    )
+
+    when: "a command is handled"
+    handler.handle(new SimpleCommand("Hello"))
+
+    then: "the exception of the handler method is thrown"
+    thrown(UnsupportedOperationException)
+  }
+
+  def "Handle should wrap checked exceptions of the handler method"() {
+    given: "a handler of a method throwing a checked exception"
+    def handler = new ReflectiveMethodCommandHandler<>(
+        handlerHolder, method("checkedThrowingHandler"), SimpleCommand
+    )
+
+    when: "a command is handled"
+    handler.handle(new SimpleCommand("Hello"))
+
+    then: "the exception is wrapped in a runtime exception"
+    def ex = thrown(RuntimeException)
+    assert ex.cause instanceof IOException
+  }
+
+  def "Handle should report an inaccessible handler method on every call"() {
+    given: "a handler of a private handler method, which cannot be bound to a method handle"
+    def handler = new ReflectiveMethodCommandHandler<>(
+        handlerHolder, method("privateHandler"), SimpleCommand
+    )
+
+    when: "a command is handled"
+    handler.handle(new SimpleCommand("Hello"))
+
+    then: "the illegal access of the reflective call is reported"
+    def ex = thrown(IllegalStateException)
+    assert ex.cause instanceof IllegalAccessException
+
+    when: "the command is handled again"
+    handler.handle(new SimpleCommand("Hello"))
+
+    then: "it is reported again and the handler method was never called"
+    thrown(IllegalStateException)
+    assert handlerHolder.received.isEmpty()
+  }
+
+  def "Handle should name both types when receiving a command of a different type"() {
+    given: "a handler of a valid handler method"
+    def handler = new ReflectiveMethodCommandHandler<>(
+        handlerHolder, method("handler"), SimpleCommand
+    )
+
+    when: "a command of another type is handled"
+    handler.handle(new NoParamsCommand())
+
+    then: "exception is thrown"
+    def ex = thrown(IllegalArgumentException)
+    assert ex.message == "Wrong command type ${NoParamsCommand.name} received by a handler" +
+        " for command type ${SimpleCommand.name}"
+  }
+
   def "Handler method must not return a value"() {
     given:
     def method = new MethodDescriptor(
@@ -52,8 +131,30 @@ class ReflectiveMethodCommandHandlerSpec extends Specification {
     thrown(IllegalArgumentException)
   }
 
+  private static MethodDescriptor method(String name) {
+    new MethodDescriptor(HandlerHolder.getDeclaredMethod(name, SimpleCommand))
+  }
+
   static class HandlerHolder {
 
+    List<SimpleCommand> received = []
+
+    void handler(SimpleCommand cmd) {
+      received << cmd
+    }
+
+    private void privateHandler(SimpleCommand cmd) {
+      received << cmd
+    }
+
+    void throwingHandler(SimpleCommand cmd) {
+      throw new UnsupportedOperationException()
+    }
+
+    void checkedThrowingHandler(SimpleCommand cmd) throws IOException {
+      throw new IOException()
+    }
+
     Integer handlerReturningValue(SimpleCommand cmd) {
       42
     }
@@ -0,0 +1,141 @@
+package com.brillantcode.gate.idempotency
+
+import com.brillantcode.gate.TestCommands
+import java.util.concurrent.TimeUnit
+import java.util.function.LongSupplier
+import spock.lang.Specification
+
+class IdempotencyCacheSpec extends Specification {
+
+  long now = 0
+
+  LongSupplier clock = { -> now } as LongSupplier
+
+  def "Handled commands absorb their repetitions"() {
+    given: "a cache"
+    def cache = new IdempotencyCache(100, clock)
+    def cmd = new TestCommands.IdempotentCommand("a")
+
+    when: "a command is looked up before and after being handled"
+    def key = cache.keyOf(cmd)
+    def before = cache.absorbs(key)
+    cache.handled(key, cmd)
+    def after = cache.absorbs(cache.keyOf(new TestCommands.IdempotentCommand("a")))
+
+    then: "only its repetition is absorbed, counting a miss and a hit"
+    assert !before && after
+    assert cache.missCount() == 1
+    assert cache.hitCount() == 1
+  }
+
+  def "Repetitions of reserved commands share their outcome"() {
+    given: "a cache"
+    def cache = new IdempotencyCache(100, clock)
+    def key = cache.keyOf(new TestCommands.IdempotentCommand("a"))
+
+    when: "a command is reserved and repeated from another thread"
+    def reserved = cache.reserve(key)
+    def outcome = null
+    Thread.start { outcome = cache.reserve(key) }.join()
+
+    then: "the repetition gets the pending outcome of the command"
+    assert reserved == null
+    assert !outcome.done
+
+    when: "the reservation is released, as the command failed"
+    def failure = new IllegalStateException("failed")
+    cache.release(key, failure)
+
+    then: "the repetition fails with the same failure, and the command can be reserved again"
+    assert outcome.completedExceptionally
+    assert outcome.handle { result, ex -> ex.cause ?: ex }.get().is(failure)
+    assert cache.reserve(key) == null
+
+    when: "the command is handled"
+    cache.handled(key, new TestCommands.IdempotentCommand("a"))
+
+    then: "its repetitions are absorbed by the cache"
+    assert cache.reserve(key).done
+    assert cache.size() == 1
+  }
+
+  def "Repetitions of a reserved command in the thread handling it are absorbed"() {
+    given: "a cache with a reserved command"
+    def cache = new IdempotencyCache(100, clock)
+    def key = cache.keyOf(new TestCommands.IdempotentCommand("a"))
+    cache.reserve(key)
+
+    expect: "its repetition in the same thread does not wait for it"
+    assert cache.reserve(key).done
+  }
+
+  def "Commands are identified by their idempotency key and type"() {
+    given: "a cache"
+    def cache = new IdempotencyCache(100, clock)
+
+    when: "a keyed command is handled"
+    def cmd = new TestCommands.KeyedIdempotentCommand("r1", 1)
+    cache.handled(cache.keyOf(cmd), cmd)
+
+    then: "the commands with the same key are absorbed"
+    assert cache.absorbs(cache.keyOf(new TestCommands.KeyedIdempotentCommand("r1", 2)))
+    assert !cache.absorbs(cache.keyOf(new TestCommands.KeyedIdempotentCommand("r2", 1)))
+
+    and: "commands that are not idempotent have no key"
+    assert cache.keyOf(new TestCommands.SimpleCommand("r1")) == null
+  }
+
+  def "Handled commands expire after their time to live"() {
+    given: "a cache with a handled command"
+    def cache = new IdempotencyCache(100, clock)
+    def cmd = new TestCommands.IdempotentCommand("a")
+    def key = cache.keyOf(cmd)
+    cache.handled(key, cmd)
+
+    when: "the time to live is almost over"
+    now += TimeUnit.SECONDS.toNanos(60) - 1
+
+    then: "the command is still absorbed"
+    assert cache.absorbs(key)
+
+    when: "the time to live is over"
+    now += 1
+
+    then: "the command is not absorbed anymore"
+    assert !cache.absorbs(key)
+  }
+
+  def "The cache is bounded by its maximum size"() {
+    given: "a cache"
+    def cache = new IdempotencyCache(100, clock)
+
+    when: "more commands are handled than it holds"
+    (1..1000).each {
+      def cmd = new TestCommands.IdempotentCommand("cmd-$it")
+      cache.handled(cache.keyOf(cmd), cmd)
+    }
+
+    then: "the oldest ones are evicted"
+    assert cache.size() == 100
+    assert cache.evictionCount() == 900
+  }
+
+  def "Frequently repeated commands survive a scan of commands seen once"() {
+    given: "a cache with commands repeated often"
+    def cache = new IdempotencyCache(100, clock)
+    def hot = (1..10).collect { new TestCommands.IdempotentCommand("hot-$it") }
+    hot.each { cache.handled(cache.keyOf(it), it) }
+    3.times { hot.each { assert cache.absorbs(cache.keyOf(it)) } }
+
+    when: "many more commands are handled once each"
+    (1..1000).each {
+      def cmd = new TestCommands.IdempotentCommand("cold-$it")
+      cache.handled(cache.keyOf(cmd), cmd)
+    }
+
+    then: "the frequent commands are still absorbed"
+    hot.each { assert cache.absorbs(cache.keyOf(it)) }
+    assert cache.size() <= 100
+  }
+
+}
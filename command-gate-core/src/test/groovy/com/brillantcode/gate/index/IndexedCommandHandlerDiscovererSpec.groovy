@@ -0,0 +1,79 @@
+package com.brillantcode.gate.index
+
+import com.brillantcode.gate.TestClassHandler
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.handler.MultipleHandlersFoundException
+import spock.lang.Specification
+import spock.lang.Subject
+
+class IndexedCommandHandlerDiscovererSpec extends Specification {
+
+  @Subject
+  IndexedCommandHandlerDiscoverer discoverer
+
+  HandlerInstanceProvider instanceProvider = Mock(HandlerInstanceProvider)
+
+  def setup() {
+    discoverer = new IndexedCommandHandlerDiscoverer(instanceProvider)
+  }
+
+  def "GetHandlerFor returns null if no handler is registered"() {
+    expect: "no handler for a command type without registration"
+    assert discoverer.getHandlerFor(TestCommands.SimpleCommand) == null
+  }
+
+  def "GetHandlerFor creates the handler with the instance provider"() {
+    given: "a handler registered for a command type"
+    def handler = new TestClassHandler()
+    discoverer.register(TestCommands.SimpleCommand, { provider ->
+      provider.getInstance(TestClassHandler) as TestClassHandler
+    } as IndexedCommandHandlerDiscoverer.HandlerFactory)
+
+    when: "getHandlerFor is called"
+    def result = discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "the handler instance is requested from the provider"
+    1 * instanceProvider.getInstance(TestClassHandler) >> handler
+
+    and: "the handler is returned"
+    assert result.is(handler)
+  }
+
+  def "Register does not request instances"() {
+    when: "a handler is registered"
+    discoverer.register(TestCommands.SimpleCommand, { provider ->
+      provider.getInstance(TestClassHandler) as TestClassHandler
+    } as IndexedCommandHandlerDiscoverer.HandlerFactory)
+
+    then: "no instance is requested"
+    0 * instanceProvider.getInstance(_)
+  }
+
+  def "GetHandlerFor throws if more than one handler is registered"() {
+    given: "two handlers registered for the same command type"
+    discoverer.register(TestCommands.SimpleCommand,
+        { provider -> new TestClassHandler() } as IndexedCommandHandlerDiscoverer.HandlerFactory)
+    discoverer.register(TestCommands.SimpleCommand,
+        { provider -> new TestClassHandler() } as IndexedCommandHandlerDiscoverer.HandlerFactory)
+
+    when: "getHandlerFor is called"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "exception is thrown"
+    thrown(MultipleHandlersFoundException)
+  }
+
+  def "Constructing provider creates one instance per type"() {
+    given: "a constructing provider"
+    def provider = HandlerInstanceProvider.constructing()
+
+    when: "an instance is requested twice"
+    def first = provider.getInstance(TestClassHandler)
+    def second = provider.getInstance(TestClassHandler)
+
+    then: "the same instance is returned"
+    assert first instanceof TestClassHandler
+    assert first.is(second)
+  }
+
+}
@@ -0,0 +1,78 @@
+package com.brillantcode.gate.interceptor
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.TestCommands.NoParamsCommand
+import com.brillantcode.gate.TestCommands.SimpleCommand
+import com.brillantcode.gate.handler.CommandHandler
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer
+import spock.lang.Specification
+
+class InterceptingCommandHandlerDiscovererSpec extends Specification {
+
+  CommandHandlerDiscoverer handlerDiscoverer = Mock(CommandHandlerDiscoverer)
+
+  List<String> calls = []
+
+  CommandHandler<SimpleCommand> handler = { calls << "handler" } as CommandHandler<SimpleCommand>
+
+  def setup() {
+    handlerDiscoverer.getHandlerFor(SimpleCommand) >> handler
+  }
+
+  def "Interceptors receive the command in the order they were added"() {
+    given: "a discoverer with two interceptors"
+    def discoverer = new InterceptingCommandHandlerDiscoverer(handlerDiscoverer, [
+        recording("first"), recording("second")
+    ])
+
+    when: "a command is handled by the discovered handler"
+    def cmd = new SimpleCommand("Hello")
+    discoverer.getHandlerFor(SimpleCommand).handle(cmd)
+
+    then: "the interceptors wrap the handler in order"
+    assert calls == ["first before", "second before", "handler", "second after", "first after"]
+  }
+
+  def "Interceptor stops the processing by not calling the next handler"() {
+    given: "a discoverer with an interceptor rejecting the commands"
+    def discoverer = new InterceptingCommandHandlerDiscoverer(handlerDiscoverer, [
+        { command, next -> calls << "rejected" } as CommandInterceptor, recording("second")
+    ])
+
+    when: "a command is handled by the discovered handler"
+    discoverer.getHandlerFor(SimpleCommand).handle(new SimpleCommand("Hello"))
+
+    then: "neither the next interceptor nor the handler are called"
+    assert calls == ["rejected"]
+  }
+
+  def "Handler is returned as it is when no interceptor applies to the command type"() {
+    given: "a discoverer with an interceptor applying to another command type"
+    def interceptor = Mock(CommandInterceptor) {
+      appliesTo(_) >> { Class type -> type == NoParamsCommand }
+    }
+    def discoverer = new InterceptingCommandHandlerDiscoverer(handlerDiscoverer, [interceptor])
+
+    expect: "the handler is not wrapped"
+    discoverer.getHandlerFor(SimpleCommand).is(handler)
+  }
+
+  def "Missing handlers are not intercepted"() {
+    given: "a discoverer with an interceptor"
+    def discoverer = new InterceptingCommandHandlerDiscoverer(
+        handlerDiscoverer, [recording("first")]
+    )
+
+    expect: "no handler is found for a command type without one"
+    discoverer.getHandlerFor(NoParamsCommand) == null
+  }
+
+  private CommandInterceptor recording(String name) {
+    return { Command command, CommandHandler<Command> next ->
+      calls << name + " before"
+      next.handle(command)
+      calls << name + " after"
+    } as CommandInterceptor
+  }
+
+}
@@ -0,0 +1,111 @@
+package com.brillantcode.gate.jfr
+
+import com.brillantcode.gate.DefaultGate
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.handler.CommandHandler
+import com.brillantcode.gate.handler.CommandHandlerRegistry
+import com.brillantcode.gate.scheduler.CommandRunner
+import com.brillantcode.gate.scheduler.CommandScheduler
+import java.nio.file.Files
+import java.time.Duration
+import jdk.jfr.Recording
+import jdk.jfr.RecordingState
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import spock.lang.Specification
+
+class CommandEventsSpec extends Specification {
+
+  Recording recording = new Recording()
+
+  CommandHandlerRegistry commandHandlerRegistry = Mock(CommandHandlerRegistry)
+
+  CommandHandler commandHandler = Mock(CommandHandler) {
+    handlerReference() >> "Handlers#handleSimple"
+  }
+
+  List<CommandRunner> queue = []
+
+  DefaultGate gate = new DefaultGate(commandHandlerRegistry,
+      { CommandRunner runner -> queue << runner } as CommandScheduler)
+
+  def setup() {
+    commandHandlerRegistry.getCommandHandler(_) >> commandHandler
+    [CommandDispatchEvent.NAME, CommandScheduleEvent.NAME, CommandExecutionEvent.NAME].each {
+      recording.enable(it).withThreshold(Duration.ZERO)
+    }
+    recording.start()
+  }
+
+  def cleanup() {
+    recording.close()
+  }
+
+  def "Dispatched commands are recorded with their handler"() {
+    given: "a failing command"
+    def failing = new TestCommands.SimpleCommand("fail")
+    commandHandler.handle(failing) >> { throw new IllegalStateException("failed") }
+
+    when: "commands are dispatched"
+    gate.dispatchAll([new TestCommands.SimpleCommand("1"), new TestCommands.SimpleCommand("2")])
+    gate.dispatch(failing)
+
+    then: "the failure is propagated"
+    thrown(IllegalStateException)
+
+    and: "an event is recorded per dispatch"
+    def events = recordedEvents(CommandDispatchEvent.NAME)
+    assert events.size() == 2
+    assert events*.getClass("commandType")*.name == [TestCommands.SimpleCommand.name] * 2
+    assert events*.getString("handler") == ["Handlers#handleSimple"] * 2
+    assert events*.getInt("commands") == [2, 1]
+    assert events*.getBoolean("failed") == [false, true]
+  }
+
+  def "Scheduled commands are recorded when scheduled and when run"() {
+    when: "a command is scheduled and run after a while"
+    gate.schedule(new TestCommands.SimpleCommand("1"))
+    Thread.sleep(20)
+    queue[0].run()
+
+    then: "its scheduling is recorded"
+    def scheduled = recordedEvents(CommandScheduleEvent.NAME)
+    assert scheduled.size() == 1
+    assert scheduled[0].getInt("commands") == 1
+    assert !scheduled[0].getBoolean("rejected")
+
+    and: "its execution is recorded with the time it waited"
+    def executed = recordedEvents(CommandExecutionEvent.NAME)
+    assert executed.size() == 1
+    assert executed[0].getString("handler") == "Handlers#handleSimple"
+    assert executed[0].getDuration("queueWait") >= Duration.ofMillis(20)
+  }
+
+  def "Events below the threshold are not recorded"() {
+    given: "the default thresholds"
+    recording.close()
+    recording = new Recording()
+    recording.enable(CommandDispatchEvent.NAME)
+    recording.start()
+
+    when: "a fast command is dispatched"
+    gate.dispatch(new TestCommands.SimpleCommand("1"))
+
+    then: "no event is recorded"
+    assert recordedEvents(CommandDispatchEvent.NAME).empty
+  }
+
+  private List<RecordedEvent> recordedEvents(String name) {
+    if (recording.state == RecordingState.RUNNING) {
+      recording.stop()
+    }
+    def file = Files.createTempFile("command-gate", ".jfr")
+    try {
+      recording.dump(file)
+      return RecordingFile.readAllEvents(file).findAll { it.eventType.name == name }
+    } finally {
+      Files.delete(file)
+    }
+  }
+
+}
@@ -0,0 +1,322 @@
+package com.brillantcode.gate.journal
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.CommandCollectionRegistry
+import com.brillantcode.gate.Gate
+import com.brillantcode.gate.TestCommands.SerializableCommand
+import com.brillantcode.gate.codec.CommandCodecs
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class CommandJournalSpec extends Specification {
+
+  @TempDir
+  Path directory
+
+  CommandJournal journal
+
+  def cleanup() {
+    journal?.close()
+  }
+
+  def "Commands not acknowledged are recovered when the journal is reopened"() {
+    given: "a journal with three commands, the second one acknowledged"
+    journal = open()
+    journal.append([new SerializableCommand("1")])
+    def receipt = journal.append([new SerializableCommand("2")])
+    journal.append([new SerializableCommand("3")])
+    journal.acknowledge(receipt)
+
+    when: "the journal is reopened"
+    journal.close()
+    journal = open()
+
+    then: "the other commands are recovered in order"
+    assert journal.recoveredCommands() == [new SerializableCommand("1"), new SerializableCommand("3")]
+  }
+
+  def "Replayed commands are scheduled and no longer recovered"() {
+    given: "a journal left with a command"
+    journal = open()
+    journal.append([new SerializableCommand("1")])
+    journal.close()
+    journal = open()
+
+    and: "a gate"
+    def gate = Mock(Gate)
+
+    when: "the commands are replayed"
+    journal.replay(gate)
+
+    then: "they are scheduled with the gate"
+    1 * gate.schedule(new SerializableCommand("1"))
+
+    when: "the journal is reopened"
+    journal.close()
+    journal = open()
+
+    then: "nothing is recovered"
+    assert journal.recoveredCommands().isEmpty()
+  }
+
+  def "Commands are replayed in the order they were journaled"() {
+    given: "a journal left with commands appended in separate batches"
+    journal = open()
+    journal.append([new SerializableCommand("1"), new SerializableCommand("2")])
+    journal.append([new SerializableCommand("3")])
+    journal.close()
+    journal = open()
+
+    and: "a gate"
+    def gate = Mock(Gate)
+
+    when: "the commands are replayed"
+    journal.replay(gate)
+
+    then: "the first command is scheduled first"
+    1 * gate.schedule(new SerializableCommand("1"))
+
+    then: "the second one next"
+    1 * gate.schedule(new SerializableCommand("2"))
+
+    then: "the last one last"
+    1 * gate.schedule(new SerializableCommand("3"))
+    0 * gate.scheduleAll(_)
+  }
+
+  def "Commands rejected by the gate are replayed once it accepts them"() {
+    given: "a journal left with two commands"
+    journal = open()
+    journal.append([new SerializableCommand("1")])
+    journal.append([new SerializableCommand("2")])
+    journal.close()
+    journal = open()
+
+    and: "a gate rejecting the second command twice"
+    def gate = Mock(Gate)
+    def scheduled = []
+    def rejections = 2
+    gate.schedule(_) >> { Command command ->
+      if (command == new SerializableCommand("2") && rejections-- > 0) {
+        throw new RejectedExecutionException("full")
+      }
+      scheduled << command
+    }
+
+    when: "the commands are replayed"
+    journal.replay(gate)
+
+    then: "they are all scheduled in order"
+    assert scheduled == [new SerializableCommand("1"), new SerializableCommand("2")]
+
+    when: "the journal is reopened"
+    journal.close()
+    journal = open()
+
+    then: "nothing is recovered"
+    assert journal.recoveredCommands().isEmpty()
+  }
+
+  def "Commands the gate keeps rejecting are still recovered"() {
+    given: "a journal left with two commands"
+    journal = open()
+    journal.append([new SerializableCommand("1")])
+    journal.append([new SerializableCommand("2")])
+    journal.close()
+    journal = open()
+
+    and: "a gate rejecting the second command"
+    def gate = Mock(Gate)
+    gate.schedule(new SerializableCommand("2")) >> { throw new RejectedExecutionException("full") }
+
+    when: "the commands are replayed"
+    journal.replay(gate, Duration.ofMillis(10))
+
+    then: "the replay fails"
+    thrown(JournalException)
+
+    and: "the rejected command is still recovered"
+    assert journal.recoveredCommands() == [new SerializableCommand("2")]
+
+    when: "the journal is reopened"
+    journal.close()
+    journal = open()
+
+    then: "only the rejected command is recovered"
+    assert journal.recoveredCommands() == [new SerializableCommand("2")]
+  }
+
+  def "Appends waiting for a commit complete when the journal is closed"() {
+    given: "a journal committing after an hour"
+    journal = CommandJournal.open(directory, codecs(), 1 << 16, 1 << 16,
+        Duration.ofHours(1))
+
+    and: "an append waiting for the commit"
+    def executor = Executors.newSingleThreadExecutor()
+    def append = executor.submit({ journal.append([new SerializableCommand("1")]) } as Callable)
+    Thread.sleep(100)
+
+    when: "the journal is closed"
+    journal.close()
+
+    then: "the append completes"
+    assert append.get(5, TimeUnit.SECONDS).count() == 1
+
+    when: "the journal is reopened"
+    journal = open()
+
+    then: "the command is recovered"
+    assert journal.recoveredCommands() == [new SerializableCommand("1")]
+
+    cleanup:
+    executor.shutdownNow()
+  }
+
+  def "Segments whose entries are all acknowledged are deleted"() {
+    given: "a journal of small segments"
+    journal = open(64)
+
+    when: "commands filling several segments are appended"
+    def receipts = (1..9).collect { journal.append([new SerializableCommand("$it")]) }
+
+    then: "several segments were created"
+    assert journal.segmentCount() > 2
+
+    when: "the commands are acknowledged"
+    receipts.each { journal.acknowledge(it) }
+
+    then: "only the active segment is left"
+    assert journal.segmentCount() == 1
+    assert segmentFiles().size() == 1
+  }
+
+  def "Acknowledging a receipt twice keeps the other entries of its segment"() {
+    given: "a journal of small segments with two commands in the first one"
+    journal = open(64)
+    def receipt = journal.append([new SerializableCommand("1")])
+    journal.append([new SerializableCommand("2")])
+    journal.append([new SerializableCommand("3")])
+    assert journal.segmentCount() == 2
+
+    when: "the first command is acknowledged twice"
+    journal.acknowledge(receipt)
+    journal.acknowledge(receipt)
+
+    then: "the first segment is kept"
+    assert journal.segmentCount() == 2
+
+    when: "the journal is reopened"
+    journal.close()
+    journal = open(64)
+
+    then: "the other commands are recovered"
+    assert journal.recoveredCommands() == [new SerializableCommand("2"), new SerializableCommand("3")]
+  }
+
+  def "Commands not fitting in the rest of a segment are written to the next one"() {
+    given: "a journal of small segments holding a command"
+    journal = open(64)
+    journal.append([new SerializableCommand("1")])
+
+    when: "two commands not fitting in the rest of the segment are appended together"
+    journal.append([new SerializableCommand("2"), new SerializableCommand("3")])
+
+    then: "they are written to a new segment"
+    assert journal.segmentCount() == 2
+
+    when: "commands not fitting in any segment are appended"
+    journal.append([new SerializableCommand("x" * 64)])
+
+    then: "they are rejected"
+    thrown(IllegalArgumentException)
+
+    when: "the journal is reopened"
+    journal.close()
+    journal = open(64)
+
+    then: "the commands are recovered in order"
+    assert journal.recoveredCommands() == ["1", "2", "3"].collect { new SerializableCommand(it) }
+  }
+
+  def "Torn entries at the end of a segment are ignored"() {
+    given: "a journal left with two commands"
+    journal = open()
+    journal.append([new SerializableCommand("1")])
+    journal.append([new SerializableCommand("2")])
+    journal.close()
+
+    and: "the last byte of the second entry is damaged"
+    def segment = segmentFiles()[0]
+    FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE).withCloseable {
+      def buffer = it.map(FileChannel.MapMode.READ_WRITE, 0, it.size())
+      int second = 8 + buffer.getInt(0)
+      int end = second + 8 + buffer.getInt(second)
+      buffer.put(end - 1, (byte) (buffer.get(end - 1) ^ 0xFF))
+      buffer.force()
+    }
+
+    when: "the journal is reopened"
+    journal = open()
+
+    then: "only the first command is recovered"
+    assert journal.recoveredCommands() == [new SerializableCommand("1")]
+  }
+
+  def "Concurrent appends are committed together"() {
+    given: "a journal committing every 50 milliseconds"
+    journal = CommandJournal.open(directory, codecs(),
+        CommandJournal.DEFAULT_SEGMENT_SIZE, Integer.MAX_VALUE, Duration.ofMillis(50))
+    def pool = Executors.newFixedThreadPool(8)
+
+    when: "commands are appended from several threads"
+    long start = System.nanoTime()
+    def futures = (1..8).collect { i ->
+      pool.submit({ journal.append([new SerializableCommand("$i")]) } as Callable)
+    }
+    futures*.get(5, TimeUnit.SECONDS)
+    long elapsed = System.nanoTime() - start
+
+    then: "they all waited for a commit, but not one after another"
+    assert elapsed >= TimeUnit.MILLISECONDS.toNanos(40)
+    assert elapsed < TimeUnit.MILLISECONDS.toNanos(8 * 50)
+
+    cleanup:
+    pool.shutdown()
+  }
+
+  def "Appending to a closed journal fails"() {
+    given: "a closed journal"
+    journal = open()
+    journal.close()
+
+    when: "a command is appended"
+    journal.append([new SerializableCommand("1")])
+
+    then: "it fails"
+    thrown(JournalException)
+  }
+
+  private CommandJournal open(int segmentSize = 1 << 16) {
+    CommandJournal.open(directory, codecs(),
+        segmentSize, 1, Duration.ZERO)
+  }
+
+  private static CommandCodecs codecs() {
+    new CommandCodecs(new CommandCollectionRegistry([SerializableCommand]))
+  }
+
+  private List<Path> segmentFiles() {
+    Files.list(directory).withCloseable { it.sorted().toList() }
+  }
+
+}
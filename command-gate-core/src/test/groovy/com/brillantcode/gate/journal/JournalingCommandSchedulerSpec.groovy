@@ -0,0 +1,113 @@
+package com.brillantcode.gate.journal
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.CommandCollectionRegistry
+import com.brillantcode.gate.TestCommands.SerializableCommand
+import com.brillantcode.gate.codec.CommandCodecs
+import com.brillantcode.gate.scheduler.CommandRunner
+import com.brillantcode.gate.scheduler.CommandScheduler
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.RejectedExecutionException
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class JournalingCommandSchedulerSpec extends Specification {
+
+  @TempDir
+  Path directory
+
+  CommandJournal journal
+
+  List<CommandRunner> queue = []
+
+  JournalingCommandScheduler scheduler
+
+  def setup() {
+    journal = open()
+    scheduler = new JournalingCommandScheduler(
+        { CommandRunner runner -> queue << runner } as CommandScheduler, journal)
+  }
+
+  def cleanup() {
+    journal?.close()
+  }
+
+  def "Commands are recovered until their runner completes"() {
+    given: "two scheduled runners"
+    scheduler.schedule(runner(new SerializableCommand("1")))
+    scheduler.schedule(runner(new SerializableCommand("2")))
+
+    when: "the first one runs and the journal is reopened"
+    queue[0].run()
+    reopen()
+
+    then: "the command of the other one is recovered"
+    assert journal.recoveredCommands() == [new SerializableCommand("2")]
+  }
+
+  def "Commands of rejected runners are not recovered"() {
+    given: "a scheduler rejecting the runners"
+    scheduler = new JournalingCommandScheduler(
+        { throw new RejectedExecutionException() } as CommandScheduler, journal)
+
+    when: "a runner is scheduled"
+    scheduler.schedule(runner(new SerializableCommand("1")))
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+
+    when: "the journal is reopened"
+    reopen()
+
+    then: "nothing is recovered"
+    assert journal.recoveredCommands().isEmpty()
+  }
+
+  def "Merged runners acknowledge the commands of all of them"() {
+    given: "two scheduled runners"
+    scheduler.schedule(runner(new SerializableCommand("1")))
+    scheduler.schedule(runner(new SerializableCommand("2")))
+
+    when: "they are merged, as by a coalescing scheduler, and run"
+    queue[0].coalesce(queue[1]).run()
+    reopen()
+
+    then: "nothing is recovered"
+    assert journal.recoveredCommands().isEmpty()
+  }
+
+  def "Runners without commands are scheduled as they are"() {
+    given: "a runner that does not tell its commands"
+    def runner = { } as CommandRunner
+
+    when: "it is scheduled"
+    scheduler.schedule(runner)
+
+    then: "it is passed to the scheduler"
+    assert queue.size() == 1
+    assert queue[0].is(runner)
+  }
+
+  private void reopen() {
+    journal.close()
+    journal = open()
+  }
+
+  private CommandJournal open() {
+    def codecs = new CommandCodecs(new CommandCollectionRegistry([SerializableCommand]))
+    CommandJournal.open(directory, codecs, 1 << 16, 1, Duration.ZERO)
+  }
+
+  private static CommandRunner runner(Command command) {
+    new CommandRunner() {
+      void run() {
+      }
+
+      List<Command> commands() {
+        [command]
+      }
+    }
+  }
+
+}
@@ -0,0 +1,375 @@
+package com.brillantcode.gate.limit
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.scheduler.CommandRunner
+import com.brillantcode.gate.scheduler.CommandScheduler
+import com.brillantcode.gate.scheduler.SaturationPolicy
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class BulkheadCommandSchedulerSpec extends Specification {
+
+  List<CommandRunner> queue = new CopyOnWriteArrayList<>()
+
+  PollingConditions conditions = new PollingConditions(timeout: 5)
+
+  CommandScheduler delegate = { CommandRunner runner -> queue << runner } as CommandScheduler
+
+  CommandLimitsRegistry limitsRegistry = new CommandLimitsRegistry()
+
+  def "Commands over the concurrency limit wait for a running one to complete"() {
+    given: "a scheduler running two simple commands at most"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(2))
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+
+    when: "three commands are scheduled"
+    List<String> runs = []
+    ["1", "2", "3"].each { scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, it, runs)) }
+
+    then: "two are passed to the scheduler and the third one waits"
+    assert queue.size() == 2
+    assert scheduler.waitingRunners(TestCommands.SimpleCommand) == 1
+
+    when: "the first command runs"
+    queue[0].run()
+
+    then: "the waiting command is passed to the scheduler"
+    conditions.eventually {
+      assert queue.size() == 3
+    }
+    assert scheduler.waitingRunners(TestCommands.SimpleCommand) == 0
+
+    when: "the other commands run"
+    queue[1].run()
+    queue[2].run()
+
+    then: "all the commands ran"
+    assert runs == ["1", "2", "3"]
+  }
+
+  def "Discarded commands free their permit"() {
+    given: "a scheduler running one simple command at most"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+    List<String> runs = []
+    def discarded = []
+
+    when: "two commands are scheduled and the first one is discarded"
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", runs, discarded))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", runs, discarded))
+    queue[0].discard()
+    conditions.eventually {
+      assert queue.size() == 2
+    }
+    queue[1].run()
+
+    then: "the second command runs"
+    assert discarded == ["1"]
+    assert runs == ["2"]
+  }
+
+  def "Commands over the concurrency limit are rejected with the reject policy"() {
+    given: "a scheduler rejecting the commands over the limit"
+    limitsRegistry.configure(TestCommands.SimpleCommand,
+        CommandLimits.none().withMaxConcurrency(1).whenLimited(LimitPolicy.REJECT))
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", []))
+
+    when: "another command is scheduled while the first one has not run"
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", []))
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+    assert queue.size() == 1
+  }
+
+  def "Commands over the concurrency limit run on the fallback executor"() {
+    given: "a scheduler falling back for the commands over the limit"
+    def fallback = Mock(Executor)
+    limitsRegistry.configure(TestCommands.SimpleCommand,
+        CommandLimits.none().withMaxConcurrency(1).whenLimited(LimitPolicy.FALLBACK))
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry, fallback)
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", []))
+    def second = new TypedRunner(TestCommands.SimpleCommand, "2", [])
+
+    when: "another command is scheduled while the first one has not run"
+    scheduler.schedule(second)
+
+    then: "it is passed to the fallback executor"
+    1 * fallback.execute(second)
+    assert queue.size() == 1
+  }
+
+  def "Commands over the rate are rejected with the reject policy"() {
+    given: "a scheduler starting one simple command per minute, two at once"
+    limitsRegistry.configure(TestCommands.SimpleCommand,
+        CommandLimits.none().withRate(1 / 60d, 2).whenLimited(LimitPolicy.REJECT))
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+
+    when: "two commands are scheduled"
+    2.times { scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "$it", [])) }
+
+    then: "both are passed to the scheduler"
+    assert queue.size() == 2
+
+    when: "a third command is scheduled"
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "3", []))
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+    assert queue.size() == 2
+  }
+
+  def "Commands over the rate are delayed with the queue policy"() {
+    given: "a scheduler starting twenty simple commands per second"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withRate(20, 1))
+    def done = new CountDownLatch(3)
+    def scheduler = new BulkheadCommandScheduler(
+        { CommandRunner runner -> runner.run(); done.countDown() } as CommandScheduler,
+        limitsRegistry
+    )
+
+    when: "three commands are scheduled at once"
+    List<String> runs = []
+    long start = System.nanoTime()
+    ["1", "2", "3"].each { scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, it, runs)) }
+
+    then: "the commands start one interval after another"
+    assert done.await(5, TimeUnit.SECONDS)
+    assert System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90)
+    assert runs == ["1", "2", "3"]
+  }
+
+  def "Commands of unlimited types are scheduled as they are"() {
+    given: "a scheduler limiting simple commands only"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+    def runner = new TypedRunner(TestCommands.NoParamsCommand, "1", [])
+
+    when: "a command of another type is scheduled twice"
+    scheduler.schedule(runner)
+    scheduler.schedule(runner)
+
+    then: "both are passed to the scheduler"
+    assert queue.size() == 2
+    assert queue.every { it.is(runner) }
+  }
+
+  def "Commands waiting for a running one are rejected when too many wait"() {
+    given: "a scheduler running one simple command at most, with one waiting"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    def scheduler = new BulkheadCommandScheduler(
+        delegate, limitsRegistry, Runnable::run, 1, SaturationPolicy.REJECT, Duration.ZERO)
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", []))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", []))
+
+    when: "a third command is scheduled"
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "3", []))
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+    assert scheduler.waitingRunners(TestCommands.SimpleCommand) == 1
+  }
+
+  def "Oldest waiting command is discarded when too many wait with the drop oldest policy"() {
+    given: "a scheduler running one simple command at most, with one waiting"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    def scheduler = new BulkheadCommandScheduler(
+        delegate, limitsRegistry, Runnable::run, 1, SaturationPolicy.DROP_OLDEST, Duration.ZERO)
+    List<String> runs = []
+    def discarded = []
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", runs, discarded))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", runs, discarded))
+
+    when: "a third command is scheduled and the first one runs"
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "3", runs, discarded))
+    queue[0].run()
+    conditions.eventually {
+      assert queue.size() == 2
+    }
+    queue[1].run()
+
+    then: "the second command was discarded for the third one"
+    assert discarded == ["2"]
+    assert runs == ["1", "3"]
+  }
+
+  def "Commands wait for space among the waiting ones up to the timeout with the block policy"() {
+    given: "a scheduler running one simple command at most, with one waiting"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    def scheduler = new BulkheadCommandScheduler(
+        delegate, limitsRegistry, Runnable::run, 1, SaturationPolicy.BLOCK, Duration.ofMillis(50))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", []))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", []))
+
+    when: "a third command is scheduled while none completes"
+    long start = System.nanoTime()
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "3", []))
+
+    then: "it is rejected after the timeout"
+    thrown(RejectedExecutionException)
+    assert System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50)
+  }
+
+  def "Waiting commands are drained in a loop when the scheduler runs them in the caller"() {
+    given: "a scheduler running one simple command at most, on a scheduler queueing the first one"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    boolean inline = false
+    def scheduler = new BulkheadCommandScheduler(
+        { CommandRunner runner -> inline ? runner.run() : queue << runner } as CommandScheduler,
+        limitsRegistry
+    )
+    List<String> runs = Collections.synchronizedList([])
+    10_000.times { scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "$it", runs)) }
+
+    when: "the scheduler starts running the commands in the caller and the first one runs"
+    inline = true
+    queue[0].run()
+
+    then: "all the waiting commands run without growing the stack"
+    conditions.eventually {
+      assert runs.size() == 10_000
+    }
+  }
+
+  def "Limits declared by handlers discovered lazily apply from the first command"() {
+    given: "a registry discovering the handlers declaring a concurrency limit"
+    limitsRegistry.discoverHandlersWith { command ->
+      limitsRegistry.declare(command.getClass(), CommandLimits.none().withMaxConcurrency(1))
+    }
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+
+    when: "two commands are scheduled"
+    2.times {
+      def runner = new TypedRunner(TestCommands.SimpleCommand, "$it", [])
+      runner.commands = [new TestCommands.SimpleCommand("$it")]
+      scheduler.schedule(runner)
+    }
+
+    then: "the second one waits for the first one"
+    assert queue.size() == 1
+    assert scheduler.waitingRunners(TestCommands.SimpleCommand) == 1
+  }
+
+  def "Unlimited types are looked up again while handlers are discovered lazily"() {
+    given: "a registry discovering the handlers lazily, which declare no limits yet"
+    limitsRegistry.discoverHandlersWith { command -> }
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", []))
+
+    when: "limits are declared later and two more commands are scheduled"
+    limitsRegistry.declare(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", []))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "3", []))
+
+    then: "the limits apply to them"
+    assert queue.size() == 2
+    assert scheduler.waitingRunners(TestCommands.SimpleCommand) == 1
+  }
+
+  def "Unlimited types are not looked up again once the handler of a command is discovered"() {
+    given: "a registry discovering the handlers lazily, which declare no limits"
+    def discoveries = 0
+    limitsRegistry.discoverHandlersWith { command -> discoveries++ }
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+
+    when: "two runners telling their commands are scheduled"
+    2.times {
+      def runner = new TypedRunner(TestCommands.SimpleCommand, "$it", [])
+      runner.commands = [new TestCommands.SimpleCommand("$it")]
+      scheduler.schedule(runner)
+    }
+
+    then: "the handler is discovered once"
+    assert discoveries == 1
+    assert queue.size() == 2
+  }
+
+  def "Commands waiting for a token are rejected when too many wait"() {
+    given: "a scheduler starting one simple command per minute, with one waiting"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withRate(1 / 60d, 1))
+    def scheduler = new BulkheadCommandScheduler(
+        delegate, limitsRegistry, Runnable::run, 1, SaturationPolicy.REJECT, Duration.ZERO)
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", []))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", []))
+
+    when: "a third command is scheduled"
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "3", []))
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+    assert queue.size() == 1
+
+    cleanup:
+    scheduler.close()
+  }
+
+  def "Closing discards the commands waiting for their limits"() {
+    given: "a scheduler running one simple command at most, with one waiting"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(1))
+    def scheduler = new BulkheadCommandScheduler(delegate, limitsRegistry)
+    List<String> runs = []
+    def discarded = []
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "1", runs, discarded))
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, "2", runs, discarded))
+
+    when: "the scheduler is closed and the running command completes"
+    scheduler.close()
+    queue[0].run()
+
+    then: "the waiting command is discarded"
+    assert runs == ["1"]
+    assert discarded == ["2"]
+    assert queue.size() == 1
+  }
+
+  static class TypedRunner implements CommandRunner {
+
+    final Class<? extends Command> commandType
+
+    final String name
+
+    final List<String> runs
+
+    final List<String> discarded
+
+    List<Command> commands = []
+
+    TypedRunner(Class<? extends Command> commandType, String name, List<String> runs,
+                List<String> discarded = []) {
+      this.commandType = commandType
+      this.name = name
+      this.runs = runs
+      this.discarded = discarded
+    }
+
+    @Override
+    void run() {
+      runs << name
+    }
+
+    @Override
+    void discard() {
+      discarded << name
+    }
+
+    @Override
+    Class<? extends Command> commandType() {
+      commandType
+    }
+
+    @Override
+    List<Command> commands() {
+      commands
+    }
+
+  }
+
+}
@@ -0,0 +1,102 @@
+package com.brillantcode.gate.limit
+
+import com.brillantcode.gate.MethodDescriptor
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.annotation.CommandHandler
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer
+import com.brillantcode.gate.handler.ReflectiveMethodCommandHandler
+import spock.lang.Specification
+
+class LimitDeclaringCommandHandlerDiscovererSpec extends Specification {
+
+  CommandHandlerDiscoverer handlerDiscoverer = Mock(CommandHandlerDiscoverer)
+
+  CommandLimitsRegistry limitsRegistry = new CommandLimitsRegistry()
+
+  def discoverer = new LimitDeclaringCommandHandlerDiscoverer(handlerDiscoverer, limitsRegistry)
+
+  def "Limits declared on the handler method are recorded"() {
+    given: "a handler of an annotated method"
+    def handler = new ReflectiveMethodCommandHandler<>(
+        new LimitedHandlers(), method("limited"), TestCommands.SimpleCommand
+    )
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> handler
+
+    when: "the handler is discovered"
+    def discovered = discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "it is returned as it is and its limits are recorded"
+    assert discovered.is(handler)
+    def limits = limitsRegistry.limitsFor(TestCommands.SimpleCommand)
+    assert limits.maxConcurrency() == 3
+    assert limits.permitsPerSecond() == 50d
+    assert limits.burst() == 5
+    assert limits.policy() == LimitPolicy.REJECT
+  }
+
+  def "Handler methods without limits declare none"() {
+    given: "a handler of a method without limits"
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >>
+        new ReflectiveMethodCommandHandler<>(
+            new LimitedHandlers(), method("unlimited"), TestCommands.SimpleCommand
+        )
+
+    when: "the handler is discovered"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "no limits are recorded"
+    assert limitsRegistry.limitsFor(TestCommands.SimpleCommand) == null
+    assert limitsRegistry.empty
+  }
+
+  def "Limits declared on the handler class are recorded"() {
+    given: "an annotated handler class"
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> new LimitedHandler()
+
+    when: "the handler is discovered"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "the limits of the class are recorded"
+    assert limitsRegistry.limitsFor(TestCommands.SimpleCommand).maxConcurrency() == 1
+  }
+
+  def "Configured limits take precedence over the declared ones"() {
+    given: "configured limits"
+    limitsRegistry.configure(TestCommands.SimpleCommand, CommandLimits.none().withMaxConcurrency(8))
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> new LimitedHandler()
+
+    when: "a handler declaring limits is discovered"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "the configured limits apply"
+    assert limitsRegistry.limitsFor(TestCommands.SimpleCommand).maxConcurrency() == 8
+  }
+
+  private static MethodDescriptor method(String name) {
+    new MethodDescriptor(LimitedHandlers.getDeclaredMethod(name, TestCommands.SimpleCommand))
+  }
+
+  static class LimitedHandlers {
+
+    @CommandHandler(maxConcurrency = 3, permitsPerSecond = 50d, burst = 5,
+        whenLimited = LimitPolicy.REJECT)
+    void limited(TestCommands.SimpleCommand cmd) {
+    }
+
+    @CommandHandler
+    void unlimited(TestCommands.SimpleCommand cmd) {
+    }
+
+  }
+
+  @CommandHandler(maxConcurrency = 1)
+  static class LimitedHandler
+      implements com.brillantcode.gate.handler.CommandHandler<TestCommands.SimpleCommand> {
+
+    @Override
+    void handle(TestCommands.SimpleCommand command) {
+    }
+
+  }
+
+}
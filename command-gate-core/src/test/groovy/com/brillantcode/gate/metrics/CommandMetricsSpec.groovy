@@ -0,0 +1,123 @@
+package com.brillantcode.gate.metrics
+
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.handler.CommandHandler
+import com.brillantcode.gate.handler.CommandHandlerRegistry
+import com.brillantcode.gate.scheduler.CoalescingCommandScheduler
+import com.brillantcode.gate.scheduler.CommandRunner
+import com.brillantcode.gate.scheduler.CommandScheduler
+import java.util.concurrent.RejectedExecutionException
+import spock.lang.Specification
+
+class CommandMetricsSpec extends Specification {
+
+  CommandMetrics metrics = new CommandMetrics()
+
+  CommandHandlerRegistry commandHandlerRegistry = Mock(CommandHandlerRegistry)
+
+  CommandHandler commandHandler = Mock(CommandHandler)
+
+  List<CommandRunner> queue = []
+
+  CommandScheduler commandScheduler = { CommandRunner runner -> queue << runner } as CommandScheduler
+
+  InstrumentedGate gate
+
+  def setup() {
+    commandHandlerRegistry.getCommandHandler(_) >> commandHandler
+    gate = new InstrumentedGate(commandHandlerRegistry,
+        new InstrumentedCommandScheduler(commandScheduler, metrics), metrics)
+  }
+
+  def "Counts the handled and failed commands of every type"() {
+    given: "a handler failing one command"
+    def failing = new TestCommands.SimpleCommand("fail")
+    commandHandler.handle(failing) >> { throw new IllegalStateException("failed") }
+
+    when: "commands are dispatched"
+    gate.dispatch(new TestCommands.SimpleCommand("1"))
+    gate.dispatchAll([new TestCommands.SimpleCommand("2"), new TestCommands.NoParamsCommand()])
+    gate.dispatch(failing)
+
+    then: "the failure is propagated"
+    thrown(IllegalStateException)
+
+    and: "the commands are counted by type"
+    def simple = metrics.forCommandType(TestCommands.SimpleCommand).snapshot()
+    assert simple.handledCount() == 2
+    assert simple.failedCount() == 1
+    assert simple.latency().count() == 3
+    assert metrics.forCommandType(TestCommands.NoParamsCommand).handledCount() == 1
+    assert metrics.snapshot()*.commandType().toSet() ==
+        [TestCommands.SimpleCommand, TestCommands.NoParamsCommand].toSet()
+  }
+
+  def "Tracks the runners waiting for the scheduler"() {
+    when: "two commands are scheduled"
+    gate.schedule(new TestCommands.SimpleCommand("1"))
+    gate.schedule(new TestCommands.SimpleCommand("2"))
+
+    then: "both are queued"
+    def typeMetrics = metrics.forCommandType(TestCommands.SimpleCommand)
+    assert typeMetrics.queueDepth() == 2
+
+    when: "one runs and the other is discarded"
+    queue[0].run()
+    queue[1].discard()
+
+    then: "none is queued and the time in queue of the first one was recorded"
+    assert typeMetrics.queueDepth() == 0
+    assert typeMetrics.handledCount() == 1
+    assert typeMetrics.snapshot().queueTime().count() == 1
+  }
+
+  def "Counts the coalesced commands"() {
+    given: "an instrumented gate with a coalescing scheduler"
+    def coalescingGate = new InstrumentedGate(commandHandlerRegistry,
+        new InstrumentedCommandScheduler(new CoalescingCommandScheduler(commandScheduler), metrics),
+        metrics)
+
+    when: "three commands with the same key are scheduled and run"
+    3.times { coalescingGate.schedule(new TestCommands.RefreshCommand("cache", 1)) }
+    queue*.run()
+
+    then: "two were coalesced into the one handled"
+    def typeMetrics = metrics.forCommandType(TestCommands.RefreshCommand)
+    assert typeMetrics.coalescedCount() == 2
+    assert typeMetrics.handledCount() == 1
+    assert typeMetrics.queueDepth() == 0
+  }
+
+  def "Counts the runners rejected by the scheduler as discarded"() {
+    given: "a scheduler rejecting every runner"
+    def rejecting = new InstrumentedCommandScheduler(
+        { throw new RejectedExecutionException("full") } as CommandScheduler, metrics)
+    def runner = Stub(CommandRunner) {
+      commandType() >> TestCommands.SimpleCommand
+    }
+
+    when: "a runner is scheduled"
+    rejecting.schedule(runner)
+
+    then: "the rejection is propagated and the runner is not queued"
+    thrown(RejectedExecutionException)
+    assert metrics.forCommandType(TestCommands.SimpleCommand).queueDepth() == 0
+  }
+
+  def "Notifies the listeners of every command type"() {
+    given: "the metrics of a command type"
+    def existing = metrics.forCommandType(TestCommands.SimpleCommand)
+
+    and: "a listener"
+    def seen = []
+    metrics.onCommandType { seen << it }
+
+    when: "a command of another type is dispatched"
+    gate.dispatch(new TestCommands.NoParamsCommand())
+
+    then: "the listener received both command types"
+    assert seen*.commandType() == [TestCommands.SimpleCommand, TestCommands.NoParamsCommand]
+    assert seen[0].is(existing)
+  }
+
+}
@@ -0,0 +1,69 @@
+package com.brillantcode.gate.metrics
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class LogHistogramSpec extends Specification {
+
+  @Unroll
+  def "Value #value falls within the bounds of its bucket"() {
+    when: "the bucket of the value is computed"
+    def bucket = LogHistogram.bucket(value)
+
+    then: "the value is within the bounds of the bucket"
+    assert bucket < LogHistogram.BUCKETS
+    assert LogHistogram.lowerBound(bucket) <= value
+    assert LogHistogram.upperBound(bucket) >= value
+
+    where:
+    value << [0L, 1L, 7L, 8L, 15L, 16L, 1000L, 123_456_789L, Long.MAX_VALUE]
+  }
+
+  def "Buckets are contiguous"() {
+    expect: "every bucket starts right after the previous one"
+    (1..<LogHistogram.BUCKETS).every {
+      LogHistogram.lowerBound(it) == LogHistogram.upperBound(it - 1) + 1
+    }
+  }
+
+  def "Snapshot estimates quantiles within a bucket width"() {
+    given: "a histogram of the values from 1 to 1000"
+    def histogram = new LogHistogram()
+    (1..1000).each { histogram.record(it) }
+
+    when: "a snapshot is taken"
+    def snapshot = histogram.snapshot()
+
+    then: "the count, sum and max are exact"
+    assert snapshot.count() == 1000
+    assert snapshot.sum() == 500_500
+    assert snapshot.max() == 1000
+    assert snapshot.mean() == 500.5
+
+    and: "the quantiles are at most 12.5 % above the exact values"
+    assert snapshot.valueAt(0.5) >= 500 && snapshot.valueAt(0.5) <= 563
+    assert snapshot.valueAt(0.99) >= 990 && snapshot.valueAt(0.99) <= 1000
+    assert snapshot.valueAt(1) == 1000
+  }
+
+  def "Values recorded several times count several times"() {
+    given: "a histogram"
+    def histogram = new LogHistogram()
+
+    when: "a value is recorded three times at once and a negative value once"
+    histogram.record(40, 3)
+    histogram.record(-5)
+
+    then: "the negative value is recorded as zero"
+    def snapshot = histogram.snapshot()
+    assert snapshot.count() == 4
+    assert snapshot.sum() == 120
+    assert snapshot.valueAt(0.25) == 0
+  }
+
+  def "Empty snapshot has no values"() {
+    expect:
+    new LogHistogram().snapshot().valueAt(0.99) == 0
+  }
+
+}
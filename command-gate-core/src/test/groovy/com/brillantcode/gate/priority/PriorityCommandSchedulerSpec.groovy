@@ -0,0 +1,194 @@
+package com.brillantcode.gate.priority
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.Prioritized
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.scheduler.CommandRunner
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+
+class PriorityCommandSchedulerSpec extends Specification {
+
+  CommandPriorities priorities = new CommandPriorities()
+
+  CountDownLatch release = new CountDownLatch(1)
+
+  List<String> runs = new CopyOnWriteArrayList<>()
+
+  PriorityCommandScheduler scheduler
+
+  def cleanup() {
+    release.countDown()
+    scheduler?.close()
+  }
+
+  def "Waiting runners start in order of priority, then in the order they were scheduled"() {
+    given: "a scheduler with one busy worker"
+    scheduler = busyScheduler(Duration.ofMinutes(1))
+
+    when: "runners of different priorities are scheduled"
+    scheduler.schedule(new PrioritizedRunner("low", Prioritized.MIN_PRIORITY, runs))
+    scheduler.schedule(new PrioritizedRunner("normal-1", CommandRunner.NO_PRIORITY, runs))
+    scheduler.schedule(new PrioritizedRunner("high", Prioritized.MAX_PRIORITY, runs))
+    scheduler.schedule(new PrioritizedRunner("normal-2", Prioritized.NORM_PRIORITY, runs))
+
+    and: "the worker is released"
+    release.countDown()
+    scheduler.close()
+
+    then: "the runners ran from the highest priority to the lowest"
+    assert runs == ["busy", "high", "normal-1", "normal-2", "low"]
+  }
+
+  def "Runners of commands without a priority take the one of their type"() {
+    given: "a priority for simple commands"
+    priorities.configure(TestCommands.SimpleCommand, 8)
+    scheduler = busyScheduler(Duration.ofMinutes(1))
+
+    when: "runners of a prioritized type and of another one are scheduled"
+    scheduler.schedule(new PrioritizedRunner("other", CommandRunner.NO_PRIORITY, runs))
+    scheduler.schedule(new PrioritizedRunner("simple", CommandRunner.NO_PRIORITY, runs, TestCommands.SimpleCommand))
+    release.countDown()
+    scheduler.close()
+
+    then: "the runner of the prioritized type ran first"
+    assert runs == ["busy", "simple", "other"]
+  }
+
+  def "Priorities declared by handlers discovered lazily apply from the first command"() {
+    given: "priorities discovering the handlers of simple commands, which declare a priority"
+    priorities.discoverHandlersWith { command ->
+      if (command instanceof TestCommands.SimpleCommand) {
+        priorities.declare(TestCommands.SimpleCommand, 8)
+      }
+    }
+    scheduler = busyScheduler(Duration.ofMinutes(1))
+
+    when: "a runner of another type and one of a simple command are scheduled"
+    scheduler.schedule(new PrioritizedRunner("other", CommandRunner.NO_PRIORITY, runs))
+    def simple = new PrioritizedRunner("simple", CommandRunner.NO_PRIORITY, runs, TestCommands.SimpleCommand)
+    simple.commands = [new TestCommands.SimpleCommand("Hello")]
+    scheduler.schedule(simple)
+    release.countDown()
+    scheduler.close()
+
+    then: "the runner of the simple command ran first"
+    assert runs == ["busy", "simple", "other"]
+  }
+
+  def "Worker carries on after a runner throws an error"() {
+    given: "a scheduler with a single worker"
+    scheduler = new PriorityCommandScheduler(priorities, 8, 1, Duration.ofSeconds(1))
+
+    when: "a runner throwing an error and another one are scheduled"
+    scheduler.schedule({ throw new Error("failed") } as CommandRunner)
+    scheduler.schedule(new PrioritizedRunner("next", CommandRunner.NO_PRIORITY, runs))
+    scheduler.close()
+
+    then: "the other runner ran"
+    assert runs == ["next"]
+  }
+
+  def "Runners gain priority while they wait"() {
+    given: "a scheduler aging the runners every millisecond"
+    scheduler = busyScheduler(Duration.ofMillis(1))
+
+    when: "a low priority runner waits longer than the aging of all the priorities"
+    scheduler.schedule(new PrioritizedRunner("low", Prioritized.MIN_PRIORITY, runs))
+    Thread.sleep(50)
+
+    and: "a high priority runner is scheduled"
+    scheduler.schedule(new PrioritizedRunner("high", Prioritized.MAX_PRIORITY, runs))
+    release.countDown()
+    scheduler.close()
+
+    then: "the aged runner ran first"
+    assert runs == ["busy", "low", "high"]
+  }
+
+  def "Runners are rejected when the queues are full"() {
+    given: "a scheduler of two waiting runners with a busy worker"
+    scheduler = busyScheduler(Duration.ofMinutes(1), 2)
+    2.times { scheduler.schedule(new PrioritizedRunner("$it", CommandRunner.NO_PRIORITY, runs)) }
+
+    when: "another runner is scheduled"
+    scheduler.schedule(new PrioritizedRunner("2", CommandRunner.NO_PRIORITY, runs))
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+    assert scheduler.queuedRunners() == 2
+  }
+
+  def "Closed scheduler runs the queued runners and rejects new ones"() {
+    given: "a closed scheduler"
+    scheduler = new PriorityCommandScheduler(priorities, 8, 1, Duration.ofSeconds(1))
+    scheduler.schedule(new PrioritizedRunner("queued", CommandRunner.NO_PRIORITY, runs))
+    scheduler.close()
+
+    when: "a runner is scheduled"
+    scheduler.schedule(new PrioritizedRunner("late", CommandRunner.NO_PRIORITY, runs))
+
+    then: "it is rejected and the queued one ran"
+    thrown(RejectedExecutionException)
+    assert runs == ["queued"]
+  }
+
+  private PriorityCommandScheduler busyScheduler(Duration agingInterval, int capacity = 16) {
+    def scheduler = new PriorityCommandScheduler(priorities, capacity, 1, agingInterval)
+    def started = new CountDownLatch(1)
+    scheduler.schedule({
+      started.countDown()
+      release.await()
+      runs << "busy"
+    } as CommandRunner)
+    assert started.await(5, TimeUnit.SECONDS)
+    return scheduler
+  }
+
+  static class PrioritizedRunner implements CommandRunner {
+
+    final String name
+
+    final int priority
+
+    final List<String> runs
+
+    final Class<? extends Command> commandType
+
+    List<Command> commands = []
+
+    PrioritizedRunner(String name, int priority, List<String> runs,
+                      Class<? extends Command> commandType = TestCommands.NoParamsCommand) {
+      this.name = name
+      this.priority = priority
+      this.runs = runs
+      this.commandType = commandType
+    }
+
+    @Override
+    void run() {
+      runs << name
+    }
+
+    @Override
+    int priority() {
+      priority
+    }
+
+    @Override
+    Class<? extends Command> commandType() {
+      commandType
+    }
+
+    @Override
+    List<Command> commands() {
+      commands
+    }
+
+  }
+
+}
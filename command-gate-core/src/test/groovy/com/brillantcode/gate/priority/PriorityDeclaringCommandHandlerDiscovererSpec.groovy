@@ -0,0 +1,97 @@
+package com.brillantcode.gate.priority
+
+import com.brillantcode.gate.MethodDescriptor
+import com.brillantcode.gate.Prioritized
+import com.brillantcode.gate.TestCommands
+import com.brillantcode.gate.annotation.CommandHandler
+import com.brillantcode.gate.handler.CommandHandlerDiscoverer
+import com.brillantcode.gate.handler.ReflectiveMethodCommandHandler
+import spock.lang.Specification
+
+class PriorityDeclaringCommandHandlerDiscovererSpec extends Specification {
+
+  CommandHandlerDiscoverer handlerDiscoverer = Mock(CommandHandlerDiscoverer)
+
+  CommandPriorities priorities = new CommandPriorities()
+
+  def discoverer = new PriorityDeclaringCommandHandlerDiscoverer(handlerDiscoverer, priorities)
+
+  def "Priorities declared on the handler method are recorded"() {
+    given: "a handler of an annotated method"
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> handler("urgent")
+
+    when: "the handler is discovered"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "the priority of the method is recorded"
+    assert priorities.priorityOf(TestCommands.SimpleCommand) == 9
+  }
+
+  def "Command types without a declared priority have the normal one"() {
+    given: "a handler of a method without a priority"
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> handler("normal")
+
+    when: "the handler is discovered"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "the command type has the normal priority"
+    assert priorities.priorityOf(TestCommands.SimpleCommand) == Prioritized.NORM_PRIORITY
+  }
+
+  def "Declared priorities out of range are brought within it"() {
+    given: "a handler of a method declaring a priority out of range"
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> handler(name)
+
+    when: "the handler is discovered"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "the nearest priority within range is recorded"
+    assert priorities.priorityOf(TestCommands.SimpleCommand) == expected
+
+    where:
+    name       || expected
+    "overdue"  || Prioritized.MAX_PRIORITY
+    "someday"  || Prioritized.MIN_PRIORITY
+  }
+
+  def "Configured priorities take precedence over the declared ones"() {
+    given: "a configured priority"
+    priorities.configure(TestCommands.SimpleCommand, 2)
+    handlerDiscoverer.getHandlerFor(TestCommands.SimpleCommand) >> handler("urgent")
+
+    when: "a handler declaring a priority is discovered"
+    discoverer.getHandlerFor(TestCommands.SimpleCommand)
+
+    then: "the configured priority applies"
+    assert priorities.priorityOf(TestCommands.SimpleCommand) == 2
+  }
+
+  private static ReflectiveMethodCommandHandler handler(String name) {
+    new ReflectiveMethodCommandHandler<>(
+        new Handlers(),
+        new MethodDescriptor(Handlers.getDeclaredMethod(name, TestCommands.SimpleCommand)),
+        TestCommands.SimpleCommand
+    )
+  }
+
+  static class Handlers {
+
+    @CommandHandler(priority = 9)
+    void urgent(TestCommands.SimpleCommand cmd) {
+    }
+
+    @CommandHandler
+    void normal(TestCommands.SimpleCommand cmd) {
+    }
+
+    @CommandHandler(priority = 11)
+    void overdue(TestCommands.SimpleCommand cmd) {
+    }
+
+    @CommandHandler(priority = -1)
+    void someday(TestCommands.SimpleCommand cmd) {
+    }
+
+  }
+
+}
@@ -0,0 +1,49 @@
+package com.brillantcode.gate.remote
+
+import spock.lang.Specification
+
+class ConsistentHashRingSpec extends Specification {
+
+  def "Keys are spread over all the nodes"() {
+    given: "a ring of three nodes"
+    def ring = new ConsistentHashRing(["a", "b", "c"])
+
+    when: "the nodes of many keys are looked up"
+    def counts = (1..3000).collect { ring.nodeFor("key-$it".toString()) }.countBy { it }
+
+    then: "every node owns a fair share of them"
+    assert counts.keySet() == ["a", "b", "c"] as Set
+    counts.values().each { assert it > 600 }
+  }
+
+  def "Rings of the same nodes assign the keys alike"() {
+    given: "two rings of the same nodes listed in a different order"
+    def ring = new ConsistentHashRing(["a", "b", "c"])
+    def other = new ConsistentHashRing(["c", "a", "b"])
+
+    expect: "the keys belong to the same nodes"
+    (1..500).each { assert ring.nodeFor(it) == other.nodeFor(it) }
+  }
+
+  def "Adding a node only moves the keys it takes over"() {
+    given: "a ring of three nodes and the same ring with a fourth one"
+    def ring = new ConsistentHashRing(["a", "b", "c"])
+    def grown = new ConsistentHashRing(["a", "b", "c", "d"])
+
+    when: "the nodes of many keys are compared"
+    def moved = (1..3000).findAll { ring.nodeFor(it) != grown.nodeFor(it) }
+
+    then: "the keys that moved went to the new node"
+    moved.each { assert grown.nodeFor(it) == "d" }
+    assert moved.size() < 1200
+  }
+
+  def "Rings need nodes"() {
+    when: "a ring without nodes is created"
+    new ConsistentHashRing([])
+
+    then: "it fails"
+    thrown(IllegalArgumentException)
+  }
+
+}
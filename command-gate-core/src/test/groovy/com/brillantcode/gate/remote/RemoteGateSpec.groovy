@@ -0,0 +1,138 @@
+package com.brillantcode.gate.remote
+
+import com.brillantcode.gate.Gate
+import com.brillantcode.gate.TestCommands.PartitionedCommand
+import com.brillantcode.gate.TestCommands.SimpleCommand
+import java.util.concurrent.CompletionException
+import spock.lang.Specification
+
+class RemoteGateSpec extends Specification {
+
+  def network = new LoopbackTransport.Network()
+
+  def ring = new ConsistentHashRing(["a", "b"])
+
+  def localGateA = Mock(Gate)
+
+  def localGateB = Mock(Gate)
+
+  RemoteGate gateA = new RemoteGate("a", localGateA, ring, network.transport("a"), { it.run() })
+
+  RemoteGate gateB = new RemoteGate("b", localGateB, ring, network.transport("b"), { it.run() })
+
+  def "Commands owned by the node are dispatched with its local gate"() {
+    given: "a command owned by the first node"
+    def cmd = commandOf("a")
+
+    when: "it is dispatched with the gate of the first node"
+    gateA.dispatch(cmd)
+
+    then: "it is dispatched locally"
+    1 * localGateA.dispatch(cmd)
+    0 * localGateB._
+  }
+
+  def "Commands owned by another node are sent to it"() {
+    given: "a command owned by the second node"
+    def cmd = commandOf("b")
+
+    when: "it is dispatched with the gate of the first node"
+    gateA.dispatch(cmd)
+
+    then: "it is dispatched by the second node"
+    1 * localGateB.dispatchAll([cmd])
+    0 * localGateA._
+
+    when: "it is scheduled with the gate of the first node"
+    gateA.schedule(cmd)
+
+    then: "it is scheduled by the second node"
+    1 * localGateB.scheduleAll([cmd])
+  }
+
+  def "Commands received to be scheduled are scheduled in the executor"() {
+    given: "a node whose executor holds the tasks"
+    def tasks = []
+    new RemoteGate("c", localGateB, new ConsistentHashRing(["c"]),
+        network.transport("c"), { tasks << it })
+
+    and: "a command owned by it"
+    def cmd = new PartitionedCommand("key", 1)
+
+    when: "it is sent to the node to be scheduled"
+    def answer = network.transport("d").send("c", [cmd], Delivery.SCHEDULE)
+
+    then: "it is not scheduled by the thread receiving it"
+    0 * localGateB._
+    assert !answer.done
+
+    when: "the executor runs the task"
+    tasks.each { it.run() }
+
+    then: "it is scheduled and answered"
+    1 * localGateB.scheduleAll([cmd])
+    assert answer.done
+  }
+
+  def "Commands without a key are handled locally"() {
+    given: "a command without a partition key"
+    def cmd = new SimpleCommand("arg")
+
+    when: "it is scheduled"
+    gateA.schedule(cmd)
+
+    then: "it is scheduled locally"
+    1 * localGateA.schedule(cmd)
+    0 * localGateB._
+  }
+
+  def "Commands dispatched together are sent once per owner"() {
+    given: "commands owned by both nodes"
+    def local = [commandOf("a"), commandOf("a")]
+    def remote = [commandOf("b"), commandOf("b")]
+
+    when: "they are dispatched together"
+    gateA.dispatchAll([local[0], remote[0], local[1], remote[1]])
+
+    then: "each node dispatches its commands together"
+    1 * localGateA.dispatchAll(local)
+    1 * localGateB.dispatchAll(remote)
+  }
+
+  def "Failures on the owner are rethrown"() {
+    given: "a command failing on the second node"
+    def cmd = commandOf("b")
+    localGateB.dispatchAll([cmd]) >> { throw new IllegalStateException("boom") }
+
+    when: "it is dispatched with the gate of the first node"
+    gateA.dispatch(cmd)
+
+    then: "the failure is rethrown"
+    def ex = thrown(RemoteCommandException)
+    assert ex.message.contains("IllegalStateException: boom")
+
+    when: "it is dispatched asynchronously"
+    gateA.dispatchAsync(cmd).join()
+
+    then: "the future fails"
+    def async = thrown(CompletionException)
+    assert async.cause instanceof RemoteCommandException
+  }
+
+  def "Commands owned by an unreachable node fail"() {
+    given: "a ring with a node not on the network"
+    gateA.updateRing(new ConsistentHashRing(["c"]))
+
+    when: "a command is dispatched"
+    gateA.dispatch(commandOf("a"))
+
+    then: "it fails"
+    thrown(TransportException)
+  }
+
+  private PartitionedCommand commandOf(String node) {
+    def key = (1..1000).collect { "key-$it".toString() }.find { ring.nodeFor(it) == node }
+    new PartitionedCommand(key, 1)
+  }
+
+}
@@ -0,0 +1,168 @@
+package com.brillantcode.gate.remote
+
+import com.brillantcode.gate.CommandCollectionRegistry
+import com.brillantcode.gate.TestCommands.PartitionedCommand
+import com.brillantcode.gate.TestCommands.SerializableCommand
+import com.brillantcode.gate.TestCommands.SimpleCommand
+import com.brillantcode.gate.codec.CommandCodecFactory
+import com.brillantcode.gate.codec.CommandCodecs
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+
+class TcpCommandTransportSpec extends Specification {
+
+  def codecs = new CommandCodecs(new CommandCollectionRegistry([SimpleCommand, PartitionedCommand]))
+
+  def addresses = new ConcurrentHashMap<String, InetSocketAddress>()
+
+  def received = new CopyOnWriteArrayList<List>()
+
+  TcpCommandTransport sender
+
+  TcpCommandTransport receiver
+
+  def setup() {
+    sender = open("a")
+    receiver = open("b")
+    sender.start({ commands, delivery -> CompletableFuture.completedFuture(null) })
+    receiver.start({ commands, delivery ->
+      if (commands[0] == new SimpleCommand("fail")) {
+        return CompletableFuture.failedFuture(new IllegalStateException("boom"))
+      }
+      received << [delivery, commands]
+      CompletableFuture.completedFuture(null)
+    })
+  }
+
+  def cleanup() {
+    sender?.close()
+    receiver?.close()
+  }
+
+  def "Commands are sent to the node and answered"() {
+    given: "commands"
+    def commands = [new SimpleCommand("a"), new PartitionedCommand("key", 7)]
+
+    when: "they are sent to the other node"
+    sender.send("b", commands, Delivery.SCHEDULE).get(5, TimeUnit.SECONDS)
+
+    then: "it received them"
+    assert received == [[Delivery.SCHEDULE, commands]]
+  }
+
+  def "Requests are pipelined over one connection"() {
+    when: "many requests are sent without waiting for the answers"
+    def answers = (1..500).collect {
+      sender.send("b", [new PartitionedCommand("key", it)], Delivery.DISPATCH)
+    }
+    CompletableFuture.allOf(answers as CompletableFuture[]).get(10, TimeUnit.SECONDS)
+
+    then: "they were all received in order"
+    assert received.collect { it[1][0].sequence } == (1..500)
+  }
+
+  def "Failures of the receiving node are answered"() {
+    when: "a command failing on the other node is sent"
+    sender.send("b", [new SimpleCommand("fail")], Delivery.DISPATCH).get(5, TimeUnit.SECONDS)
+
+    then: "the answer fails with the description of the failure"
+    def ex = thrown(ExecutionException)
+    assert ex.cause instanceof RemoteCommandException
+    assert ex.cause.message.contains("IllegalStateException: boom")
+  }
+
+  def "Commands sent to an unknown node fail"() {
+    when: "a command is sent to a node without an address"
+    sender.send("c", [new SimpleCommand("a")], Delivery.DISPATCH).get(5, TimeUnit.SECONDS)
+
+    then: "it fails"
+    def ex = thrown(ExecutionException)
+    assert ex.cause instanceof TransportException
+  }
+
+  def "Commands sent to a node not listening fail"() {
+    given: "the address of a port nobody listens to"
+    def socket = new ServerSocket(0, 1, InetAddress.loopbackAddress)
+    addresses["c"] = new InetSocketAddress(InetAddress.loopbackAddress, socket.localPort)
+    socket.close()
+
+    when: "a command is sent to it"
+    sender.send("c", [new SimpleCommand("a")], Delivery.DISPATCH).get(5, TimeUnit.SECONDS)
+
+    then: "it fails"
+    def ex = thrown(ExecutionException)
+    assert ex.cause instanceof TransportException
+  }
+
+  def "Requests with a malformed command count are answered as failed"() {
+    given: "a connection to the node outside of the transport"
+    def socket = new Socket(InetAddress.loopbackAddress, addresses["b"].port)
+    socket.soTimeout = 5000
+    def output = new DataOutputStream(socket.outputStream)
+    def input = new DataInputStream(socket.inputStream)
+
+    when: "a request claiming more commands than its frame holds is sent"
+    output.writeInt(14)
+    output.writeByte(1)
+    output.writeLong(42)
+    output.writeByte(Delivery.DISPATCH.ordinal())
+    output.writeInt(Integer.MAX_VALUE)
+    output.flush()
+
+    then: "it is answered as failed"
+    input.readInt() > 0
+    input.readByte() == 2 as byte
+    input.readLong() == 42
+    input.readByte() == 1 as byte
+
+    when: "commands are sent to the node afterwards"
+    sender.send("b", [new SimpleCommand("a")], Delivery.SCHEDULE).get(5, TimeUnit.SECONDS)
+
+    then: "they are received"
+    assert received == [[Delivery.SCHEDULE, [new SimpleCommand("a")]]]
+
+    cleanup:
+    socket.close()
+  }
+
+  def "Codecs reading Java serialization are refused"() {
+    given: "codecs of a type read with Java serialization"
+    def serializing = new CommandCodecs(new CommandCollectionRegistry([SerializableCommand]),
+        CommandCodecFactory.javaSerialization())
+
+    when: "a transport is opened with them"
+    TcpCommandTransport.open(new InetSocketAddress(InetAddress.loopbackAddress, 0), addresses,
+        serializing)
+
+    then: "it is refused"
+    thrown(IllegalArgumentException)
+  }
+
+  def "Requests waiting for an answer fail when the transport closes"() {
+    given: "a receiver never answering"
+    receiver.close()
+    receiver = open("b")
+    receiver.start({ commands, delivery -> new CompletableFuture<Void>() })
+
+    when: "a command is sent and the transport closed"
+    def answer = sender.send("b", [new SimpleCommand("a")], Delivery.DISPATCH)
+    sender.close()
+    answer.get(5, TimeUnit.SECONDS)
+
+    then: "the answer fails"
+    def ex = thrown(ExecutionException)
+    assert ex.cause instanceof TransportException
+  }
+
+  private TcpCommandTransport open(String node) {
+    def transport = TcpCommandTransport.open(
+        new InetSocketAddress(InetAddress.loopbackAddress, 0), addresses, codecs)
+    addresses[node] = transport.localAddress()
+    transport
+  }
+
+}
@@ -0,0 +1,165 @@
+package com.brillantcode.gate.scheduler
+
+import java.util.concurrent.RejectedExecutionException
+import spock.lang.Specification
+import spock.lang.Subject
+
+class CoalescingCommandSchedulerSpec extends Specification {
+
+  List<CommandRunner> queue = []
+
+  @Subject
+  CoalescingCommandScheduler scheduler =
+      new CoalescingCommandScheduler({ CommandRunner runner -> queue << runner } as CommandScheduler)
+
+  def "Runners with the same key are merged while they wait"() {
+    given: "runs recorded by the runners"
+    List<List<String>> runs = []
+
+    when: "runners of two keys are scheduled"
+    scheduler.schedule(new KeyedRunner("a", ["1"], runs))
+    scheduler.schedule(new KeyedRunner("b", ["2"], runs))
+    scheduler.schedule(new KeyedRunner("a", ["3"], runs))
+    scheduler.schedule(new KeyedRunner("a", ["4"], runs))
+
+    then: "one runner per key is scheduled"
+    assert queue.size() == 2
+    assert scheduler.pendingRunners() == 2
+
+    when: "the scheduled runners run"
+    queue*.run()
+
+    then: "the runners of each key ran merged, in their order"
+    assert runs == [["1", "3", "4"], ["2"]]
+    assert scheduler.pendingRunners() == 0
+  }
+
+  def "Runners scheduled after the pending one started are scheduled again"() {
+    given: "a runner of a key scheduled and started"
+    List<List<String>> runs = []
+    scheduler.schedule(new KeyedRunner("a", ["1"], runs))
+    queue[0].run()
+
+    when: "another runner of the key is scheduled"
+    scheduler.schedule(new KeyedRunner("a", ["2"], runs))
+    queue[1].run()
+
+    then: "it runs on its own"
+    assert runs == [["1"], ["2"]]
+  }
+
+  def "Runners without a key are scheduled as they are"() {
+    given: "a runner without a coalescing key"
+    def runner = { } as CommandRunner
+
+    when: "it is scheduled twice"
+    scheduler.schedule(runner)
+    scheduler.schedule(runner)
+
+    then: "both are passed to the scheduler"
+    assert queue.size() == 2
+    assert queue.every { it.is(runner) }
+  }
+
+  def "Discarding the pending runner discards the merged one"() {
+    given: "two merged runners"
+    List<List<String>> runs = []
+    def discarded = []
+    scheduler.schedule(new KeyedRunner("a", ["1"], runs, discarded))
+    scheduler.schedule(new KeyedRunner("a", ["2"], runs, discarded))
+
+    when: "the scheduler discards the pending runner"
+    queue[0].discard()
+
+    then: "the merged runner is discarded and the key is free again"
+    assert discarded == [["1", "2"]]
+    assert scheduler.pendingRunners() == 0
+  }
+
+  def "Rejected runners do not block their key"() {
+    given: "a scheduler rejecting the first runner"
+    def attempts = 0
+    def rejecting = new CoalescingCommandScheduler({ CommandRunner runner ->
+      if (attempts++ == 0) {
+        throw new RejectedExecutionException("full")
+      }
+      queue << runner
+    } as CommandScheduler)
+    List<List<String>> runs = []
+
+    when: "a runner is scheduled"
+    rejecting.schedule(new KeyedRunner("a", ["1"], runs))
+
+    then: "the rejection is propagated"
+    thrown(RejectedExecutionException)
+
+    when: "another runner of the key is scheduled"
+    rejecting.schedule(new KeyedRunner("a", ["2"], runs))
+
+    then: "it is scheduled"
+    assert queue.size() == 1
+  }
+
+  def "Rejecting a runner discards only the runners merged into it"() {
+    given: "a scheduler rejecting the first runner once another one was merged into it"
+    List<List<String>> runs = []
+    def discarded = []
+    CoalescingCommandScheduler rejecting
+    rejecting = new CoalescingCommandScheduler({ CommandRunner runner ->
+      rejecting.schedule(new KeyedRunner("a", ["2"], runs, discarded))
+      throw new RejectedExecutionException("full")
+    } as CommandScheduler)
+
+    when: "a runner is scheduled"
+    rejecting.schedule(new KeyedRunner("a", ["1"], runs, discarded))
+
+    then: "the rejection is propagated"
+    thrown(RejectedExecutionException)
+
+    and: "only the merged runner is discarded, the rejected one is left to the caller"
+    assert discarded == [["2"]]
+    assert runs.isEmpty()
+    assert rejecting.pendingRunners() == 0
+  }
+
+  static class KeyedRunner implements CommandRunner {
+
+    final String key
+
+    final List<String> names
+
+    final List<List<String>> runs
+
+    final List<List<String>> discarded
+
+    KeyedRunner(String key, List<String> names, List<List<String>> runs,
+                List<List<String>> discarded = []) {
+      this.key = key
+      this.names = names
+      this.runs = runs
+      this.discarded = discarded
+    }
+
+    @Override
+    void run() {
+      runs << names
+    }
+
+    @Override
+    void discard() {
+      discarded << names
+    }
+
+    @Override
+    Object coalescingKey() {
+      return key
+    }
+
+    @Override
+    CommandRunner coalesce(CommandRunner newer) {
+      return new KeyedRunner(key, names + ((KeyedRunner) newer).names, runs, discarded)
+    }
+
+  }
+
+}
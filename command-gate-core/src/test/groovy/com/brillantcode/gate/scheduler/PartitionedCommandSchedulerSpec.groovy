@@ -0,0 +1,247 @@
+package com.brillantcode.gate.scheduler
+
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+
+class PartitionedCommandSchedulerSpec extends Specification {
+
+  def executorService = Executors.newFixedThreadPool(8)
+
+  def cleanup() {
+    executorService.shutdownNow()
+  }
+
+  def "Commands with the same partition key run in order"() {
+    given: "a partitioned scheduler"
+    def scheduler = new PartitionedCommandScheduler(executorService, 4)
+
+    and: "runners of several partitions recording their sequence"
+    def sequences = new ConcurrentHashMap<Object, ConcurrentLinkedQueue<Integer>>()
+    def done = new CountDownLatch(1000)
+
+    when: "the runners are scheduled"
+    for (int i = 0; i < 1000; i++) {
+      def key = "aggregate-" + (i % 10)
+      def sequence = i
+      scheduler.schedule(runner(key) {
+        Thread.yield()
+        sequences.computeIfAbsent(key, { new ConcurrentLinkedQueue<>() }).add(sequence)
+        done.countDown()
+      })
+    }
+
+    then: "the runners of each partition run in the order they were scheduled"
+    assert done.await(10, TimeUnit.SECONDS)
+    sequences.values().each { assert it.toList() == it.toList().sort() }
+  }
+
+  def "Commands with different partition keys run in parallel"() {
+    given: "a partitioned scheduler"
+    def scheduler = new PartitionedCommandScheduler(executorService, 4)
+
+    and: "two partitions on different lanes"
+    def first = "first"
+    def second = (1..100).collect { "second-" + it }
+        .find { scheduler.lane(it) != scheduler.lane(first) }
+
+    and: "a runner blocking its lane"
+    def release = new CountDownLatch(1)
+    scheduler.schedule(runner(first) { release.await() })
+
+    when: "a runner of another partition is scheduled"
+    def done = new CountDownLatch(1)
+    scheduler.schedule(runner(second) { done.countDown() })
+
+    then: "it runs while the first lane is blocked"
+    assert done.await(5, TimeUnit.SECONDS)
+
+    cleanup:
+    release.countDown()
+  }
+
+  def "Commands without a partition key are executed directly"() {
+    given: "a partitioned scheduler"
+    def executor = Mock(Executor)
+    def scheduler = new PartitionedCommandScheduler(executor, 4)
+
+    and: "a runner without a partition key"
+    def runner = Mock(CommandRunner)
+
+    when: "it is scheduled"
+    scheduler.schedule(runner)
+
+    then: "the runner is submitted to the executor as it is"
+    1 * executor.execute(runner)
+  }
+
+  def "Full lanes reject commands"() {
+    given: "a lane of two commands that is not running"
+    List<Runnable> tasks = []
+    def scheduler = new PartitionedCommandScheduler(
+        { tasks << it } as Executor, 1, 2, SaturationPolicy.REJECT, Duration.ZERO)
+    scheduler.schedule(runner("key") {})
+    scheduler.schedule(runner("key") {})
+
+    when: "a third command is scheduled"
+    scheduler.schedule(runner("key") {})
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+    assert tasks.size() == 1
+  }
+
+  def "Full lanes drop their oldest command with the drop oldest policy"() {
+    given: "a lane of one command that is not running"
+    List<Runnable> tasks = []
+    def scheduler = new PartitionedCommandScheduler(
+        { tasks << it } as Executor, 1, 1, SaturationPolicy.DROP_OLDEST, Duration.ZERO)
+    def oldest = Mock(CommandRunner) { partitionKey() >> "key" }
+    def newest = Mock(CommandRunner) { partitionKey() >> "key" }
+    scheduler.schedule(oldest)
+
+    when: "another command is scheduled and the lane runs"
+    scheduler.schedule(newest)
+    tasks.each { it.run() }
+
+    then: "the oldest command is discarded and the newest one runs"
+    1 * oldest.discard()
+    0 * oldest.run()
+    1 * newest.run()
+  }
+
+  def "Full lanes make the scheduling thread wait with the block policy"() {
+    given: "a full lane of one command that is not running"
+    List<Runnable> tasks = []
+    def scheduler = new PartitionedCommandScheduler(
+        { tasks << it } as Executor, 1, 1, SaturationPolicy.BLOCK, Duration.ofMillis(50))
+    scheduler.schedule(runner("key") {})
+
+    when: "another command is scheduled"
+    def start = System.nanoTime()
+    scheduler.schedule(runner("key") {})
+
+    then: "it is rejected after the timeout"
+    thrown(RejectedExecutionException)
+    assert System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50)
+  }
+
+  def "Commands scheduled by the running command of a lane do not wait for space"() {
+    given: "a lane of one command with the block policy"
+    def scheduler = new PartitionedCommandScheduler(
+        executorService, 1, 1, SaturationPolicy.BLOCK, Duration.ofSeconds(30))
+    def done = new CountDownLatch(2)
+
+    when: "a command schedules two commands to its own lane"
+    scheduler.schedule(runner("key") {
+      scheduler.schedule(runner("key") { done.countDown() })
+      scheduler.schedule(runner("key") { done.countDown() })
+    })
+
+    then: "both run"
+    assert done.await(5, TimeUnit.SECONDS)
+  }
+
+  def "Lanes reject the command when the executor rejects their task"() {
+    given: "an executor rejecting the first task only"
+    def rejecting = true
+    def executor = { Runnable task ->
+      if (rejecting) {
+        rejecting = false
+        throw new RejectedExecutionException("saturated")
+      }
+      task.run()
+    } as Executor
+    def scheduler = new PartitionedCommandScheduler(executor, 1)
+    def rejected = Mock(CommandRunner) { partitionKey() >> "key" }
+
+    when: "a command is scheduled"
+    scheduler.schedule(rejected)
+
+    then: "it is rejected without being discarded"
+    thrown(RejectedExecutionException)
+    0 * rejected.discard()
+
+    when: "another command is scheduled"
+    def done = new CountDownLatch(1)
+    scheduler.schedule(runner("key") { done.countDown() })
+
+    then: "the lane runs again"
+    assert done.count == 0
+  }
+
+  def "Busy lanes submit themselves again after a batch of commands"() {
+    given: "a partitioned scheduler whose tasks are run one by one"
+    def tasks = new ArrayDeque<Runnable>()
+    def scheduler = new PartitionedCommandScheduler({ tasks << it } as Executor, 2)
+    def busy = "busy"
+    def other = (1..100).collect { "other-" + it }
+        .find { scheduler.lane(it) != scheduler.lane(busy) }
+    def runs = []
+
+    and: "a lane holding more commands than a batch, and another lane with one command"
+    (PartitionedCommandScheduler.LANE_BATCH_SIZE + 1).times {
+      scheduler.schedule(runner(busy) { runs << busy })
+    }
+    scheduler.schedule(runner(other) { runs << other })
+
+    when: "the task of the busy lane runs"
+    tasks.poll().run()
+
+    then: "it ran a batch of commands and submitted the lane again behind the other lane"
+    assert runs == [busy] * PartitionedCommandScheduler.LANE_BATCH_SIZE
+    assert tasks.size() == 2
+
+    when: "the remaining tasks run"
+    while (!tasks.isEmpty()) {
+      tasks.poll().run()
+    }
+
+    then: "the other lane ran before the rest of the busy lane"
+    assert runs == [busy] * PartitionedCommandScheduler.LANE_BATCH_SIZE + [other, busy]
+  }
+
+  def "Lanes go on when a command throws"() {
+    given: "a partitioned scheduler"
+    def scheduler = new PartitionedCommandScheduler({ it.run() } as Executor, 1)
+    def done = new CountDownLatch(1)
+    def thread = Thread.currentThread()
+    def handler = thread.uncaughtExceptionHandler
+    def reported = []
+    thread.uncaughtExceptionHandler = { t, ex -> reported << ex }
+
+    when: "a failing and another command are scheduled"
+    scheduler.schedule(runner("key") { throw new IllegalStateException("failed") })
+    scheduler.schedule(runner("key") { done.countDown() })
+
+    then: "the failure is reported and the other command runs"
+    assert reported*.message == ["failed"]
+    assert done.count == 0
+
+    cleanup:
+    thread.uncaughtExceptionHandler = handler
+  }
+
+  private static CommandRunner runner(Object key, Closure action) {
+    return new CommandRunner() {
+
+      @Override
+      void run() {
+        action.call()
+      }
+
+      @Override
+      Object partitionKey() {
+        return key
+      }
+
+    }
+  }
+
+}
@@ -0,0 +1,196 @@
+package com.brillantcode.gate.scheduler
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class RingBufferCommandSchedulerSpec extends Specification {
+
+  RingBufferCommandScheduler scheduler
+
+  def cleanup() {
+    scheduler?.close()
+  }
+
+  def "Capacity is rounded up to a power of two"() {
+    when: "the scheduler is created"
+    scheduler = new RingBufferCommandScheduler(capacity, 1, WaitStrategy.PARK)
+
+    then: "its capacity is a power of two"
+    assert scheduler.capacity() == expected
+
+    where:
+    capacity | expected
+    1        | 1
+    2        | 2
+    3        | 4
+    1000     | 1024
+    1024     | 1024
+  }
+
+  @Unroll
+  def "All runners scheduled by concurrent producers are executed once with #waitStrategy"() {
+    given: "a small ring consumed by several workers"
+    scheduler = new RingBufferCommandScheduler(8, 3, waitStrategy)
+
+    and: "producers scheduling more runners than the ring holds"
+    def executed = ConcurrentHashMap.newKeySet()
+    def done = new CountDownLatch(4000)
+
+    when: "the runners are scheduled"
+    def producers = (0..<4).collect { producer ->
+      Thread.start {
+        for (int i = 0; i < 1000; i++) {
+          def id = producer * 1000 + i
+          scheduler.schedule({ executed.add(id); done.countDown() } as CommandRunner)
+        }
+      }
+    }
+    producers*.join()
+
+    then: "every runner is executed exactly once"
+    assert done.await(10, TimeUnit.SECONDS)
+    assert executed.size() == 4000
+
+    where:
+    waitStrategy << WaitStrategy.values()
+  }
+
+  def "Worker carries on after a runner throws"() {
+    given: "a scheduler with a single worker"
+    scheduler = new RingBufferCommandScheduler(4, 1, WaitStrategy.PARK)
+
+    and: "a runner that throws"
+    scheduler.schedule({ throw new IllegalStateException("failed") } as CommandRunner)
+
+    when: "another runner is scheduled"
+    def done = new CountDownLatch(1)
+    scheduler.schedule({ done.countDown() } as CommandRunner)
+
+    then: "it is executed"
+    assert done.await(5, TimeUnit.SECONDS)
+  }
+
+  def "Worker carries on after a runner throws an error"() {
+    given: "a scheduler with a single worker"
+    scheduler = new RingBufferCommandScheduler(4, 1, WaitStrategy.PARK)
+
+    and: "a runner that throws an error"
+    scheduler.schedule({ throw new Error("failed") } as CommandRunner)
+
+    when: "another runner is scheduled"
+    def done = new CountDownLatch(1)
+    scheduler.schedule({ done.countDown() } as CommandRunner)
+
+    then: "it is executed"
+    assert done.await(5, TimeUnit.SECONDS)
+  }
+
+  def "Worker scheduling into the full ring runs the runners itself"() {
+    given: "a small ring consumed by a single worker"
+    scheduler = new RingBufferCommandScheduler(2, 1, WaitStrategy.PARK)
+
+    and: "a runner scheduling more runners than the ring holds"
+    def threads = ConcurrentHashMap.newKeySet()
+    def done = new CountDownLatch(5)
+    def worker = new CountDownLatch(1)
+    def runner = {
+      (1..5).each {
+        scheduler.schedule({ threads.add(Thread.currentThread()); done.countDown() } as CommandRunner)
+      }
+      worker.countDown()
+    } as CommandRunner
+
+    when: "the runner is scheduled"
+    scheduler.schedule(runner)
+
+    then: "the worker does not wait for itself and every runner is executed"
+    assert worker.await(5, TimeUnit.SECONDS)
+    assert done.await(5, TimeUnit.SECONDS)
+
+    and: "on the worker thread"
+    assert threads.size() == 1
+    assert threads.first().name.startsWith("command-gate-ring-")
+  }
+
+  def "Closed scheduler executes the queued runners and rejects new ones"() {
+    given: "a scheduler with a blocked worker"
+    scheduler = new RingBufferCommandScheduler(4, 1, WaitStrategy.PARK)
+    def release = new CountDownLatch(1)
+    scheduler.schedule({ release.await() } as CommandRunner)
+
+    and: "a queued runner"
+    def executed = new CountDownLatch(1)
+    scheduler.schedule({ executed.countDown() } as CommandRunner)
+
+    when: "the scheduler is closed"
+    Thread.start {
+      Thread.sleep(50)
+      release.countDown()
+    }
+    scheduler.close()
+
+    then: "the queued runner was executed"
+    assert executed.count == 0
+
+    when: "another runner is scheduled"
+    scheduler.schedule({} as CommandRunner)
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+  }
+
+  def "Runners scheduled while closing are executed, discarded or rejected"() {
+    given: "a scheduler and producers scheduling until it is closed"
+    scheduler = new RingBufferCommandScheduler(16, 2, WaitStrategy.YIELD)
+    def handled = new AtomicInteger()
+    def rejected = new AtomicInteger()
+    def scheduled = new AtomicInteger()
+    def producers = (1..4).collect {
+      Thread.start {
+        while (true) {
+          scheduled.incrementAndGet()
+          try {
+            scheduler.schedule(new CountingRunner(handled))
+          } catch (RejectedExecutionException ignored) {
+            rejected.incrementAndGet()
+            return
+          }
+        }
+      }
+    }
+
+    when: "the scheduler is closed"
+    Thread.sleep(50)
+    scheduler.close()
+    producers*.join()
+
+    then: "every runner is accounted for"
+    assert handled.get() + rejected.get() == scheduled.get()
+  }
+
+  private static class CountingRunner implements CommandRunner {
+
+    private final AtomicInteger handled
+
+    CountingRunner(AtomicInteger handled) {
+      this.handled = handled
+    }
+
+    @Override
+    void run() {
+      handled.incrementAndGet()
+    }
+
+    @Override
+    void discard() {
+      handled.incrementAndGet()
+    }
+
+  }
+
+}
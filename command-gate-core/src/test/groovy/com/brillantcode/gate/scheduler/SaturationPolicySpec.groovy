@@ -0,0 +1,46 @@
+package com.brillantcode.gate.scheduler
+
+import java.time.Duration
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+
+class SaturationPolicySpec extends Specification {
+
+  def executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1))
+
+  def cleanup() {
+    executor.shutdownNow()
+  }
+
+  def "Rejected runners are discarded once the executor is shut down"() {
+    given: "a shut down executor"
+    executor.shutdown()
+    def runner = Mock(CommandRunner)
+
+    when: "a runner is rejected"
+    policy.rejectedExecutionHandler(Duration.ZERO).rejectedExecution(runner, executor)
+
+    then: "it is discarded and not run"
+    1 * runner.discard()
+    0 * runner.run()
+
+    where:
+    policy << [SaturationPolicy.CALLER_RUNS, SaturationPolicy.DROP_OLDEST]
+  }
+
+  def "Caller runs the rejected runner while the executor is running"() {
+    given: "a runner"
+    def runner = Mock(CommandRunner)
+
+    when: "the runner is rejected"
+    SaturationPolicy.CALLER_RUNS.rejectedExecutionHandler(Duration.ZERO)
+        .rejectedExecution(runner, executor)
+
+    then: "it is run by the calling thread"
+    1 * runner.run()
+    0 * runner.discard()
+  }
+
+}
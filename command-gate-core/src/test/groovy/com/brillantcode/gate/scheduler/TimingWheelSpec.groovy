@@ -0,0 +1,177 @@
+package com.brillantcode.gate.scheduler
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import java.time.Duration
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import spock.lang.Specification
+
+class TimingWheelSpec extends Specification {
+
+  TimingWheel wheel
+
+  def cleanup() {
+    wheel?.close()
+  }
+
+  def "Tasks run once their delay is over"() {
+    given: "a wheel"
+    wheel = new TimingWheel()
+    def done = new CountDownLatch(1)
+
+    when: "a task is scheduled"
+    def start = System.nanoTime()
+    long ranAfter = 0
+    wheel.schedule({ ranAfter = System.nanoTime() - start; done.countDown() }, Duration.ofMillis(50))
+
+    then: "it runs, not before its delay"
+    assert done.await(5, TimeUnit.SECONDS)
+    assert ranAfter >= TimeUnit.MILLISECONDS.toNanos(50)
+    assert wheel.size() == 0
+  }
+
+  def "Tasks with delays spanning several levels all run when due"() {
+    given: "a wheel with a short tick, so that the delays span several levels"
+    wheel = new TimingWheel(Duration.ofNanos(10_000))
+    def late = new ConcurrentLinkedQueue<Long>()
+    def done = new CountDownLatch(5000)
+
+    when: "tasks are scheduled with random delays"
+    5000.times {
+      long delay = ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(300))
+      long due = System.nanoTime() + delay
+      wheel.schedule({ late << System.nanoTime() - due; done.countDown() },
+          Duration.ofNanos(delay))
+    }
+
+    then: "every task runs, none early"
+    assert done.await(10, TimeUnit.SECONDS)
+    late.each { assert it >= 0 }
+  }
+
+  def "Cancelled tasks do not run"() {
+    given: "a wheel"
+    wheel = new TimingWheel()
+    def ran = new AtomicInteger()
+    def done = new CountDownLatch(6)
+
+    when: "tasks are scheduled and some are cancelled"
+    def tasks = (1..10).collect {
+      wheel.schedule({ ran.incrementAndGet(); done.countDown() }, Duration.ofMillis(300))
+    }
+    def cancelled = tasks.take(4).collect { it.cancel() }
+
+    then: "the cancelled tasks are not pending anymore"
+    assert cancelled == [true] * 4
+    assert tasks.take(4).every { it.isCancelled() }
+    assert wheel.size() == 6
+
+    when: "the delay is over"
+    assert done.await(5, TimeUnit.SECONDS)
+    Thread.sleep(50)
+
+    then: "only the other tasks ran and cannot be cancelled anymore"
+    assert ran.get() == 6
+    assert !tasks.last().cancel()
+    assert wheel.size() == 0
+  }
+
+  def "Periodic tasks run at a fixed rate until cancelled"() {
+    given: "a wheel"
+    wheel = new TimingWheel()
+    def runs = new AtomicInteger()
+    def started = new CountDownLatch(5)
+
+    when: "a periodic task is scheduled"
+    def task = wheel.scheduleAtFixedRate({ runs.incrementAndGet(); started.countDown() },
+        Duration.ZERO, Duration.ofMillis(10))
+
+    then: "it runs repeatedly"
+    assert started.await(5, TimeUnit.SECONDS)
+    assert wheel.size() == 1
+
+    when: "it is cancelled"
+    task.cancel()
+    Thread.sleep(20)
+    def cancelledRuns = runs.get()
+    Thread.sleep(100)
+
+    then: "it does not run anymore"
+    assert runs.get() == cancelledRuns
+    assert wheel.size() == 0
+  }
+
+  def "Failing tasks are reported and do not stop the wheel"() {
+    given: "a wheel whose thread reports its exceptions"
+    def reported = new ConcurrentLinkedQueue<Throwable>()
+    def threadFactory = new ThreadFactoryBuilder()
+        .setUncaughtExceptionHandler({ thread, ex -> reported << ex })
+        .build()
+    wheel = new TimingWheel(TimingWheel.DEFAULT_TICK, threadFactory)
+    def done = new CountDownLatch(1)
+
+    when: "a failing task and another one are scheduled"
+    def failure = new IllegalStateException("failed")
+    wheel.schedule({ throw failure }, Duration.ofMillis(5))
+    wheel.schedule({ done.countDown() }, Duration.ofMillis(10))
+
+    then: "the failure is reported and the other task runs"
+    assert done.await(5, TimeUnit.SECONDS)
+    assert reported as List == [failure]
+  }
+
+  def "Tasks throwing an error are reported and do not stop the wheel"() {
+    given: "a wheel whose thread reports its exceptions"
+    def reported = new ConcurrentLinkedQueue<Throwable>()
+    def threadFactory = new ThreadFactoryBuilder()
+        .setUncaughtExceptionHandler({ thread, ex -> reported << ex })
+        .build()
+    wheel = new TimingWheel(TimingWheel.DEFAULT_TICK, threadFactory)
+    def done = new CountDownLatch(1)
+
+    when: "a task throwing an error and another one are scheduled"
+    def failure = new Error("failed")
+    wheel.schedule({ throw failure }, Duration.ofMillis(5))
+    wheel.schedule({ done.countDown() }, Duration.ofMillis(10))
+
+    then: "the error is reported and the other task runs"
+    assert done.await(5, TimeUnit.SECONDS)
+    assert reported as List == [failure]
+  }
+
+  def "Closing cancels the pending tasks and rejects new ones"() {
+    given: "a wheel with a pending task"
+    wheel = new TimingWheel()
+    def task = wheel.schedule({ }, Duration.ofHours(1))
+
+    when: "the wheel is closed"
+    wheel.close()
+
+    then: "the task is cancelled"
+    assert task.isCancelled()
+    assert wheel.size() == 0
+
+    when: "another task is scheduled"
+    wheel.schedule({ }, Duration.ZERO)
+
+    then: "it is rejected"
+    thrown(RejectedExecutionException)
+  }
+
+  def "The shared executor is bounded"() {
+    when: "the shared executor is looked at"
+    def executor = TimingWheel.sharedExecutor() as ThreadPoolExecutor
+
+    then: "its threads and queue are limited"
+    assert executor.maximumPoolSize == TimingWheel.SHARED_EXECUTOR_THREADS
+    assert executor.queue.remainingCapacity() + executor.queue.size() ==
+        TimingWheel.SHARED_EXECUTOR_QUEUE_CAPACITY
+    assert executor.rejectedExecutionHandler instanceof ThreadPoolExecutor.AbortPolicy
+  }
+
+}
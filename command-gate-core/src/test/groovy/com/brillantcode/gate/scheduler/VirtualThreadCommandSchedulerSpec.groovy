@@ -0,0 +1,81 @@
+package com.brillantcode.gate.scheduler
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.TestCommands
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import spock.lang.Requires
+import spock.lang.Specification
+
+@Requires({ VirtualThreadCommandScheduler.supported })
+class VirtualThreadCommandSchedulerSpec extends Specification {
+
+  def "Runners run on virtual threads"() {
+    given: "a scheduler"
+    def scheduler = new VirtualThreadCommandScheduler()
+    def ran = new CountDownLatch(1)
+    Thread thread = null
+
+    when: "a runner is scheduled"
+    scheduler.schedule(new TypedRunner(null, {
+      thread = Thread.currentThread()
+      ran.countDown()
+    }))
+
+    then: "it runs on a virtual thread"
+    assert ran.await(5, TimeUnit.SECONDS)
+    assert thread.virtual
+  }
+
+  def "Commands over the concurrency limit wait for a permit"() {
+    given: "a scheduler running one command of the type at a time"
+    def scheduler = new VirtualThreadCommandScheduler([(TestCommands.SimpleCommand): 1])
+    def release = new CountDownLatch(1)
+    def firstStarted = new CountDownLatch(1)
+    def secondStarted = new CountDownLatch(1)
+
+    when: "a command blocking its permit and another one are scheduled"
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, {
+      firstStarted.countDown()
+      release.await()
+    }))
+    assert firstStarted.await(5, TimeUnit.SECONDS)
+    scheduler.schedule(new TypedRunner(TestCommands.SimpleCommand, { secondStarted.countDown() }))
+
+    then: "the second one waits"
+    assert !secondStarted.await(200, TimeUnit.MILLISECONDS)
+
+    when: "the first one completes"
+    release.countDown()
+
+    then: "the second one runs"
+    assert secondStarted.await(5, TimeUnit.SECONDS)
+  }
+
+  /**
+   * Groovy proxies of interfaces cannot call their default methods on Java 21.
+   */
+  static class TypedRunner implements CommandRunner {
+
+    final Class<? extends Command> commandType
+
+    final Closure<?> body
+
+    TypedRunner(Class<? extends Command> commandType, Closure<?> body) {
+      this.commandType = commandType
+      this.body = body
+    }
+
+    @Override
+    void run() {
+      body.call()
+    }
+
+    @Override
+    Class<? extends Command> commandType() {
+      return commandType
+    }
+
+  }
+
+}
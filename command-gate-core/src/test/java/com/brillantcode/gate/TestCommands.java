@@ -1,5 +1,15 @@
 package com.brillantcode.gate;
 
+import com.brillantcode.gate.annotation.Idempotent;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Value;
 
 public class TestCommands {
@@ -17,4 +27,130 @@ public class TestCommands {
 
   }
 
+  @Value
+  public static class PartitionedCommand implements Command, PartitionKeyed {
+    String key;
+    int sequence;
+
+    @Override
+    public Object partitionKey() {
+      return key;
+    }
+  }
+
+  @Value
+  public static class RefreshCommand implements Command, Coalescible {
+    String key;
+    int requests;
+
+    @Override
+    public Object coalescingKey() {
+      return key;
+    }
+
+    @Override
+    public Command coalesce(Command newer) {
+      return new RefreshCommand(key, requests + ((RefreshCommand) newer).requests);
+    }
+  }
+
+  public static class UrgentCommand implements Command, Prioritized {
+
+    @Override
+    public int priority() {
+      return MAX_PRIORITY;
+    }
+  }
+
+  @Value
+  public static class RankedCommand implements Command, Prioritized {
+
+    int rank;
+
+    @Override
+    public int priority() {
+      return rank;
+    }
+  }
+
+  @Value
+  public static class SerializableCommand implements Command, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    String parameter;
+  }
+
+  public enum Level {
+    LOW, HIGH
+  }
+
+  @Value
+  public static class DetailedCommand implements Command {
+    boolean flag;
+    byte small;
+    short medium;
+    char letter;
+    int count;
+    long total;
+    float ratio;
+    double amount;
+    Integer boxed;
+    String name;
+    Level level;
+    UUID id;
+    Instant at;
+    Duration timeout;
+    byte[] payload;
+    List<String> tags;
+  }
+
+  @Data
+  public static class MutableCommand implements Command {
+    private String name;
+    private int count;
+  }
+
+  @Getter
+  @EqualsAndHashCode
+  public static class SwappedCommand implements Command {
+    private final String first;
+    private final String last;
+
+    public SwappedCommand(String last, String first) {
+      this.first = first;
+      this.last = last;
+    }
+  }
+
+  @Getter
+  @EqualsAndHashCode
+  @NoArgsConstructor(force = true)
+  public static class SwappedDefaultCommand implements Command {
+    private final String first;
+    private final String last;
+
+    public SwappedDefaultCommand(String last, String first) {
+      this.first = first;
+      this.last = last;
+    }
+  }
+
+  @Idempotent
+  @Value
+  public static class IdempotentCommand implements Command {
+    String parameter;
+  }
+
+  @Idempotent
+  @Value
+  public static class KeyedIdempotentCommand implements Command, IdempotencyKeyed {
+    String requestId;
+    int attempt;
+
+    @Override
+    public Object idempotencyKey() {
+      return requestId;
+    }
+  }
+
 }
@@ -0,0 +1,129 @@
+package com.brillantcode.gate.micrometer;
+
+import com.brillantcode.gate.metrics.CommandMetrics;
+import com.brillantcode.gate.metrics.CommandTypeMetrics;
+import com.brillantcode.gate.metrics.HistogramSnapshot;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Binds the {@link CommandMetrics} of a gate to a Micrometer {@link MeterRegistry}.
+ *
+ * <p>Every command type gets its meters, tagged with the name of the type,
+ * as soon as its first command is processed:
+ * <ul>
+ *   <li>{@code command.gate.handled}, {@code command.gate.failed}
+ *       and {@code command.gate.coalesced}, counters of the commands,
+ *   <li>{@code command.gate.latency}, a timer of the time the handlers took
+ *       with its {@code .p50}, {@code .p99} and {@code .max} gauges,
+ *   <li>{@code command.gate.queue.depth}, a gauge of the commands waiting for the scheduler,
+ *   <li>{@code command.gate.queue.time}, a timer of the time they waited.
+ * </ul>
+ *
+ * <p>The meters read the metrics when the registry publishes them,
+ * processing the commands does not involve Micrometer.
+ */
+public class CommandGateMetricsBinder implements MeterBinder {
+
+  public static final String PREFIX = "command.gate.";
+
+  public static final String COMMAND_TAG = "command";
+
+  private final CommandMetrics metrics;
+
+  private final Tags tags;
+
+  /**
+   * Creates the binder of the given metrics.
+   *
+   * @param metrics The metrics of the gate.
+   * @param tags    Additional tags of the meters, e.g. naming the gate.
+   */
+  public CommandGateMetricsBinder(CommandMetrics metrics, Iterable<Tag> tags) {
+    Preconditions.checkNotNull(metrics);
+    Preconditions.checkNotNull(tags);
+    this.metrics = metrics;
+    this.tags = Tags.of(tags);
+  }
+
+  /**
+   * Creates the binder of the given metrics, without additional tags.
+   *
+   * @param metrics The metrics of the gate.
+   */
+  public CommandGateMetricsBinder(CommandMetrics metrics) {
+    this(metrics, Tags.empty());
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Preconditions.checkNotNull(registry);
+    metrics.onCommandType(typeMetrics -> bind(registry, typeMetrics));
+  }
+
+  private void bind(MeterRegistry registry, CommandTypeMetrics typeMetrics) {
+    Tags typeTags = tags.and(COMMAND_TAG, typeMetrics.commandType().getName());
+
+    FunctionCounter.builder(PREFIX + "handled", typeMetrics, CommandTypeMetrics::handledCount)
+        .description("Commands handled without failing")
+        .tags(typeTags)
+        .register(registry);
+    FunctionCounter.builder(PREFIX + "failed", typeMetrics, CommandTypeMetrics::failedCount)
+        .description("Commands whose handler failed")
+        .tags(typeTags)
+        .register(registry);
+    FunctionCounter.builder(PREFIX + "coalesced", typeMetrics, CommandTypeMetrics::coalescedCount)
+        .description("Commands merged into other commands waiting to run")
+        .tags(typeTags)
+        .register(registry);
+
+    timer(PREFIX + "latency", typeMetrics, CommandTypeMetrics::latency)
+        .description("Time the handler took per command")
+        .tags(typeTags)
+        .register(registry);
+    latencyGauge(PREFIX + "latency.p50", typeMetrics, latency -> latency.valueAt(0.5))
+        .tags(typeTags)
+        .register(registry);
+    latencyGauge(PREFIX + "latency.p99", typeMetrics, latency -> latency.valueAt(0.99))
+        .tags(typeTags)
+        .register(registry);
+    latencyGauge(PREFIX + "latency.max", typeMetrics, HistogramSnapshot::max)
+        .tags(typeTags)
+        .register(registry);
+
+    Gauge.builder(PREFIX + "queue.depth", typeMetrics, CommandTypeMetrics::queueDepth)
+        .description("Commands waiting for the scheduler")
+        .tags(typeTags)
+        .register(registry);
+    timer(PREFIX + "queue.time", typeMetrics, CommandTypeMetrics::queueTime)
+        .description("Time the commands waited for the scheduler")
+        .tags(typeTags)
+        .register(registry);
+  }
+
+  private static FunctionTimer.Builder<CommandTypeMetrics> timer(
+      String name, CommandTypeMetrics typeMetrics,
+      Function<CommandTypeMetrics, HistogramSnapshot> histogram) {
+    return FunctionTimer.builder(name, typeMetrics,
+        m -> histogram.apply(m).count(),
+        m -> histogram.apply(m).sum(),
+        TimeUnit.NANOSECONDS);
+  }
+
+  private static TimeGauge.Builder<CommandTypeMetrics> latencyGauge(
+      String name, CommandTypeMetrics typeMetrics, ToDoubleFunction<HistogramSnapshot> value) {
+    return TimeGauge.builder(name, typeMetrics, TimeUnit.NANOSECONDS,
+        m -> value.applyAsDouble(m.latency()));
+  }
+
+}
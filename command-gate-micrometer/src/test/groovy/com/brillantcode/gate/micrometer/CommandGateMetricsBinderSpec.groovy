@@ -0,0 +1,52 @@
+package com.brillantcode.gate.micrometer
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.metrics.CommandMetrics
+import io.micrometer.core.instrument.Tags
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import java.util.concurrent.TimeUnit
+import spock.lang.Specification
+
+class CommandGateMetricsBinderSpec extends Specification {
+
+  static class SampleCommand implements Command {
+  }
+
+  static class OtherCommand implements Command {
+  }
+
+  CommandMetrics metrics = new CommandMetrics()
+
+  SimpleMeterRegistry registry = new SimpleMeterRegistry()
+
+  def "Binds the metrics of existing and new command types"() {
+    given: "metrics of a command type"
+    metrics.forCommandType(SampleCommand).handled(2, 2_000)
+
+    when: "the metrics are bound to a registry"
+    new CommandGateMetricsBinder(metrics, Tags.of("gate", "orders")).bindTo(registry)
+
+    and: "a new command type is processed"
+    def other = metrics.forCommandType(OtherCommand)
+    other.failed(1, 500)
+    other.queued()
+
+    then: "the meters of both types are registered with their tags"
+    def handled = registry.get("command.gate.handled")
+        .tags("gate", "orders", "command", SampleCommand.name).functionCounter()
+    assert handled.count() == 2
+    assert registry.get("command.gate.failed")
+        .tag("command", OtherCommand.name).functionCounter().count() == 1
+    assert registry.get("command.gate.queue.depth")
+        .tag("command", OtherCommand.name).gauge().value() == 1
+
+    and: "the latency reflects the recorded durations"
+    def latency = registry.get("command.gate.latency")
+        .tag("command", SampleCommand.name).functionTimer()
+    assert latency.count() == 2
+    assert latency.totalTime(TimeUnit.NANOSECONDS) == 2_000
+    assert registry.get("command.gate.latency.max")
+        .tag("command", SampleCommand.name).timeGauge().value(TimeUnit.NANOSECONDS) == 1_000
+  }
+
+}
@@ -0,0 +1,419 @@
+package com.brillantcode.gate.processor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Annotation processor that indexes {@link com.brillantcode.gate.Command} types
+ * and command handlers at build time.
+ *
+ * <p>The processor visits every class compiled together with it and collects:
+ * <ul>
+ *   <li>concrete classes implementing {@link com.brillantcode.gate.Command},</li>
+ *   <li>concrete classes implementing {@link com.brillantcode.gate.handler.CommandHandler},</li>
+ *   <li>methods annotated with {@link com.brillantcode.gate.annotation.CommandHandler}.</li>
+ * </ul>
+ *
+ * <p>For every package with indexed elements it generates a {@value #PACKAGE_CLASS_NAME} class
+ * with direct, non-reflective invocation stubs of the handlers. A {@value #INDEX_CLASS_NAME}
+ * class implementing {@link com.brillantcode.gate.index.CommandIndex} ties together the elements
+ * found in a processing round, and is registered as a {@link java.util.ServiceLoader} service.
+ * The names of the generated classes end with a hash of the indexed elements,
+ * e.g. {@code CommandGateIndex_1f3a9c07}, so that the indexes of two modules sharing
+ * a package do not shadow each other on the class path.
+ *
+ * <p>The package of the index class is set with the {@value #INDEX_PACKAGE_OPTION} option
+ * and defaults to the longest package common to all indexed elements.
+ *
+ * <p>Only the sources of the current compilation are indexed. An index is written at the end
+ * of every processing round finding indexed elements, so that it is compiled with them,
+ * including the command types and handlers generated by other processors in the previous
+ * round, e.g. AutoValue or Immutables classes. The indexes are all registered as services
+ * in the last round.
+ *
+ * <p>Handler classes whose command type is a type variable, e.g.
+ * {@code class H<T extends C> implements CommandHandler<T>}, are not indexed. Neither are
+ * the instance handler methods declared in abstract classes or interfaces, which are left
+ * to the discoverers finding the handlers at runtime.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions(CommandIndexProcessor.INDEX_PACKAGE_OPTION)
+public class CommandIndexProcessor extends AbstractProcessor {
+
+  public static final String INDEX_PACKAGE_OPTION = "commandgate.indexPackage";
+
+  public static final String INDEX_CLASS_NAME = "CommandGateIndex";
+
+  public static final String PACKAGE_CLASS_NAME = "CommandGateIndex_Handlers";
+
+  static final String COMMAND_TYPE = "com.brillantcode.gate.Command";
+
+  static final String HANDLER_TYPE = "com.brillantcode.gate.handler.CommandHandler";
+
+  static final String HANDLER_ANNOTATION_TYPE = "com.brillantcode.gate.annotation.CommandHandler";
+
+  /**
+   * The elements found in the current round, by package.
+   */
+  private final Map<String, PackageIndex> packages = new TreeMap<>();
+
+  private final List<String> indexClasses = new ArrayList<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    @Nullable TypeElement commandElement =
+        processingEnv.getElementUtils().getTypeElement(COMMAND_TYPE);
+    @Nullable TypeElement handlerElement =
+        processingEnv.getElementUtils().getTypeElement(HANDLER_TYPE);
+    if (commandElement == null || handlerElement == null) {
+      // The gate is not on the class path, there is nothing to index
+      return false;
+    }
+
+    if (roundEnv.processingOver()) {
+      if (!indexClasses.isEmpty()) {
+        writeServiceFile();
+      }
+      return false;
+    }
+
+    Types types = processingEnv.getTypeUtils();
+    TypeScanner scanner = new TypeScanner(
+        types.erasure(commandElement.asType()), types.erasure(handlerElement.asType())
+    );
+    for (Element element : roundEnv.getRootElements()) {
+      if (element instanceof TypeElement) {
+        scanner.scan((TypeElement) element);
+      }
+    }
+    if (!packages.isEmpty()) {
+      // Sources written in the last round are not processed, write them while rounds remain
+      writeIndex();
+      packages.clear();
+    }
+
+    // Other processors may handle the same annotations
+    return false;
+  }
+
+  private void writeIndex() {
+    List<String> indexedPackages = new ArrayList<>(packages.keySet());
+    @Nullable String indexPackage = processingEnv.getOptions().get(INDEX_PACKAGE_OPTION);
+    if (indexPackage == null || indexPackage.isEmpty()) {
+      indexPackage = commonPackage(indexedPackages);
+    }
+    if (indexPackage.isEmpty()) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Indexed commands have no common package, set the package of the command index"
+              + " with the -A" + INDEX_PACKAGE_OPTION + " compiler option");
+      return;
+    }
+
+    // The classes of a package may be written in several rounds, and by other modules
+    String suffix = indexSuffix();
+    String packageClassName = PACKAGE_CLASS_NAME + suffix;
+    CommandIndexWriter writer = new CommandIndexWriter(processingEnv.getFiler());
+    try {
+      List<String> packageClasses = new ArrayList<>();
+      for (Map.Entry<String, PackageIndex> entry : packages.entrySet()) {
+        writer.writePackageClass(entry.getKey(), packageClassName, entry.getValue());
+        packageClasses.add(entry.getKey() + "." + packageClassName);
+      }
+      indexClasses.add(
+          writer.writeIndexClass(indexPackage, INDEX_CLASS_NAME + suffix, packageClasses));
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not write the command index: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the suffix of the names of the classes indexing the elements of the current round,
+   * a hash of the elements that does not depend on the order they were found in.
+   */
+  private String indexSuffix() {
+    CRC32 hash = new CRC32();
+    for (Map.Entry<String, PackageIndex> entry : packages.entrySet()) {
+      List<String> names = new ArrayList<>(entry.getValue().commandTypes);
+      for (IndexedHandler handler : entry.getValue().handlers) {
+        names.add(handler.ownerType + "#" + handler.methodName + "(" + handler.commandType + ")");
+      }
+      Collections.sort(names);
+      hash.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+      for (String name : names) {
+        hash.update('\n');
+        hash.update(name.getBytes(StandardCharsets.UTF_8));
+      }
+      hash.update('\n');
+    }
+    return String.format("_%08x", hash.getValue());
+  }
+
+  private void writeServiceFile() {
+    try {
+      new CommandIndexWriter(processingEnv.getFiler()).writeServiceFile(indexClasses);
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not register the command index: " + e.getMessage());
+    }
+  }
+
+  static String commonPackage(Collection<String> packageNames) {
+    @Nullable String common = null;
+    for (String packageName : packageNames) {
+      if (common == null) {
+        common = packageName;
+      }
+      while (!common.isEmpty()
+          && !packageName.equals(common) && !packageName.startsWith(common + ".")) {
+        int lastDot = common.lastIndexOf('.');
+        common = lastDot < 0 ? "" : common.substring(0, lastDot);
+      }
+    }
+    return common != null ? common : "";
+  }
+
+  private PackageIndex packageIndex(TypeElement type) {
+    String packageName =
+        processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    return packages.computeIfAbsent(packageName, name -> new PackageIndex());
+  }
+
+  private void error(String message, Element element) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  private void warning(String message, Element element) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+  }
+
+  /**
+   * Command types and command handlers found in one package.
+   */
+  static final class PackageIndex {
+
+    final List<String> commandTypes = new ArrayList<>();
+
+    final List<IndexedHandler> handlers = new ArrayList<>();
+
+  }
+
+  /**
+   * A command handler class, or a command handler method of a class.
+   */
+  static final class IndexedHandler {
+
+    final String commandType;
+
+    final String ownerType;
+
+    final @Nullable String methodName;
+
+    final boolean staticMethod;
+
+    final boolean throwsCheckedExceptions;
+
+    IndexedHandler(String commandType, String ownerType, @Nullable String methodName,
+                   boolean staticMethod, boolean throwsCheckedExceptions) {
+      this.commandType = commandType;
+      this.ownerType = ownerType;
+      this.methodName = methodName;
+      this.staticMethod = staticMethod;
+      this.throwsCheckedExceptions = throwsCheckedExceptions;
+    }
+
+  }
+
+  private final class TypeScanner {
+
+    private final Types types = processingEnv.getTypeUtils();
+
+    private final TypeMirror commandType;
+
+    private final TypeMirror handlerType;
+
+    TypeScanner(TypeMirror commandType, TypeMirror handlerType) {
+      this.commandType = commandType;
+      this.handlerType = handlerType;
+    }
+
+    void scan(TypeElement type) {
+      if (isInstantiable(type)) {
+        if (types.isAssignable(type.asType(), commandType)) {
+          indexCommand(type);
+        }
+        if (types.isAssignable(types.erasure(type.asType()), handlerType)) {
+          indexHandlerType(type);
+        }
+      }
+
+      for (Element member : type.getEnclosedElements()) {
+        if (member.getKind() == ElementKind.METHOD && isHandlerMethod(member)) {
+          indexHandlerMethod(type, (ExecutableElement) member);
+        } else if (member instanceof TypeElement) {
+          scan((TypeElement) member);
+        }
+      }
+    }
+
+    private void indexCommand(TypeElement type) {
+      if (!isIndexable(type)) {
+        warning("Command type " + type.getQualifiedName()
+            + " is not accessible from its package and will not be indexed", type);
+        return;
+      }
+      packageIndex(type).commandTypes.add(type.getQualifiedName().toString());
+    }
+
+    private void indexHandlerType(TypeElement type) {
+      @Nullable TypeMirror handledType = handledCommandType(type.asType());
+      if (handledType != null && handledType.getKind() == TypeKind.TYPEVAR) {
+        warning("Command handler " + type.getQualifiedName()
+            + " handles a type variable and will not be indexed", type);
+        return;
+      }
+      if (handledType == null || handledType.getKind() != TypeKind.DECLARED) {
+        warning("Could not resolve the command type of command handler "
+            + type.getQualifiedName() + ", it will not be indexed", type);
+        return;
+      }
+      if (!isIndexable(type)) {
+        warning("Command handler " + type.getQualifiedName()
+            + " is not accessible from its package and will not be indexed", type);
+        return;
+      }
+      packageIndex(type).handlers.add(new IndexedHandler(
+          qualifiedName(handledType), type.getQualifiedName().toString(), null, false, false
+      ));
+    }
+
+    private void indexHandlerMethod(TypeElement owner, ExecutableElement method) {
+      boolean staticMethod = method.getModifiers().contains(Modifier.STATIC);
+      if (!staticMethod && !isInstantiable(owner)) {
+        warning("Command handler method is not declared in a concrete class"
+            + " and will not be indexed", method);
+        return;
+      }
+      if (!isIndexable(owner) || method.getModifiers().contains(Modifier.PRIVATE)) {
+        error("Command handler method and its class must not be private"
+            + " to be indexed", method);
+        return;
+      }
+      if (method.getReturnType().getKind() != TypeKind.VOID) {
+        error("Command handler method must not return a value", method);
+        return;
+      }
+      List<? extends VariableElement> parameters = method.getParameters();
+      if (parameters.size() != 1
+          || !types.isAssignable(types.erasure(parameters.get(0).asType()), commandType)) {
+        error("Command handler method should have exactly one parameter of a command type",
+            method);
+        return;
+      }
+
+      packageIndex(owner).handlers.add(new IndexedHandler(
+          qualifiedName(types.erasure(parameters.get(0).asType())),
+          owner.getQualifiedName().toString(),
+          method.getSimpleName().toString(),
+          staticMethod,
+          throwsCheckedExceptions(method)
+      ));
+    }
+
+    private boolean isHandlerMethod(Element method) {
+      return method.getAnnotationMirrors().stream()
+          .map(mirror -> (TypeElement) mirror.getAnnotationType().asElement())
+          .anyMatch(annotation ->
+              annotation.getQualifiedName().contentEquals(HANDLER_ANNOTATION_TYPE));
+    }
+
+    private @Nullable TypeMirror handledCommandType(TypeMirror type) {
+      for (TypeMirror supertype : types.directSupertypes(type)) {
+        if (types.isSameType(types.erasure(supertype), handlerType)) {
+          List<? extends TypeMirror> arguments = ((DeclaredType) supertype).getTypeArguments();
+          if (arguments.isEmpty()) {
+            return null;
+          }
+          // Erasing a type variable would index the handler for its bound
+          TypeMirror argument = arguments.get(0);
+          return argument.getKind() == TypeKind.TYPEVAR ? argument : types.erasure(argument);
+        }
+        @Nullable TypeMirror handledType = handledCommandType(supertype);
+        if (handledType != null) {
+          return handledType;
+        }
+      }
+      return null;
+    }
+
+    private boolean throwsCheckedExceptions(ExecutableElement method) {
+      TypeMirror runtimeException = processingEnv.getElementUtils()
+          .getTypeElement(RuntimeException.class.getName()).asType();
+      TypeMirror error = processingEnv.getElementUtils()
+          .getTypeElement(Error.class.getName()).asType();
+      return method.getThrownTypes().stream()
+          .anyMatch(thrown -> !types.isAssignable(thrown, runtimeException)
+              && !types.isAssignable(thrown, error));
+    }
+
+    private String qualifiedName(TypeMirror type) {
+      @Nullable Element element = types.asElement(type);
+      return element == null
+          ? type.toString()
+          : ((TypeElement) element).getQualifiedName().toString();
+    }
+
+    private boolean isInstantiable(TypeElement type) {
+      return (type.getKind() == ElementKind.CLASS || type.getKind() == ElementKind.ENUM)
+          && !type.getModifiers().contains(Modifier.ABSTRACT)
+          && (type.getNestingKind() == NestingKind.TOP_LEVEL
+          || type.getNestingKind() == NestingKind.MEMBER
+          && type.getModifiers().contains(Modifier.STATIC));
+    }
+
+    private boolean isIndexable(TypeElement type) {
+      Element element = type;
+      while (element instanceof TypeElement) {
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+          return false;
+        }
+        element = element.getEnclosingElement();
+      }
+      return element instanceof PackageElement && !((PackageElement) element).isUnnamed();
+    }
+
+  }
+
+}
@@ -0,0 +1,191 @@
+package com.brillantcode.gate.processor;
+
+import com.brillantcode.gate.processor.CommandIndexProcessor.IndexedHandler;
+import com.brillantcode.gate.processor.CommandIndexProcessor.PackageIndex;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.processing.Filer;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes the sources of a command index generated by {@link CommandIndexProcessor}.
+ */
+class CommandIndexWriter {
+
+  /**
+   * Maximum number of statements in a generated method, keeps the methods
+   * well below the 64 KB bytecode limit for applications with many commands.
+   */
+  static final int STATEMENTS_PER_METHOD = 500;
+
+  private static final String SERVICE_FILE =
+      "META-INF/services/com.brillantcode.gate.index.CommandIndex";
+
+  private static final String GENERATED_ANNOTATION =
+      "@javax.annotation.processing.Generated(\""
+          + CommandIndexProcessor.class.getName() + "\")";
+
+  private static final String COMMAND_TYPES_PARAMETER =
+      "java.util.Set<java.lang.Class<? extends com.brillantcode.gate.Command>> commandTypes";
+
+  private static final String DISCOVERER_PARAMETER =
+      "com.brillantcode.gate.index.IndexedCommandHandlerDiscoverer discoverer";
+
+  private final Filer filer;
+
+  CommandIndexWriter(Filer filer) {
+    this.filer = filer;
+  }
+
+  void writePackageClass(String packageName, String simpleName, PackageIndex index)
+      throws IOException {
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(packageName).append(";\n\n")
+        .append(GENERATED_ANNOTATION).append('\n')
+        .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+        .append("public final class ").append(simpleName)
+        .append(" {\n\n")
+        .append("  private ").append(simpleName)
+        .append("() {\n  }\n\n");
+
+    appendChunkedMethod(source, "addCommandTypes", COMMAND_TYPES_PARAMETER, "commandTypes",
+        index.commandTypes, type -> "    commandTypes.add(" + type + ".class);\n");
+    appendChunkedMethod(source, "registerHandlers", DISCOVERER_PARAMETER, "discoverer",
+        index.handlers, CommandIndexWriter::registration);
+
+    source.append("}\n");
+
+    String className = packageName + "." + simpleName;
+    try (Writer writer = filer.createSourceFile(className).openWriter()) {
+      writer.write(source.toString());
+    }
+  }
+
+  /**
+   * Writes the index class calling the given package classes.
+   *
+   * @return The qualified name of the index class.
+   */
+  String writeIndexClass(String packageName, String simpleName,
+                         Collection<String> packageClasses) throws IOException {
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(packageName).append(";\n\n")
+        .append(GENERATED_ANNOTATION).append('\n')
+        .append("public final class ").append(simpleName)
+        .append(" implements com.brillantcode.gate.index.CommandIndex {\n\n");
+
+    source.append("  @Override\n")
+        .append("  public com.brillantcode.gate.CommandRegistry commandRegistry() {\n")
+        .append("    ").append(COMMAND_TYPES_PARAMETER)
+        .append(" = new java.util.HashSet<>();\n");
+    for (String packageClass : packageClasses) {
+      source.append("    ").append(packageClass)
+          .append(".addCommandTypes(commandTypes);\n");
+    }
+    source.append("    return new com.brillantcode.gate.CommandCollectionRegistry(commandTypes);\n")
+        .append("  }\n\n");
+
+    source.append("  @Override\n")
+        .append("  public com.brillantcode.gate.handler.CommandHandlerDiscoverer")
+        .append(" handlerDiscoverer(\n")
+        .append("      com.brillantcode.gate.index.HandlerInstanceProvider instanceProvider) {\n")
+        .append("    ").append(DISCOVERER_PARAMETER)
+        .append(" =\n        new com.brillantcode.gate.index.IndexedCommandHandlerDiscoverer(")
+        .append("instanceProvider);\n");
+    for (String packageClass : packageClasses) {
+      source.append("    ").append(packageClass)
+          .append(".registerHandlers(discoverer);\n");
+    }
+    source.append("    return discoverer;\n")
+        .append("  }\n\n")
+        .append("}\n");
+
+    String className = packageName + "." + simpleName;
+    try (Writer writer = filer.createSourceFile(className).openWriter()) {
+      writer.write(source.toString());
+    }
+    return className;
+  }
+
+  /**
+   * Registers the index classes as services, once they are all written.
+   */
+  void writeServiceFile(Collection<String> indexClasses) throws IOException {
+    try (Writer writer = filer
+        .createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE).openWriter()) {
+      for (String indexClass : indexClasses) {
+        writer.write(indexClass + "\n");
+      }
+    }
+  }
+
+  private static <T> void appendChunkedMethod(StringBuilder source, String methodName,
+                                              String parameter, String argument,
+                                              List<T> elements,
+                                              Function<T, String> statement) {
+    List<String> chunkMethods = new ArrayList<>();
+    for (int from = 0; from < elements.size(); from += STATEMENTS_PER_METHOD) {
+      String chunkMethod = methodName + chunkMethods.size();
+      chunkMethods.add(chunkMethod);
+      source.append("  private static void ").append(chunkMethod)
+          .append('(').append(parameter).append(") {\n");
+      for (T element : elements.subList(
+          from, Math.min(from + STATEMENTS_PER_METHOD, elements.size()))) {
+        source.append(statement.apply(element));
+      }
+      source.append("  }\n\n");
+    }
+
+    source.append("  public static void ").append(methodName)
+        .append('(').append(parameter).append(") {\n");
+    for (String chunkMethod : chunkMethods) {
+      source.append("    ").append(chunkMethod).append('(').append(argument).append(");\n");
+    }
+    source.append("  }\n\n");
+  }
+
+  private static String registration(IndexedHandler handler) {
+    StringBuilder statement = new StringBuilder();
+    statement.append("    discoverer.register(").append(handler.commandType)
+        .append(".class, instanceProvider -> ");
+
+    if (handler.methodName == null) {
+      statement.append("(com.brillantcode.gate.handler.CommandHandler) instanceProvider")
+          .append(".getInstance(").append(handler.ownerType).append(".class));\n");
+      return statement.toString();
+    }
+
+    String invocation;
+    if (handler.staticMethod) {
+      invocation = handler.ownerType + "." + handler.methodName + "(command);";
+      statement.append("{\n");
+    } else {
+      invocation = "owner." + handler.methodName + "(command);";
+      statement.append("{\n")
+          .append("      ").append(handler.ownerType).append(" owner = (")
+          .append(handler.ownerType).append(") instanceProvider.getInstance(")
+          .append(handler.ownerType).append(".class);\n");
+    }
+
+    if (handler.throwsCheckedExceptions) {
+      statement.append("      return command -> {\n")
+          .append("        try {\n")
+          .append("          ").append(invocation).append('\n')
+          .append("        } catch (java.lang.RuntimeException ex) {\n")
+          .append("          throw ex;\n")
+          .append("        } catch (java.lang.Exception ex) {\n")
+          .append("          throw new java.lang.RuntimeException(ex);\n")
+          .append("        }\n")
+          .append("      };\n");
+    } else {
+      statement.append("      return command -> ").append(invocation).append('\n');
+    }
+    statement.append("    });\n");
+    return statement.toString();
+  }
+
+}
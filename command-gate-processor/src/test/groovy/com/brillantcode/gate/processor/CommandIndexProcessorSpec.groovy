@@ -0,0 +1,402 @@
+package com.brillantcode.gate.processor
+
+import com.brillantcode.gate.Command
+import com.brillantcode.gate.index.CommandIndex
+import com.brillantcode.gate.index.HandlerInstanceProvider
+import java.nio.file.Files
+import java.nio.file.Path
+import javax.annotation.processing.AbstractProcessor
+import javax.annotation.processing.Filer
+import javax.annotation.processing.ProcessingEnvironment
+import javax.annotation.processing.Processor
+import javax.annotation.processing.RoundEnvironment
+import javax.annotation.processing.SupportedAnnotationTypes
+import javax.lang.model.SourceVersion
+import javax.lang.model.element.TypeElement
+import javax.tools.Diagnostic
+import javax.tools.DiagnosticCollector
+import javax.tools.JavaFileObject
+import javax.tools.ToolProvider
+import spock.lang.Specification
+import spock.lang.TempDir
+
+class CommandIndexProcessorSpec extends Specification {
+
+  @TempDir
+  Path workDir
+
+  def "Processor indexes commands, handler classes and handler methods"() {
+    given: "sources with commands and handlers"
+    source("com.example.orders.PlaceOrder", """
+      package com.example.orders;
+      public class PlaceOrder implements com.brillantcode.gate.Command {
+        public static final java.util.List<String> HANDLED = new java.util.ArrayList<>();
+      }
+    """)
+    source("com.example.orders.OrderHandlers", """
+      package com.example.orders;
+      class OrderHandlers {
+        @com.brillantcode.gate.annotation.CommandHandler
+        void handle(PlaceOrder command) {
+          PlaceOrder.HANDLED.add("method");
+        }
+        @com.brillantcode.gate.annotation.CommandHandler
+        static void cancel(CancelOrder command) throws java.io.IOException {
+          throw new java.io.IOException("cancelled");
+        }
+        static class CancelOrder implements com.brillantcode.gate.Command {
+        }
+      }
+    """)
+    source("com.example.billing.Bill", """
+      package com.example.billing;
+      public class Bill implements com.brillantcode.gate.Command {
+        public static final java.util.List<String> HANDLED = new java.util.ArrayList<>();
+      }
+    """)
+    source("com.example.billing.BillHandler", """
+      package com.example.billing;
+      public class BillHandler implements com.brillantcode.gate.handler.CommandHandler<Bill> {
+        public void handle(Bill command) {
+          Bill.HANDLED.add("class");
+        }
+      }
+    """)
+
+    when: "the sources are compiled"
+    def loader = compile()
+
+    then: "a single index is registered as a service"
+    def indexes = CommandIndex.loadAll(loader)
+    assert indexes.size() == 1
+    assert indexes[0].class.name ==~ /com\.example\.CommandGateIndex_[0-9a-f]{8}/
+
+    and: "all the command types are indexed"
+    def index = indexes[0]
+    def commandTypes = index.commandRegistry().commandTypes*.name as Set
+    assert commandTypes == [
+        "com.example.orders.PlaceOrder",
+        "com.example.orders.OrderHandlers\$CancelOrder",
+        "com.example.billing.Bill"
+    ] as Set
+
+    and: "handlers of all the command types are discovered"
+    def discoverer = index.handlerDiscoverer(HandlerInstanceProvider.constructing())
+    def placeOrder = loader.loadClass("com.example.orders.PlaceOrder")
+    def bill = loader.loadClass("com.example.billing.Bill")
+    discoverer.getHandlerFor(placeOrder).handle(placeOrder.newInstance() as Command)
+    discoverer.getHandlerFor(bill).handle(bill.newInstance() as Command)
+    assert placeOrder.HANDLED == ["method"]
+    assert bill.HANDLED == ["class"]
+
+    when: "a handler method throwing a checked exception is called"
+    def cancelOrder = loader.loadClass("com.example.orders.OrderHandlers\$CancelOrder")
+    discoverer.getHandlerFor(cancelOrder).handle(cancelOrder.newInstance() as Command)
+
+    then: "the exception is wrapped in a runtime exception"
+    def ex = thrown(RuntimeException)
+    assert ex.cause instanceof IOException
+  }
+
+  def "Processor places the index in the configured package"() {
+    given: "a command source"
+    source("com.example.Ping", """
+      package com.example;
+      public class Ping implements com.brillantcode.gate.Command {
+      }
+    """)
+
+    when: "the source is compiled with the index package option"
+    def loader = compile("-A${CommandIndexProcessor.INDEX_PACKAGE_OPTION}=com.example.index")
+
+    then: "the index is generated in the given package"
+    def indexes = CommandIndex.loadAll(loader)
+    assert indexes.size() == 1
+    assert indexes[0].class.name ==~ /com\.example\.index\.CommandGateIndex_[0-9a-f]{8}/
+  }
+
+  def "Processor writes the index before the last round"() {
+    given: "a command source"
+    source("com.example.Ping", """
+      package com.example;
+      public class Ping implements com.brillantcode.gate.Command {
+      }
+    """)
+
+    when: "the source is compiled"
+    def diagnostics = new DiagnosticCollector<JavaFileObject>()
+    def success = runCompiler(diagnostics)
+
+    then: "the index is compiled without warnings"
+    assert success
+    assert diagnostics.diagnostics.every { it.kind != Diagnostic.Kind.WARNING }
+    assert Files.list(workDir.resolve("classes/com/example")).withCloseable { files ->
+      files.anyMatch { it.fileName.toString() ==~ /CommandGateIndex_[0-9a-f]{8}\.class/ }
+    }
+  }
+
+  def "Processor indexes the commands generated by other processors in later rounds"() {
+    given: "a command source"
+    source("com.example.Ping", """
+      package com.example;
+      public class Ping implements com.brillantcode.gate.Command {
+      }
+    """)
+
+    when: "the source is compiled with a processor generating a command and its handler"
+    def diagnostics = new DiagnosticCollector<JavaFileObject>()
+    def success = runCompiler(diagnostics, [new GeneratingProcessor()])
+
+    then: "the compilation succeeds without warnings"
+    assert success: diagnostics.diagnostics.join("\n")
+    assert diagnostics.diagnostics.every { it.kind != Diagnostic.Kind.WARNING }
+
+    and: "the commands of both rounds are indexed"
+    def loader = new URLClassLoader([workDir.resolve("classes").toUri().toURL()] as URL[],
+        getClass().classLoader)
+    def indexes = CommandIndex.loadAll(loader)
+    assert indexes.size() == 2
+    assert indexes[0].class.name ==~ /com\.example\.CommandGateIndex_[0-9a-f]{8}/
+    assert indexes[1].class.name ==~ /com\.example\.generated\.CommandGateIndex_[0-9a-f]{8}/
+    assert indexes.collectMany { it.commandRegistry().commandTypes*.name } as Set ==
+        ["com.example.Ping", "com.example.generated.Pong"] as Set
+
+    and: "the generated handler is discovered"
+    def pong = loader.loadClass("com.example.generated.Pong")
+    assert indexes[1].handlerDiscoverer(HandlerInstanceProvider.constructing())
+        .getHandlerFor(pong) != null
+  }
+
+  def "Processor names the indexes of different modules sharing a package apart"() {
+    given: "a command source"
+    source("com.example.Ping", """
+      package com.example;
+      public class Ping implements com.brillantcode.gate.Command {
+      }
+    """)
+    def firstIndex = CommandIndex.loadAll(compile())[0].class.name
+
+    when: "another module with other commands in the same package is compiled"
+    workDir.resolve("src/com/example/Ping.java").toFile().delete()
+    workDir.resolve("classes").toFile().deleteDir()
+    source("com.example.Pong", """
+      package com.example;
+      public class Pong implements com.brillantcode.gate.Command {
+      }
+    """)
+    def secondIndex = CommandIndex.loadAll(compile())[0].class.name
+
+    then: "the indexes have different names"
+    assert firstIndex != secondIndex
+  }
+
+  def "Processor skips handler classes of a type variable"() {
+    given: "a command and a generic handler bound to it"
+    source("com.example.Ping", """
+      package com.example;
+      public class Ping implements com.brillantcode.gate.Command {
+      }
+    """)
+    source("com.example.GenericHandler", """
+      package com.example;
+      public class GenericHandler<T extends Ping>
+          implements com.brillantcode.gate.handler.CommandHandler<T> {
+        public void handle(T command) {
+        }
+      }
+    """)
+
+    when: "the sources are compiled"
+    def diagnostics = new DiagnosticCollector<JavaFileObject>()
+    def success = runCompiler(diagnostics)
+
+    then: "the handler is reported and not indexed"
+    assert success: diagnostics.diagnostics.join("\n")
+    assert diagnostics.diagnostics.any {
+      it.kind == Diagnostic.Kind.WARNING && it.getMessage(null).contains("type variable")
+    }
+    def loader = new URLClassLoader([workDir.resolve("classes").toUri().toURL()] as URL[],
+        getClass().classLoader)
+    def ping = loader.loadClass("com.example.Ping")
+    assert CommandIndex.loadAll(loader)[0]
+        .handlerDiscoverer(HandlerInstanceProvider.constructing())
+        .getHandlerFor(ping) == null
+  }
+
+  def "Processor skips handler methods of abstract classes"() {
+    given: "a command and a handler method inherited from an abstract class"
+    source("com.example.Ping", """
+      package com.example;
+      public class Ping implements com.brillantcode.gate.Command {
+      }
+    """)
+    source("com.example.AbstractPingHandler", """
+      package com.example;
+      public abstract class AbstractPingHandler {
+        @com.brillantcode.gate.annotation.CommandHandler
+        public void handle(Ping command) {
+        }
+      }
+    """)
+    source("com.example.PingHandler", """
+      package com.example;
+      public class PingHandler extends AbstractPingHandler {
+      }
+    """)
+
+    when: "the sources are compiled"
+    def diagnostics = new DiagnosticCollector<JavaFileObject>()
+    def success = runCompiler(diagnostics)
+
+    then: "the handler method is reported and not indexed"
+    assert success: diagnostics.diagnostics.join("\n")
+    assert diagnostics.diagnostics.any {
+      it.kind == Diagnostic.Kind.WARNING && it.getMessage(null).contains("concrete class")
+    }
+    def loader = new URLClassLoader([workDir.resolve("classes").toUri().toURL()] as URL[],
+        getClass().classLoader)
+    def ping = loader.loadClass("com.example.Ping")
+    assert CommandIndex.loadAll(loader)[0]
+        .handlerDiscoverer(HandlerInstanceProvider.constructing())
+        .getHandlerFor(ping) == null
+  }
+
+  def "Processor rejects invalid handler methods"() {
+    given: "a handler method returning a value"
+    source("com.example.Ping", """
+      package com.example;
+      public class Ping implements com.brillantcode.gate.Command {
+        @com.brillantcode.gate.annotation.CommandHandler
+        String handle(Ping command) {
+          return "pong";
+        }
+      }
+    """)
+
+    when: "the source is compiled"
+    def diagnostics = new DiagnosticCollector<JavaFileObject>()
+    def success = runCompiler(diagnostics)
+
+    then: "the compilation fails"
+    assert !success
+    assert diagnostics.diagnostics.any {
+      it.kind == Diagnostic.Kind.ERROR && it.getMessage(null).contains("must not return a value")
+    }
+  }
+
+  def "Processor generates nothing without commands"() {
+    given: "a source without commands"
+    source("com.example.Plain", """
+      package com.example;
+      public class Plain {
+      }
+    """)
+
+    when: "the source is compiled"
+    def loader = compile()
+
+    then: "no index is generated"
+    assert CommandIndex.loadAll(loader).empty
+  }
+
+  def "CommonPackage returns the longest common package"() {
+    expect:
+    CommandIndexProcessor.commonPackage(packages as Set) == expected
+
+    where:
+    packages                          || expected
+    ["a.b.c"]                         || "a.b.c"
+    ["a.b.c", "a.b.d"]                || "a.b"
+    ["a.b", "a.bc"]                   || "a"
+    ["a.b", "a.b.c"]                  || "a.b"
+    ["a.b", "x.y"]                    || ""
+  }
+
+  private void source(String className, String code) {
+    def file = workDir.resolve("src").resolve(className.replace('.', '/') + ".java")
+    Files.createDirectories(file.parent)
+    Files.writeString(file, code.stripIndent())
+  }
+
+  private ClassLoader compile(String... options) {
+    def diagnostics = new DiagnosticCollector<JavaFileObject>()
+    assert runCompiler(diagnostics, options): diagnostics.diagnostics.join("\n")
+    return new URLClassLoader([workDir.resolve("classes").toUri().toURL()] as URL[],
+        getClass().classLoader)
+  }
+
+  private boolean runCompiler(DiagnosticCollector<JavaFileObject> diagnostics,
+                              String... options) {
+    runCompiler(diagnostics, [], options)
+  }
+
+  private boolean runCompiler(DiagnosticCollector<JavaFileObject> diagnostics,
+                              List<Processor> otherProcessors, String... options) {
+    def compiler = ToolProvider.systemJavaCompiler
+    def fileManager = compiler.getStandardFileManager(diagnostics, null, null)
+    def classes = Files.createDirectories(workDir.resolve("classes"))
+    def sources = Files.walk(workDir.resolve("src"))
+        .filter { it.toString().endsWith(".java") }
+        .map { it.toFile() }
+        .collect()
+    def arguments = [
+        "-d", classes.toString(),
+        "-classpath", System.getProperty("java.class.path")
+    ] + (options as List)
+    def task = compiler.getTask(null, fileManager, diagnostics, arguments, null,
+        fileManager.getJavaFileObjectsFromFiles(sources))
+    task.setProcessors([new CommandIndexProcessor()] + otherProcessors)
+    return task.call()
+  }
+
+  /**
+   * Generates a command and its handler in the first round, like AutoValue generates
+   * the implementations of the classes it processes.
+   */
+  @SupportedAnnotationTypes("*")
+  static class GeneratingProcessor extends AbstractProcessor {
+
+    private Filer filer
+    private boolean generated
+
+    @Override
+    synchronized void init(ProcessingEnvironment processingEnv) {
+      super.init(processingEnv)
+      filer = processingEnv.filer
+    }
+
+    @Override
+    SourceVersion getSupportedSourceVersion() {
+      SourceVersion.latestSupported()
+    }
+
+    @Override
+    boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (!generated) {
+        generated = true
+        generate("com.example.generated.Pong", """
+          package com.example.generated;
+          public class Pong implements com.brillantcode.gate.Command {
+          }
+        """)
+        generate("com.example.generated.PongHandler", """
+          package com.example.generated;
+          public class PongHandler
+              implements com.brillantcode.gate.handler.CommandHandler<Pong> {
+            public void handle(Pong command) {
+            }
+          }
+        """)
+      }
+      false
+    }
+
+    private void generate(String className, String code) {
+      filer.createSourceFile(className).openWriter().withCloseable {
+        it.write(code.stripIndent())
+      }
+    }
+
+  }
+
+}
@@ -22,8 +22,7 @@ public class ClassPathScannerCommandRegistry implements CommandRegistry, Initial
 
   private final String[] basePackages;
 
-  @Nullable
-  private CommandRegistry commandRegistry;
+  private @Nullable CommandRegistry commandRegistry;
 
   /**
    * Instantiates the scanner for the given base packages.
@@ -2,7 +2,11 @@ package com.brillantcode.gate.annotation;
 
 import com.brillantcode.gate.ClassPathScannerCommandRegistry;
 import com.brillantcode.gate.CommandRegistry;
+import com.brillantcode.gate.CommandRegistryList;
+import com.brillantcode.gate.index.CommandIndex;
 import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ImportAware;
@@ -17,11 +21,9 @@ import org.springframework.util.ClassUtils;
  */
 public class CommandRegistryConfiguration implements ImportAware {
 
-  @Nullable
-  protected AnnotationAttributes enableCommandGate;
+  protected @Nullable AnnotationAttributes enableCommandGate;
 
-  @Nullable
-  protected String defaultBasePackage;
+  protected @Nullable String defaultBasePackage;
 
   @Override
   public void setImportMetadata(AnnotationMetadata importMetadata) {
@@ -42,7 +44,8 @@ public class CommandRegistryConfiguration implements ImportAware {
   /**
    * Creates an instance of {@link ClassPathScannerCommandRegistry}
    * that will scan packages defined in the {@link EnableCommandGate}
-   * annotation.
+   * annotation, or a registry of the indexed command types
+   * if {@link EnableCommandGate#useCommandIndex()} is set.
    *
    * @return A command registry bean instance.
    */
@@ -51,6 +54,10 @@ public class CommandRegistryConfiguration implements ImportAware {
     Preconditions.checkNotNull(this.enableCommandGate,
         "@EnableCommandGate annotation metadata was not injected");
 
+    if (Preconditions.checkNotNull(this.enableCommandGate).getBoolean("useCommandIndex")) {
+      return commandIndexRegistry();
+    }
+
     String[] basePackages = Preconditions.checkNotNull(this.enableCommandGate)
         .getStringArray("basePackages");
 
@@ -63,4 +70,19 @@ public class CommandRegistryConfiguration implements ImportAware {
     return new ClassPathScannerCommandRegistry(basePackages);
   }
 
+  private CommandRegistry commandIndexRegistry() {
+    List<CommandIndex> commandIndexes = CommandIndex.loadAll(
+        Preconditions.checkNotNull(ClassUtils.getDefaultClassLoader()));
+    if (commandIndexes.isEmpty()) {
+      throw new IllegalStateException("No command index was found on the class path,"
+          + " make sure command-gate-processor runs when the commands are compiled");
+    }
+
+    List<CommandRegistry> registries = new ArrayList<>();
+    for (CommandIndex commandIndex : commandIndexes) {
+      registries.add(commandIndex.commandRegistry());
+    }
+    return new CommandRegistryList(registries);
+  }
+
 }
@@ -26,4 +26,16 @@ public @interface EnableCommandGate {
    */
   String[] basePackages() default {};
 
+  /**
+   * Whether {@link com.brillantcode.gate.Command} types should be read
+   * from the build-time {@link com.brillantcode.gate.index.CommandIndex} generated
+   * by the {@code command-gate-processor} instead of scanning the class path.
+   *
+   * <p>When enabled, {@link #basePackages()} are ignored. Handlers of the index are
+   * available through {@link com.brillantcode.gate.handler.CommandIndexHandlerDiscoverer}.
+   *
+   * @return True if the command index should be used, false by default.
+   */
+  boolean useCommandIndex() default false;
+
 }
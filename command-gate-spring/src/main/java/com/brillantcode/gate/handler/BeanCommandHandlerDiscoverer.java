@@ -17,7 +17,7 @@ import org.springframework.core.ResolvableType;
  */
 public class BeanCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
 
-  private final ListableBeanFactory beanFactory;
+  protected final ListableBeanFactory beanFactory;
 
   public BeanCommandHandlerDiscoverer(ListableBeanFactory beanFactory) {
     Preconditions.checkNotNull(beanFactory);
@@ -37,16 +37,7 @@ public class BeanCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
         this.beanFactory.getBeansOfType(CommandHandler.class);
 
     for (CommandHandler<?> commandHandler : commandHandlerBeans.values()) {
-      Class<?> handlerCommandType = ResolvableType.forInstance(commandHandler)
-          .as(CommandHandler.class)
-          .getGeneric(0).resolve();
-      if (handlerCommandType == null) {
-        throw new IllegalStateException(String.format(
-            "Could not find Command type on CommandHandler of class %s",
-            commandHandler.getClass().getName()
-        ));
-      }
-
+      Class<?> handlerCommandType = resolveCommandType(commandHandler);
       if (handlerCommandType.equals(commandType)) {
         try {
           targetCommandHandlers.add((CommandHandler<CommandT>) commandHandler);
@@ -68,4 +59,24 @@ public class BeanCommandHandlerDiscoverer implements CommandHandlerDiscoverer {
     return targetCommandHandlers.get(0);
   }
 
+  /**
+   * Resolves the type of the {@link Command} handled by the given handler.
+   *
+   * @param commandHandler The command handler.
+   * @return The type of the handled command.
+   * @throws IllegalStateException If the command type could not be resolved.
+   */
+  protected Class<?> resolveCommandType(CommandHandler<?> commandHandler) {
+    Class<?> handlerCommandType = ResolvableType.forInstance(commandHandler)
+        .as(CommandHandler.class)
+        .getGeneric(0).resolve();
+    if (handlerCommandType == null) {
+      throw new IllegalStateException(String.format(
+          "Could not find Command type on CommandHandler of class %s",
+          commandHandler.getClass().getName()
+      ));
+    }
+    return handlerCommandType;
+  }
+
 }
@@ -0,0 +1,49 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.index.CommandIndex;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Implementation of {@link CommandHandlerDiscoverer} that serves the handlers
+ * of every {@link CommandIndex} on the class path, generated at build time
+ * by the {@code command-gate-processor}.
+ *
+ * <p>Objects owning the indexed handlers are beans of a Spring
+ * {@link org.springframework.beans.factory.BeanFactory}, obtained by their type.
+ * No beans are introspected for handler methods.
+ */
+public class CommandIndexHandlerDiscoverer implements CommandHandlerDiscoverer {
+
+  private final CommandHandlerDiscoverer indexedDiscoverer;
+
+  /**
+   * Instantiate the discoverer using the given {@link ListableBeanFactory}
+   * as the source of beans owning the indexed handlers.
+   *
+   * @param beanFactory Spring {@link ListableBeanFactory} containing the handler beans.
+   */
+  public CommandIndexHandlerDiscoverer(ListableBeanFactory beanFactory) {
+    Preconditions.checkNotNull(beanFactory);
+
+    List<CommandHandlerDiscoverer> discoverers = new ArrayList<>();
+    for (CommandIndex commandIndex : CommandIndex.loadAll(
+        Preconditions.checkNotNull(ClassUtils.getDefaultClassLoader()))) {
+      discoverers.add(commandIndex.handlerDiscoverer(beanFactory::getBean));
+    }
+    this.indexedDiscoverer = new CompositeCommandHandlerDiscoverer(discoverers);
+  }
+
+  @Override
+  public <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    return indexedDiscoverer.getHandlerFor(commandType);
+  }
+
+}
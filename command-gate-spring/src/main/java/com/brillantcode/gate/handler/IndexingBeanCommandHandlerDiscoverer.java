@@ -0,0 +1,74 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import java.lang.reflect.TypeVariable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.core.ResolvableType;
+
+/**
+ * Implementation of {@link BeanCommandHandlerDiscoverer} that looks up
+ * the {@link CommandHandler} beans only once.
+ *
+ * <p>On the first call of {@link #getHandlerFor(Class)} the names of all the command handler
+ * beans are indexed by the type of the command they handle, resolved from the bean types.
+ * A handler bean is only fetched on the first lookup of its command type, unless its type
+ * does not tell the command type. All the calls are then served from the index, so
+ * the discoverer must only be used once the bean factory contains all the handler beans,
+ * e.g. when the {@link SpringMapCommandHandlerRegistry} is started.
+ */
+public class IndexingBeanCommandHandlerDiscoverer extends BeanCommandHandlerDiscoverer {
+
+  private final LazyHandlerIndex handlerIndex = new LazyHandlerIndex();
+
+  public IndexingBeanCommandHandlerDiscoverer(ListableBeanFactory beanFactory) {
+    super(beanFactory);
+  }
+
+  @Override
+  public <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    return handlerIndex.getHandlerFor(commandType, this::indexHandlers);
+  }
+
+  private Map<Class<?>, List<Supplier<CommandHandler<?>>>> indexHandlers() {
+    Map<Class<?>, List<Supplier<CommandHandler<?>>>> index = new HashMap<>();
+
+    for (String beanName : this.beanFactory.getBeanNamesForType(CommandHandler.class)) {
+      @Nullable Class<?> commandType = resolveCommandType(beanName);
+      if (commandType != null) {
+        index.computeIfAbsent(commandType, type -> new ArrayList<>())
+            .add(() -> this.beanFactory.getBean(beanName, CommandHandler.class));
+      } else {
+        // The bean class does not tell the command type, the handler itself may
+        CommandHandler<?> commandHandler = this.beanFactory.getBean(beanName, CommandHandler.class);
+        index.computeIfAbsent(resolveCommandType(commandHandler), type -> new ArrayList<>())
+            .add(() -> commandHandler);
+      }
+    }
+
+    return index;
+  }
+
+  private @Nullable Class<?> resolveCommandType(String beanName) {
+    @Nullable Class<?> beanType = this.beanFactory.getType(beanName);
+    if (beanType == null) {
+      return null;
+    }
+    ResolvableType commandType = ResolvableType.forClass(beanType)
+        .as(CommandHandler.class)
+        .getGeneric(0);
+    if (commandType.getType() instanceof TypeVariable) {
+      // A generic handler class, resolving to the bound of its type parameter
+      return null;
+    }
+    return commandType.resolve();
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.brillantcode.gate.MethodDescriptor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.core.MethodIntrospector;
+
+/**
+ * Implementation of {@link MethodCommandHandlerDiscoverer} that introspects
+ * the beans only once.
+ *
+ * <p>On the first call of {@link #getHandlerFor(Class)} every bean type is searched
+ * for {@link com.brillantcode.gate.annotation.CommandHandler} annotated methods, which are
+ * indexed by the type of their command parameter. The bean owning a handler method is only
+ * fetched on the first lookup of its command type. All the calls are then served from
+ * the index, so the discoverer must only be used once the bean factory contains all
+ * the handler beans, e.g. when the {@link SpringMapCommandHandlerRegistry} is started.
+ *
+ * <p>This reduces the cost of discovering the handlers of all the commands
+ * from one pass over the beans per command to a single pass.
+ */
+public class IndexingMethodCommandHandlerDiscoverer extends MethodCommandHandlerDiscoverer {
+
+  private final LazyHandlerIndex handlerIndex = new LazyHandlerIndex();
+
+  public IndexingMethodCommandHandlerDiscoverer(ListableBeanFactory beanFactory) {
+    super(beanFactory);
+  }
+
+  @Override
+  public <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType
+  ) {
+    return handlerIndex.getHandlerFor(commandType, this::indexHandlers);
+  }
+
+  private Map<Class<?>, List<Supplier<CommandHandler<?>>>> indexHandlers() {
+    Map<Class<?>, List<Supplier<CommandHandler<?>>>> index = new HashMap<>();
+
+    for (String beanName : beanNames()) {
+      @Nullable Class<?> beanType = resolveBeanType(beanName);
+      if (beanType == null) {
+        continue;
+      }
+
+      Map<Method, Class<? extends Command>> handlerMethods = MethodIntrospector.selectMethods(
+          beanType,
+          (MethodIntrospector.MetadataLookup<Class<? extends Command>>) method -> {
+            if (!isHandlerMethod(method) || method.getParameterCount() != 1
+                || !Command.class.isAssignableFrom(method.getParameterTypes()[0])) {
+              return null;
+            }
+            return method.getParameterTypes()[0].asSubclass(Command.class);
+          });
+
+      for (Map.Entry<Method, Class<? extends Command>> handlerMethod
+          : handlerMethods.entrySet()) {
+        MethodDescriptor method = new MethodDescriptor(handlerMethod.getKey());
+        Class<? extends Command> commandType = handlerMethod.getValue();
+        index.computeIfAbsent(commandType, type -> new ArrayList<>())
+            .add(() -> createHandler(beanFactory.getBean(beanName), method, commandType));
+      }
+    }
+
+    return index;
+  }
+
+}
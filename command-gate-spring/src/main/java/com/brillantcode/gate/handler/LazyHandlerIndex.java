@@ -0,0 +1,77 @@
+package com.brillantcode.gate.handler;
+
+import com.brillantcode.gate.Command;
+import com.google.common.base.Preconditions;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Index of the command handlers of a bean factory by the type of the command they handle,
+ * shared by the indexing discoverers.
+ *
+ * <p>The candidate handlers of all the command types are collected on the first lookup,
+ * without fetching the beans. The handler of a command type is only created, fetching its bean,
+ * on the first lookup of that type.
+ */
+final class LazyHandlerIndex {
+
+  private final Map<Class<?>, CommandHandler<?>> handlers = new ConcurrentHashMap<>();
+
+  private volatile @Nullable Map<Class<?>, List<Supplier<CommandHandler<?>>>> candidates;
+
+  /**
+   * Returns the handler of the command type, indexing the candidate handlers on the first call.
+   *
+   * @param commandType The type of the command.
+   * @param indexer     Collects the suppliers of the candidate handlers by command type.
+   * @param <CommandT>  The type of the command.
+   * @return The command handler, or null if there is none.
+   * @throws MultipleHandlersFoundException If the command type has several handlers.
+   */
+  @SuppressWarnings("unchecked")
+  <CommandT extends Command> @Nullable CommandHandler<CommandT> getHandlerFor(
+      Class<CommandT> commandType,
+      Supplier<Map<Class<?>, List<Supplier<CommandHandler<?>>>>> indexer
+  ) {
+    Preconditions.checkNotNull(commandType);
+
+    @Nullable CommandHandler<?> handler = handlers.get(commandType);
+    if (handler == null) {
+      @Nullable List<Supplier<CommandHandler<?>>> commandHandlers =
+          candidates(indexer).get(commandType);
+      if (commandHandlers == null) {
+        return null;
+      } else if (commandHandlers.size() > 1) {
+        throw new MultipleHandlersFoundException(commandType);
+      }
+      // Created outside of the map, as creating the bean may look up other handlers
+      handler = commandHandlers.get(0).get();
+      @Nullable CommandHandler<?> previous = handlers.putIfAbsent(commandType, handler);
+      if (previous != null) {
+        handler = previous;
+      }
+    }
+
+    return (CommandHandler<CommandT>) handler;
+  }
+
+  private Map<Class<?>, List<Supplier<CommandHandler<?>>>> candidates(
+      Supplier<Map<Class<?>, List<Supplier<CommandHandler<?>>>>> indexer
+  ) {
+    @Nullable Map<Class<?>, List<Supplier<CommandHandler<?>>>> index = this.candidates;
+    if (index == null) {
+      synchronized (this) {
+        index = this.candidates;
+        if (index == null) {
+          index = indexer.get();
+          this.candidates = index;
+        }
+      }
+    }
+    return index;
+  }
+
+}
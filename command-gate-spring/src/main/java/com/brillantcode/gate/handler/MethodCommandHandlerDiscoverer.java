@@ -4,6 +4,7 @@ import com.brillantcode.gate.Command;
 import com.brillantcode.gate.MethodDescriptor;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Sets;
+import java.lang.invoke.LambdaConversionException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,7 +29,7 @@ public class MethodCommandHandlerDiscoverer implements CommandHandlerDiscoverer
 
   protected final Log logger;
 
-  private final ListableBeanFactory beanFactory;
+  protected final ListableBeanFactory beanFactory;
 
   /**
    * Instantiate the discoverer using the given
@@ -51,27 +52,13 @@ public class MethodCommandHandlerDiscoverer implements CommandHandlerDiscoverer
 
     List<CommandHandler<CommandT>> commandHandlers = new ArrayList<>();
 
-    String[] beanNames = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
-        beanFactory, Object.class
-    );
-
+    String[] beanNames = beanNames();
     for (String beanName : beanNames) {
-      if (!beanName.startsWith("scopedTarget.")) {
-        Class<?> beanType = null;
-        try {
-          beanType = beanFactory.getType(beanName);
-        } catch (Throwable ex) {
-          // An unresolvable bean type, probably from a lazy bean - let's ignore it.
-          if (logger.isDebugEnabled()) {
-            logger.debug("Could not resolve target class for bean with name '"
-                + beanName + "'", ex);
-          }
-        }
-        if (beanType != null) {
-          Set<CommandHandler<CommandT>> handlerMethodsForCommand =
-              findHandlerMethodsForCommand(beanType, commandType);
-          commandHandlers.addAll(handlerMethodsForCommand);
-        }
+      @Nullable Class<?> beanType = resolveBeanType(beanName);
+      if (beanType != null) {
+        Set<CommandHandler<CommandT>> handlerMethodsForCommand =
+            findHandlerMethodsForCommand(beanType, commandType);
+        commandHandlers.addAll(handlerMethodsForCommand);
       }
     }
 
@@ -84,6 +71,49 @@ public class MethodCommandHandlerDiscoverer implements CommandHandlerDiscoverer
     return commandHandlers.get(0);
   }
 
+  /**
+   * Returns the names of all the beans in the bean factory and its ancestors.
+   *
+   * @return An array of bean names.
+   */
+  protected String[] beanNames() {
+    return BeanFactoryUtils.beanNamesForTypeIncludingAncestors(beanFactory, Object.class);
+  }
+
+  /**
+   * Resolves the type of the bean with the given name.
+   *
+   * @param beanName The name of the bean.
+   * @return The type of the bean, or null if the bean is a scoped target
+   *         or its type could not be resolved.
+   */
+  protected @Nullable Class<?> resolveBeanType(String beanName) {
+    if (beanName.startsWith("scopedTarget.")) {
+      return null;
+    }
+    try {
+      return beanFactory.getType(beanName);
+    } catch (Throwable ex) {
+      // An unresolvable bean type, probably from a lazy bean - let's ignore it.
+      if (logger.isDebugEnabled()) {
+        logger.debug("Could not resolve target class for bean with name '"
+            + beanName + "'", ex);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Checks if the given method is a command handler method, regardless of the command type.
+   *
+   * @param method The method to check.
+   * @return True if the method is annotated as a command handler.
+   */
+  protected boolean isHandlerMethod(Method method) {
+    return AnnotationUtils.findAnnotation(method,
+        com.brillantcode.gate.annotation.CommandHandler.class) != null;
+  }
+
   private <CommandT extends Command> Set<CommandHandler<CommandT>> findHandlerMethodsForCommand(
       Class<?> beanType, Class<CommandT> commandType
   ) {
@@ -91,15 +121,14 @@ public class MethodCommandHandlerDiscoverer implements CommandHandlerDiscoverer
         .selectMethods(beanType,
             (MethodIntrospector.MetadataLookup<CommandHandler<CommandT>>) method -> {
 
-              if (AnnotationUtils.findAnnotation(method,
-                  com.brillantcode.gate.annotation.CommandHandler.class) == null) {
+              if (!isHandlerMethod(method)) {
                 return null;
               }
 
               MethodDescriptor methodDescriptor = new MethodDescriptor(method);
               if (method.getParameterCount() == 1
                   && commandType.equals(methodDescriptor.parameter(0).getType())) {
-                return new ReflectiveMethodCommandHandler<>(
+                return createHandler(
                     beanFactory.getBean(beanType), methodDescriptor, commandType
                 );
               }
@@ -109,4 +138,31 @@ public class MethodCommandHandlerDiscoverer implements CommandHandlerDiscoverer
     return Sets.newHashSet(methodCommandHandlerMap.values());
   }
 
+  /**
+   * Creates the {@link CommandHandler} invoking the given handler method.
+   *
+   * <p>The method is bound with a {@link LambdaMethodCommandHandler}.
+   * If it is not accessible for binding, or binding fails to link,
+   * a {@link ReflectiveMethodCommandHandler} is used instead.
+   *
+   * @param bean        The bean owning the handler method.
+   * @param method      The handler method.
+   * @param commandType The type of the command handled by the method.
+   * @param <CommandT>  The type of the command handled by the method.
+   * @return The command handler invoking the method.
+   */
+  protected <CommandT extends Command> CommandHandler<CommandT> createHandler(
+      Object bean, MethodDescriptor method, Class<CommandT> commandType
+  ) {
+    try {
+      return new LambdaMethodCommandHandler<>(bean, method, commandType);
+    } catch (ReflectiveOperationException | LambdaConversionException | LinkageError ex) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Could not bind handler method " + method.methodReference()
+            + ", falling back to reflective invocation", ex);
+      }
+      return new ReflectiveMethodCommandHandler<>(bean, method, commandType);
+    }
+  }
+
 }
@@ -1,6 +1,8 @@
 package com.brillantcode.gate.handler;
 
 import com.brillantcode.gate.CommandRegistry;
+import java.util.concurrent.ForkJoinPool;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.springframework.context.SmartLifecycle;
 
 /**
@@ -20,6 +22,12 @@ public class SpringMapCommandHandlerRegistry extends AbstractMapCommandHandlerRe
     super(commandRegistry, handlerDiscoverer);
   }
 
+  public SpringMapCommandHandlerRegistry(CommandRegistry commandRegistry,
+                                         CommandHandlerDiscoverer handlerDiscoverer,
+                                         @Nullable ForkJoinPool registrationPool) {
+    super(commandRegistry, handlerDiscoverer, registrationPool);
+  }
+
   @Override
   public void start() {
     synchronized (this.lifecycleMonitor) {
@@ -46,7 +54,8 @@ public class SpringMapCommandHandlerRegistry extends AbstractMapCommandHandlerRe
 
   @Override
   protected boolean isInitialized() {
-    return isRunning();
+    // Checked on every lookup, so the volatile flag is read without locking
+    return this.started;
   }
 
 }
@@ -0,0 +1,112 @@
+package com.brillantcode.gate.handler
+
+import com.brillantcode.gate.Command
+import org.springframework.beans.factory.support.DefaultListableBeanFactory
+import org.springframework.beans.factory.support.RootBeanDefinition
+import org.springframework.core.ResolvableType
+import org.springframework.core.ResolvableTypeProvider
+import spock.lang.Specification
+
+class IndexingBeanCommandHandlerDiscovererSpec extends Specification {
+
+  def beanFactory = new DefaultListableBeanFactory()
+
+  def discoverer = new IndexingBeanCommandHandlerDiscoverer(beanFactory)
+
+  def "Discoverer finds the handler bean of a command type"() {
+    given: "handler beans of two command types"
+    beanFactory.registerBeanDefinition("pingHandler", new RootBeanDefinition(PingHandler))
+    beanFactory.registerBeanDefinition("pongHandler", new RootBeanDefinition(PongHandler))
+
+    expect: "the handler of each type is found"
+    assert discoverer.getHandlerFor(Ping) instanceof PingHandler
+    assert discoverer.getHandlerFor(Pong) instanceof PongHandler
+
+    and: "command types without handler have none"
+    assert discoverer.getHandlerFor(Unhandled) == null
+  }
+
+  def "Discoverer fetches a handler bean on the first lookup of its command type"() {
+    given: "handler beans of two command types"
+    beanFactory.registerBeanDefinition("pingHandler", new RootBeanDefinition(PingHandler))
+    beanFactory.registerBeanDefinition("pongHandler", new RootBeanDefinition(PongHandler))
+
+    when: "the handler of one type is looked up twice"
+    def first = discoverer.getHandlerFor(Ping)
+    def second = discoverer.getHandlerFor(Ping)
+
+    then: "the same handler is returned"
+    assert first.is(second)
+
+    and: "only its bean is created"
+    assert beanFactory.containsSingleton("pingHandler")
+    assert !beanFactory.containsSingleton("pongHandler")
+  }
+
+  def "Discoverer rejects several handlers of a command type"() {
+    given: "two handler beans of the same command type"
+    beanFactory.registerBeanDefinition("pingHandler", new RootBeanDefinition(PingHandler))
+    beanFactory.registerBeanDefinition("otherPingHandler", new RootBeanDefinition(PingHandler))
+
+    when: "the handler is looked up"
+    discoverer.getHandlerFor(Ping)
+
+    then: "the lookup fails"
+    thrown(MultipleHandlersFoundException)
+  }
+
+  def "Discoverer asks generic handlers for their command type"() {
+    given: "a generic handler bean telling its command type"
+    beanFactory.registerSingleton("pongHandler", new GenericHandler(Pong))
+
+    expect: "the handler is found by the command type it tells"
+    assert discoverer.getHandlerFor(Pong) instanceof GenericHandler
+    assert discoverer.getHandlerFor(Command) == null
+  }
+
+  static class Ping implements Command {
+  }
+
+  static class Pong implements Command {
+  }
+
+  static class Unhandled implements Command {
+  }
+
+  static class PingHandler implements CommandHandler<Ping> {
+
+    @Override
+    void handle(Ping command) {
+    }
+
+  }
+
+  static class PongHandler implements CommandHandler<Pong> {
+
+    @Override
+    void handle(Pong command) {
+    }
+
+  }
+
+  static class GenericHandler<CommandT extends Command>
+      implements CommandHandler<CommandT>, ResolvableTypeProvider {
+
+    final Class<CommandT> commandType
+
+    GenericHandler(Class<CommandT> commandType) {
+      this.commandType = commandType
+    }
+
+    @Override
+    void handle(CommandT command) {
+    }
+
+    @Override
+    ResolvableType getResolvableType() {
+      return ResolvableType.forClassWithGenerics(GenericHandler, commandType)
+    }
+
+  }
+
+}
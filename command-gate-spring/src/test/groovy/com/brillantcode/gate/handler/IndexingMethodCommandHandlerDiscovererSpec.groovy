@@ -0,0 +1,88 @@
+package com.brillantcode.gate.handler
+
+import com.brillantcode.gate.Command
+import org.springframework.beans.factory.support.DefaultListableBeanFactory
+import org.springframework.beans.factory.support.RootBeanDefinition
+import spock.lang.Specification
+
+class IndexingMethodCommandHandlerDiscovererSpec extends Specification {
+
+  def beanFactory = new DefaultListableBeanFactory()
+
+  def discoverer = new IndexingMethodCommandHandlerDiscoverer(beanFactory)
+
+  def "Discoverer finds the handler method of a command type"() {
+    given: "beans with handler methods of two command types and an unrelated bean"
+    beanFactory.registerBeanDefinition("pingHandlers", new RootBeanDefinition(PingHandlers))
+    beanFactory.registerBeanDefinition("pongHandlers", new RootBeanDefinition(PongHandlers))
+    beanFactory.registerBeanDefinition("unrelated", new RootBeanDefinition(Object))
+
+    when: "the handler of a type is looked up and invoked"
+    def handler = discoverer.getHandlerFor(Ping)
+    handler.handle(new Ping())
+
+    then: "the handler method of the bean is invoked"
+    assert beanFactory.getBean(PingHandlers).handled == 1
+
+    and: "command types without handler have none"
+    assert discoverer.getHandlerFor(Unhandled) == null
+  }
+
+  def "Discoverer fetches a bean on the first lookup of the command type of its method"() {
+    given: "beans with handler methods of two command types"
+    beanFactory.registerBeanDefinition("pingHandlers", new RootBeanDefinition(PingHandlers))
+    beanFactory.registerBeanDefinition("pongHandlers", new RootBeanDefinition(PongHandlers))
+
+    when: "the handler of one type is looked up twice"
+    def first = discoverer.getHandlerFor(Ping)
+    def second = discoverer.getHandlerFor(Ping)
+
+    then: "the same handler is returned"
+    assert first.is(second)
+
+    and: "only the bean owning its method is created"
+    assert beanFactory.containsSingleton("pingHandlers")
+    assert !beanFactory.containsSingleton("pongHandlers")
+  }
+
+  def "Discoverer rejects several handler methods of a command type"() {
+    given: "two beans with a handler method of the same command type"
+    beanFactory.registerBeanDefinition("pingHandlers", new RootBeanDefinition(PingHandlers))
+    beanFactory.registerBeanDefinition("otherPingHandlers", new RootBeanDefinition(PingHandlers))
+
+    when: "the handler is looked up"
+    discoverer.getHandlerFor(Ping)
+
+    then: "the lookup fails"
+    thrown(MultipleHandlersFoundException)
+  }
+
+  static class Ping implements Command {
+  }
+
+  static class Pong implements Command {
+  }
+
+  static class Unhandled implements Command {
+  }
+
+  static class PingHandlers {
+
+    int handled
+
+    @com.brillantcode.gate.annotation.CommandHandler
+    void handle(Ping command) {
+      handled++
+    }
+
+  }
+
+  static class PongHandlers {
+
+    @com.brillantcode.gate.annotation.CommandHandler
+    void handle(Pong command) {
+    }
+
+  }
+
+}